@@ -0,0 +1,35 @@
+package benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+// Запуск: BenchmarkRunner [каталог результатов] [число потоков,...] [regex бенчмарков]
+// Для каждого числа потоков пишется отдельный JSON-файл jmh-результатов.
+// Многопоточные прогоны выполняются только для ConcurrentTaskManager:
+// остальные реализации не рассчитаны на доступ из нескольких потоков.
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String outputDir = args.length > 0 ? args[0] : "benchmark-results";
+        String[] threadCounts = (args.length > 1 ? args[1] : "1,4,16").split(",");
+        String include = args.length > 2 ? args[2] : "benchmark\\..*";
+
+        new File(outputDir).mkdirs();
+        for (String value : threadCounts) {
+            int threads = Integer.parseInt(value.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(threads > 1 ? TaskManagerBenchmark.class.getName() : include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(outputDir, "results-t" + threads + ".json").getPath());
+            if (threads > 1) {
+                options.param("manager", Implementations.CONCURRENT);
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package benchmark;
+
+import enums.Status;
+import impl.TaskManager;
+import model.Epic;
+import model.Subtask;
+
+// Заполненная доска: subtaskCount подзадач, разложенных по эпикам по subtasksPerEpic штук
+final class Board {
+    final TaskManager manager;
+    final int[] epicIds;
+    final int[] subtaskIds;
+
+    private Board(TaskManager manager, int[] epicIds, int[] subtaskIds) {
+        this.manager = manager;
+        this.epicIds = epicIds;
+        this.subtaskIds = subtaskIds;
+    }
+
+    static Board fill(TaskManager manager, int subtaskCount, int subtasksPerEpic) {
+        int perEpic = Math.min(subtasksPerEpic, subtaskCount);
+        int epicCount = (subtaskCount + perEpic - 1) / perEpic;
+        int[] epicIds = new int[epicCount];
+        int[] subtaskIds = new int[subtaskCount];
+        for (int i = 0; i < epicCount; i++) {
+            epicIds[i] = manager.createEpic(new Epic("Epic " + i, "Benchmark epic")).getId();
+        }
+        for (int i = 0; i < subtaskCount; i++) {
+            Subtask subtask = new Subtask("Subtask " + i, "Benchmark subtask", Status.NEW, epicIds[i / perEpic]);
+            subtaskIds[i] = manager.createSubtask(subtask).getId();
+        }
+        return new Board(manager, epicIds, subtaskIds);
+    }
+}
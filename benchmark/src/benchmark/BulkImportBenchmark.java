@@ -0,0 +1,69 @@
+package benchmark;
+
+import enums.Status;
+import impl.TaskManager;
+import model.Epic;
+import model.Subtask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Импорт подзадач по одной и одним пакетом в пустые эпики
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BulkImportBenchmark {
+    @Param({Implementations.DEFAULT, Implementations.CONCURRENT})
+    public String manager;
+
+    @Param({"100000"})
+    public int subtaskCount;
+
+    @Param({"10", "1000"})
+    public int subtasksPerEpic;
+
+    private TaskManager taskManager;
+    private List<Subtask> subtasks;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        taskManager = Implementations.taskManager(manager);
+        int epicCount = (subtaskCount + subtasksPerEpic - 1) / subtasksPerEpic;
+        int[] epicIds = new int[epicCount];
+        for (int i = 0; i < epicCount; i++) {
+            epicIds[i] = taskManager.createEpic(new Epic("Epic " + i, "Benchmark epic")).getId();
+        }
+        subtasks = new ArrayList<>(subtaskCount);
+        for (int i = 0; i < subtaskCount; i++) {
+            subtasks.add(new Subtask("Subtask " + i, "Benchmark subtask", Status.NEW, epicIds[i / subtasksPerEpic]));
+        }
+    }
+
+    @Benchmark
+    public void createOneByOne() {
+        for (Subtask subtask : subtasks) {
+            taskManager.createSubtask(subtask);
+        }
+    }
+
+    @Benchmark
+    public List<Subtask> createBatch() {
+        return taskManager.createSubtasks(subtasks);
+    }
+}
@@ -0,0 +1,59 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Каскадная очистка большой доски: 1M подзадач в 10k эпиках, часть из них просмотрена.
+// Как и в DeleteAllEpicsBenchmark, каждый замер идёт на свежезаполненных данных
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ClearSubtasksBenchmark {
+    private static final int SUBTASK_COUNT = 1_000_000;
+    private static final int EPIC_COUNT = 10_000;
+    private static final int VIEWED = 100;
+
+    @Param({Implementations.DEFAULT, Implementations.CONCURRENT})
+    public String manager;
+
+    private Board board;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        board = Board.fill(Implementations.taskManager(manager), SUBTASK_COUNT, SUBTASK_COUNT / EPIC_COUNT);
+        for (int i = 0; i < VIEWED; i++) {
+            board.manager.getSubtaskById(board.subtaskIds[i * (SUBTASK_COUNT / VIEWED)]);
+            board.manager.getEpicById(board.epicIds[i * (EPIC_COUNT / VIEWED)]);
+        }
+    }
+
+    @Benchmark
+    public void deleteAllSubtasks() {
+        board.manager.deleteAllSubtasks();
+    }
+
+    @Benchmark
+    public void deleteAllEpics() {
+        board.manager.deleteAllEpics();
+    }
+
+    @Benchmark
+    public void deleteEpicById() {
+        board.manager.deleteEpicById(board.epicIds[0]);
+    }
+}
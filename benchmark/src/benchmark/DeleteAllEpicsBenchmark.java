@@ -0,0 +1,46 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Удаление разрушает доску, поэтому каждый замер идёт на свежезаполненных данных
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DeleteAllEpicsBenchmark {
+    @Param({Implementations.DEFAULT, Implementations.CONCURRENT})
+    public String manager;
+
+    @Param({"1000", "100000", "1000000"})
+    public int subtaskCount;
+
+    @Param({"10", "1000", "100000"})
+    public int subtasksPerEpic;
+
+    private Board board;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        board = Board.fill(Implementations.taskManager(manager), subtaskCount, subtasksPerEpic);
+    }
+
+    @Benchmark
+    public void deleteAllEpics() {
+        board.manager.deleteAllEpics();
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import enums.Status;
+import impl.HistoryManager;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class HistoryManagerBenchmark {
+    @Param({Implementations.DEFAULT, Implementations.UNLIMITED, Implementations.ASYNC})
+    public String history;
+
+    @Param({"1000", "100000", "1000000"})
+    public int taskCount;
+
+    private final SplittableRandom random = new SplittableRandom();
+    private HistoryManager historyManager;
+    private Task[] tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        historyManager = Implementations.historyManager(history);
+        tasks = new Task[taskCount];
+        for (int i = 0; i < taskCount; i++) {
+            tasks[i] = new Task("Task " + i, "Viewed task", i + 1, Status.NEW);
+            historyManager.add(tasks[i]);
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        historyManager.add(tasks[random.nextInt(taskCount)]);
+    }
+
+    @Benchmark
+    public void removeAndAdd() {
+        Task task = tasks[random.nextInt(taskCount)];
+        historyManager.remove(task.getId());
+        historyManager.add(task);
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+}
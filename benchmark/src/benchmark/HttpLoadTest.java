@@ -0,0 +1,154 @@
+package benchmark;
+
+import http.HttpTaskServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Нагрузочный тест HTTP API: clients одновременных клиентов (виртуальных потоков) выполняют
+// по requestsPerClient запросов. Смесь запросов: 90% GET задачи по id, 10% GET подзадач эпика.
+// Сервер запускается отдельным процессом на свободном порту, чтобы клиентские и серверные
+// соединения не делили один лимит открытых файлов; данные заливаются через тот же API.
+// Запуск: HttpLoadTest [clients] [requestsPerClient], результат печатается в JSON.
+// На 10 000 клиентов нужен ulimit -n больше 10 000 и net.core.somaxconn не меньше числа клиентов.
+public class HttpLoadTest {
+    private static final int TASKS = 10_000;
+    private static final int EPICS = 100;
+    private static final int SUBTASKS_PER_EPIC = 20;
+    private static final Pattern PORT = Pattern.compile("(\\d+)$");
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        Process server = startServer(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            String base = "http://localhost:" + readPort(server);
+            // Общий клиент держит пул keep-alive соединений: одновременно занятых столько же, сколько клиентов
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(60))
+                    .executor(executor)
+                    .build();
+            fill(http, base);
+            run(http, executor, base, clients, requestsPerClient);
+        } finally {
+            server.destroy();
+        }
+    }
+
+    private static Process startServer(int clients) throws IOException {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        return new ProcessBuilder(java.toString(),
+                // Простаивающие keep-alive соединения не закрываются сервером между запросами клиента
+                "-Dsun.net.httpserver.maxIdleConnections=" + clients,
+                "-cp", System.getProperty("java.class.path"),
+                HttpTaskServer.class.getName(), "0")
+                .redirectErrorStream(true)
+                .start();
+    }
+
+    private static int readPort(Process server) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        Matcher matcher = line == null ? null : PORT.matcher(line.trim());
+        if (matcher == null || !matcher.find()) {
+            throw new IllegalStateException("Сервер не сообщил порт: " + line);
+        }
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private static void fill(HttpClient http, String base) throws Exception {
+        for (int i = 0; i < TASKS; i++) {
+            post(http, base + "/tasks", "{\"name\":\"Task " + i + "\",\"description\":\"Load test\",\"status\":\"NEW\"}");
+        }
+        for (int i = 0; i < EPICS; i++) {
+            post(http, base + "/epics", "{\"name\":\"Epic " + i + "\",\"description\":\"Load test\"}");
+        }
+        // id выдаются подряд: задачи 1..TASKS, затем эпики
+        for (int i = 0; i < EPICS; i++) {
+            for (int j = 0; j < SUBTASKS_PER_EPIC; j++) {
+                post(http, base + "/subtasks", "{\"name\":\"Subtask " + j + "\",\"description\":\"Load test\","
+                        + "\"status\":\"NEW\",\"epicId\":" + (TASKS + 1 + i) + "}");
+            }
+        }
+    }
+
+    private static void post(HttpClient http, String uri, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        int code = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (code != 201) {
+            throw new IllegalStateException("POST " + uri + " вернул " + code);
+        }
+    }
+
+    private static void run(HttpClient http, ExecutorService executor, String base, int clients, int requestsPerClient)
+            throws Exception {
+        long[][] latencies = new long[clients][];
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            futures.add(executor.submit(() -> {
+                SplittableRandom random = new SplittableRandom(client);
+                long[] own = new long[requestsPerClient];
+                start.await();
+                for (int r = 0; r < requestsPerClient; r++) {
+                    String path = random.nextInt(10) == 0
+                            ? "/epics/" + (TASKS + 1 + random.nextInt(EPICS)) + "/subtasks"
+                            : "/tasks/" + (1 + random.nextInt(TASKS));
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(base + path)).GET().build();
+                    long begin = System.nanoTime();
+                    try {
+                        if (http.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                    own[r] = System.nanoTime() - begin;
+                }
+                latencies[client] = own;
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("{\"clients\":%d,\"requests\":%d,\"errors\":%d,\"throughputPerSecond\":%.0f,"
+                        + "\"p50Millis\":%.3f,\"p99Millis\":%.3f,\"maxMillis\":%.3f}%n",
+                clients, all.length, errors.get(), all.length / (elapsedNanos / 1e9),
+                percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
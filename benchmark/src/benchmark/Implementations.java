@@ -0,0 +1,57 @@
+package benchmark;
+
+import controllers.InMemoryHistoryManager;
+import controllers.InstrumentedTaskManager;
+import controllers.OffHeapTaskManager;
+import impl.HistoryManager;
+import impl.TaskManager;
+import utils.Managers;
+
+// Имена реализаций для @Param: бенчмарки получают менеджеры только через Managers
+final class Implementations {
+    static final String DEFAULT = "default";
+    static final String CONCURRENT = "concurrent";
+    static final String UNLIMITED = "unlimited";
+    static final String ASYNC = "async";
+    static final String INSTRUMENTED = "instrumented";
+    static final String INSTRUMENTED_OFF = "instrumented-off";
+    static final String OFF_HEAP = "offheap";
+    static final String OFF_HEAP_NO_SEARCH = "offheap-nosearch";
+
+    private Implementations() {
+    }
+
+    static TaskManager taskManager(String name) {
+        switch (name) {
+            case DEFAULT:
+                return Managers.getDefault();
+            case CONCURRENT:
+                return Managers.getConcurrent();
+            case OFF_HEAP:
+                return Managers.getOffHeap();
+            case OFF_HEAP_NO_SEARCH:
+                return new OffHeapTaskManager(Managers.getDefaultHistory(), false);
+            case INSTRUMENTED:
+                return Managers.getInstrumented();
+            case INSTRUMENTED_OFF:
+                InstrumentedTaskManager manager = Managers.getInstrumented();
+                manager.getMetrics().setEnabled(false);
+                return manager;
+            default:
+                throw new IllegalArgumentException("Неизвестная реализация TaskManager: " + name);
+        }
+    }
+
+    static HistoryManager historyManager(String name) {
+        switch (name) {
+            case DEFAULT:
+                return Managers.getDefaultHistory();
+            case UNLIMITED:
+                return Managers.getDefaultHistory(InMemoryHistoryManager.UNLIMITED);
+            case ASYNC:
+                return Managers.getAsyncHistory();
+            default:
+                throw new IllegalArgumentException("Неизвестная реализация HistoryManager: " + name);
+        }
+    }
+}
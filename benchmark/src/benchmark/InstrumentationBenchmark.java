@@ -0,0 +1,61 @@
+package benchmark;
+
+import enums.Status;
+import model.Subtask;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Цена замеров: менеджер по умолчанию против того же менеджера в InstrumentedTaskManager
+// с выключенными (instrumented-off) и включёнными метриками. Операции короткие,
+// чтобы накладные расходы декоратора были заметны
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class InstrumentationBenchmark {
+    @Param({Implementations.DEFAULT, Implementations.INSTRUMENTED_OFF, Implementations.INSTRUMENTED})
+    public String manager;
+
+    private Board board;
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = Board.fill(Implementations.taskManager(manager), 100_000, 100);
+    }
+
+    @Benchmark
+    public Subtask getSubtaskById() {
+        return board.manager.getSubtaskById(board.subtaskIds[random.nextInt(board.subtaskIds.length)]);
+    }
+
+    @Benchmark
+    public void updateSubtask() {
+        int id = board.subtaskIds[random.nextInt(board.subtaskIds.length)];
+        int epicId = board.epicIds[(id - board.subtaskIds[0]) / 100];
+        board.manager.updateSubtask(new Subtask("Subtask", "Updated", id,
+                random.nextBoolean() ? Status.DONE : Status.IN_PROGRESS, epicId));
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return board.manager.getHistory();
+    }
+}
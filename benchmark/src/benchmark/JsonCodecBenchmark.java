@@ -0,0 +1,166 @@
+package benchmark;
+
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.JsonTaskReader;
+import utils.JsonTaskWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Выгрузка taskCount подзадач и их эпиков в JSON: потоковый JsonTaskWriter против сборки строк
+// через StringBuilder (как в прежнем JSONTaskFormat.toJson), а также разбор выгрузки JsonTaskReader.
+// Мусор на операцию виден с профилировщиком: -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class JsonCodecBenchmark {
+    private static final int SUBTASKS_PER_EPIC = 10;
+
+    @Param({"100000", "1000000"})
+    public int taskCount;
+
+    private List<Task> tasks;
+    private byte[] subtasksJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tasks = new ArrayList<>(taskCount + taskCount / SUBTASKS_PER_EPIC);
+        List<Subtask> subtasks = new ArrayList<>(taskCount);
+        Epic epic = null;
+        for (int i = 0; i < taskCount; i++) {
+            if (i % SUBTASKS_PER_EPIC == 0) {
+                epic = new Epic("Эпик " + i, "Описание эпика", -i - 1, Status.IN_PROGRESS);
+                tasks.add(epic);
+            }
+            Subtask subtask = new Subtask("Подзадача " + i, "Описание \"подзадачи\"", i + 1, Status.DONE, epic.getId());
+            epic.addSubtaskId(subtask.getId());
+            tasks.add(subtask);
+            subtasks.add(subtask);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonTaskWriter writer = new JsonTaskWriter(out)) {
+            writer.beginArray();
+            for (Subtask subtask : subtasks) {
+                writer.write(subtask);
+            }
+            writer.endArray();
+        }
+        subtasksJson = out.toByteArray();
+    }
+
+    @Benchmark
+    public void encodeStreaming() throws IOException {
+        JsonTaskWriter writer = new JsonTaskWriter(OutputStream.nullOutputStream());
+        writer.beginArray();
+        for (Task task : tasks) {
+            writer.write(task);
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
+    @Benchmark
+    public void encodeStringBuilder() throws IOException {
+        OutputStream out = OutputStream.nullOutputStream();
+        out.write('[');
+        for (int i = 0; i < tasks.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(NaiveJson.toJson(tasks.get(i)).getBytes(StandardCharsets.UTF_8));
+        }
+        out.write(']');
+    }
+
+    @Benchmark
+    public void decodeStreaming(Blackhole blackhole) throws IOException {
+        new JsonTaskReader(new ByteArrayInputStream(subtasksJson)).readArray(TaskType.SUBTASK, blackhole::consume);
+    }
+
+    // Кодирование через промежуточные строки - точка отсчёта
+    private static final class NaiveJson {
+        static String toJson(Task task) {
+            StringBuilder builder = new StringBuilder();
+            builder.append("{\"id\":").append(task.getId())
+                    .append(",\"name\":").append(quote(task.getName()))
+                    .append(",\"description\":").append(quote(task.getDescription()))
+                    .append(",\"status\":").append(task.getStatus() == null ? "null" : quote(task.getStatus().name()));
+            if (task instanceof Subtask) {
+                builder.append(",\"epicId\":").append(((Subtask) task).getEpicId());
+            }
+            if (task instanceof Epic) {
+                builder.append(",\"subtaskIds\":[");
+                List<Integer> subtaskIds = ((Epic) task).getSubtaskIds();
+                for (int i = 0; i < subtaskIds.size(); i++) {
+                    if (i > 0) {
+                        builder.append(',');
+                    }
+                    builder.append(subtaskIds.get(i));
+                }
+                builder.append(']');
+            }
+            return builder.append('}').toString();
+        }
+
+        static String quote(String value) {
+            if (value == null) {
+                return "null";
+            }
+            StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        builder.append("\\\"");
+                        break;
+                    case '\\':
+                        builder.append("\\\\");
+                        break;
+                    case '\n':
+                        builder.append("\\n");
+                        break;
+                    case '\r':
+                        builder.append("\\r");
+                        break;
+                    case '\t':
+                        builder.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            builder.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            builder.append(c);
+                        }
+                }
+            }
+            return builder.append('"').toString();
+        }
+    }
+}
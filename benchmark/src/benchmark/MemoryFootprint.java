@@ -0,0 +1,105 @@
+package benchmark;
+
+import enums.Status;
+import model.Subtask;
+import utils.IntHashMap;
+import utils.IntLinkedSet;
+import utils.TextIndex;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Сравнение занимаемой кучи: подзадачи эпика и хранилище подзадач на упакованных и примитивных коллекциях.
+// Объекты Subtask общие для обоих вариантов и в замер не входят.
+// Для поискового индекса по тем же задачам с текстами из TextCorpus печатаются замер и оценка самого индекса.
+// Запуск: MemoryFootprint [число подзадач], результат печатается в JSON.
+public class MemoryFootprint {
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Subtask[] subtasks = new Subtask[count];
+        for (int i = 0; i < count; i++) {
+            subtasks[i] = new Subtask("Subtask", "Description", i + 1, Status.NEW, 0);
+        }
+
+        long boxedIds = measure(() -> {
+            List<Integer> ids = new ArrayList<>();
+            for (Subtask subtask : subtasks) {
+                ids.add(subtask.getId());
+            }
+            return ids;
+        });
+        long primitiveIds = measure(() -> {
+            IntLinkedSet ids = new IntLinkedSet();
+            for (Subtask subtask : subtasks) {
+                ids.add(subtask.getId());
+            }
+            return ids;
+        });
+        long boxedMap = measure(() -> {
+            Map<Integer, Subtask> map = new HashMap<>();
+            for (Subtask subtask : subtasks) {
+                map.put(subtask.getId(), subtask);
+            }
+            return map;
+        });
+        long primitiveMap = measure(() -> {
+            IntHashMap<Subtask> map = new IntHashMap<>();
+            for (Subtask subtask : subtasks) {
+                map.put(subtask.getId(), subtask);
+            }
+            return map;
+        });
+
+        TextCorpus corpus = new TextCorpus(50_000, 42);
+        String[][] texts = new String[count][];
+        for (int i = 0; i < count; i++) {
+            texts[i] = new String[]{corpus.name(), corpus.description()};
+        }
+        TextIndex[] textIndex = new TextIndex[1];
+        long textIndexBytes = measure(() -> {
+            textIndex[0] = new TextIndex();
+            for (int i = 0; i < count; i++) {
+                textIndex[0].put(subtasks[i].getId(), texts[i][0], texts[i][1]);
+            }
+            return textIndex[0];
+        });
+
+        System.out.println("{");
+        System.out.println("  \"subtasks\": " + count + ",");
+        System.out.println("  \"epicSubtaskIds\": {\"ArrayList<Integer>\": " + boxedIds
+                + ", \"IntLinkedSet\": " + primitiveIds + "},");
+        System.out.println("  \"subtaskMap\": {\"HashMap<Integer, Subtask>\": " + boxedMap
+                + ", \"IntHashMap<Subtask>\": " + primitiveMap + "},");
+        System.out.println("  \"textIndex\": {\"measured\": " + textIndexBytes
+                + ", \"estimated\": " + textIndex[0].estimateFootprint()
+                + ", \"terms\": " + textIndex[0].getTermCount()
+                + ", \"postings\": " + textIndex[0].getPostingCount() + "}");
+        System.out.println("}");
+    }
+
+    interface Allocation {
+        Object allocate();
+    }
+
+    // Прирост занятой кучи после сборки мусора, пока созданная структура достижима
+    private static long measure(Allocation allocation) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long before = usedAfterGc(memory);
+        Object retained = allocation.allocate();
+        long after = usedAfterGc(memory);
+        Reference.reachabilityFence(retained);
+        return after - before;
+    }
+
+    private static long usedAfterGc(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
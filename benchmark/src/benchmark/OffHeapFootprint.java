@@ -0,0 +1,119 @@
+package benchmark;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import enums.Status;
+import impl.TaskManager;
+import model.Subtask;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.SplittableRandom;
+
+// Куча, прямая память и паузы сборщика мусора на доске из subtaskCount подзадач по 100 на эпик:
+// заполнение, полная сборка на заполненной доске и updates случайных обновлений подзадач.
+// Каждая реализация меряется в своей JVM, иначе остатки одной доски попадают в замеры другой:
+//     java -Xmx<куча> -XX:MaxDirectMemorySize=<прямая память> benchmark.OffHeapFootprint
+//         default|offheap|offheap-nosearch [число подзадач] [обновлений]
+// Результат печатается в JSON
+public class OffHeapFootprint {
+    private static final int SUBTASKS_PER_EPIC = 100;
+
+    // Паузы сборщика из уведомлений GarbageCollectorMXBean
+    private static final class Pauses implements NotificationListener {
+        long count;
+        long totalMillis;
+        long maxMillis;
+
+        @Override
+        public synchronized void handleNotification(javax.management.Notification notification, Object handback) {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                long duration = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData())
+                        .getGcInfo().getDuration();
+                count++;
+                totalMillis += duration;
+                maxMillis = Math.max(maxMillis, duration);
+            }
+        }
+
+        synchronized void reset() {
+            count = 0;
+            totalMillis = 0;
+            maxMillis = 0;
+        }
+
+        synchronized String toJson() {
+            return "{\"count\": " + count + ", \"totalMillis\": " + totalMillis + ", \"maxMillis\": " + maxMillis + "}";
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String implementation = args.length > 0 ? args[0] : Implementations.OFF_HEAP_NO_SEARCH;
+        int subtaskCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int updates = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+
+        Pauses pauses = new Pauses();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener(pauses, null, null);
+        }
+        long heapBefore = usedAfterGc();
+        Thread.sleep(100);
+        pauses.reset();
+
+        long fillStart = System.nanoTime();
+        Board board = Board.fill(Implementations.taskManager(implementation), subtaskCount, SUBTASKS_PER_EPIC);
+        long fillMillis = (System.nanoTime() - fillStart) / 1_000_000;
+        Thread.sleep(100);
+        String fillPauses = pauses.toJson();
+
+        long gcStart = System.nanoTime();
+        long heapUsed = usedAfterGc() - heapBefore;
+        long fullGcMillis = (System.nanoTime() - gcStart) / 1_000_000 / 3;
+        Thread.sleep(100);
+        pauses.reset();
+
+        TaskManager manager = board.manager;
+        SplittableRandom random = new SplittableRandom(42);
+        long updateStart = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            int id = board.subtaskIds[random.nextInt(board.subtaskIds.length)];
+            Subtask current = manager.getSubtaskById(id);
+            manager.updateSubtask(new Subtask(current.getName(), current.getDescription(), id,
+                    random.nextBoolean() ? Status.DONE : Status.IN_PROGRESS, current.getEpicId()));
+        }
+        long updateMillis = (System.nanoTime() - updateStart) / 1_000_000;
+        Thread.sleep(100);
+
+        System.out.println("{");
+        System.out.println("  \"implementation\": \"" + implementation + "\",");
+        System.out.println("  \"subtasks\": " + subtaskCount + ",");
+        System.out.println("  \"heapBytes\": " + heapUsed + ",");
+        System.out.println("  \"directBytes\": " + directUsed() + ",");
+        System.out.println("  \"fill\": {\"millis\": " + fillMillis + ", \"gcPauses\": " + fillPauses + "},");
+        System.out.println("  \"fullGcMillis\": " + fullGcMillis + ",");
+        System.out.println("  \"updates\": {\"count\": " + updates + ", \"millis\": " + updateMillis
+                + ", \"gcPauses\": " + pauses.toJson() + "}");
+        System.out.println("}");
+        Reference.reachabilityFence(board);
+    }
+
+    private static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directUsed() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
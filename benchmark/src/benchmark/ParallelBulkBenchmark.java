@@ -0,0 +1,80 @@
+package benchmark;
+
+import enums.Status;
+import impl.ParallelTaskManager;
+import model.Subtask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Операции над всей доской из 1M подзадач в 10k эпиках в пуле из threads потоков:
+// scan - отбор без совпадений (только параллельная часть), report - свёртка по статусам,
+// transition - перевод подзадач половины эпиков туда и обратно (отбор параллельный, применение пакетом).
+// Масштабирование видно только на машине, где ядер не меньше threads
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParallelBulkBenchmark {
+    private static final int SUBTASK_COUNT = 1_000_000;
+    private static final int SUBTASKS_PER_EPIC = 100;
+
+    @Param({Implementations.DEFAULT, Implementations.CONCURRENT, Implementations.OFF_HEAP})
+    public String manager;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    // Все реализации параметра manager поддерживают параллельные операции
+    private ParallelTaskManager boardManager;
+    private ForkJoinPool pool;
+    private boolean started;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boardManager = (ParallelTaskManager) Board.fill(Implementations.taskManager(manager), SUBTASK_COUNT,
+                SUBTASKS_PER_EPIC).manager;
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int scan() {
+        return boardManager.transitionSubtasks(pool,
+                (epic, subtask) -> subtask.getName().endsWith("-") && epic.getStatus() == Status.DONE, Status.DONE);
+    }
+
+    @Benchmark
+    public Map<Status, Long> report() {
+        return boardManager.collectSubtasks(pool,
+                Collectors.groupingBy(Subtask::getStatus, Collectors.counting()));
+    }
+
+    @Benchmark
+    public int transition() {
+        started = !started;
+        return boardManager.transitionSubtasks(pool, (epic, subtask) -> epic.getId() % 2 == 0,
+                started ? Status.IN_PROGRESS : Status.NEW);
+    }
+}
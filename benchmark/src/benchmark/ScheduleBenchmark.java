@@ -0,0 +1,86 @@
+package benchmark;
+
+import enums.Status;
+import exceptions.TaskOverlapException;
+import impl.TaskManager;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Перенос задачи во времени на доске с taskCount запланированными задачами: проверка пересечений
+// идёт по соседям в упорядоченном расписании, поэтому время операции почти не растёт с taskCount
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ScheduleBenchmark {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    // Каждая задача занимает 30 минут из своего часа, вторая половина часа свободна
+    private static final Duration SLOT = Duration.ofMinutes(30);
+
+    @Param({Implementations.DEFAULT, Implementations.CONCURRENT})
+    public String manager;
+
+    @Param({"1000", "100000", "500000"})
+    public int taskCount;
+
+    private TaskManager taskManager;
+    private int[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        taskManager = Implementations.taskManager(manager);
+        ids = new int[taskCount];
+        for (int i = 0; i < taskCount; i++) {
+            ids[i] = taskManager.createTask(new Task("Task " + i, "Benchmark task", Status.NEW,
+                    START.plusHours(i), SLOT)).getId();
+        }
+    }
+
+    // Задача сдвигается в пределах своего часа и остаётся без пересечений
+    @Benchmark
+    public void reschedule() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(taskCount);
+        Task task = new Task("Task " + index, "Benchmark task", ids[index], Status.IN_PROGRESS);
+        task.setStartTime(START.plusHours(index).plusMinutes(random.nextInt(31)));
+        task.setDuration(SLOT);
+        taskManager.updateTask(task);
+    }
+
+    // Попытка занять уже занятое время отклоняется
+    @Benchmark
+    public boolean rejectOverlap() {
+        int index = ThreadLocalRandom.current().nextInt(taskCount);
+        try {
+            taskManager.createTask(new Task("Clash", "Benchmark task", Status.NEW,
+                    START.plusHours(index).plusMinutes(40), Duration.ofMinutes(30)));
+            return false;
+        } catch (TaskOverlapException e) {
+            return true;
+        }
+    }
+
+    @Benchmark
+    public List<Task> prioritized() {
+        return taskManager.getPrioritizedTasks();
+    }
+}
@@ -0,0 +1,127 @@
+package benchmark;
+
+import enums.SearchOrder;
+import enums.Status;
+import impl.TaskManager;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Поиск по словам на доске из taskCount задач со словарём в 50 тысяч слов (см. TextCorpus)
+// против прежнего способа - перебора getAllTasks с String.contains.
+// Редкое слово встречается в десятках задач, среднее - в тысячах, частое - в сотнях тысяч
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SearchBenchmark {
+    private static final int VOCABULARY = 50_000;
+    private static final int LIMIT = 20;
+
+    @Param({Implementations.DEFAULT, Implementations.CONCURRENT})
+    public String manager;
+
+    @Param({"1000000"})
+    public int taskCount;
+
+    private TaskManager taskManager;
+    private TextCorpus corpus;
+    private int[] ids;
+    private String rare;
+    private String medium;
+    private String common;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        taskManager = Implementations.taskManager(manager);
+        corpus = new TextCorpus(VOCABULARY, 42);
+        ids = new int[taskCount];
+        List<Task> batch = new ArrayList<>();
+        for (int i = 0; i < taskCount; i++) {
+            batch.add(new Task(corpus.name(), corpus.description(), Status.NEW));
+            if (batch.size() == 10_000 || i == taskCount - 1) {
+                List<Task> created = taskManager.createTasks(batch);
+                for (int j = 0; j < created.size(); j++) {
+                    ids[i - created.size() + 1 + j] = created.get(j).getId();
+                }
+                batch = new ArrayList<>();
+            }
+        }
+        rare = corpus.word(20_000);
+        medium = corpus.word(300);
+        common = corpus.word(2);
+    }
+
+    @Benchmark
+    public List<Task> rareWord() {
+        return taskManager.search(rare, SearchOrder.ID, LIMIT);
+    }
+
+    // Первые LIMIT совпадений: перебор останавливается, не дочитав список слова
+    @Benchmark
+    public List<Task> commonWord() {
+        return taskManager.search(common, SearchOrder.ID, LIMIT);
+    }
+
+    // Перебирается список среднего слова, частое проверяется по словам кандидата
+    @Benchmark
+    public List<Task> twoWords() {
+        return taskManager.search(common + " " + medium, SearchOrder.ID, LIMIT);
+    }
+
+    // Префикс из двух слогов (около 1/400 словаря) и редкое слово: перебирается список редкого слова,
+    // префикс проверяется по словам кандидата
+    @Benchmark
+    public List<Task> prefix() {
+        return taskManager.search(medium.substring(0, 4) + "* " + rare, SearchOrder.ID, LIMIT);
+    }
+
+    @Benchmark
+    public List<Task> relevance() {
+        return taskManager.search(medium, SearchOrder.RELEVANCE, LIMIT);
+    }
+
+    // Худший случай ранжирования: оцениваются все задачи с частым словом
+    @Benchmark
+    public List<Task> relevanceCommonWord() {
+        return taskManager.search(common, SearchOrder.RELEVANCE, LIMIT);
+    }
+
+    // Переиндексация задачи с новым именем и описанием
+    @Benchmark
+    public void update() {
+        int id = ids[ThreadLocalRandom.current().nextInt(taskCount)];
+        taskManager.updateTask(new Task(corpus.name(), corpus.description(), id, Status.IN_PROGRESS));
+    }
+
+    @Benchmark
+    public List<Task> linearScan() {
+        List<Task> result = new ArrayList<>();
+        for (Task task : taskManager.getAllTasks()) {
+            if (task.getName().contains(medium) || task.getDescription().contains(medium)) {
+                result.add(task);
+                if (result.size() == LIMIT) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+package benchmark;
+
+import enums.Status;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.BinaryTaskFormat;
+import utils.CSVTaskFormat;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Загрузка одного и того же набора задач из двоичного снимка и из CSV
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class SnapshotLoadBenchmark {
+    @Param({"100000", "1000000", "10000000"})
+    public int taskCount;
+
+    private Path directory;
+    private Path binaryFile;
+    private Path csvFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("kanban-snapshot");
+        binaryFile = directory.resolve("tasks.bin");
+        csvFile = directory.resolve("tasks.csv");
+
+        // Десятая часть - эпики, остальное - подзадачи, распределённые по ним
+        int epicCount = Math.max(1, taskCount / 10);
+        List<Epic> epics = new ArrayList<>(epicCount);
+        for (int i = 1; i <= epicCount; i++) {
+            epics.add(new Epic("Эпик " + i % 1000, "Описание эпика", i, Status.NEW));
+        }
+        List<Subtask> subtasks = new ArrayList<>(taskCount - epicCount);
+        for (int i = epicCount + 1; i <= taskCount; i++) {
+            Epic epic = epics.get(i % epicCount);
+            epic.addSubtaskId(i);
+            subtasks.add(new Subtask("Подзадача " + i % 1000, "Описание подзадачи", i, Status.IN_PROGRESS, epic.getId()));
+        }
+
+        BinaryTaskFormat.write(binaryFile, taskCount + 1, 0L, epics, subtasks);
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+            for (Epic epic : epics) {
+                writer.write(CSVTaskFormat.toString(epic));
+                writer.newLine();
+            }
+            for (Subtask subtask : subtasks) {
+                writer.write(CSVTaskFormat.toString(subtask));
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(binaryFile);
+        Files.deleteIfExists(csvFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void loadBinary(Blackhole blackhole) throws IOException {
+        BinaryTaskFormat.read(binaryFile, blackhole::consume);
+    }
+
+    @Benchmark
+    public void loadCsv(Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Task task = CSVTaskFormat.fromString(line);
+                blackhole.consume(task);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import enums.Status;
+import impl.TaskManager;
+import model.Subtask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TaskManagerBenchmark {
+    @Param({Implementations.DEFAULT, Implementations.CONCURRENT, Implementations.OFF_HEAP})
+    public String manager;
+
+    @Param({"1000", "100000", "1000000"})
+    public int subtaskCount;
+
+    @Param({"10", "1000", "100000"})
+    public int subtasksPerEpic;
+
+    private Board board;
+
+    // Доска пересоздаётся на каждой итерации, чтобы createSubtask не раздувал её без ограничений
+    @Setup(Level.Iteration)
+    public void setUp() {
+        board = Board.fill(Implementations.taskManager(manager), subtaskCount, subtasksPerEpic);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int pick(int[] ids) {
+            return ids[random.nextInt(ids.length)];
+        }
+
+        Status status() {
+            return random.nextBoolean() ? Status.DONE : Status.IN_PROGRESS;
+        }
+    }
+
+    @Benchmark
+    public Subtask createSubtask(Cursor cursor) {
+        return board.manager.createSubtask(new Subtask("Subtask", "Created", Status.NEW, cursor.pick(board.epicIds)));
+    }
+
+    @Benchmark
+    public void updateSubtask(Cursor cursor) {
+        TaskManager taskManager = board.manager;
+        Subtask current = taskManager.getSubtaskById(cursor.pick(board.subtaskIds));
+        if (current != null) {
+            taskManager.updateSubtask(new Subtask(current.getName(), current.getDescription(), current.getId(),
+                    cursor.status(), current.getEpicId()));
+        }
+    }
+
+    @Benchmark
+    public Subtask getSubtaskById(Cursor cursor) {
+        return board.manager.getSubtaskById(cursor.pick(board.subtaskIds));
+    }
+
+    @Benchmark
+    public List<Subtask> getSubtasksByEpicId(Cursor cursor) {
+        return board.manager.getSubtasksByEpicId(cursor.pick(board.epicIds));
+    }
+}
@@ -0,0 +1,82 @@
+package benchmark;
+
+import java.util.Random;
+
+// Тексты задач для бенчмарков поиска: слова из словаря vocabularySize слов, частоты убывают по Ципфу
+// (слово ранга r встречается примерно в 1/r раз реже самого частого), как в обычном тексте
+final class TextCorpus {
+    private static final String[] SYLLABLES = {"ка", "ро", "ми", "ле", "ту", "на", "ви", "со", "пе", "да",
+            "зу", "ги", "бо", "ре", "ча", "ль", "мо", "ст", "ки", "ла"};
+    private static final int NAME_WORDS = 3;
+    private static final int DESCRIPTION_WORDS = 8;
+
+    private final String[] words;
+    // Накопленные вероятности рангов для выбора слова двоичным поиском
+    private final double[] cumulative;
+    private final Random random;
+
+    TextCorpus(int vocabularySize, long seed) {
+        words = new String[vocabularySize];
+        cumulative = new double[vocabularySize];
+        random = new Random(seed);
+        double total = 0;
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            words[rank] = wordOf(rank);
+            total += 1.0 / (rank + 1);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            cumulative[rank] /= total;
+        }
+    }
+
+    // Слово ранга rank: 0 - самое частое
+    String word(int rank) {
+        return words[rank];
+    }
+
+    String name() {
+        return text(NAME_WORDS);
+    }
+
+    String description() {
+        return text(DESCRIPTION_WORDS);
+    }
+
+    private String text(int wordCount) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(words[nextRank()]);
+        }
+        return text.toString();
+    }
+
+    private int nextRank() {
+        double value = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Разные ранги дают разные слова: ранг записан в системе счисления по числу слогов
+    private static String wordOf(int rank) {
+        StringBuilder word = new StringBuilder();
+        int rest = rank;
+        do {
+            word.append(SYLLABLES[rest % SYLLABLES.length]);
+            rest /= SYLLABLES.length;
+        } while (rest > 0);
+        return word.append(SYLLABLES[rank % 7]).toString();
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import controllers.InMemoryTaskManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Отмена и повтор очистки доски из 1M подзадач в 10k эпиках. Каждый замер идёт на свежезаполненной
+// и уже очищенной доске, как в ClearSubtasksBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class UndoClearBenchmark {
+    private static final int SUBTASK_COUNT = 1_000_000;
+    private static final int EPIC_COUNT = 10_000;
+
+    @Param({"subtasks", "epics"})
+    public String cleared;
+
+    private InMemoryTaskManager manager;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        // Очистка эпиков держит и эпики, и подзадачи: предел по умолчанию (1M задач) её бы не сохранил
+        manager.setJournalLimits(10, 2 * SUBTASK_COUNT);
+        Board.fill(manager, SUBTASK_COUNT, SUBTASK_COUNT / EPIC_COUNT);
+        if (cleared.equals("subtasks")) {
+            manager.deleteAllSubtasks();
+        } else {
+            manager.deleteAllEpics();
+        }
+    }
+
+    @Benchmark
+    public boolean undo() {
+        return manager.undo();
+    }
+
+    @Benchmark
+    public boolean undoAndRedo() {
+        return manager.undo() && manager.redo();
+    }
+}
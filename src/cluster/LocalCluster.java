@@ -0,0 +1,110 @@
+package cluster;
+
+import controllers.ShardedTaskManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Шарды в отдельных процессах на этой машине: каждый процесс - ShardServer на свободном порту loopback,
+// маршрутизатор - ShardedTaskManager над RemoteTaskManager. Процессы запускаются той же java
+// с каталогом классов, из которого загружен ShardServer, и завершаются в close
+public class LocalCluster implements AutoCloseable {
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    private final List<Process> processes = new ArrayList<>();
+    private final List<RemoteTaskManager> shards = new ArrayList<>();
+    private ShardedTaskManager manager;
+
+    private LocalCluster() {
+    }
+
+    public static LocalCluster start(int shardCount) throws IOException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Число шардов должно быть положительным: " + shardCount);
+        }
+        LocalCluster cluster = new LocalCluster();
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                cluster.processes.add(new ProcessBuilder(javaCommand(), "-cp", classPath(),
+                        ShardServer.class.getName(), String.valueOf(i), String.valueOf(shardCount))
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start());
+            }
+            // Процессы стартуют параллельно, порты читаются после запуска всех
+            for (Process process : cluster.processes) {
+                cluster.shards.add(new RemoteTaskManager(readPort(process)));
+            }
+        } catch (IOException | RuntimeException e) {
+            cluster.close();
+            throw e;
+        }
+        cluster.manager = new ShardedTaskManager(cluster.shards);
+        return cluster;
+    }
+
+    public ShardedTaskManager getManager() {
+        return manager;
+    }
+
+    public int getShardCount() {
+        return processes.size();
+    }
+
+    // Закрытый ввод завершает процесс шарда (см. ShardServer.main); не завершившийся вовремя процесс убивается
+    @Override
+    public void close() {
+        for (RemoteTaskManager shard : shards) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                // Соединение уже разорвано
+            }
+        }
+        for (Process process : processes) {
+            try {
+                process.getOutputStream().close();
+            } catch (IOException e) {
+                process.destroy();
+            }
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static int readPort(Process process) throws IOException {
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8));
+        String line = output.readLine();
+        if (line == null || !line.startsWith(ShardServer.READY_PREFIX)) {
+            throw new IOException("Шард не сообщил порт: " + line);
+        }
+        return Integer.parseInt(line.substring(ShardServer.READY_PREFIX.length()).trim());
+    }
+
+    private static String javaCommand() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static String classPath() throws IOException {
+        try {
+            return Path.of(ShardServer.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IOException("Не удалось определить каталог классов шарда", e);
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package cluster;
+
+import enums.SearchOrder;
+import enums.Status;
+import exceptions.ShardUnavailableException;
+import impl.TaskManager;
+import model.BoardSnapshot;
+import model.Epic;
+import model.EpicRollup;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Клиент шарда в другом процессе (ShardServer): каждый вызов - запрос и ответ по одному соединению.
+// Задачи приходят копиями, поэтому изменения объектов после вызова шард не видят.
+// Созданные шардом id и статус переносятся в переданные объекты, как у менеджера в памяти.
+// Потоки читаются страницами по мере обхода; подписка и параллельные операции (ParallelTaskManager) не поддерживаются:
+// слушателя, условие и свёртку нельзя передать в другой процесс. Потокобезопасен: вызовы идут по очереди
+public class RemoteTaskManager implements TaskManager, Closeable {
+    private static final int STREAM_PAGE_SIZE = 1024;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    public RemoteTaskManager(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> T call(String method, Object... args) {
+        try {
+            WireFormat.writeString(out, method);
+            out.writeInt(args.length);
+            for (Object arg : args) {
+                WireFormat.writeValue(out, arg);
+            }
+            out.flush();
+            if (in.readByte() == WireFormat.ERROR) {
+                throw WireFormat.readError(in);
+            }
+            return (T) WireFormat.readValue(in);
+        } catch (IOException e) {
+            throw new ShardUnavailableException("Шард на порту " + socket.getPort() + " недоступен", e);
+        }
+    }
+
+    private static <T extends Task> T adopt(T sent, Task created) {
+        if (created == null) {
+            return null;
+        }
+        sent.setId(created.getId());
+        sent.setStatus(created.getStatus());
+        return sent;
+    }
+
+    private static <T extends Task> List<T> adoptAll(List<T> sent, List<? extends Task> created) {
+        if (created == null) {
+            return null;
+        }
+        for (int i = 0; i < sent.size(); i++) {
+            adopt(sent.get(i), created.get(i));
+        }
+        return new ArrayList<>(sent);
+    }
+
+    // Методы для задач
+    @Override
+    public List<Task> getAllTasks() {
+        return call("getAllTasks");
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        call("deleteAllTasks");
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return call("getTaskById", id);
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        return adopt(task, call("createTask", task));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        call("updateTask", task);
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        call("deleteTaskById", id);
+    }
+
+    // Методы для эпиков
+    @Override
+    public List<Epic> getAllEpics() {
+        return call("getAllEpics");
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        call("deleteAllEpics");
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return call("getEpicById", id);
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return adopt(epic, call("createEpic", epic));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        call("updateEpic", epic);
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        call("deleteEpicById", id);
+    }
+
+    @Override
+    public boolean moveEpic(int epicId, int parentId) {
+        return call("moveEpic", epicId, parentId);
+    }
+
+    @Override
+    public EpicRollup getEpicRollup(int epicId) {
+        return call("getEpicRollup", epicId);
+    }
+
+    @Override
+    public List<EpicRollup> getEpicRollups(int epicId) {
+        return call("getEpicRollups", epicId);
+    }
+
+    // Методы для подзадач
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return call("getAllSubtasks");
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        call("deleteAllSubtasks");
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return call("getSubtaskById", id);
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        return adopt(subtask, call("createSubtask", subtask));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        call("updateSubtask", subtask);
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        call("deleteSubtaskById", id);
+    }
+
+    // Дополнительные методы
+    @Override
+    public List<Subtask> getSubtasksByEpicId(int epicId) {
+        return call("getSubtasksByEpicId", epicId);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return call("getHistory");
+    }
+
+    @Override
+    public List<Task> createTasks(List<Task> tasks) {
+        return adoptAll(tasks, call("createTasks", tasks));
+    }
+
+    @Override
+    public void updateTasks(List<Task> tasks) {
+        call("updateTasks", tasks);
+    }
+
+    @Override
+    public void deleteTasksByIds(List<Integer> ids) {
+        call("deleteTasksByIds", ids);
+    }
+
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> subtasks) {
+        return adoptAll(subtasks, call("createSubtasks", subtasks));
+    }
+
+    @Override
+    public void updateSubtasks(List<Subtask> subtasks) {
+        call("updateSubtasks", subtasks);
+    }
+
+    @Override
+    public void deleteSubtasksByIds(List<Integer> ids) {
+        call("deleteSubtasksByIds", ids);
+    }
+
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        return call("updateTask", task, expectedVersion);
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        return call("updateSubtask", subtask, expectedVersion);
+    }
+
+    @Override
+    public long getVersion(int id) {
+        return call("getVersion", id);
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return call("contains", id);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return call("getPrioritizedTasks");
+    }
+
+    @Override
+    public List<Task> search(String query, SearchOrder order, int limit) {
+        return call("search", query, order, limit);
+    }
+
+    @Override
+    public BoardSnapshot getSnapshot() {
+        return call("getSnapshot");
+    }
+
+    @Override
+    public long getLastChangeSequence() {
+        return call("getLastChangeSequence");
+    }
+
+    @Override
+    public TaskPage<Task> getTasksPage(int afterId, int pageSize) {
+        return call("getTasksPage", afterId, pageSize);
+    }
+
+    @Override
+    public TaskPage<Epic> getEpicsPage(int afterId, int pageSize) {
+        return call("getEpicsPage", afterId, pageSize);
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasksPage(int afterId, int pageSize) {
+        return call("getSubtasksPage", afterId, pageSize);
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasksPageByEpicId(int epicId, int afterId, int pageSize) {
+        return call("getSubtasksPageByEpicId", epicId, afterId, pageSize);
+    }
+
+    @Override
+    public TaskPage<Task> getHistoryPage(int afterId, int pageSize) {
+        return call("getHistoryPage", afterId, pageSize);
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return streamPages(this::getTasksPage);
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return streamPages(this::getEpicsPage);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return streamPages(this::getSubtasksPage);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksByEpicId(int epicId) {
+        return streamPages((afterId, pageSize) -> getSubtasksPageByEpicId(epicId, afterId, pageSize));
+    }
+
+    @Override
+    public Stream<Task> streamHistory() {
+        return getHistory().stream();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return call("getTasksByStatus", status);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return call("getEpicsByStatus", status);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return call("getSubtasksByStatus", status);
+    }
+
+    @FunctionalInterface
+    private interface PageReader<T extends Task> {
+        TaskPage<T> read(int afterId, int pageSize);
+    }
+
+    // Следующая страница запрашивается, когда обход дошёл до конца предыдущей
+    private static <T extends Task> Stream<T> streamPages(PageReader<T> reader) {
+        Iterator<T> iterator = new Iterator<>() {
+            private Iterator<T> page = Collections.emptyIterator();
+            private Integer token = TaskPage.FIRST_PAGE;
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && token != null) {
+                    TaskPage<T> next = reader.read(token, STREAM_PAGE_SIZE);
+                    page = next.getItems().iterator();
+                    token = next.getNextToken();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+}
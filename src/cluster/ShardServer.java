@@ -0,0 +1,139 @@
+package cluster;
+
+import controllers.ShardedTaskManager;
+import impl.TaskManager;
+import utils.ChangeSubscription;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Шард в отдельном процессе: менеджер, к которому RemoteTaskManager обращается по сокету на loopback.
+// Каждое соединение обслуживается своим виртуальным потоком, вызовы выполняются по одному
+// под монитором менеджера. Потоки и подписки не передаются: клиент читает потоки страницами
+public class ShardServer implements Closeable {
+    // Первая строка вывода процесса шарда, по ней LocalCluster узнаёт порт
+    public static final String READY_PREFIX = "PORT ";
+
+    private final TaskManager manager;
+    private final ServerSocket serverSocket;
+    private final Map<String, Method> methods = new HashMap<>();
+
+    // port = 0 - свободный порт, см. getPort
+    public ShardServer(TaskManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        for (Method method : TaskManager.class.getMethods()) {
+            Class<?> result = method.getReturnType();
+            if (!Stream.class.isAssignableFrom(result) && result != ChangeSubscription.class) {
+                methods.put(signature(method.getName(), method.getParameterCount()), method);
+            }
+        }
+    }
+
+    // Перегрузки методов TaskManager различаются числом аргументов
+    static String signature(String name, int argumentCount) {
+        return name + "/" + argumentCount;
+    }
+
+    public void start() {
+        Thread.ofPlatform().name("shard-server-" + getPort()).daemon().start(this::acceptConnections);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptConnections() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().start(() -> serve(socket));
+            }
+        } catch (IOException e) {
+            // Сокет закрыт в close
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            while (true) {
+                String name;
+                try {
+                    name = WireFormat.readString(in);
+                } catch (EOFException e) {
+                    return;
+                }
+                Object[] args = new Object[in.readInt()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = WireFormat.readValue(in);
+                }
+                respond(out, methods.get(signature(name, args.length)), name, args);
+                out.flush();
+            }
+        } catch (SocketException e) {
+            // Клиент закрыл соединение
+        } catch (IOException e) {
+            System.err.println("Ошибка соединения с шардом: " + e.getMessage());
+        }
+    }
+
+    private void respond(DataOutputStream out, Method method, String name, Object[] args) throws IOException {
+        if (method == null) {
+            WireFormat.writeError(out, new UnsupportedOperationException("Метод не поддерживается шардом: " + name));
+            return;
+        }
+        // Результат записывается под тем же монитором: задачи менеджера может менять другое соединение
+        synchronized (manager) {
+            Object result;
+            try {
+                result = method.invoke(manager, args);
+            } catch (InvocationTargetException e) {
+                WireFormat.writeError(out, e.getCause());
+                return;
+            } catch (IllegalAccessException | IllegalArgumentException e) {
+                WireFormat.writeError(out, e);
+                return;
+            }
+            out.writeByte(WireFormat.OK);
+            WireFormat.writeValue(out, result);
+        }
+    }
+
+    // Запуск: ShardServer shard shardCount [port]. Процесс завершается, когда закрывается его стандартный ввод,
+    // поэтому шарды не переживают запустивший их LocalCluster
+    public static void main(String[] args) throws IOException {
+        int shard = Integer.parseInt(args[0]);
+        int shardCount = Integer.parseInt(args[1]);
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        ShardServer server = new ShardServer(ShardedTaskManager.newShard(shard, shardCount), port);
+        server.start();
+        System.out.println(READY_PREFIX + server.getPort());
+        System.out.flush();
+        while (System.in.read() != -1) {
+            // Ввод только удерживает процесс
+        }
+        server.close();
+    }
+}
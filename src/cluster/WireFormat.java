@@ -0,0 +1,343 @@
+package cluster;
+
+import enums.SearchOrder;
+import enums.Status;
+import enums.TaskType;
+import exceptions.TaskOverlapException;
+import model.BoardSnapshot;
+import model.Epic;
+import model.EpicRollup;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskRecord;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Двоичное представление аргументов и результатов вызовов шарда: байт типа и значение.
+// Передаются null, int, long, boolean, строки, перечисления, задачи, списки, страницы, снимки и итоги эпиков.
+// Запрос: имя метода, число аргументов и аргументы. Ответ: байт OK и результат
+// или байт ERROR, класс и сообщение исключения (у TaskOverlapException ещё id задачи, с которой пересечение)
+final class WireFormat {
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    private static final byte NULL = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte STRING = 4;
+    private static final byte STATUS = 5;
+    private static final byte SEARCH_ORDER = 6;
+    private static final byte TASK = 7;
+    private static final byte LIST = 8;
+    private static final byte PAGE = 9;
+    private static final byte SNAPSHOT = 10;
+    private static final byte ROLLUP = 11;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final SearchOrder[] ORDERS = SearchOrder.values();
+
+    private WireFormat() {
+    }
+
+    static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Status) {
+            out.writeByte(STATUS);
+            out.writeByte(((Status) value).ordinal());
+        } else if (value instanceof SearchOrder) {
+            out.writeByte(SEARCH_ORDER);
+            out.writeByte(((SearchOrder) value).ordinal());
+        } else if (value instanceof Task) {
+            out.writeByte(TASK);
+            writeTask(out, (Task) value);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else if (value instanceof TaskPage) {
+            TaskPage<?> page = (TaskPage<?>) value;
+            out.writeByte(PAGE);
+            writeValue(out, page.getItems());
+            writeValue(out, page.getNextToken());
+        } else if (value instanceof BoardSnapshot) {
+            BoardSnapshot snapshot = (BoardSnapshot) value;
+            out.writeByte(SNAPSHOT);
+            out.writeLong(snapshot.getVersion());
+            writeRecords(out, snapshot.getTasks());
+            writeRecords(out, snapshot.getEpics());
+            writeRecords(out, snapshot.getSubtasks());
+        } else if (value instanceof EpicRollup) {
+            out.writeByte(ROLLUP);
+            writeRollup(out, (EpicRollup) value);
+        } else {
+            throw new IllegalArgumentException("Значение не передаётся шарду: " + value.getClass().getName());
+        }
+    }
+
+    static Object readValue(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case BOOLEAN:
+                return in.readBoolean();
+            case STRING:
+                return readString(in);
+            case STATUS:
+                return STATUSES[in.readByte()];
+            case SEARCH_ORDER:
+                return ORDERS[in.readByte()];
+            case TASK:
+                return readTask(in);
+            case LIST:
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            case PAGE:
+                return readPage(in);
+            case SNAPSHOT:
+                long version = in.readLong();
+                Map<Integer, TaskRecord> tasks = readRecords(in);
+                Map<Integer, TaskRecord> epics = readRecords(in);
+                Map<Integer, TaskRecord> subtasks = readRecords(in);
+                return new BoardSnapshot(version, tasks, epics, subtasks);
+            case ROLLUP:
+                return readRollup(in);
+            default:
+                throw new IOException("Неизвестный тип значения: " + tag);
+        }
+    }
+
+    static void writeError(DataOutput out, Throwable error) throws IOException {
+        out.writeByte(ERROR);
+        writeString(out, error.getClass().getName());
+        writeValue(out, error.getMessage());
+        out.writeInt(error instanceof TaskOverlapException ? ((TaskOverlapException) error).getConflictingId() : 0);
+    }
+
+    // Исключения менеджера воссоздаются с тем же классом; остальные - как IllegalStateException с именем класса
+    static RuntimeException readError(DataInput in) throws IOException {
+        String type = readString(in);
+        String message = (String) readValue(in);
+        int conflictingId = in.readInt();
+        if (type.equals(TaskOverlapException.class.getName())) {
+            return new TaskOverlapException(message, conflictingId);
+        } else if (type.equals(IllegalArgumentException.class.getName())) {
+            return new IllegalArgumentException(message);
+        } else if (type.equals(IllegalStateException.class.getName())) {
+            return new IllegalStateException(message);
+        } else if (type.equals(UnsupportedOperationException.class.getName())) {
+            return new UnsupportedOperationException(message);
+        }
+        return new IllegalStateException(type + ": " + message);
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static TaskType typeOf(Task task) {
+        if (task instanceof Epic) {
+            return TaskType.EPIC;
+        }
+        return task instanceof Subtask ? TaskType.SUBTASK : TaskType.TASK;
+    }
+
+    private static void writeTask(DataOutput out, Task task) throws IOException {
+        TaskType type = typeOf(task);
+        out.writeByte(type.ordinal());
+        out.writeInt(task.getId());
+        writeValue(out, task.getName());
+        writeValue(out, task.getDescription());
+        writeValue(out, task.getStatus());
+        writeTime(out, task.getStartTime());
+        writeDuration(out, task.getDuration());
+        if (type == TaskType.SUBTASK) {
+            out.writeInt(((Subtask) task).getEpicId());
+        } else if (type == TaskType.EPIC) {
+            Epic epic = (Epic) task;
+            out.writeInt(epic.getParentId());
+            writeTime(out, epic.getEndTime());
+            writeIds(out, epic.getSubtaskIds());
+        }
+    }
+
+    private static Task readTask(DataInput in) throws IOException {
+        TaskType type = TYPES[in.readByte()];
+        int id = in.readInt();
+        String name = (String) readValue(in);
+        String description = (String) readValue(in);
+        Status status = (Status) readValue(in);
+        LocalDateTime startTime = readTime(in);
+        Duration duration = readDuration(in);
+        Task task;
+        if (type == TaskType.SUBTASK) {
+            task = new Subtask(name, description, id, status, in.readInt());
+        } else if (type == TaskType.EPIC) {
+            Epic epic = new Epic(name, description, id, status);
+            epic.setParentId(in.readInt());
+            epic.setEndTime(readTime(in));
+            epic.setSubtaskIds(readIds(in));
+            task = epic;
+        } else {
+            task = new Task(name, description, id, status);
+        }
+        task.setStartTime(startTime);
+        task.setDuration(duration);
+        return task;
+    }
+
+    private static void writeRollup(DataOutput out, EpicRollup rollup) throws IOException {
+        out.writeInt(rollup.getEpicId());
+        out.writeInt(rollup.getParentId());
+        out.writeInt(rollup.getDepth());
+        writeValue(out, rollup.getStatus());
+        for (Status status : STATUSES) {
+            out.writeInt(rollup.getCount(status));
+        }
+        out.writeInt(rollup.getSubtaskTotal());
+        out.writeInt(rollup.getSubtaskCount());
+        out.writeInt(rollup.getChildEpicCount());
+    }
+
+    private static EpicRollup readRollup(DataInput in) throws IOException {
+        int epicId = in.readInt();
+        int parentId = in.readInt();
+        int depth = in.readInt();
+        Status status = (Status) readValue(in);
+        int[] counts = new int[STATUSES.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = in.readInt();
+        }
+        return new EpicRollup(epicId, parentId, depth, status, counts, in.readInt(), in.readInt(), in.readInt());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TaskPage<Task> readPage(DataInput in) throws IOException {
+        List<Task> items = (List<Task>) readValue(in);
+        Integer nextToken = (Integer) readValue(in);
+        return new TaskPage<>(items, nextToken);
+    }
+
+    private static void writeRecords(DataOutput out, List<TaskRecord> records) throws IOException {
+        out.writeInt(records.size());
+        for (TaskRecord record : records) {
+            out.writeByte(record.getType().ordinal());
+            out.writeInt(record.getId());
+            writeValue(out, record.getName());
+            writeValue(out, record.getDescription());
+            writeValue(out, record.getStatus());
+            out.writeInt(record.getEpicId());
+            writeIds(out, record.getSubtaskIds());
+            writeTime(out, record.getStartTime());
+            writeDuration(out, record.getDuration());
+            writeTime(out, record.getEndTime());
+            out.writeLong(record.getVersion());
+        }
+    }
+
+    private static Map<Integer, TaskRecord> readRecords(DataInput in) throws IOException {
+        int count = in.readInt();
+        Map<Integer, TaskRecord> records = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            TaskType type = TYPES[in.readByte()];
+            int id = in.readInt();
+            TaskRecord record = new TaskRecord(id, type, (String) readValue(in), (String) readValue(in),
+                    (Status) readValue(in), in.readInt(), readIds(in), readTime(in), readDuration(in), readTime(in),
+                    in.readLong());
+            records.put(id, record);
+        }
+        return records;
+    }
+
+    private static void writeIds(DataOutput out, List<Integer> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static List<Integer> readIds(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<Integer> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(in.readInt());
+        }
+        return ids;
+    }
+
+    // Время передаётся секундами и наносекундами UTC, как в BinaryTaskFormat; отсутствие - флагом
+    private static void writeTime(DataOutput out, LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static void writeDuration(DataOutput out, Duration duration) throws IOException {
+        out.writeBoolean(duration != null);
+        if (duration != null) {
+            out.writeLong(duration.getSeconds());
+            out.writeInt(duration.getNano());
+        }
+    }
+
+    private static Duration readDuration(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return Duration.ofSeconds(in.readLong(), in.readInt());
+    }
+}
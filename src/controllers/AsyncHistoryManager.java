@@ -0,0 +1,260 @@
+package controllers;
+
+import enums.OverflowPolicy;
+import impl.HistoryManager;
+import model.Task;
+import model.TaskPage;
+import utils.RingBuffer;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+// Просмотры записываются в кольцевой буфер без блокировок и переносятся в delegate пачками.
+// Переносом занимается задача в общем пуле потоков-демонов: производитель ставит её, только если
+// она ещё не поставлена, а опустошив буфер, задача завершается. Поэтому без просмотров менеджер
+// не держит и не будит ни одного потока, и незакрытый менеджер ничего не оставляет после себя.
+// Удаление сначала применяет все накопленные просмотры, чтобы запоздавший просмотр не вернул
+// удалённую задачу в историю. Просмотр может попасть в буфер и после удаления, если читатель нашёл задачу
+// раньше; такой просмотр отсеивает фильтр хранимых задач, который менеджер задаёт через setStoredFilter.
+// С flushOnRead чтение истории тоже сначала применяет накопленные просмотры.
+public class AsyncHistoryManager implements HistoryManager, Closeable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int DEFAULT_SAMPLE_RATE = 8;
+
+    private static final int BATCH_SIZE = 1024;
+    // Пауза производителя при политике BLOCK удваивается до этого предела
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Потоки пула завершаются после минуты простоя
+    private static final ExecutorService DRAINERS = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "history-consumer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HistoryManager delegate;
+    private final RingBuffer<Task> views;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private final boolean flushOnRead;
+    // Под этой блокировкой единственный потребитель буфера работает с delegate
+    private final ReentrantLock drainLock = new ReentrantLock();
+    // Задача переноса поставлена в пул или выполняется
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    // Проверяется при применении просмотра под drainLock. Менеджер убирает задачу из хранилища до remove,
+    // поэтому просмотр удалённой задачи, применённый после remove, отбрасывается
+    private volatile IntPredicate stored = id -> true;
+    private volatile boolean closed;
+
+    public AsyncHistoryManager(HistoryManager delegate) {
+        this(delegate, DEFAULT_CAPACITY, OverflowPolicy.DROP, DEFAULT_SAMPLE_RATE, true);
+    }
+
+    // sampleRate: при политике SAMPLE и заполненном больше чем наполовину буфере принимается
+    // в среднем один просмотр из sampleRate
+    public AsyncHistoryManager(HistoryManager delegate, int capacity, OverflowPolicy overflowPolicy,
+                               int sampleRate, boolean flushOnRead) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Частота выборки должна быть положительной: " + sampleRate);
+        }
+        this.delegate = delegate;
+        this.views = new RingBuffer<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = sampleRate;
+        this.flushOnRead = flushOnRead;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null || closed) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                offerOrWait(task);
+                break;
+            case SAMPLE:
+                if (views.size() * 2 > views.capacity() && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+                    dropped.incrementAndGet();
+                } else if (!views.offer(task)) {
+                    dropped.incrementAndGet();
+                }
+                break;
+            default:
+                if (!views.offer(task)) {
+                    dropped.incrementAndGet();
+                }
+        }
+        scheduleDrain();
+    }
+
+    // Буфер полон: производитель сам переносит пачку, если потребитель свободен, иначе ждёт
+    // с удваивающейся паузой, а не крутится на процессоре
+    private void offerOrWait(Task task) {
+        long backoff = 1;
+        while (!views.offer(task)) {
+            if (closed) {
+                return;
+            }
+            if (drainLock.tryLock()) {
+                try {
+                    views.drainTo(this::apply, BATCH_SIZE);
+                } finally {
+                    drainLock.unlock();
+                }
+            } else {
+                scheduleDrain();
+                LockSupport.parkNanos(this, backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+            }
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        drainLock.lock();
+        try {
+            drainAll();
+            delegate.remove(id);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeIf(IntPredicate deleted) {
+        drainLock.lock();
+        try {
+            drainAll();
+            delegate.removeIf(deleted);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        drainLock.lock();
+        try {
+            if (flushOnRead) {
+                drainAll();
+            }
+            return delegate.size();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            if (flushOnRead) {
+                drainAll();
+            }
+            return delegate.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public TaskPage<Task> getHistoryPage(int afterId, int pageSize) {
+        drainLock.lock();
+        try {
+            if (flushOnRead) {
+                drainAll();
+            }
+            return delegate.getHistoryPage(afterId, pageSize);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Поток идёт по копии: delegate продолжает меняться фоновым потоком
+    @Override
+    public Stream<Task> streamHistory() {
+        return getHistory().stream();
+    }
+
+    // Применяет все просмотры, записанные в буфер до вызова
+    public void flush() {
+        drainLock.lock();
+        try {
+            drainAll();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Менеджер, владеющий историей, сообщает, какие задачи у него ещё хранятся
+    void setStoredFilter(IntPredicate stored) {
+        this.stored = stored;
+    }
+
+    // Число просмотров, не попавших в историю из-за переполнения буфера
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Новые просмотры больше не принимаются, накопленные применяются
+    @Override
+    public void close() {
+        closed = true;
+        flush();
+    }
+
+    private void scheduleDrain() {
+        if (!draining.get() && !views.isEmpty() && draining.compareAndSet(false, true)) {
+            DRAINERS.execute(this::drain);
+        }
+    }
+
+    // Переносит просмотры, пока буфер не опустеет. Производитель мог записать просмотр, уже увидев
+    // draining = true, поэтому после сброса флага буфер проверяется ещё раз
+    private void drain() {
+        do {
+            int drained;
+            do {
+                drainLock.lock();
+                try {
+                    drained = views.drainTo(this::apply, BATCH_SIZE);
+                } finally {
+                    drainLock.unlock();
+                }
+            } while (drained > 0);
+            draining.set(false);
+        } while (!views.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    // Вызывается под drainLock
+    private void apply(Task view) {
+        if (stored.test(view.getId())) {
+            delegate.add(view);
+        }
+    }
+
+    // Вызывается под drainLock. Применяет только просмотры, записанные до вызова: при непрерывном
+    // потоке просмотров буфер может не опустеть никогда, и удаление ждало бы читателей без конца
+    private void drainAll() {
+        int pending = views.size();
+        while (pending > 0) {
+            int drained = views.drainTo(this::apply, Math.min(pending, BATCH_SIZE));
+            if (drained == 0) {
+                return;
+            }
+            pending -= drained;
+        }
+    }
+}
@@ -0,0 +1,2118 @@
+package controllers;
+
+import enums.OverflowPolicy;
+import enums.SearchOrder;
+import enums.Status;
+import enums.TaskType;
+import impl.HistoryManager;
+import impl.JournaledTaskManager;
+import model.BoardSnapshot;
+import model.Epic;
+import model.EpicRollup;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskRecord;
+import utils.ChangeLog;
+import utils.ChangeSubscription;
+import utils.IntLinkedSet;
+import utils.Managers;
+import utils.TextIndex;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+// Потокобезопасный менеджер: чтения идут без блокировок, изменения эпика и его подзадач
+// выполняются под блокировкой полосы (stripe), в которую попадает id корневого эпика его дерева
+public class ConcurrentTaskManager implements JournaledTaskManager {
+    private static final int DEFAULT_STRIPES = 64;
+    // Обновление без проверки версии
+    private static final long ANY_VERSION = -1;
+
+    // Упорядочены по id для постраничного чтения; ConcurrentSkipListMap читается без блокировок.
+    // Очистка и её отмена подменяют хранилища целиком под lockAll, поэтому ссылки volatile
+    private volatile ConcurrentNavigableMap<Integer, Task> tasks = new ConcurrentSkipListMap<>();
+    private volatile ConcurrentNavigableMap<Integer, Epic> epics = new ConcurrentSkipListMap<>();
+    private volatile ConcurrentNavigableMap<Integer, Subtask> subtasks = new ConcurrentSkipListMap<>();
+    private volatile Map<Integer, NavigableSet<Integer>> epicSubtaskIds = new ConcurrentHashMap<>();
+    private volatile Map<Integer, EpicStatusCounter> epicStatusCounters = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Status> subtaskStatuses = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Integer> subtaskEpicIds = new ConcurrentHashMap<>();
+    // Вложенность эпиков; корневые эпики здесь не хранятся. Эпик блокируется полосой корня, поэтому
+    // изменение подзадачи доходит до счётчиков всех предков под одной блокировкой. Корень меняется
+    // только при переносе поддерева, а перенос идёт под lockAll
+    private volatile Map<Integer, Integer> epicParents = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Set<Integer>> childEpicIds = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Integer> epicRoots = new ConcurrentHashMap<>();
+    // Расписание общее для всех полос и защищено своим монитором, который берётся только после полос;
+    // сроки эпика меняются под полосой эпика
+    private final ScheduleIndex scheduleIndex = new ScheduleIndex();
+    private volatile Map<Integer, EpicSchedule> epicSchedules = new ConcurrentHashMap<>();
+    // Поисковый индекс тоже общий и берётся только после полос; запрос может пересортировать списки индекса,
+    // поэтому и чтение идёт под монитором
+    private final TextIndex textIndex = new TextIndex();
+    private final ReentrantLock[] stripes;
+    // Просмотры пишутся в кольцевой буфер без блокировок, поэтому чтение по id не ждёт других читателей;
+    // остальные операции истории потокобезопасны сами
+    private final HistoryManager historyManager;
+    private final ChangeLog changeLog = new ChangeLog();
+    // Версии по видам задач: очистка и её отмена подменяют карту вида целиком
+    private volatile Map<Integer, Long> taskVersions = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Long> epicVersions = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Long> subtaskVersions = new ConcurrentHashMap<>();
+    private final Object snapshotLock = new Object();
+    private volatile BoardSnapshot snapshot;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    // Журнал изменений, как в InMemoryTaskManager. Изменение пишет запись под теми же полосами, под которыми
+    // меняет задачи, поэтому записи одного дерева идут в порядке изменений, а отмена под lockAll видит
+    // все завершённые изменения. Журнал защищён своим монитором, который берётся после полос
+    private final MutationJournal journal = new MutationJournal(InMemoryTaskManager.DEFAULT_JOURNAL_ENTRIES,
+            InMemoryTaskManager.DEFAULT_JOURNAL_TASKS);
+
+    public ConcurrentTaskManager() {
+        this(Managers.getDefaultHistory(), DEFAULT_STRIPES);
+    }
+
+    // Обычная история оборачивается в AsyncHistoryManager с политикой BLOCK: просмотры не теряются
+    public ConcurrentTaskManager(HistoryManager historyManager, int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Число полос блокировок должно быть положительным: " + stripeCount);
+        }
+        AsyncHistoryManager asyncHistory = historyManager instanceof AsyncHistoryManager
+                ? (AsyncHistoryManager) historyManager
+                : new AsyncHistoryManager(historyManager, AsyncHistoryManager.DEFAULT_CAPACITY, OverflowPolicy.BLOCK,
+                AsyncHistoryManager.DEFAULT_SAMPLE_RATE, true);
+        // Чтение по id пишет просмотр уже без блокировок, и удаление могло пройти между ними:
+        // такой просмотр история отбросит, потому что задачи уже нет в хранилище
+        asyncHistory.setStoredFilter(id -> tasks.containsKey(id) || epics.containsKey(id) || subtasks.containsKey(id));
+        this.historyManager = asyncHistory;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    private int generateId() {
+        return nextId.getAndIncrement();
+    }
+
+    private int stripeIndex(int epicId) {
+        return Math.floorMod(epicId * 0x9E3779B9, stripes.length);
+    }
+
+    private int parentOf(int epicId) {
+        return epicParents.getOrDefault(epicId, Epic.NO_PARENT);
+    }
+
+    // У задач и корневых эпиков корень - они сами
+    private int rootOf(int epicId) {
+        return epicRoots.getOrDefault(epicId, epicId);
+    }
+
+    // Корень мог смениться, пока бралась блокировка; тогда берётся полоса нового корня
+    private ReentrantLock lockEpic(int epicId) {
+        while (true) {
+            int rootId = rootOf(epicId);
+            ReentrantLock lock = stripes[stripeIndex(rootId)];
+            lock.lock();
+            if (rootOf(epicId) == rootId) {
+                return lock;
+            }
+            lock.unlock();
+        }
+    }
+
+    // Полосы корней всех эпиков берутся в порядке индексов, чтобы перенос подзадач
+    // не приводил к взаимной блокировке
+    private int[] lockEpicStripes(Collection<Integer> epicIds) {
+        while (true) {
+            Map<Integer, Integer> rootIds = new HashMap<>();
+            for (int epicId : epicIds) {
+                rootIds.put(epicId, rootOf(epicId));
+            }
+            int[] locked = stripesOf(rootIds.values());
+            lockStripes(locked);
+            if (rootIds.equals(currentRootIds(rootIds.keySet()))) {
+                return locked;
+            }
+            unlockStripes(locked);
+        }
+    }
+
+    private Map<Integer, Integer> currentRootIds(Collection<Integer> epicIds) {
+        Map<Integer, Integer> result = new HashMap<>();
+        for (int epicId : epicIds) {
+            result.put(epicId, rootOf(epicId));
+        }
+        return result;
+    }
+
+    // Полосы всех эпиков пакета; возвращаются без повторов по возрастанию индекса
+    private int[] stripesOf(Collection<Integer> epicIds) {
+        return epicIds.stream().mapToInt(this::stripeIndex).distinct().sorted().toArray();
+    }
+
+    private void lockStripes(int[] indexes) {
+        for (int index : indexes) {
+            stripes[index].lock();
+        }
+    }
+
+    private void unlockStripes(int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    // Вызывается под блокировкой полосы эпика; пересчитываются эпик и его предки
+    private void updateEpicStatus(int epicId) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = parentOf(id)) {
+            Epic epic = epics.get(id);
+            EpicStatusCounter counter = epicStatusCounters.get(id);
+            if (epic != null && counter != null) {
+                Status status = counter.toStatus();
+                if (epic.getStatus() != status) {
+                    epic.setStatus(status);
+                    recordEpicStatusChanged(epic);
+                }
+            }
+        }
+    }
+
+    // Подзадача учитывается в счётчиках эпика и всех его предков: O(глубины)
+    private void countSubtask(int epicId, Status status) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = parentOf(id)) {
+            epicStatusCounters.get(id).increment(status);
+        }
+    }
+
+    private void uncountSubtask(int epicId, Status status) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = parentOf(id)) {
+            epicStatusCounters.get(id).decrement(status);
+        }
+    }
+
+    // Прямой порядок обхода, как в EpicTree; вызывается под полосой корня эпика
+    private void forEachInSubtree(int rootId, EpicTree.Visitor visitor) {
+        Deque<int[]> pending = new ArrayDeque<>();
+        pending.push(new int[]{rootId, 0});
+        while (!pending.isEmpty()) {
+            int[] next = pending.pop();
+            visitor.visit(next[0], next[1]);
+            Set<Integer> children = childEpicIds.get(next[0]);
+            if (children != null) {
+                List<Integer> ids = new ArrayList<>(children);
+                for (int i = ids.size() - 1; i >= 0; i--) {
+                    pending.push(new int[]{ids.get(i), next[1] + 1});
+                }
+            }
+        }
+    }
+
+    private boolean isInSubtree(int rootId, int epicId) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = parentOf(id)) {
+            if (id == rootId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int depthOf(int epicId) {
+        int depth = 0;
+        for (int id = parentOf(epicId); id != Epic.NO_PARENT; id = parentOf(id)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    // Время подзадачи учитывается в сроках эпика и всех его предков, как и статус; вызывается под полосой корня
+    private void rescheduleSubtask(int epicId, ScheduleIndex.Slot removed, ScheduleIndex.Slot added) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = parentOf(id)) {
+            EpicSchedule epicSchedule = epicSchedules.get(id);
+            epicSchedule.remove(removed);
+            epicSchedule.add(added);
+            epicSchedule.applyTo(epics.get(id));
+        }
+    }
+
+    // Время подзадачи к этому моменту уже учтено в scheduleIndex
+    private void attachSubtask(Epic epic, Subtask subtask) {
+        epic.addSubtaskId(subtask.getId());
+        epicSubtaskIds.get(epic.getId()).add(subtask.getId());
+        countSubtask(epic.getId(), subtask.getStatus());
+        rescheduleSubtask(epic.getId(), null, slotOf(subtask.getId()));
+        subtaskStatuses.put(subtask.getId(), subtask.getStatus());
+        subtaskEpicIds.put(subtask.getId(), epic.getId());
+    }
+
+    // slot - время, с которым подзадача была учтена в эпике
+    private void detachSubtask(int epicId, int subtaskId, ScheduleIndex.Slot slot) {
+        Status status = subtaskStatuses.remove(subtaskId);
+        subtaskEpicIds.remove(subtaskId);
+        Epic epic = epics.get(epicId);
+        if (epic != null) {
+            epic.removeSubtaskId(subtaskId);
+            epicSubtaskIds.get(epicId).remove(subtaskId);
+            uncountSubtask(epicId, status);
+            rescheduleSubtask(epicId, slot, null);
+        }
+    }
+
+    // Учитывает время задачи с id; при пересечении бросает TaskOverlapException до любых изменений
+    private ScheduleIndex.Slot schedule(int id, Task task) {
+        synchronized (scheduleIndex) {
+            return scheduleIndex.put(id, task.getStartTime(), task.getDuration());
+        }
+    }
+
+    private ScheduleIndex.Slot[] scheduleAll(int[] ids, List<? extends Task> items) {
+        synchronized (scheduleIndex) {
+            return scheduleIndex.putAll(ids, items);
+        }
+    }
+
+    private ScheduleIndex.Slot unschedule(int id) {
+        synchronized (scheduleIndex) {
+            return scheduleIndex.remove(id);
+        }
+    }
+
+    private ScheduleIndex.Slot slotOf(int id) {
+        synchronized (scheduleIndex) {
+            return scheduleIndex.get(id);
+        }
+    }
+
+    private void index(Task task) {
+        synchronized (textIndex) {
+            textIndex.put(task.getId(), task.getName(), task.getDescription());
+        }
+    }
+
+    private void unindex(int id) {
+        synchronized (textIndex) {
+            textIndex.remove(id);
+        }
+    }
+
+    private static int[] idsOf(List<? extends Task> items) {
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = items.get(i).getId();
+        }
+        return ids;
+    }
+
+    private static int[] consecutiveIds(int first, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = first + i;
+        }
+        return ids;
+    }
+
+    // Вызываются под блокировкой полосы задачи или её эпика
+    private void recordCreated(Task task) {
+        versionsOf(task).put(task.getId(), changeLog.created(task));
+    }
+
+    private void recordUpdated(Task task) {
+        versionsOf(task).put(task.getId(), changeLog.updated(task));
+    }
+
+    private void recordDeleted(TaskType type, int id) {
+        (type == TaskType.TASK ? taskVersions : type == TaskType.EPIC ? epicVersions : subtaskVersions).remove(id);
+        changeLog.deleted(type, id);
+    }
+
+    private void recordEpicStatusChanged(Epic epic) {
+        epicVersions.put(epic.getId(), changeLog.epicStatusChanged(epic, epic.getStatus()));
+    }
+
+    private Map<Integer, Long> versionsOf(Task task) {
+        if (task instanceof Subtask) {
+            return subtaskVersions;
+        }
+        return task instanceof Epic ? epicVersions : taskVersions;
+    }
+
+    private void addToHistory(Task task) {
+        if (task != null) {
+            historyManager.add(task);
+        }
+    }
+
+    private void removeFromHistory(int id) {
+        historyManager.remove(id);
+    }
+
+    // Снимает удаляемые задачи с истории, расписания, поиска и версий, как в InMemoryTaskManager:
+    // большую долю структуры дешевле вычистить одним проходом, чем искать каждый id.
+    // Каждый общий монитор берётся один раз на всё удаление
+    private void forgetDeleted(int count, IntPredicate stored, Consumer<IntConsumer> forEachDeleted) {
+        IntPredicate deleted = count > 1 ? DeletedIds.of(forEachDeleted, stored) : stored;
+        forgetViews(count, deleted, forEachDeleted);
+        for (Map<Integer, Long> versions : List.of(taskVersions, epicVersions, subtaskVersions)) {
+            if (prefersScan(count, versions.size())) {
+                versions.keySet().removeIf(deleted::test);
+            } else {
+                forEachDeleted.accept(versions::remove);
+            }
+        }
+        synchronized (scheduleIndex) {
+            if (prefersScan(count, scheduleIndex.size())) {
+                scheduleIndex.removeIf(deleted);
+            } else {
+                forEachDeleted.accept(scheduleIndex::remove);
+            }
+        }
+        synchronized (textIndex) {
+            if (prefersScan(count, textIndex.size())) {
+                textIndex.removeIf(deleted);
+            } else {
+                forEachDeleted.accept(textIndex::remove);
+            }
+        }
+    }
+
+    // Очистка: время и слова удалённых задач снимаются в cleared, чтобы отмена вернула их без разбора;
+    // версии уходят туда же вместе со своими картами. Просмотры удалённых задач не возвращаются и при отмене.
+    // Вызывается после подмены хранилищ, чтобы история отбросила просмотры, записанные во время очистки
+    private void detachDeleted(Cleared cleared, IntPredicate stored, Consumer<IntConsumer> forEachDeleted) {
+        int count = cleared.count;
+        IntPredicate deleted = count > 1 ? DeletedIds.of(forEachDeleted, stored) : stored;
+        forgetViews(count, deleted, forEachDeleted);
+        synchronized (scheduleIndex) {
+            cleared.slots = prefersScan(count, scheduleIndex.size())
+                    ? scheduleIndex.detachIf(deleted) : scheduleIndex.detach(collectIds(count, forEachDeleted));
+        }
+        synchronized (textIndex) {
+            cleared.text = prefersScan(count, textIndex.size())
+                    ? textIndex.detachIf(deleted) : textIndex.detach(collectIds(count, forEachDeleted));
+        }
+    }
+
+    private void forgetViews(int count, IntPredicate deleted, Consumer<IntConsumer> forEachDeleted) {
+        if (prefersScan(count, historyManager.size())) {
+            historyManager.removeIf(deleted);
+        } else {
+            forEachDeleted.accept(historyManager::remove);
+        }
+    }
+
+    private static int[] collectIds(int count, Consumer<IntConsumer> forEach) {
+        int[] ids = new int[count];
+        int[] size = {0};
+        forEach.accept(id -> ids[size[0]++] = id);
+        return ids;
+    }
+
+    private static boolean prefersScan(int count, int size) {
+        return count >= size / 2;
+    }
+
+    private static Consumer<IntConsumer> each(Collection<Integer> ids) {
+        return action -> ids.forEach(action::accept);
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        lockAll();
+        try {
+            recordClear(detachTasks(false));
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        Task task = tasks.get(id);
+        addToHistory(task);
+        return task;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        int id = generateId();
+        ReentrantLock lock = lockEpic(id);
+        try {
+            schedule(id, task);
+            task.setId(id);
+            insertTask(task);
+            record(changeOf(id, null));
+        } finally {
+            lock.unlock();
+        }
+        return task;
+    }
+
+    // Время задачи уже учтено в scheduleIndex
+    private void insertTask(Task task) {
+        tasks.put(task.getId(), task);
+        index(task);
+        recordCreated(task);
+    }
+
+    private void storeTask(Task task) {
+        schedule(task.getId(), task);
+        tasks.put(task.getId(), task);
+        index(task);
+        recordUpdated(task);
+    }
+
+    private void removeTask(int id) {
+        tasks.remove(id);
+        unschedule(id);
+        unindex(id);
+        removeFromHistory(id);
+        recordDeleted(TaskType.TASK, id);
+    }
+
+    // Задачи без эпика блокируют полосу своего id: так изменение, номер события и версия
+    // не расходятся между собой, а getSnapshot под lockAll видит их согласованными
+    @Override
+    public void updateTask(Task task) {
+        updateTask(task, ANY_VERSION);
+    }
+
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        ReentrantLock lock = lockEpic(task.getId());
+        try {
+            if (!tasks.containsKey(task.getId()) || !hasVersion(task.getId(), expectedVersion)) {
+                return false;
+            }
+            ItemChanges changes = changeOf(task.getId());
+            storeTask(task);
+            record(changes);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        ReentrantLock lock = lockEpic(id);
+        try {
+            if (tasks.containsKey(id)) {
+                ItemChanges changes = changeOf(id);
+                removeTask(id);
+                record(changes);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return new ArrayList<>(epics.values());
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        lockAll();
+        try {
+            recordClear(detachEpics(false));
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        Epic epic = epics.get(id);
+        addToHistory(epic);
+        return epic;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        int parentId = epic.getParentId();
+        if (parentId == Epic.NO_PARENT) {
+            epic.setId(generateId());
+        }
+        // Вложенный эпик создаётся под полосой корня родителя, и id выдаётся уже после проверки родителя.
+        // Корень записывается раньше, чем эпик появляется в epics
+        ReentrantLock lock = lockEpic(parentId == Epic.NO_PARENT ? epic.getId() : parentId);
+        try {
+            if (parentId != Epic.NO_PARENT) {
+                if (!epics.containsKey(parentId)) {
+                    return null;
+                }
+                epic.setId(generateId());
+            }
+            insertEpic(epic);
+            record(changeOf(epic.getId(), null));
+        } finally {
+            lock.unlock();
+        }
+        return epic;
+    }
+
+    // Родитель эпика, если он есть, уже существует; корень записывается раньше, чем эпик появляется в epics
+    private void insertEpic(Epic epic) {
+        int parentId = epic.getParentId();
+        if (parentId != Epic.NO_PARENT) {
+            epicRoots.put(epic.getId(), rootOf(parentId));
+            epicParents.put(epic.getId(), parentId);
+            childEpicIds.computeIfAbsent(parentId, key -> new LinkedHashSet<>()).add(epic.getId());
+        }
+        epic.setStatus(Status.NEW);
+        epicSubtaskIds.put(epic.getId(), new ConcurrentSkipListSet<>());
+        epicStatusCounters.put(epic.getId(), new EpicStatusCounter());
+        EpicSchedule epicSchedule = new EpicSchedule();
+        epicSchedule.applyTo(epic);
+        epicSchedules.put(epic.getId(), epicSchedule);
+        epics.put(epic.getId(), epic);
+        index(epic);
+        recordCreated(epic);
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        ReentrantLock lock = lockEpic(epic.getId());
+        try {
+            if (epics.containsKey(epic.getId())) {
+                ItemChanges changes = changeOf(epic.getId());
+                storeEpic(epic);
+                record(changes);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Подзадачи, родитель, статус и сроки остаются от хранимого эпика
+    private void storeEpic(Epic epic) {
+        epic.copySubtaskIdsFrom(epics.get(epic.getId()));
+        epic.setParentId(parentOf(epic.getId()));
+        epic.setStatus(epicStatusCounters.get(epic.getId()).toStatus());
+        epicSchedules.get(epic.getId()).applyTo(epic);
+        epics.put(epic.getId(), epic);
+        index(epic);
+        recordUpdated(epic);
+    }
+
+    // Перенос меняет корень всего поддерева, поэтому идёт под всеми полосами
+    @Override
+    public boolean moveEpic(int epicId, int parentId) {
+        lockAll();
+        try {
+            Epic epic = epics.get(epicId);
+            if (epic == null || parentId != Epic.NO_PARENT
+                    && (!epics.containsKey(parentId) || isInSubtree(epicId, parentId))) {
+                return false;
+            }
+            int oldParentId = parentOf(epicId);
+            if (oldParentId == parentId) {
+                return true;
+            }
+            int oldPosition = childIndexOf(epicId);
+            placeEpic(epicId, parentId);
+            if (journalEnabled()) {
+                record(new EpicMove(epicId, oldParentId, oldPosition));
+            }
+            return true;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Вызывается под lockAll
+    private void placeEpic(int epicId, int parentId) {
+        Epic epic = epics.get(epicId);
+        int oldParentId = parentOf(epicId);
+        EpicStatusCounter counter = epicStatusCounters.get(epicId);
+        EpicSchedule schedule = epicSchedules.get(epicId);
+        for (int id = oldParentId; id != Epic.NO_PARENT; id = parentOf(id)) {
+            epicStatusCounters.get(id).subtract(counter);
+            EpicSchedule epicSchedule = epicSchedules.get(id);
+            epicSchedule.subtract(schedule);
+            epicSchedule.applyTo(epics.get(id));
+        }
+        if (oldParentId != Epic.NO_PARENT) {
+            detachChild(oldParentId, epicId);
+            epicParents.remove(epicId);
+        }
+        if (parentId != Epic.NO_PARENT) {
+            epicParents.put(epicId, parentId);
+            childEpicIds.computeIfAbsent(parentId, key -> new LinkedHashSet<>()).add(epicId);
+            for (int id = parentId; id != Epic.NO_PARENT; id = parentOf(id)) {
+                epicStatusCounters.get(id).add(counter);
+                EpicSchedule epicSchedule = epicSchedules.get(id);
+                epicSchedule.add(schedule);
+                epicSchedule.applyTo(epics.get(id));
+            }
+        }
+        int rootId = parentId == Epic.NO_PARENT ? epicId : rootOf(parentId);
+        forEachInSubtree(epicId, (id, depth) -> {
+            if (id == rootId) {
+                epicRoots.remove(id);
+            } else {
+                epicRoots.put(id, rootId);
+            }
+        });
+        epic.setParentId(parentId);
+        recordUpdated(epic);
+        updateEpicStatus(oldParentId);
+        updateEpicStatus(parentId);
+    }
+
+    private void detachChild(int parentId, int epicId) {
+        Set<Integer> children = childEpicIds.get(parentId);
+        children.remove(epicId);
+        if (children.isEmpty()) {
+            childEpicIds.remove(parentId);
+        }
+    }
+
+    // Удаляется всё поддерево эпика, вложенные эпики - раньше родителя. Эпик убирается из epics раньше,
+    // чем из epicRoots: поток, взявший после этого полосу по самому id, эпика уже не найдёт
+    @Override
+    public void deleteEpicById(int id) {
+        ReentrantLock lock = lockEpic(id);
+        try {
+            if (epics.containsKey(id)) {
+                ItemChanges changes = journalEnabled() ? subtreeChanges(id) : null;
+                removeEpic(id);
+                record(changes);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Отмена вернёт эпики от корня к листьям, а подзадачи каждого эпика - в прежнем порядке,
+    // поэтому записи идут в обратном порядке: вложенные эпики раньше родителей, подзадачи - с конца
+    private ItemChanges subtreeChanges(int id) {
+        List<Integer> subtree = new ArrayList<>();
+        forEachInSubtree(id, (epicId, depth) -> subtree.add(epicId));
+        ItemChanges changes = new ItemChanges(subtree.size() + epicStatusCounters.get(id).total());
+        for (int i = subtree.size() - 1; i >= 0; i--) {
+            List<Integer> subtaskIds = epics.get(subtree.get(i)).getSubtaskIds();
+            for (int j = subtaskIds.size() - 1; j >= 0; j--) {
+                changes.add(subtaskIds.get(j), storedState(subtaskIds.get(j)));
+            }
+            changes.add(subtree.get(i), storedState(subtree.get(i)));
+        }
+        return changes;
+    }
+
+    // Вызывается под полосой корня эпика
+    private void removeEpic(int id) {
+        int parentId = parentOf(id);
+        EpicStatusCounter removed = epicStatusCounters.get(id);
+        EpicSchedule removedSchedule = epicSchedules.get(id);
+        for (int ancestorId = parentId; ancestorId != Epic.NO_PARENT; ancestorId = parentOf(ancestorId)) {
+            epicStatusCounters.get(ancestorId).subtract(removed);
+            EpicSchedule epicSchedule = epicSchedules.get(ancestorId);
+            epicSchedule.subtract(removedSchedule);
+            epicSchedule.applyTo(epics.get(ancestorId));
+        }
+        List<Integer> subtree = new ArrayList<>();
+        forEachInSubtree(id, (epicId, depth) -> subtree.add(epicId));
+        Set<Integer> epicIds = new HashSet<>(subtree);
+        // Задачи уходят из хранилищ до снятия просмотров, иначе запоздавший просмотр вернул бы их в историю
+        for (int epicId : subtree) {
+            epics.remove(epicId);
+            epicSubtaskIds.get(epicId).forEach(subtasks::remove);
+        }
+        forgetDeleted(subtree.size() + removed.total(), taskId -> {
+            Integer epicId = subtaskEpicIds.get(taskId);
+            return epicIds.contains(epicId == null ? taskId : epicId);
+        }, action -> {
+            for (int epicId : subtree) {
+                epicSubtaskIds.get(epicId).forEach(action::accept);
+                action.accept(epicId);
+            }
+        });
+        for (int i = subtree.size() - 1; i >= 0; i--) {
+            int epicId = subtree.get(i);
+            NavigableSet<Integer> subtaskIds = epicSubtaskIds.remove(epicId);
+            for (int subtaskId : subtaskIds) {
+                subtaskStatuses.remove(subtaskId);
+                subtaskEpicIds.remove(subtaskId);
+                changeLog.deleted(TaskType.SUBTASK, subtaskId);
+            }
+            epicStatusCounters.remove(epicId);
+            epicSchedules.remove(epicId);
+            childEpicIds.remove(epicId);
+            epicParents.remove(epicId);
+            epicRoots.remove(epicId);
+            changeLog.deleted(TaskType.EPIC, epicId);
+        }
+        if (parentId != Epic.NO_PARENT) {
+            detachChild(parentId, id);
+            updateEpicStatus(parentId);
+        }
+    }
+
+    @Override
+    public EpicRollup getEpicRollup(int epicId) {
+        ReentrantLock lock = lockEpic(epicId);
+        try {
+            return epics.containsKey(epicId) ? rollupOf(epicId, depthOf(epicId)) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Под полосой корня итоги всего поддерева согласованы между собой
+    @Override
+    public List<EpicRollup> getEpicRollups(int epicId) {
+        List<EpicRollup> result = new ArrayList<>();
+        ReentrantLock lock = lockEpic(epicId);
+        try {
+            if (epics.containsKey(epicId)) {
+                int depth = depthOf(epicId);
+                forEachInSubtree(epicId, (id, subtreeDepth) -> result.add(rollupOf(id, depth + subtreeDepth)));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    private EpicRollup rollupOf(int epicId, int depth) {
+        Epic epic = epics.get(epicId);
+        Set<Integer> children = childEpicIds.get(epicId);
+        return epicStatusCounters.get(epicId).toRollup(epicId, parentOf(epicId), depth, epic.getStatus(),
+                epic.getSubtaskCount(), children == null ? 0 : children.size());
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return new ArrayList<>(subtasks.values());
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        lockAll();
+        try {
+            recordClear(detachSubtasks(false));
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        Subtask subtask = subtasks.get(id);
+        addToHistory(subtask);
+        return subtask;
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        ReentrantLock lock = lockEpic(subtask.getEpicId());
+        try {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic == null) {
+                return null;
+            }
+
+            int id = generateId();
+            schedule(id, subtask);
+            subtask.setId(id);
+            insertSubtask(epic, subtask);
+            updateEpicStatus(epic.getId());
+            record(changeOf(id, null));
+            return subtask;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Время подзадачи уже учтено в scheduleIndex; статус эпика пересчитывает вызывающий
+    private void insertSubtask(Epic epic, Subtask subtask) {
+        subtasks.put(subtask.getId(), subtask);
+        attachSubtask(epic, subtask);
+        index(subtask);
+        recordCreated(subtask);
+    }
+
+    // Вызывается под полосами прежнего и нового эпиков; статусы эпиков пересчитывает вызывающий.
+    // Возвращает id эпика, к которому подзадача относилась до замены
+    private int storeSubtask(Subtask subtask, ScheduleIndex.Slot previousSlot) {
+        int oldEpicId = subtaskEpicIds.get(subtask.getId());
+        subtasks.put(subtask.getId(), subtask);
+        replaceSubtask(subtask, oldEpicId, previousSlot);
+        index(subtask);
+        recordUpdated(subtask);
+        return oldEpicId;
+    }
+
+    // Статус эпика пересчитывает вызывающий
+    private void removeSubtask(int epicId, int id) {
+        subtasks.remove(id);
+        detachSubtask(epicId, id, unschedule(id));
+        unindex(id);
+        recordDeleted(TaskType.SUBTASK, id);
+        removeFromHistory(id);
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        updateSubtask(subtask, ANY_VERSION);
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        int id = subtask.getId();
+        int newEpicId = subtask.getEpicId();
+        while (true) {
+            Integer oldEpicId = subtaskEpicIds.get(id);
+            if (oldEpicId == null) {
+                return false;
+            }
+
+            int[] locked = lockEpicStripes(List.of(oldEpicId, newEpicId));
+            try {
+                // Подзадачу могли перенести или удалить, пока брались блокировки
+                if (!oldEpicId.equals(subtaskEpicIds.get(id))) {
+                    continue;
+                }
+                Epic epic = epics.get(newEpicId);
+                if (epic == null || !hasVersion(id, expectedVersion)) {
+                    return false;
+                }
+
+                ItemChanges changes = changeOf(id);
+                storeSubtask(subtask, schedule(id, subtask));
+                if (oldEpicId != newEpicId) {
+                    updateEpicStatus(oldEpicId);
+                }
+                updateEpicStatus(newEpicId);
+                record(changes);
+                return true;
+            } finally {
+                unlockStripes(locked);
+            }
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        while (true) {
+            Integer epicId = subtaskEpicIds.get(id);
+            if (epicId == null) {
+                return;
+            }
+
+            ReentrantLock lock = lockEpic(epicId);
+            try {
+                if (!epicId.equals(subtaskEpicIds.get(id))) {
+                    continue;
+                }
+                ItemChanges changes = changeOf(id);
+                removeSubtask(epicId, id);
+                updateEpicStatus(epicId);
+                record(changes);
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Полосы всех задач пакета берутся сразу: пакет попадает в журнал одной записью
+    @Override
+    public List<Task> createTasks(List<Task> newTasks) {
+        int[] ids = consecutiveIds(nextId.getAndAdd(newTasks.size()), newTasks.size());
+        int[] locked = stripesOf(Arrays.stream(ids).boxed().toList());
+        lockStripes(locked);
+        try {
+            scheduleAll(ids, newTasks);
+            for (int i = 0; i < ids.length; i++) {
+                newTasks.get(i).setId(ids[i]);
+                insertTask(newTasks.get(i));
+            }
+            record(createdChanges(newTasks));
+        } finally {
+            unlockStripes(locked);
+        }
+        return new ArrayList<>(newTasks);
+    }
+
+    // Полосы всех задач пакета берутся сразу, чтобы время пакета проверялось и применялось целиком
+    @Override
+    public void updateTasks(List<Task> updatedTasks) {
+        int[] locked = stripesOf(updatedTasks.stream().map(Task::getId).toList());
+        lockStripes(locked);
+        try {
+            List<Task> existing = new ArrayList<>(updatedTasks.size());
+            for (Task task : updatedTasks) {
+                if (tasks.containsKey(task.getId())) {
+                    existing.add(task);
+                }
+            }
+            ItemChanges changes = storedChanges(existing);
+            scheduleAll(idsOf(existing), existing);
+            for (Task task : existing) {
+                tasks.put(task.getId(), task);
+                index(task);
+                recordUpdated(task);
+            }
+            record(changes);
+        } finally {
+            unlockStripes(locked);
+        }
+    }
+
+    @Override
+    public void deleteTasksByIds(List<Integer> ids) {
+        int[] locked = stripesOf(ids);
+        lockStripes(locked);
+        try {
+            ItemChanges changes = deletedChanges(ids, tasks::containsKey);
+            for (int id : ids) {
+                if (tasks.containsKey(id)) {
+                    removeTask(id);
+                }
+            }
+            record(changes);
+        } finally {
+            unlockStripes(locked);
+        }
+    }
+
+    // Полосы всех эпиков пакета берутся один раз в порядке индексов
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> newSubtasks) {
+        Set<Integer> epicIds = new HashSet<>();
+        for (Subtask subtask : newSubtasks) {
+            epicIds.add(subtask.getEpicId());
+        }
+
+        int[] locked = lockEpicStripes(epicIds);
+        try {
+            for (int epicId : epicIds) {
+                if (!epics.containsKey(epicId)) {
+                    return null;
+                }
+            }
+
+            int id = nextId.getAndAdd(newSubtasks.size());
+            scheduleAll(consecutiveIds(id, newSubtasks.size()), newSubtasks);
+            for (Subtask subtask : newSubtasks) {
+                subtask.setId(id++);
+                insertSubtask(epics.get(subtask.getEpicId()), subtask);
+            }
+            for (int epicId : epicIds) {
+                updateEpicStatus(epicId);
+            }
+            record(createdChanges(newSubtasks));
+            return new ArrayList<>(newSubtasks);
+        } finally {
+            unlockStripes(locked);
+        }
+    }
+
+    @Override
+    public void updateSubtasks(List<Subtask> updatedSubtasks) {
+        while (true) {
+            Map<Integer, Integer> oldEpicIds = currentEpicIds(updatedSubtasks.stream().map(Subtask::getId).toList());
+            Set<Integer> epicIds = new HashSet<>(oldEpicIds.values());
+            for (Subtask subtask : updatedSubtasks) {
+                epicIds.add(subtask.getEpicId());
+            }
+
+            int[] locked = lockEpicStripes(epicIds);
+            try {
+                // Подзадачи могли перенести или удалить, пока брались блокировки
+                if (!oldEpicIds.equals(currentEpicIds(oldEpicIds.keySet()))) {
+                    continue;
+                }
+                for (Subtask subtask : updatedSubtasks) {
+                    if (!epics.containsKey(subtask.getEpicId())) {
+                        return;
+                    }
+                }
+
+                List<Subtask> existing = new ArrayList<>(updatedSubtasks.size());
+                for (Subtask subtask : updatedSubtasks) {
+                    if (subtaskEpicIds.containsKey(subtask.getId())) {
+                        existing.add(subtask);
+                    }
+                }
+                ItemChanges changes = storedChanges(existing);
+                ScheduleIndex.Slot[] previousSlots = scheduleAll(idsOf(existing), existing);
+                for (int i = 0; i < existing.size(); i++) {
+                    storeSubtask(existing.get(i), previousSlots[i]);
+                }
+                for (int epicId : epicIds) {
+                    updateEpicStatus(epicId);
+                }
+                record(changes);
+                return;
+            } finally {
+                unlockStripes(locked);
+            }
+        }
+    }
+
+    @Override
+    public void deleteSubtasksByIds(List<Integer> ids) {
+        while (true) {
+            Map<Integer, Integer> epicIdsBySubtask = currentEpicIds(ids);
+            Set<Integer> epicIds = new HashSet<>(epicIdsBySubtask.values());
+            int[] locked = lockEpicStripes(epicIds);
+            try {
+                if (!epicIdsBySubtask.equals(currentEpicIds(ids))) {
+                    continue;
+                }
+                ItemChanges changes = deletedChanges(ids, epicIdsBySubtask::containsKey);
+                for (Map.Entry<Integer, Integer> entry : epicIdsBySubtask.entrySet()) {
+                    removeSubtask(entry.getValue(), entry.getKey());
+                }
+                for (int epicId : epicIds) {
+                    updateEpicStatus(epicId);
+                }
+                record(changes);
+                return;
+            } finally {
+                unlockStripes(locked);
+            }
+        }
+    }
+
+    // Части - деревья корневых эпиков, и каждая сама применяет свои переводы, поэтому части идут параллельно.
+    // Меняется только статус, так что расписание и поисковый индекс не затрагиваются.
+    // С журналом весь перевод идёт под lockAll и отменяется одной записью; без журнала каждая часть берёт
+    // только полосу своего корня и идёт параллельно с изменениями других деревьев - тогда перевод атомарен
+    // в пределах дерева, но не всей доски
+    @Override
+    public int transitionSubtasks(ForkJoinPool pool, BiPredicate<? super Epic, ? super Subtask> filter,
+                                  Status status) {
+        Objects.requireNonNull(status);
+        if (!journalEnabled()) {
+            int[] roots = rootEpicIds();
+            return EpicPartitions.reduce(pool, roots.length,
+                    i -> transitionTree(roots[i], filter, status, true).size(), Integer::sum, 0);
+        }
+        lockAll();
+        try {
+            int[] roots = rootEpicIds();
+            List<Subtask> previous = EpicPartitions.reduce(pool, roots.length,
+                    i -> transitionTree(roots[i], filter, status, false), ConcurrentTaskManager::concat, List.of());
+            if (!previous.isEmpty()) {
+                record(new StatusChanges(previous));
+            }
+            return previous.size();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Возвращает подзадачи в состоянии до перевода. Эпик, вложенный в другое дерево после выбора корней,
+    // обходится под полосой нового корня: повторный перевод ничего не меняет, поэтому его дерево
+    // может попасть в две части. Без lock полосы уже держит вызывающий поток
+    private List<Subtask> transitionTree(int rootId, BiPredicate<? super Epic, ? super Subtask> filter,
+                                         Status status, boolean lock) {
+        ReentrantLock stripe = lock ? lockEpic(rootId) : null;
+        try {
+            List<Subtask> previous = new ArrayList<>();
+            List<Subtask> changed = new ArrayList<>();
+            forEachSubtaskInTree(rootId, (epic, subtask) -> {
+                if (subtask.getStatus() != status && filter.test(epic, subtask)) {
+                    previous.add(withStatus(subtask, subtaskStatuses.get(subtask.getId())));
+                    changed.add(withStatus(subtask, status));
+                }
+            });
+            transitionStatuses(changed);
+            return previous;
+        } finally {
+            if (stripe != null) {
+                stripe.unlock();
+            }
+        }
+    }
+
+    // Заменяет подзадачи копиями с новым статусом без переиндексации
+    private void transitionStatuses(List<Subtask> changed) {
+        Set<Integer> affectedEpics = new LinkedHashSet<>();
+        for (Subtask subtask : changed) {
+            int id = subtask.getId();
+            subtasks.put(id, subtask);
+            uncountSubtask(subtask.getEpicId(), subtaskStatuses.get(id));
+            countSubtask(subtask.getEpicId(), subtask.getStatus());
+            subtaskStatuses.put(id, subtask.getStatus());
+            recordUpdated(subtask);
+            affectedEpics.add(subtask.getEpicId());
+        }
+        for (int epicId : affectedEpics) {
+            updateEpicStatus(epicId);
+        }
+    }
+
+    private static <T> List<T> concat(List<T> first, List<T> second) {
+        if (first.isEmpty()) {
+            return second;
+        }
+        List<T> result = new ArrayList<>(first.size() + second.size());
+        result.addAll(first);
+        result.addAll(second);
+        return result;
+    }
+
+    // Каждая часть читает своё дерево под полосой корня. Дерево, вложенное в другое после выбора корней,
+    // пропускается: его подзадачи учтёт часть нового корня, если она ещё не пройдена
+    @Override
+    public <R> R collectSubtasks(ForkJoinPool pool, Collector<? super Subtask, ?, R> collector) {
+        return collect(pool, collector);
+    }
+
+    private <A, R> R collect(ForkJoinPool pool, Collector<? super Subtask, A, R> collector) {
+        int[] roots = rootEpicIds();
+        BiConsumer<A, ? super Subtask> accumulator = collector.accumulator();
+        A result = EpicPartitions.reduce(pool, roots.length, i -> {
+            A container = collector.supplier().get();
+            ReentrantLock lock = lockEpic(roots[i]);
+            try {
+                if (parentOf(roots[i]) == Epic.NO_PARENT) {
+                    forEachSubtaskInTree(roots[i], (epic, subtask) -> accumulator.accept(container, subtask));
+                }
+            } finally {
+                lock.unlock();
+            }
+            return container;
+        }, collector.combiner(), collector.supplier().get());
+        return collector.finisher().apply(result);
+    }
+
+    private int[] rootEpicIds() {
+        return epics.keySet().stream()
+                .mapToInt(Integer::intValue)
+                .filter(id -> parentOf(id) == Epic.NO_PARENT)
+                .toArray();
+    }
+
+    // Вызывается под полосой корня rootId
+    private void forEachSubtaskInTree(int rootId, BiConsumer<Epic, Subtask> action) {
+        forEachInSubtree(rootId, (epicId, depth) -> {
+            Epic epic = epics.get(epicId);
+            Set<Integer> ids = epicSubtaskIds.get(epicId);
+            if (epic == null || ids == null) {
+                return;
+            }
+            for (int id : ids) {
+                Subtask subtask = subtasks.get(id);
+                if (subtask != null) {
+                    action.accept(epic, subtask);
+                }
+            }
+        });
+    }
+
+    private static Subtask withStatus(Subtask subtask, Status status) {
+        Subtask copy = new Subtask(subtask.getName(), subtask.getDescription(), status, subtask.getEpicId(),
+                subtask.getStartTime(), subtask.getDuration());
+        copy.setId(subtask.getId());
+        return copy;
+    }
+
+    // Перенос учёта подзадачи из oldEpicId в её текущий эпик; вызывается под полосами обоих эпиков
+    private void replaceSubtask(Subtask subtask, int oldEpicId, ScheduleIndex.Slot previousSlot) {
+        int id = subtask.getId();
+        if (oldEpicId == subtask.getEpicId()) {
+            uncountSubtask(oldEpicId, subtaskStatuses.get(id));
+            countSubtask(oldEpicId, subtask.getStatus());
+            subtaskStatuses.put(id, subtask.getStatus());
+            rescheduleSubtask(oldEpicId, previousSlot, slotOf(id));
+        } else {
+            detachSubtask(oldEpicId, id, previousSlot);
+            attachSubtask(epics.get(subtask.getEpicId()), subtask);
+        }
+    }
+
+    // Отмена и повтор идут под lockAll и видят все завершённые изменения
+    @Override
+    public boolean undo() {
+        lockAll();
+        try {
+            synchronized (journal) {
+                return journal.undo();
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public boolean redo() {
+        lockAll();
+        try {
+            synchronized (journal) {
+                return journal.redo();
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void restoreTo(long sequence) {
+        lockAll();
+        try {
+            synchronized (journal) {
+                journal.restoreTo(sequence);
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public long getJournalSequence() {
+        synchronized (journal) {
+            return journal.getSequence();
+        }
+    }
+
+    @Override
+    public void setJournalLimits(int maxEntries, long maxTasks) {
+        synchronized (journal) {
+            journal.setLimits(maxEntries, maxTasks);
+        }
+    }
+
+    // Вызывается под полосами изменения, до того как они отпущены
+    private void record(MutationJournal.Entry entry) {
+        if (entry != null) {
+            synchronized (journal) {
+                journal.record(entry);
+            }
+        }
+    }
+
+    private boolean journalEnabled() {
+        synchronized (journal) {
+            return journal.isEnabled();
+        }
+    }
+
+    // Запись об одной задаче с состоянием, которое вернёт отмена; null, если журнал выключен
+    private ItemChanges changeOf(int id, Task state) {
+        if (!journalEnabled()) {
+            return null;
+        }
+        ItemChanges changes = new ItemChanges(1);
+        changes.add(id, state);
+        return changes;
+    }
+
+    // Запись о задаче, которую сейчас изменят
+    private ItemChanges changeOf(int id) {
+        return journalEnabled() ? changeOf(id, storedState(id)) : null;
+    }
+
+    private ItemChanges createdChanges(List<? extends Task> created) {
+        if (!journalEnabled()) {
+            return null;
+        }
+        ItemChanges changes = new ItemChanges(created.size());
+        for (Task task : created) {
+            changes.add(task.getId(), null);
+        }
+        return changes;
+    }
+
+    private ItemChanges storedChanges(List<? extends Task> updated) {
+        if (!journalEnabled()) {
+            return null;
+        }
+        ItemChanges changes = new ItemChanges(updated.size());
+        for (Task task : updated) {
+            changes.add(task.getId(), storedState(task.getId()));
+        }
+        return changes;
+    }
+
+    // С конца, чтобы отмена вернула задачи в прежнем порядке
+    private ItemChanges deletedChanges(List<Integer> ids, IntPredicate stored) {
+        if (!journalEnabled()) {
+            return null;
+        }
+        ItemChanges changes = new ItemChanges(ids.size());
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            int id = ids.get(i);
+            if (stored.test(id)) {
+                changes.add(id, storedState(id));
+            }
+        }
+        return changes;
+    }
+
+    // Копия задачи, как её учёл менеджер: статус, эпик и время берутся из индексов; null - задачи нет.
+    // Вызывается под полосой задачи
+    private Task storedState(int id) {
+        Task task = tasks.get(id);
+        if (task != null) {
+            ScheduleIndex.Slot slot = slotOf(id);
+            Task state = new Task(task.getName(), task.getDescription(), task.getStatus(),
+                    slot == null ? null : slot.start, slot == null ? null : slot.duration);
+            state.setId(id);
+            return state;
+        }
+        Subtask subtask = subtasks.get(id);
+        if (subtask != null) {
+            ScheduleIndex.Slot slot = slotOf(id);
+            Subtask state = new Subtask(subtask.getName(), subtask.getDescription(), subtaskStatuses.get(id),
+                    subtaskEpicIds.get(id), slot == null ? null : slot.start, slot == null ? null : slot.duration);
+            state.setId(id);
+            return state;
+        }
+        Epic epic = epics.get(id);
+        if (epic != null) {
+            Epic state = new Epic(epic.getName(), epic.getDescription(), id, epic.getStatus());
+            state.setParentId(parentOf(id));
+            return state;
+        }
+        return null;
+    }
+
+    // Место подзадачи в списке её эпика или вложенного эпика среди детей родителя; -1 - у задачи места нет
+    private int positionOf(int id) {
+        Integer epicId = subtaskEpicIds.get(id);
+        if (epicId != null) {
+            return epics.get(epicId).indexOfSubtaskId(id);
+        }
+        return epics.containsKey(id) ? childIndexOf(id) : -1;
+    }
+
+    private int childIndexOf(int epicId) {
+        Set<Integer> children = childEpicIds.get(parentOf(epicId));
+        if (children == null) {
+            return -1;
+        }
+        int index = 0;
+        for (int id : children) {
+            if (id == epicId) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    // Ставит вернувшиеся задачи на прежние места; placements - место << 32 | номер записи в ids.
+    // Места по возрастанию, поэтому каждый список переставляется один раз за O(его длины)
+    private void restorePositions(int[] ids, long[] placements, int count) {
+        if (count == 0) {
+            return;
+        }
+        Arrays.sort(placements, 0, count);
+        Map<Integer, Placement> subtaskLists = new LinkedHashMap<>();
+        Map<Integer, Placement> childLists = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            int id = ids[(int) placements[i]];
+            int position = (int) (placements[i] >>> 32);
+            Integer epicId = subtaskEpicIds.get(id);
+            if (epicId != null) {
+                subtaskLists.computeIfAbsent(epicId, key -> new Placement()).add(id, position);
+            } else if (epics.containsKey(id) && parentOf(id) != Epic.NO_PARENT) {
+                childLists.computeIfAbsent(parentOf(id), key -> new Placement()).add(id, position);
+            }
+        }
+        subtaskLists.forEach((epicId, placement) ->
+                epics.get(epicId).placeSubtaskIds(placement.ids, placement.positions, placement.size));
+        childLists.forEach(this::placeChildren);
+    }
+
+    // Дочерние эпики читаются только под полосой корня, поэтому список заменяется целиком
+    private void placeChildren(int parentId, Placement placement) {
+        IntLinkedSet order = new IntLinkedSet();
+        childEpicIds.get(parentId).forEach(order::add);
+        order.place(placement.ids, placement.positions, placement.size);
+        Set<Integer> children = new LinkedHashSet<>();
+        order.view().stream().forEach(children::add);
+        childEpicIds.put(parentId, children);
+    }
+
+    private static final class Placement {
+        private int[] ids = new int[4];
+        private int[] positions = new int[4];
+        private int size;
+
+        void add(int id, int position) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            ids[size] = id;
+            positions[size++] = position;
+        }
+    }
+
+    // Приводит задачу id к состоянию state (null - удаляет) с обычными событиями; вызывается под lockAll
+    private void setStored(int id, Task state) {
+        if (state == null) {
+            if (tasks.containsKey(id)) {
+                removeTask(id);
+            } else if (subtasks.containsKey(id)) {
+                int epicId = subtaskEpicIds.get(id);
+                removeSubtask(epicId, id);
+                updateEpicStatus(epicId);
+            } else if (epics.containsKey(id)) {
+                removeEpic(id);
+            }
+        } else if (state instanceof Subtask) {
+            Subtask subtask = (Subtask) state;
+            if (subtasks.containsKey(id)) {
+                int oldEpicId = storeSubtask(subtask, schedule(id, subtask));
+                updateEpicStatus(oldEpicId);
+            } else {
+                schedule(id, subtask);
+                insertSubtask(epics.get(subtask.getEpicId()), subtask);
+            }
+            updateEpicStatus(subtask.getEpicId());
+        } else if (state instanceof Epic) {
+            if (epics.containsKey(id)) {
+                storeEpic((Epic) state);
+            } else {
+                insertEpic((Epic) state);
+            }
+        } else if (tasks.containsKey(id)) {
+            storeTask(state);
+        } else {
+            schedule(id, state);
+            insertTask(state);
+        }
+    }
+
+    // Вызывается под lockAll. Очистка без изменений в журнал не попадает, а отсоединённые слова сразу отпускаются
+    private void recordClear(Cleared cleared) {
+        synchronized (journal) {
+            if (cleared.count == 0) {
+                releaseText(cleared);
+            } else {
+                journal.record(new Clear(cleared));
+            }
+        }
+    }
+
+    private void releaseText(Cleared cleared) {
+        synchronized (textIndex) {
+            textIndex.release(cleared.text);
+        }
+    }
+
+    // Сама очистка публикует DELETED на каждую задачу, повтор очистки из журнала (bulk) - одно событие CLEARED
+    private Cleared detachTasks(boolean bulk) {
+        Cleared cleared = new Cleared(TaskType.TASK, tasks.size());
+        if (bulk) {
+            changeLog.cleared(TaskType.TASK);
+        } else {
+            tasks.keySet().forEach(id -> changeLog.deleted(TaskType.TASK, id));
+        }
+        cleared.tasks = tasks;
+        cleared.taskVersions = taskVersions;
+        tasks = new ConcurrentSkipListMap<>();
+        taskVersions = new ConcurrentHashMap<>();
+        detachDeleted(cleared, cleared.tasks::containsKey, each(cleared.tasks.keySet()));
+        return cleared;
+    }
+
+    // Подзадачи без эпиков не существуют, поэтому отсоединяются вместе с эпиками
+    private Cleared detachEpics(boolean bulk) {
+        Cleared cleared = new Cleared(TaskType.EPIC, subtasks.size() + epics.size());
+        if (bulk) {
+            changeLog.cleared(TaskType.EPIC);
+        } else {
+            for (Epic epic : epics.values()) {
+                for (int subtaskId : epicSubtaskIds.get(epic.getId())) {
+                    changeLog.deleted(TaskType.SUBTASK, subtaskId);
+                }
+                changeLog.deleted(TaskType.EPIC, epic.getId());
+            }
+        }
+        cleared.epics = epics;
+        cleared.epicSubtaskIds = epicSubtaskIds;
+        cleared.epicStatusCounters = epicStatusCounters;
+        cleared.epicSchedules = epicSchedules;
+        cleared.epicParents = epicParents;
+        cleared.childEpicIds = childEpicIds;
+        cleared.epicRoots = epicRoots;
+        cleared.epicVersions = epicVersions;
+        epics = new ConcurrentSkipListMap<>();
+        epicSubtaskIds = new ConcurrentHashMap<>();
+        epicStatusCounters = new ConcurrentHashMap<>();
+        epicSchedules = new ConcurrentHashMap<>();
+        epicParents = new ConcurrentHashMap<>();
+        childEpicIds = new ConcurrentHashMap<>();
+        epicRoots = new ConcurrentHashMap<>();
+        epicVersions = new ConcurrentHashMap<>();
+        detachSubtaskStorage(cleared);
+        detachDeleted(cleared, id -> cleared.subtasks.containsKey(id) || cleared.epics.containsKey(id), action -> {
+            cleared.subtasks.keySet().forEach(action::accept);
+            cleared.epics.keySet().forEach(action::accept);
+        });
+        return cleared;
+    }
+
+    // Эпики без подзадач в поддереве и так в NEW с пустыми сроками; у остальных списки, счётчики
+    // и сроки подменяются пустыми, а прежние уходят в cleared. Читатели без блокировок дочитывают прежние
+    private Cleared detachSubtasks(boolean bulk) {
+        Cleared cleared = new Cleared(TaskType.SUBTASK, subtasks.size());
+        if (bulk) {
+            changeLog.cleared(TaskType.SUBTASK);
+        } else {
+            subtasks.keySet().forEach(id -> changeLog.deleted(TaskType.SUBTASK, id));
+        }
+        cleared.resetEpics = new ArrayList<>();
+        for (Epic epic : epics.values()) {
+            int id = epic.getId();
+            if (epicStatusCounters.get(id).total() > 0) {
+                EpicSchedule epicSchedule = new EpicSchedule();
+                cleared.resetEpics.add(new DetachedEpic(id, epic.swapSubtaskIds(new IntLinkedSet()),
+                        epicSubtaskIds.put(id, new ConcurrentSkipListSet<>()),
+                        epicStatusCounters.put(id, new EpicStatusCounter()), epicSchedules.put(id, epicSchedule),
+                        epic.getStatus()));
+                epicSchedule.applyTo(epic);
+                if (epic.getStatus() != Status.NEW) {
+                    epic.setStatus(Status.NEW);
+                    recordEpicStatusChanged(epic);
+                }
+            }
+        }
+        detachSubtaskStorage(cleared);
+        detachDeleted(cleared, cleared.subtasks::containsKey, each(cleared.subtasks.keySet()));
+        return cleared;
+    }
+
+    private void detachSubtaskStorage(Cleared cleared) {
+        cleared.subtasks = subtasks;
+        cleared.subtaskStatuses = subtaskStatuses;
+        cleared.subtaskEpicIds = subtaskEpicIds;
+        cleared.subtaskVersions = subtaskVersions;
+        subtasks = new ConcurrentSkipListMap<>();
+        subtaskStatuses = new ConcurrentHashMap<>();
+        subtaskEpicIds = new ConcurrentHashMap<>();
+        subtaskVersions = new ConcurrentHashMap<>();
+    }
+
+    // Отмена очистки под lockAll: отсоединённые хранилища возвращаются на место целиком. Новых задач
+    // этого вида к этому моменту нет - любое изменение после очистки закрыло бы её отмену.
+    // Версии у вернувшихся задач прежние, подписчики получают одно событие RESTORED
+    private void attach(Cleared cleared) {
+        synchronized (scheduleIndex) {
+            scheduleIndex.attach(cleared.slots);
+        }
+        synchronized (textIndex) {
+            textIndex.attach(cleared.text);
+        }
+        if (cleared.type == TaskType.TASK) {
+            tasks = cleared.tasks;
+            taskVersions = cleared.taskVersions;
+            changeLog.restored(TaskType.TASK);
+            return;
+        }
+        if (cleared.type == TaskType.EPIC) {
+            epics = cleared.epics;
+            epicSubtaskIds = cleared.epicSubtaskIds;
+            epicStatusCounters = cleared.epicStatusCounters;
+            epicSchedules = cleared.epicSchedules;
+            epicParents = cleared.epicParents;
+            childEpicIds = cleared.childEpicIds;
+            epicRoots = cleared.epicRoots;
+            epicVersions = cleared.epicVersions;
+        }
+        subtasks = cleared.subtasks;
+        subtaskStatuses = cleared.subtaskStatuses;
+        subtaskEpicIds = cleared.subtaskEpicIds;
+        subtaskVersions = cleared.subtaskVersions;
+        changeLog.restored(cleared.type);
+        if (cleared.type == TaskType.SUBTASK) {
+            for (DetachedEpic state : cleared.resetEpics) {
+                Epic epic = epics.get(state.id);
+                epic.swapSubtaskIds(state.subtaskIds);
+                epicSubtaskIds.put(state.id, state.sortedSubtaskIds);
+                epicStatusCounters.put(state.id, state.counter);
+                epicSchedules.put(state.id, state.schedule);
+                state.schedule.applyTo(epic);
+                if (epic.getStatus() != state.status) {
+                    epic.setStatus(state.status);
+                    recordEpicStatusChanged(epic);
+                }
+            }
+        }
+    }
+
+    // Состояния задач, которые вернёт отмена (null - задачи не было), с местами в списках, как в InMemoryTaskManager.
+    // Отмена применяет записи с конца, повтор - с начала, и каждая запись меняется на состояние до применения
+    private final class ItemChanges implements MutationJournal.Entry {
+        private final int[] ids;
+        private final Task[] states;
+        private final int[] positions;
+        private int size;
+        private boolean undone;
+
+        ItemChanges(int capacity) {
+            ids = new int[capacity];
+            states = new Task[capacity];
+            positions = new int[capacity];
+        }
+
+        void add(int id, Task state) {
+            ids[size] = id;
+            positions[size] = state == null ? -1 : positionOf(id);
+            states[size++] = state;
+        }
+
+        @Override
+        public void apply() {
+            // Места снимаются до изменений: все записи восстанавливают одно и то же состояние списка
+            int[] current = new int[size];
+            for (int i = 0; i < size; i++) {
+                current[i] = positionOf(ids[i]);
+            }
+            long[] placements = new long[size];
+            int placed = 0;
+            for (int i = 0; i < size; i++) {
+                int index = undone ? i : size - 1 - i;
+                Task state = storedState(ids[index]);
+                setStored(ids[index], states[index]);
+                if (states[index] != null && positions[index] >= 0) {
+                    placements[placed++] = (long) positions[index] << 32 | index;
+                }
+                states[index] = state;
+                positions[index] = state == null ? -1 : current[index];
+            }
+            restorePositions(ids, placements, placed);
+            undone = !undone;
+        }
+
+        @Override
+        public long weight() {
+            return size;
+        }
+    }
+
+    // Подзадачи до transitionSubtasks: отмена - такой же перевод без переиндексации
+    private final class StatusChanges implements MutationJournal.Entry {
+        private List<Subtask> states;
+
+        StatusChanges(List<Subtask> states) {
+            this.states = states;
+        }
+
+        @Override
+        public void apply() {
+            List<Subtask> current = new ArrayList<>(states.size());
+            for (Subtask state : states) {
+                current.add(withStatus(subtasks.get(state.getId()), subtaskStatuses.get(state.getId())));
+            }
+            transitionStatuses(states);
+            states = current;
+        }
+
+        @Override
+        public long weight() {
+            return states.size();
+        }
+    }
+
+    private final class EpicMove implements MutationJournal.Entry {
+        private final int epicId;
+        private int parentId;
+        private int position;
+
+        EpicMove(int epicId, int parentId, int position) {
+            this.epicId = epicId;
+            this.parentId = parentId;
+            this.position = position;
+        }
+
+        @Override
+        public void apply() {
+            int currentParentId = parentOf(epicId);
+            int currentPosition = childIndexOf(epicId);
+            placeEpic(epicId, parentId);
+            if (position >= 0) {
+                Placement placement = new Placement();
+                placement.add(epicId, position);
+                placeChildren(parentId, placement);
+            }
+            parentId = currentParentId;
+            position = currentPosition;
+        }
+
+        @Override
+        public long weight() {
+            return 1;
+        }
+    }
+
+    // Очистка хранилища - одна запись со ссылками на отсоединённые хранилища
+    private final class Clear implements MutationJournal.Entry {
+        private final TaskType type;
+        private final long weight;
+        private Cleared cleared;
+
+        Clear(Cleared cleared) {
+            this.type = cleared.type;
+            this.weight = cleared.count;
+            this.cleared = cleared;
+        }
+
+        @Override
+        public void apply() {
+            if (cleared != null) {
+                attach(cleared);
+                cleared = null;
+            } else if (type == TaskType.TASK) {
+                cleared = detachTasks(true);
+            } else if (type == TaskType.EPIC) {
+                cleared = detachEpics(true);
+            } else {
+                cleared = detachSubtasks(true);
+            }
+        }
+
+        @Override
+        public long weight() {
+            return weight;
+        }
+
+        @Override
+        public void discard() {
+            if (cleared != null) {
+                releaseText(cleared);
+                cleared = null;
+            }
+        }
+    }
+
+    // Хранилища и записи индексов, снятые очисткой задач вида type
+    private static final class Cleared {
+        final TaskType type;
+        final int count;
+        List<ScheduleIndex.Slot> slots;
+        TextIndex.Detached text;
+        ConcurrentNavigableMap<Integer, Task> tasks;
+        Map<Integer, Long> taskVersions;
+        ConcurrentNavigableMap<Integer, Epic> epics;
+        Map<Integer, NavigableSet<Integer>> epicSubtaskIds;
+        Map<Integer, EpicStatusCounter> epicStatusCounters;
+        Map<Integer, EpicSchedule> epicSchedules;
+        Map<Integer, Integer> epicParents;
+        Map<Integer, Set<Integer>> childEpicIds;
+        Map<Integer, Integer> epicRoots;
+        Map<Integer, Long> epicVersions;
+        ConcurrentNavigableMap<Integer, Subtask> subtasks;
+        Map<Integer, Status> subtaskStatuses;
+        Map<Integer, Integer> subtaskEpicIds;
+        Map<Integer, Long> subtaskVersions;
+        // Очистка подзадач: эпики, у которых они были
+        List<DetachedEpic> resetEpics;
+
+        Cleared(TaskType type, int count) {
+            this.type = type;
+            this.count = count;
+        }
+    }
+
+    private static final class DetachedEpic {
+        final int id;
+        final IntLinkedSet subtaskIds;
+        final NavigableSet<Integer> sortedSubtaskIds;
+        final EpicStatusCounter counter;
+        final EpicSchedule schedule;
+        final Status status;
+
+        DetachedEpic(int id, IntLinkedSet subtaskIds, NavigableSet<Integer> sortedSubtaskIds,
+                     EpicStatusCounter counter, EpicSchedule schedule, Status status) {
+            this.id = id;
+            this.subtaskIds = subtaskIds;
+            this.sortedSubtaskIds = sortedSubtaskIds;
+            this.counter = counter;
+            this.schedule = schedule;
+            this.status = status;
+        }
+    }
+
+    @Override
+    public long getVersion(int id) {
+        Long version = taskVersions.get(id);
+        if (version == null) {
+            version = subtaskVersions.get(id);
+        }
+        if (version == null) {
+            version = epicVersions.get(id);
+        }
+        return version == null ? 0 : version;
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return tasks.containsKey(id) || subtasks.containsKey(id) || epics.containsKey(id);
+    }
+
+    private boolean hasVersion(int id, long expectedVersion) {
+        return expectedVersion == ANY_VERSION || getVersion(id) == expectedVersion;
+    }
+
+    // Снимок собирается под всеми полосами, пока изменения стоят; дальше читается без блокировок,
+    // пока номер последнего события не изменится
+    @Override
+    public BoardSnapshot getSnapshot() {
+        BoardSnapshot current = snapshot;
+        if (current != null && current.getVersion() == changeLog.getLastSequence()) {
+            return current;
+        }
+        synchronized (snapshotLock) {
+            current = snapshot;
+            if (current != null && current.getVersion() == changeLog.getLastSequence()) {
+                return current;
+            }
+            lockAll();
+            try {
+                Map<Integer, TaskRecord> taskRecords = new LinkedHashMap<>();
+                for (Task task : tasks.values()) {
+                    taskRecords.put(task.getId(), toRecord(task, TaskType.TASK, task.getStatus(), 0, List.of()));
+                }
+                Map<Integer, TaskRecord> epicRecords = new LinkedHashMap<>();
+                for (Epic epic : epics.values()) {
+                    epicRecords.put(epic.getId(), toRecord(epic, TaskType.EPIC, epic.getStatus(), 0,
+                            new ArrayList<>(epicSubtaskIds.get(epic.getId()))));
+                }
+                Map<Integer, TaskRecord> subtaskRecords = new LinkedHashMap<>();
+                for (Subtask subtask : subtasks.values()) {
+                    subtaskRecords.put(subtask.getId(), toRecord(subtask, TaskType.SUBTASK,
+                            subtaskStatuses.get(subtask.getId()), subtaskEpicIds.get(subtask.getId()), List.of()));
+                }
+                current = new BoardSnapshot(changeLog.getLastSequence(), taskRecords, epicRecords, subtaskRecords);
+            } finally {
+                unlockAll();
+            }
+            snapshot = current;
+            return current;
+        }
+    }
+
+    private TaskRecord toRecord(Task task, TaskType type, Status status, int epicId, List<Integer> subtaskIds) {
+        LocalDateTime startTime = null;
+        Duration duration = null;
+        LocalDateTime endTime = null;
+        if (type == TaskType.EPIC) {
+            EpicSchedule epicSchedule = epicSchedules.get(task.getId());
+            startTime = epicSchedule.getStartTime();
+            duration = epicSchedule.getDuration();
+            endTime = epicSchedule.getEndTime();
+        } else {
+            ScheduleIndex.Slot slot = slotOf(task.getId());
+            if (slot != null) {
+                startTime = slot.start;
+                duration = slot.duration;
+                endTime = slot.end;
+            }
+        }
+        return new TaskRecord(task.getId(), type, task.getName(), task.getDescription(), status, epicId,
+                subtaskIds, startTime, duration, endTime, getVersion(task.getId()));
+    }
+
+    // id берутся из расписания под его монитором, задачи - из хранилищ без блокировок;
+    // задача, удалённая между этими шагами, в выдачу не попадает
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Integer> ids;
+        synchronized (scheduleIndex) {
+            ids = new ArrayList<>(scheduleIndex.scheduledCount());
+            scheduleIndex.forEachScheduled(ids::add);
+        }
+        List<Task> result = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    // Как и в getPrioritizedTasks, задачи, удалённые после запроса к индексу, в выдачу не попадают
+    @Override
+    public List<Task> search(String query, SearchOrder order, int limit) {
+        int[] ids;
+        synchronized (textIndex) {
+            ids = textIndex.search(query, order, limit);
+        }
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = epics.get(id);
+            }
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ChangeSubscription subscribe(long afterSequence) {
+        return changeLog.subscribe(afterSequence);
+    }
+
+    @Override
+    public long getLastChangeSequence() {
+        return changeLog.getLastSequence();
+    }
+
+    // Текущие эпики известных подзадач; неизвестные id пропускаются
+    private Map<Integer, Integer> currentEpicIds(Collection<Integer> subtaskIds) {
+        Map<Integer, Integer> result = new HashMap<>();
+        for (int id : subtaskIds) {
+            Integer epicId = subtaskEpicIds.get(id);
+            if (epicId != null) {
+                result.put(id, epicId);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByEpicId(int epicId) {
+        NavigableSet<Integer> subtaskIds = epicSubtaskIds.get(epicId);
+        if (subtaskIds == null) {
+            return new ArrayList<>();
+        }
+
+        List<Subtask> result = new ArrayList<>();
+        for (int subtaskId : subtaskIds) {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                result.add(subtask);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public TaskPage<Task> getTasksPage(int afterId, int pageSize) {
+        return TaskPage.of(tasks.tailMap(afterId, false).values().iterator(), pageSize);
+    }
+
+    @Override
+    public TaskPage<Epic> getEpicsPage(int afterId, int pageSize) {
+        return TaskPage.of(epics.tailMap(afterId, false).values().iterator(), pageSize);
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasksPage(int afterId, int pageSize) {
+        return TaskPage.of(subtasks.tailMap(afterId, false).values().iterator(), pageSize);
+    }
+
+    // Подзадачи эпика здесь упорядочены по id, поэтому токен работает и после удаления подзадачи
+    @Override
+    public TaskPage<Subtask> getSubtasksPageByEpicId(int epicId, int afterId, int pageSize) {
+        NavigableSet<Integer> subtaskIds = epicSubtaskIds.get(epicId);
+        if (subtaskIds == null) {
+            TaskPage.checkPageSize(pageSize);
+            return TaskPage.empty();
+        }
+        return TaskPage.of(subtaskIds.tailSet(afterId, false).stream()
+                .map(subtasks::get)
+                .filter(Objects::nonNull)
+                .iterator(), pageSize);
+    }
+
+    @Override
+    public TaskPage<Task> getHistoryPage(int afterId, int pageSize) {
+        return historyManager.getHistoryPage(afterId, pageSize);
+    }
+
+    // Представления слабо согласованы: обход не блокирует запись и не бросает ConcurrentModificationException
+    @Override
+    public Stream<Task> streamTasks() {
+        return tasks.values().stream();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epics.values().stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.values().stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksByEpicId(int epicId) {
+        NavigableSet<Integer> subtaskIds = epicSubtaskIds.get(epicId);
+        if (subtaskIds == null) {
+            return Stream.empty();
+        }
+        return subtaskIds.stream()
+                .map(subtasks::get)
+                .filter(Objects::nonNull);
+    }
+
+    // Историю нельзя обходить без блокировки, поэтому поток идёт по её копии
+    @Override
+    public Stream<Task> streamHistory() {
+        return getHistory().stream();
+    }
+}
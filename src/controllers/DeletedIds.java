@@ -0,0 +1,35 @@
+package controllers;
+
+import java.util.BitSet;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+// Проверка "id удаляется" для проходов по истории, индексам и версиям при массовом удалении.
+// id выдаются подряд, поэтому удаляемые обычно занимают плотный диапазон: тогда проверка идёт
+// по битовой карте [min, max], которая помещается в кэш, а не поиском в хэш-таблице хранилища
+final class DeletedIds {
+    // Карта строится, только если диапазон не шире 64 id на каждый удаляемый (не больше 8 байт на id)
+    private static final int MAX_SPREAD = 64;
+
+    private DeletedIds() {
+    }
+
+    // forEachDeleted перечисляет удаляемые id, stored проверяет то же самое по хранилищам
+    static IntPredicate of(Consumer<IntConsumer> forEachDeleted, IntPredicate stored) {
+        int[] bounds = {Integer.MAX_VALUE, Integer.MIN_VALUE, 0};
+        forEachDeleted.accept(id -> {
+            bounds[0] = Math.min(bounds[0], id);
+            bounds[1] = Math.max(bounds[1], id);
+            bounds[2]++;
+        });
+        int min = bounds[0];
+        int max = bounds[1];
+        if (bounds[2] == 0 || (long) max - min + 1 > (long) MAX_SPREAD * bounds[2]) {
+            return stored;
+        }
+        BitSet bits = new BitSet(max - min + 1);
+        forEachDeleted.accept(id -> bits.set(id - min));
+        return id -> id >= min && id <= max && bits.get(id - min);
+    }
+}
@@ -0,0 +1,62 @@
+package controllers;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+
+// Параллельный обход доски по частям (деревьям корневых эпиков или шардам) в заданном ForkJoinPool.
+// Диапазон частей делится пополам, пока в нём больше grain частей; деревья эпиков бывают очень разного
+// размера, поэтому частей в задаче немного, и простаивающие потоки забирают остаток через work stealing.
+// Результаты соседних диапазонов сливаются combine в порядке частей
+final class EpicPartitions {
+    // Задач на поток пула: с запасом на неравные части
+    private static final int TASKS_PER_THREAD = 8;
+
+    private EpicPartitions() {
+    }
+
+    // part(i) для каждого i из [0, count); empty - результат для count = 0
+    static <R> R reduce(ForkJoinPool pool, int count, IntFunction<R> part, BinaryOperator<R> combine, R empty) {
+        if (count == 0) {
+            return empty;
+        }
+        int grain = Math.max(1, count / (pool.getParallelism() * TASKS_PER_THREAD));
+        return pool.invoke(new PartTask<>(0, count, grain, part, combine));
+    }
+
+    // RecursiveTask сериализуем, но задача живёт только внутри пула и не сериализуется
+    private static final class PartTask<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final transient IntFunction<R> part;
+        private final transient BinaryOperator<R> combine;
+
+        PartTask(int from, int to, int grain, IntFunction<R> part, BinaryOperator<R> combine) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.part = part;
+            this.combine = combine;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= grain) {
+                R result = part.apply(from);
+                for (int i = from + 1; i < to; i++) {
+                    result = combine.apply(result, part.apply(i));
+                }
+                return result;
+            }
+            int middle = (from + to) >>> 1;
+            PartTask<R> left = new PartTask<>(from, middle, grain, part, combine);
+            left.fork();
+            R right = new PartTask<>(middle, to, grain, part, combine).compute();
+            return combine.apply(left.join(), right);
+        }
+    }
+}
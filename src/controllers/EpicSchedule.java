@@ -0,0 +1,90 @@
+package controllers;
+
+import model.Epic;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Сроки одного эпика по подзадачам его и всех вложенных эпиков, как у EpicStatusCounter: начало - самое
+// раннее начало, конец - самый поздний конец, продолжительность - сумма продолжительностей. Начала и концы
+// хранятся мультимножествами, поэтому подзадача добавляется и удаляется за O(log k) без перебора остальных
+class EpicSchedule {
+    private final NavigableMap<LocalDateTime, Integer> starts = new TreeMap<>();
+    private final NavigableMap<LocalDateTime, Integer> ends = new TreeMap<>();
+    private Duration duration = Duration.ZERO;
+    private int withDuration;
+
+    void add(ScheduleIndex.Slot slot) {
+        if (slot == null) {
+            return;
+        }
+        if (slot.isScheduled()) {
+            starts.merge(slot.start, 1, Integer::sum);
+            ends.merge(slot.end, 1, Integer::sum);
+        }
+        if (slot.duration != null) {
+            duration = duration.plus(slot.duration);
+            withDuration++;
+        }
+    }
+
+    void remove(ScheduleIndex.Slot slot) {
+        if (slot == null) {
+            return;
+        }
+        if (slot.isScheduled()) {
+            decrement(starts, slot.start, 1);
+            decrement(ends, slot.end, 1);
+        }
+        if (slot.duration != null) {
+            duration = duration.minus(slot.duration);
+            withDuration--;
+        }
+    }
+
+    // Перенос поддерева со сроками other в этот эпик или из него
+    void add(EpicSchedule other) {
+        other.starts.forEach((start, count) -> starts.merge(start, count, Integer::sum));
+        other.ends.forEach((end, count) -> ends.merge(end, count, Integer::sum));
+        duration = duration.plus(other.duration);
+        withDuration += other.withDuration;
+    }
+
+    void subtract(EpicSchedule other) {
+        other.starts.forEach((start, count) -> decrement(starts, start, count));
+        other.ends.forEach((end, count) -> decrement(ends, end, count));
+        duration = duration.minus(other.duration);
+        withDuration -= other.withDuration;
+    }
+
+    void clear() {
+        starts.clear();
+        ends.clear();
+        duration = Duration.ZERO;
+        withDuration = 0;
+    }
+
+    LocalDateTime getStartTime() {
+        return starts.isEmpty() ? null : starts.firstKey();
+    }
+
+    LocalDateTime getEndTime() {
+        return ends.isEmpty() ? null : ends.lastKey();
+    }
+
+    Duration getDuration() {
+        return withDuration == 0 ? null : duration;
+    }
+
+    void applyTo(Epic epic) {
+        epic.setStartTime(getStartTime());
+        epic.setDuration(getDuration());
+        epic.setEndTime(getEndTime());
+    }
+
+    private static void decrement(NavigableMap<LocalDateTime, Integer> counts, LocalDateTime key, int by) {
+        counts.computeIfPresent(key, (ignored, count) -> count == by ? null : count - by);
+    }
+}
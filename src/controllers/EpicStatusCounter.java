@@ -0,0 +1,68 @@
+package controllers;
+
+import enums.Status;
+import model.EpicRollup;
+
+// Счётчики статусов подзадач эпика вместе со всеми вложенными эпиками: статус эпика вычисляется за O(1)
+class EpicStatusCounter {
+    private final int[] counts = new int[Status.values().length];
+    private int total;
+
+    void increment(Status status) {
+        if (status != null) {
+            counts[status.ordinal()]++;
+        }
+        total++;
+    }
+
+    void decrement(Status status) {
+        if (status != null) {
+            counts[status.ordinal()]--;
+        }
+        total--;
+    }
+
+    // Перенос поддерева с итогами other в этот эпик или из него
+    void add(EpicStatusCounter other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    void subtract(EpicStatusCounter other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] -= other.counts[i];
+        }
+        total -= other.total;
+    }
+
+    void clear() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        total = 0;
+    }
+
+    int count(Status status) {
+        return counts[status.ordinal()];
+    }
+
+    int total() {
+        return total;
+    }
+
+    Status toStatus() {
+        if (total == 0 || counts[Status.NEW.ordinal()] == total) {
+            return Status.NEW;
+        }
+        if (counts[Status.DONE.ordinal()] == total) {
+            return Status.DONE;
+        }
+        return Status.IN_PROGRESS;
+    }
+
+    EpicRollup toRollup(int epicId, int parentId, int depth, Status status, int subtaskCount, int childEpicCount) {
+        return new EpicRollup(epicId, parentId, depth, status, counts, total, subtaskCount, childEpicCount);
+    }
+}
@@ -0,0 +1,135 @@
+package controllers;
+
+import model.Epic;
+import utils.IntHashMap;
+import utils.IntLinkedSet;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.PrimitiveIterator;
+
+// Вложенность эпиков: родитель и дочерние эпики в порядке вложения. Хранятся только эпики с родителем
+// или детьми, поэтому доска без вложенности здесь ничего не занимает. Не потокобезопасен
+class EpicTree {
+    interface Visitor {
+        void visit(int epicId, int depth);
+    }
+
+    private final IntHashMap<Integer> parents = new IntHashMap<>();
+    private final IntHashMap<IntLinkedSet> children = new IntHashMap<>();
+
+    int parentOf(int epicId) {
+        Integer parentId = parents.get(epicId);
+        return parentId == null ? Epic.NO_PARENT : parentId;
+    }
+
+    int depthOf(int epicId) {
+        int depth = 0;
+        for (int id = parentOf(epicId); id != Epic.NO_PARENT; id = parentOf(id)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    int childCount(int epicId) {
+        IntLinkedSet ids = children.get(epicId);
+        return ids == null ? 0 : ids.size();
+    }
+
+    // true, если epicId - сам rootId или вложен в него; проверяется подъёмом от epicId за O(глубины)
+    boolean contains(int rootId, int epicId) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = parentOf(id)) {
+            if (id == rootId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void attach(int epicId, int parentId) {
+        parents.put(epicId, parentId);
+        IntLinkedSet ids = children.get(parentId);
+        if (ids == null) {
+            ids = new IntLinkedSet();
+            children.put(parentId, ids);
+        }
+        ids.add(epicId);
+    }
+
+    // Место эпика среди дочерних эпиков родителя; -1 для корневого
+    int indexOf(int epicId) {
+        IntLinkedSet ids = children.get(parentOf(epicId));
+        return ids == null ? -1 : ids.indexOf(epicId);
+    }
+
+    // Ставит дочерние эпики parentId на места indexes (по возрастанию)
+    void place(int parentId, int[] epicIds, int[] indexes, int count) {
+        IntLinkedSet ids = children.get(parentId);
+        if (ids != null) {
+            ids.place(epicIds, indexes, count);
+        }
+    }
+
+    // Эпик становится корневым; его поддерево остаётся при нём
+    void detach(int epicId) {
+        Integer parentId = parents.remove(epicId);
+        if (parentId == null) {
+            return;
+        }
+        IntLinkedSet ids = children.get(parentId);
+        ids.remove(epicId);
+        if (ids.isEmpty()) {
+            children.remove(parentId);
+        }
+    }
+
+    // Прямой порядок: эпик раньше вложенных в него; depth отсчитывается от rootId.
+    // Дерево нельзя менять во время обхода
+    void forEachInSubtree(int rootId, Visitor visitor) {
+        visitor.visit(rootId, 0);
+        IntLinkedSet ids = children.get(rootId);
+        if (ids == null) {
+            return;
+        }
+        Deque<PrimitiveIterator.OfInt> path = new ArrayDeque<>();
+        path.push(ids.view().iterator());
+        while (!path.isEmpty()) {
+            PrimitiveIterator.OfInt level = path.peek();
+            if (!level.hasNext()) {
+                path.pop();
+                continue;
+            }
+            int epicId = level.nextInt();
+            visitor.visit(epicId, path.size());
+            IntLinkedSet nested = children.get(epicId);
+            if (nested != null) {
+                path.push(nested.view().iterator());
+            }
+        }
+    }
+
+    void removeSubtree(int rootId) {
+        detach(rootId);
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(rootId);
+        while (!pending.isEmpty()) {
+            IntLinkedSet ids = children.remove(pending.pop());
+            if (ids != null) {
+                for (PrimitiveIterator.OfInt it = ids.view().iterator(); it.hasNext(); ) {
+                    int epicId = it.nextInt();
+                    parents.remove(epicId);
+                    pending.push(epicId);
+                }
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return parents.isEmpty();
+    }
+
+    void clear() {
+        parents.clear();
+        children.clear();
+    }
+}
@@ -0,0 +1,699 @@
+package controllers;
+
+import enums.TaskType;
+import exceptions.ManagerSaveException;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import utils.BinaryTaskFormat;
+import utils.CSVTaskFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Каждое изменение дописывается в журнал (journal.log) строкой "seq,crc,операция,данные", где crc - CRC32
+// номера и записи. Последняя строка без '\n' или с несошедшейся суммой считается недописанной при сбое.
+// fsync выполняется группами: после groupCommitSize записей или по истечении groupCommitMillis.
+// Изменение возвращается до fsync; его запись становится устойчивой не позже чем через groupCommitMillis
+// (отложенный сброс выполняет общий фоновый поток), раньше - при sync(), snapshot() и close().
+// Каждые snapshotInterval записей состояние сохраняется в двоичный snapshot.bin, а журнал обнуляется.
+// При запуске загружается снимок и применяются только записи журнала с seq больше, чем в снимке.
+// Отмена и повтор пишут в журнал свой результат: PUT и DEL изменённых задач, их места в списках (PLACE)
+// и отмену очистки (UNCLEAR), которая при загрузке возвращает хранилища, снятые последней такой очисткой.
+public final class FileBackedTaskManager extends InMemoryTaskManager implements Closeable {
+    public static final String SNAPSHOT_FILE = "snapshot.bin";
+    public static final String LOG_FILE = "journal.log";
+
+    private static final String PUT = "PUT";
+    private static final String DELETE = "DEL";
+    private static final String CLEAR = "CLEAR";
+    private static final String UNCLEAR = "UNCLEAR";
+    private static final String PLACE = "PLACE";
+
+    private static final int DEFAULT_GROUP_COMMIT_SIZE = 64;
+    private static final long DEFAULT_GROUP_COMMIT_MILLIS = 10;
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 100_000;
+
+    // Один поток на все менеджеры: ему не нужно закрытие, а задача сброса держит менеджер
+    // не дольше groupCommitMillis
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(task ->
+            Thread.ofPlatform().name("journal-flusher").daemon().unstarted(task));
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final int groupCommitSize;
+    private final long groupCommitNanos;
+    private final int snapshotInterval;
+    // Защищает счётчики fsync от фонового сброса
+    private final Object syncLock = new Object();
+    private FileChannel log;
+    private long sequence;
+    private int unsyncedRecords;
+    private long lastSyncNanos;
+    private ScheduledFuture<?> pendingFlush;
+    private IOException flushFailure;
+    private int recordsSinceSnapshot;
+    // Непустые очистки каждого вида, записанные после снимка и не отменённые: отменить записью UNCLEAR
+    // можно только их, более раннюю очистку сохраняет снимок
+    private final int[] replayableClears = new int[TaskType.values().length];
+    // Записи о результате идущих отмены или повтора; null - отмены нет
+    private List<String> appliedRecords;
+    private Set<Integer> appliedIds;
+    private boolean appliedNeedsSnapshot;
+    // Только на время загрузки: записи журнала изменений о ещё не отменённых очистках каждого вида
+    private Map<TaskType, Deque<MutationJournal.Entry>> replayedClears;
+
+    public FileBackedTaskManager(Path directory) {
+        this(directory, DEFAULT_GROUP_COMMIT_SIZE, DEFAULT_GROUP_COMMIT_MILLIS, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public FileBackedTaskManager(Path directory, int groupCommitSize, long groupCommitMillis, int snapshotInterval) {
+        if (groupCommitSize <= 0 || groupCommitMillis < 0 || snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры журнала");
+        }
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.logFile = directory.resolve(LOG_FILE);
+        this.groupCommitSize = groupCommitSize;
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        this.snapshotInterval = snapshotInterval;
+
+        try {
+            Files.createDirectories(directory);
+            long snapshotSequence = loadSnapshot();
+            // Журнал изменений при загрузке не вытесняет записи: отмена очистки из файла применяет её запись
+            setJournalLimits(Integer.MAX_VALUE, Long.MAX_VALUE);
+            replayedClears = new EnumMap<>(TaskType.class);
+            boolean logTailCorrupted = replayLog(snapshotSequence);
+            replayedClears = null;
+            restoreKeyOrder();
+            resetJournal();
+            setJournalLimits(DEFAULT_JOURNAL_ENTRIES, DEFAULT_JOURNAL_TASKS);
+            log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            lastSyncNanos = System.nanoTime();
+            if (logTailCorrupted) {
+                // Недописанная при сбое запись отбрасывается вместе с журналом
+                snapshot();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось загрузить данные из " + directory, e);
+        }
+    }
+
+    // Принудительный fsync всех записанных в журнал изменений
+    public void sync() {
+        synchronized (syncLock) {
+            try {
+                if (flushFailure != null) {
+                    throw flushFailure;
+                }
+                log.force(false);
+            } catch (IOException e) {
+                flushFailure = null;
+                throw new ManagerSaveException("Не удалось сбросить журнал " + logFile, e);
+            }
+            unsyncedRecords = 0;
+            lastSyncNanos = System.nanoTime();
+        }
+    }
+
+    // Записи журнала, ещё не прошедшие fsync
+    int getUnsyncedRecords() {
+        synchronized (syncLock) {
+            return unsyncedRecords;
+        }
+    }
+
+    // Отложенный сброс: ошибка fsync сохраняется и бросается следующим sync
+    private void flush() {
+        synchronized (syncLock) {
+            pendingFlush = null;
+            if (unsyncedRecords == 0 || !log.isOpen()) {
+                return;
+            }
+            try {
+                log.force(false);
+                unsyncedRecords = 0;
+                lastSyncNanos = System.nanoTime();
+            } catch (IOException e) {
+                flushFailure = e;
+            }
+        }
+    }
+
+    // Сохранение снимка и компактизация журнала
+    public void snapshot() {
+        sync();
+        Path tmp = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try {
+            // Эпики пишутся раньше подзадач, а родители - раньше вложенных эпиков,
+            // чтобы при загрузке всё сразу привязывалось
+            BinaryTaskFormat.write(tmp, getNextId(), sequence, getAllTasks(), getEpicsParentsFirst(),
+                    getAllSubtasks());
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Если сбой случится до обрезки, записи журнала будут пропущены по seq снимка
+            log.truncate(0);
+            log.force(true);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось сохранить снимок " + snapshotFile, e);
+        }
+        recordsSinceSnapshot = 0;
+        Arrays.fill(replayableClears, 0);
+    }
+
+    @Override
+    public void close() {
+        try {
+            synchronized (syncLock) {
+                if (pendingFlush != null) {
+                    pendingFlush.cancel(false);
+                    pendingFlush = null;
+                }
+            }
+            sync();
+            log.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось закрыть журнал " + logFile, e);
+        }
+    }
+
+    private long loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+
+        BinaryTaskFormat.Header header = BinaryTaskFormat.read(snapshotFile, this::restoreTask);
+        restoreSubtaskOrder();
+        setNextId(header.getNextId());
+        sequence = header.getSequence();
+        return sequence;
+    }
+
+    // Возвращает true, если последняя запись журнала оказалась недописанной: нет завершающего '\n'
+    // или не сошлась контрольная сумма. Испорченная запись не в конце журнала - ошибка
+    private boolean replayLog(long snapshotSequence) throws IOException {
+        if (!Files.exists(logFile)) {
+            return false;
+        }
+
+        try (InputStream in = Files.newInputStream(logFile)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            String corrupted = null;
+            byte[] buffer = new byte[1 << 16];
+            for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    line.write(buffer, start, i - start);
+                    start = i + 1;
+                    if (corrupted != null) {
+                        throw new ManagerSaveException("Повреждена запись журнала: " + corrupted);
+                    }
+                    String record = line.toString(StandardCharsets.UTF_8);
+                    line.reset();
+                    if (!replayRecord(record, snapshotSequence)) {
+                        corrupted = record;
+                    }
+                }
+                line.write(buffer, start, read - start);
+            }
+            return corrupted != null || line.size() > 0;
+        }
+    }
+
+    // Применяет запись "seq,crc,операция,данные"; false, если контрольная сумма не сошлась.
+    // Записи журналов прежнего формата ("seq,операция,данные") идут без суммы
+    private boolean replayRecord(String line, long snapshotSequence) {
+        int first = line.indexOf(',');
+        int second = line.indexOf(',', first + 1);
+        if (first <= 0 || second < 0) {
+            return false;
+        }
+        String checksum = line.substring(first + 1, second);
+        boolean checked = !isOperation(checksum);
+        String record = line.substring(checked ? second + 1 : first + 1);
+        if (checked && !checksum.equals(checksum(line.substring(0, first), record))) {
+            return false;
+        }
+        try {
+            long recordSequence = Long.parseLong(line.substring(0, first));
+            if (recordSequence > snapshotSequence) {
+                apply(record);
+                sequence = recordSequence;
+                recordsSinceSnapshot++;
+            }
+        } catch (RuntimeException e) {
+            // Запись с верной суммой дописана целиком, и ошибка в ней - не след сбоя
+            if (checked) {
+                throw new ManagerSaveException("Не удалось применить запись журнала: " + line, e);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isOperation(String field) {
+        return field.equals(PUT) || field.equals(DELETE) || field.equals(CLEAR);
+    }
+
+    // CRC32 номера и записи в шестнадцатеричном виде
+    private static String checksum(String recordSequence, String record) {
+        CRC32 crc = new CRC32();
+        crc.update(recordSequence.getBytes(StandardCharsets.UTF_8));
+        crc.update(',');
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    private void apply(String record) {
+        int comma = record.indexOf(',');
+        String operation = record.substring(0, comma);
+        String data = record.substring(comma + 1);
+        switch (operation) {
+            case PUT:
+                applyPut(CSVTaskFormat.fromString(data));
+                break;
+            case DELETE:
+                List<String> fields = CSVTaskFormat.split(data);
+                applyDelete(TaskType.valueOf(fields.get(0)), Integer.parseInt(fields.get(1)));
+                break;
+            case CLEAR:
+                applyClear(TaskType.valueOf(data));
+                break;
+            case UNCLEAR:
+                applyUnclear(TaskType.valueOf(data));
+                break;
+            case PLACE:
+                applyPlace(CSVTaskFormat.split(data));
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестная операция журнала: " + operation);
+        }
+    }
+
+    private void applyPut(Task task) {
+        if (findTask(task.getId()) == null) {
+            restoreTask(task);
+            return;
+        }
+        switch (CSVTaskFormat.typeOf(task)) {
+            case EPIC:
+                // Запись эпика несёт его родителя: так в журнал попадает и перенос
+                Epic epic = (Epic) task;
+                int parentId = epic.getParentId();
+                super.updateEpic(epic);
+                super.moveEpic(epic.getId(), parentId);
+                break;
+            case SUBTASK:
+                super.updateSubtask((Subtask) task);
+                break;
+            default:
+                super.updateTask(task);
+        }
+    }
+
+    private void applyDelete(TaskType type, int id) {
+        switch (type) {
+            case EPIC:
+                super.deleteEpicById(id);
+                break;
+            case SUBTASK:
+                super.deleteSubtaskById(id);
+                break;
+            default:
+                super.deleteTaskById(id);
+        }
+    }
+
+    private void applyClear(TaskType type) {
+        long journalSequence = getJournalSequence();
+        switch (type) {
+            case EPIC:
+                super.deleteAllEpics();
+                break;
+            case SUBTASK:
+                super.deleteAllSubtasks();
+                break;
+            default:
+                super.deleteAllTasks();
+        }
+        if (getJournalSequence() != journalSequence) {
+            replayedClears.computeIfAbsent(type, key -> new ArrayDeque<>()).push(getLatestJournalEntry());
+        }
+    }
+
+    // Доска сейчас в том же состоянии, что сразу после очистки, поэтому её запись возвращает хранилища
+    private void applyUnclear(TaskType type) {
+        Deque<MutationJournal.Entry> clears = replayedClears.get(type);
+        if (clears == null || clears.isEmpty()) {
+            throw new IllegalStateException("В журнале нет очистки " + type + ", которую можно отменить");
+        }
+        clears.pop().apply();
+    }
+
+    // Данные - пары "id,место"
+    private void applyPlace(List<String> fields) {
+        int count = fields.size() / 2;
+        int[] ids = new int[count];
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = Integer.parseInt(fields.get(2 * i));
+            positions[i] = Integer.parseInt(fields.get(2 * i + 1));
+        }
+        placeTasks(ids, positions, count);
+    }
+
+    private void append(String record) {
+        appendAll(List.of(record));
+    }
+
+    // Записи пакета уходят в журнал одной записью в канал и подтверждаются одним решением о fsync
+    private void appendAll(List<String> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (String record : records) {
+            String recordSequence = Long.toString(++sequence);
+            lines.append(recordSequence).append(',').append(checksum(recordSequence, record)).append(',')
+                    .append(record).append('\n');
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                log.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать в журнал " + logFile, e);
+        }
+
+        boolean syncNow;
+        synchronized (syncLock) {
+            unsyncedRecords += records.size();
+            syncNow = unsyncedRecords >= groupCommitSize || System.nanoTime() - lastSyncNanos >= groupCommitNanos;
+            if (!syncNow && pendingFlush == null) {
+                pendingFlush = FLUSHER.schedule(this::flush, groupCommitNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (syncNow) {
+            sync();
+        }
+        recordsSinceSnapshot += records.size();
+        if (recordsSinceSnapshot >= snapshotInterval) {
+            snapshot();
+        }
+    }
+
+    // Непустая очистка попадает в журнал изменений и меняет его номер
+    private void appendClear(TaskType type, long journalSequence) {
+        if (getJournalSequence() != journalSequence) {
+            replayableClears[type.ordinal()]++;
+        }
+        append(CLEAR + "," + type);
+    }
+
+    private void appendPut(Task task) {
+        append(putRecord(task));
+    }
+
+    private static String putRecord(Task task) {
+        return PUT + "," + CSVTaskFormat.toString(task);
+    }
+
+    // Обновление журналируется, только если менеджер действительно принял объект
+    private void appendPutIfStored(Task task) {
+        if (findTask(task.getId()) == task) {
+            appendPut(task);
+        }
+    }
+
+    private void appendPutsIfStored(List<? extends Task> tasks) {
+        List<String> records = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (findTask(task.getId()) == task) {
+                records.add(putRecord(task));
+            }
+        }
+        appendAll(records);
+    }
+
+    private void appendDeletes(TaskType type, List<Integer> ids) {
+        List<String> records = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            records.add(DELETE + "," + type + "," + id);
+        }
+        appendAll(records);
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        long journalSequence = getJournalSequence();
+        super.deleteAllTasks();
+        appendClear(TaskType.TASK, journalSequence);
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        Task created = super.createTask(task);
+        appendPut(created);
+        return created;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        super.updateTask(task);
+        appendPutIfStored(task);
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        super.deleteTaskById(id);
+        append(DELETE + "," + TaskType.TASK + "," + id);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        long journalSequence = getJournalSequence();
+        super.deleteAllEpics();
+        appendClear(TaskType.EPIC, journalSequence);
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        Epic created = super.createEpic(epic);
+        if (created != null) {
+            appendPut(created);
+        }
+        return created;
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        super.updateEpic(epic);
+        appendPutIfStored(epic);
+    }
+
+    @Override
+    public boolean moveEpic(int epicId, int parentId) {
+        boolean moved = super.moveEpic(epicId, parentId);
+        if (moved) {
+            appendPut(findTask(epicId));
+        }
+        return moved;
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        super.deleteEpicById(id);
+        append(DELETE + "," + TaskType.EPIC + "," + id);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        long journalSequence = getJournalSequence();
+        super.deleteAllSubtasks();
+        appendClear(TaskType.SUBTASK, journalSequence);
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        Subtask created = super.createSubtask(subtask);
+        if (created != null) {
+            appendPut(created);
+        }
+        return created;
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        super.updateSubtask(subtask);
+        appendPutIfStored(subtask);
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        super.deleteSubtaskById(id);
+        append(DELETE + "," + TaskType.SUBTASK + "," + id);
+    }
+
+    @Override
+    public List<Task> createTasks(List<Task> newTasks) {
+        List<Task> created = super.createTasks(newTasks);
+        appendPutsIfStored(created);
+        return created;
+    }
+
+    @Override
+    public void updateTasks(List<Task> updatedTasks) {
+        super.updateTasks(updatedTasks);
+        appendPutsIfStored(updatedTasks);
+    }
+
+    @Override
+    public void deleteTasksByIds(List<Integer> ids) {
+        super.deleteTasksByIds(ids);
+        appendDeletes(TaskType.TASK, ids);
+    }
+
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> newSubtasks) {
+        List<Subtask> created = super.createSubtasks(newSubtasks);
+        if (created != null) {
+            appendPutsIfStored(created);
+        }
+        return created;
+    }
+
+    @Override
+    public void updateSubtasks(List<Subtask> updatedSubtasks) {
+        super.updateSubtasks(updatedSubtasks);
+        appendPutsIfStored(updatedSubtasks);
+    }
+
+    @Override
+    public void deleteSubtasksByIds(List<Integer> ids) {
+        super.deleteSubtasksByIds(ids);
+        appendDeletes(TaskType.SUBTASK, ids);
+    }
+
+    @Override
+    protected void applyStatusTransition(List<Subtask> changed) {
+        super.applyStatusTransition(changed);
+        appendPutsIfStored(changed);
+    }
+
+    // Результат отмены и повтора дописывается в журнал файла: изменённые задачи - записями PUT и DEL в порядке
+    // применения, их места в списках - одной записью PLACE, отмена очистки - записью UNCLEAR.
+    // Снимок нужен, только если отменяется очистка, записанная до последнего снимка. Журнал изменений
+    // после перезапуска пуст
+    @Override
+    public boolean undo() {
+        beginApplied();
+        try {
+            return super.undo();
+        } finally {
+            endApplied();
+        }
+    }
+
+    @Override
+    public boolean redo() {
+        beginApplied();
+        try {
+            return super.redo();
+        } finally {
+            endApplied();
+        }
+    }
+
+    @Override
+    public void restoreTo(long sequence) {
+        beginApplied();
+        try {
+            super.restoreTo(sequence);
+        } finally {
+            endApplied();
+        }
+    }
+
+    @Override
+    protected void journalApplied(int id, Task previous) {
+        if (appliedRecords == null) {
+            return;
+        }
+        Task current = findTask(id);
+        if (current != null) {
+            appliedRecords.add(putRecord(current));
+            appliedIds.add(id);
+        } else if (previous != null) {
+            appliedRecords.add(DELETE + "," + CSVTaskFormat.typeOf(previous) + "," + id);
+        }
+    }
+
+    @Override
+    protected void journalClearApplied(TaskType type, boolean restored) {
+        if (appliedRecords == null) {
+            return;
+        }
+        if (!restored) {
+            appliedRecords.add(CLEAR + "," + type);
+            replayableClears[type.ordinal()]++;
+        } else if (replayableClears[type.ordinal()] > 0) {
+            appliedRecords.add(UNCLEAR + "," + type);
+            replayableClears[type.ordinal()]--;
+        } else {
+            appliedNeedsSnapshot = true;
+        }
+    }
+
+    private void beginApplied() {
+        appliedRecords = new ArrayList<>();
+        appliedIds = new LinkedHashSet<>();
+    }
+
+    private void endApplied() {
+        List<String> records = appliedRecords;
+        appliedRecords = null;
+        if (appliedNeedsSnapshot) {
+            appliedNeedsSnapshot = false;
+            snapshot();
+            return;
+        }
+        StringBuilder placements = new StringBuilder();
+        for (int id : appliedIds) {
+            int position = positionOf(id);
+            if (position >= 0) {
+                placements.append(',').append(id).append(',').append(position);
+            }
+        }
+        if (placements.length() > 0) {
+            records.add(PLACE + placements);
+        }
+        appendAll(records);
+    }
+}
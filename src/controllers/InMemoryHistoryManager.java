@@ -2,14 +2,39 @@ package controllers;
 
 import impl.HistoryManager;
 import model.Task;
+import model.TaskPage;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class InMemoryHistoryManager implements HistoryManager {
-    private static final int MAX_HISTORY_SIZE = 10;
-    private final LinkedList<Task> history = new LinkedList<>();
+    public static final int DEFAULT_MAX_SIZE = 10;
+    public static final int UNLIMITED = 0;
+
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final int maxSize;
+    private Node head;
+    private Node tail;
+
+    public InMemoryHistoryManager() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public InMemoryHistoryManager(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Размер истории не может быть отрицательным: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
 
     @Override
     public void add(Task task) {
@@ -17,14 +42,126 @@ public class InMemoryHistoryManager implements HistoryManager {
             return;
         }
 
-        if (history.size() >= MAX_HISTORY_SIZE) {
-            history.removeFirst();
+        // Повторный просмотр переносит задачу в конец истории
+        Node existing = nodes.remove(task.getId());
+        if (existing != null) {
+            removeNode(existing);
+        } else if (maxSize != UNLIMITED && nodes.size() >= maxSize) {
+            nodes.remove(head.task.getId());
+            removeNode(head);
+        }
+        nodes.put(task.getId(), linkLast(task));
+    }
+
+    @Override
+    public void remove(int id) {
+        Node node = nodes.remove(id);
+        if (node != null) {
+            removeNode(node);
+        }
+    }
+
+    @Override
+    public void removeIf(IntPredicate deleted) {
+        Node node = head;
+        while (node != null) {
+            Node next = node.next;
+            int id = node.task.getId();
+            if (deleted.test(id)) {
+                nodes.remove(id);
+                removeNode(node);
+            }
+            node = next;
         }
-        history.addLast(task);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
     }
 
     @Override
     public List<Task> getHistory() {
-        return new ArrayList<>(history);
+        List<Task> result = new ArrayList<>(nodes.size());
+        for (Node node = head; node != null; node = node.next) {
+            result.add(node.task);
+        }
+        return result;
+    }
+
+    @Override
+    public TaskPage<Task> getHistoryPage(int afterId, int pageSize) {
+        TaskPage.checkPageSize(pageSize);
+        if (afterId == TaskPage.FIRST_PAGE) {
+            return TaskPage.of(iteratorFrom(head), pageSize);
+        }
+        // Задача из токена могла уйти из истории - тогда продолжать не с чего
+        Node node = nodes.get(afterId);
+        return node == null ? TaskPage.empty() : TaskPage.of(iteratorFrom(node.next), pageSize);
+    }
+
+    @Override
+    public Stream<Task> streamHistory() {
+        Spliterator<Task> spliterator = Spliterators.spliterator(iteratorFrom(head), nodes.size(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    private Iterator<Task> iteratorFrom(Node start) {
+        return new Iterator<>() {
+            private Node next = start;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Task next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Task task = next.task;
+                next = next.next;
+                return task;
+            }
+        };
+    }
+
+    private Node linkLast(Task task) {
+        Node node = new Node(tail, task);
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        return node;
+    }
+
+    private void removeNode(Node node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static class Node {
+        private final Task task;
+        private Node prev;
+        private Node next;
+
+        private Node(Node prev, Task task) {
+            this.prev = prev;
+            this.task = task;
+        }
     }
 }
@@ -1,69 +1,472 @@
 package controllers;
 
+import enums.SearchOrder;
 import enums.Status;
+import enums.TaskType;
 import impl.HistoryManager;
-import impl.TaskManager;
+import impl.JournaledTaskManager;
+import model.BoardSnapshot;
 import model.Epic;
+import model.EpicRollup;
 import model.Subtask;
 import model.Task;
+import model.TaskPage;
+import model.TaskRecord;
+import utils.ChangeLog;
+import utils.ChangeSubscription;
+import utils.IntHashMap;
+import utils.IntLinkedSet;
 import utils.Managers;
+import utils.TextIndex;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class InMemoryTaskManager implements TaskManager {
-    private final Map<Integer, Task> tasks;
-    private final Map<Integer, Epic> epics;
-    private final Map<Integer, Subtask> subtasks;
+public class InMemoryTaskManager implements JournaledTaskManager {
+    public static final int DEFAULT_JOURNAL_ENTRIES = 1000;
+    public static final long DEFAULT_JOURNAL_TASKS = 1_000_000;
+
+    // Ключи без упаковки; обход идёт по возрастанию id, чтобы страницы продолжались с id из токена.
+    // Хранилища не final: очистка отсоединяет их целиком для отмены
+    private IntHashMap<Task> tasks;
+    private IntHashMap<Epic> epics;
+    private IntHashMap<Subtask> subtasks;
+    // Учтённые в индексах статусы и эпик подзадачи: объекты задач могут изменить снаружи
+    private StatusIndex taskStatuses;
+    private StatusIndex epicStatuses;
+    private StatusIndex subtaskStatuses;
+    private IntHashMap<Integer> subtaskEpicIds;
+    // Счётчики эпика включают подзадачи всех вложенных в него эпиков
+    private IntHashMap<EpicStatusCounter> epicStatusCounters;
+    private EpicTree epicTree = new EpicTree();
+    // Учтённое время задач и подзадач с проверкой пересечений; сроки эпиков ведутся по их подзадачам
+    private final ScheduleIndex scheduleIndex = new ScheduleIndex();
+    private IntHashMap<EpicSchedule> epicSchedules = new IntHashMap<>();
+    // Слова имени и описания задач, эпиков и подзадач для поиска
+    private final TextIndex textIndex = new TextIndex();
     private final HistoryManager historyManager;
+    private final ChangeLog changeLog = new ChangeLog();
+    // Версия задачи - номер последнего изменившего её события
+    // Версии по видам задач: очистка и её отмена подменяют карту вида целиком, а не переписывают каждую версию
+    private IntHashMap<Long> taskVersions = new IntHashMap<>();
+    private IntHashMap<Long> epicVersions = new IntHashMap<>();
+    private IntHashMap<Long> subtaskVersions = new IntHashMap<>();
+    // Порядок подзадач из файла: restoreTask откладывает его до подключения самих подзадач
+    private final IntHashMap<IntLinkedSet> restoredSubtaskOrders = new IntHashMap<>();
+    private final MutationJournal journal = new MutationJournal(DEFAULT_JOURNAL_ENTRIES, DEFAULT_JOURNAL_TASKS);
+    private BoardSnapshot snapshot;
     private int nextId;
+    // Последний id, который может выдать менеджер (шард выдаёт id только из своего диапазона)
+    private final int lastId;
+    private boolean epicStatusVerification;
 
     public InMemoryTaskManager() {
-        this.tasks = new HashMap<>();
-        this.epics = new HashMap<>();
-        this.subtasks = new HashMap<>();
-        this.historyManager = Managers.getDefaultHistory();
-        this.nextId = 1;
+        this(Managers.getDefaultHistory());
+    }
+
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this(historyManager, 1, Integer.MAX_VALUE);
+    }
+
+    // Менеджер, выдающий id из диапазона [firstId, lastId]
+    public InMemoryTaskManager(HistoryManager historyManager, int firstId, int lastId) {
+        if (firstId < 1 || lastId < firstId) {
+            throw new IllegalArgumentException("Некорректный диапазон id: " + firstId + " - " + lastId);
+        }
+        this.tasks = new IntHashMap<>();
+        this.epics = new IntHashMap<>();
+        this.subtasks = new IntHashMap<>();
+        this.taskStatuses = new StatusIndex();
+        this.epicStatuses = new StatusIndex();
+        this.subtaskStatuses = new StatusIndex();
+        this.subtaskEpicIds = new IntHashMap<>();
+        this.epicStatusCounters = new IntHashMap<>();
+        this.historyManager = historyManager;
+        this.nextId = firstId;
+        this.lastId = lastId;
+    }
+
+    // Режим проверки: каждый пересчёт статуса эпика сверяется с полным перебором подзадач
+    public void setEpicStatusVerification(boolean enabled) {
+        this.epicStatusVerification = enabled;
+    }
+
+    @Override
+    public void setJournalLimits(int maxEntries, long maxTasks) {
+        journal.setLimits(maxEntries, maxTasks);
+    }
+
+    // Журнал после загрузки: изменения, из которых собрано состояние, отменять нельзя
+    protected void resetJournal() {
+        journal.reset();
+    }
+
+    // Последняя запись журнала; null - журнал пуст
+    MutationJournal.Entry getLatestJournalEntry() {
+        return journal.getLatest();
+    }
+
+    // Отмена или повтор изменили задачу id; previous - её состояние до этого (null - задачи не было)
+    protected void journalApplied(int id, Task previous) {
+    }
+
+    // Отмена (restored) или повтор очистки задач вида type
+    protected void journalClearApplied(TaskType type, boolean restored) {
     }
 
     private int generateId() {
+        checkIdsAvailable(1);
         return nextId++;
     }
 
+    // Проверяется до любых изменений, чтобы создание при исчерпанном диапазоне ничего не меняло
+    private void checkIdsAvailable(int count) {
+        if ((long) nextId + count - 1 > lastId) {
+            throw new IllegalStateException("Диапазон id исчерпан: нужно " + count + ", последний id " + lastId
+                    + ", следующий " + nextId);
+        }
+    }
+
+    // Промах по id не доходит до менеджера истории
+    private void addToHistory(Task task) {
+        if (task != null) {
+            historyManager.add(task);
+        }
+    }
+
+    private void recordCreated(Task task) {
+        versionsOf(task).put(task.getId(), changeLog.created(task));
+    }
+
+    private void recordUpdated(Task task) {
+        versionsOf(task).put(task.getId(), changeLog.updated(task));
+    }
+
+    private void recordDeleted(TaskType type, int id) {
+        versionsOf(type).remove(id);
+        changeLog.deleted(type, id);
+    }
+
+    private void recordEpicStatusChanged(Epic epic) {
+        epicVersions.put(epic.getId(), changeLog.epicStatusChanged(epic, epic.getStatus()));
+    }
+
+    private IntHashMap<Long> versionsOf(Task task) {
+        if (task instanceof Subtask) {
+            return subtaskVersions;
+        }
+        return task instanceof Epic ? epicVersions : taskVersions;
+    }
+
+    private IntHashMap<Long> versionsOf(TaskType type) {
+        return type == TaskType.TASK ? taskVersions : type == TaskType.EPIC ? epicVersions : subtaskVersions;
+    }
+
+    // Снимает удаляемые задачи с истории, расписания, поиска и версий; вызывается, пока задачи ещё в хранилищах
+    // (stored проверяет id по ним). Если удаляется не меньше половины структуры, её дешевле вычистить
+    // одним проходом, чем искать каждый id из forEachDeleted
+    private void forgetDeleted(int count, IntPredicate stored, Consumer<IntConsumer> forEachDeleted) {
+        IntPredicate deleted = count > 1 ? DeletedIds.of(forEachDeleted, stored) : stored;
+        forgetViews(count, deleted, forEachDeleted);
+        for (IntHashMap<Long> versions : List.of(taskVersions, epicVersions, subtaskVersions)) {
+            if (prefersScan(count, versions.size())) {
+                versions.removeIf(deleted);
+            } else {
+                forEachDeleted.accept(versions::remove);
+            }
+        }
+        if (prefersScan(count, scheduleIndex.size())) {
+            scheduleIndex.removeIf(deleted);
+        } else {
+            forEachDeleted.accept(scheduleIndex::remove);
+        }
+        if (prefersScan(count, textIndex.size())) {
+            textIndex.removeIf(deleted);
+        } else {
+            forEachDeleted.accept(textIndex::remove);
+        }
+    }
+
+    // То же при очистке хранилища: время и слова задач не выбрасываются, а отсоединяются в cleared для отмены;
+    // версии уходят туда же вместе со своими картами
+    private void detachDeleted(Cleared cleared, IntPredicate stored, Consumer<IntConsumer> forEachDeleted) {
+        int count = cleared.count;
+        IntPredicate deleted = count > 1 ? DeletedIds.of(forEachDeleted, stored) : stored;
+        forgetViews(count, deleted, forEachDeleted);
+        int[] ids = prefersScan(count, scheduleIndex.size()) && prefersScan(count, textIndex.size())
+                ? null : collectIds(count, forEachDeleted);
+        cleared.slots = prefersScan(count, scheduleIndex.size())
+                ? scheduleIndex.detachIf(deleted) : scheduleIndex.detach(ids);
+        cleared.text = prefersScan(count, textIndex.size()) ? textIndex.detachIf(deleted) : textIndex.detach(ids);
+    }
+
+    // Просмотры удалённых задач не возвращаются и при отмене
+    private void forgetViews(int count, IntPredicate deleted, Consumer<IntConsumer> forEachDeleted) {
+        if (prefersScan(count, historyManager.size())) {
+            historyManager.removeIf(deleted);
+        } else {
+            forEachDeleted.accept(historyManager::remove);
+        }
+    }
+
+    private static int[] collectIds(int count, Consumer<IntConsumer> forEach) {
+        int[] ids = new int[count];
+        int[] size = {0};
+        forEach.accept(id -> ids[size[0]++] = id);
+        return ids;
+    }
+
+    private static boolean prefersScan(int count, int size) {
+        return count >= size / 2;
+    }
+
+    // Резервирует count подряд идущих id и возвращает первый из них
+    private int reserveIds(int count) {
+        checkIdsAvailable(count);
+        int first = nextId;
+        nextId += count;
+        return first;
+    }
+
+    private static int[] idsOf(List<? extends Task> items) {
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = items.get(i).getId();
+        }
+        return ids;
+    }
+
+    private static int[] consecutiveIds(int first, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = first + i;
+        }
+        return ids;
+    }
+
+    // Учитывает время задачи с id; при пересечении бросает TaskOverlapException до любых изменений
+    private ScheduleIndex.Slot schedule(int id, Task task) {
+        return scheduleIndex.put(id, task.getStartTime(), task.getDuration());
+    }
+
+    private void index(Task task) {
+        textIndex.put(task.getId(), task.getName(), task.getDescription());
+    }
+
+    // Пересчитываются эпик и его предки: их счётчики включают подзадачи эпика
     private void updateEpicStatus(int epicId) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+            if (refreshEpicStatus(id)) {
+                recordEpicStatusChanged(epics.get(id));
+            }
+        }
+    }
+
+    // Пересчёт без события; true, если статус эпика изменился
+    private boolean refreshEpicStatus(int epicId) {
         Epic epic = epics.get(epicId);
-        if (epic == null) return;
+        if (epic == null) return false;
 
-        List<Integer> subtaskIds = epic.getSubtaskIds();
-        if (subtaskIds.isEmpty()) {
-            epic.setStatus(Status.NEW);
-            return;
+        Status status = epicStatusCounters.get(epicId).toStatus();
+        if (epicStatusVerification) {
+            Status expected = calculateEpicStatus(epic);
+            if (status != expected) {
+                throw new IllegalStateException("Счётчики эпика " + epicId + " дают статус " + status
+                        + ", полный перебор подзадач - " + expected);
+            }
+        }
+        epic.setStatus(status);
+        return epicStatuses.put(epicId, status) != status;
+    }
+
+    // Полный перебор подзадач эпика и всех вложенных в него эпиков
+    private Status calculateEpicStatus(Epic epic) {
+        boolean[] allDone = {true};
+        boolean[] allNew = {true};
+        epicTree.forEachInSubtree(epic.getId(), (epicId, depth) -> {
+            for (PrimitiveIterator.OfInt ids = epics.get(epicId).getSubtaskIdsView().iterator(); ids.hasNext(); ) {
+                Subtask subtask = subtasks.get(ids.nextInt());
+                if (subtask == null) continue;
+
+                if (subtask.getStatus() != Status.DONE) {
+                    allDone[0] = false;
+                }
+                if (subtask.getStatus() != Status.NEW) {
+                    allNew[0] = false;
+                }
+            }
+        });
+
+        if (allNew[0]) {
+            return Status.NEW;
+        } else if (allDone[0]) {
+            return Status.DONE;
+        }
+        return Status.IN_PROGRESS;
+    }
+
+    // Подзадача учитывается в счётчиках эпика и всех его предков: O(глубины)
+    private void countSubtask(int epicId, Status status) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+            epicStatusCounters.get(id).increment(status);
+        }
+    }
+
+    private void uncountSubtask(int epicId, Status status) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+            epicStatusCounters.get(id).decrement(status);
+        }
+    }
+
+    // Время подзадачи учитывается в сроках эпика и всех его предков, как и статус
+    private void rescheduleSubtask(int epicId, ScheduleIndex.Slot removed, ScheduleIndex.Slot added) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+            EpicSchedule epicSchedule = epicSchedules.get(id);
+            epicSchedule.remove(removed);
+            epicSchedule.add(added);
+            epicSchedule.applyTo(epics.get(id));
+        }
+    }
+
+    // Время подзадачи к этому моменту уже учтено в scheduleIndex
+    private void attachSubtask(Epic epic, Subtask subtask) {
+        epic.addSubtaskId(subtask.getId());
+        countSubtask(epic.getId(), subtask.getStatus());
+        rescheduleSubtask(epic.getId(), null, scheduleIndex.get(subtask.getId()));
+        subtaskStatuses.put(subtask.getId(), subtask.getStatus());
+        subtaskEpicIds.put(subtask.getId(), epic.getId());
+    }
+
+    // slot - время, с которым подзадача была учтена в эпике
+    private void detachSubtask(int subtaskId, ScheduleIndex.Slot slot) {
+        Status status = subtaskStatuses.remove(subtaskId);
+        Integer epicId = subtaskEpicIds.remove(subtaskId);
+        if (epicId == null) return;
+
+        Epic epic = epics.get(epicId);
+        if (epic != null) {
+            epic.removeSubtaskId(subtaskId);
+            uncountSubtask(epicId, status);
+            rescheduleSubtask(epicId, slot, null);
+        }
+    }
+
+    // Поиск без записи в историю - для наследников, которым нужно состояние хранилища
+    protected Task findTask(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        if (task == null) {
+            task = subtasks.get(id);
         }
+        return task;
+    }
+
+    protected int getNextId() {
+        return nextId;
+    }
 
-        boolean allDone = true;
-        boolean allNew = true;
+    protected void setNextId(int nextId) {
+        this.nextId = Math.max(this.nextId, nextId);
+    }
 
-        for (int subtaskId : subtaskIds) {
-            Subtask subtask = subtasks.get(subtaskId);
-            if (subtask == null) continue;
+    // Восстановление и отмена удаления кладут задачи не по порядку id; страницам нужен порядок ключей,
+    // поэтому после такой пачки он восстанавливается один раз
+    protected void restoreKeyOrder() {
+        tasks.sortByKey();
+        epics.sortByKey();
+        subtasks.sortByKey();
+    }
 
-            if (subtask.getStatus() != Status.DONE) {
-                allDone = false;
+    // Подзадачи подключаются к эпику в порядке загрузки, а не в сохранённом; после загрузки
+    // порядок из файла возвращается одной перестановкой на эпик
+    protected void restoreSubtaskOrder() {
+        restoredSubtaskOrders.forEachKey(epicId -> {
+            Epic epic = epics.get(epicId);
+            if (epic == null) {
+                return;
             }
-            if (subtask.getStatus() != Status.NEW) {
-                allNew = false;
+            IntLinkedSet order = restoredSubtaskOrders.get(epicId);
+            int[] ids = new int[order.size()];
+            int[] positions = new int[order.size()];
+            int count = 0;
+            for (PrimitiveIterator.OfInt it = order.view().iterator(); it.hasNext(); ) {
+                int id = it.nextInt();
+                if (Objects.equals(subtaskEpicIds.get(id), epicId)) {
+                    ids[count] = id;
+                    positions[count] = count;
+                    count++;
+                }
             }
-        }
+            epic.placeSubtaskIds(ids, positions, count);
+        });
+        restoredSubtaskOrders.clear();
+    }
 
-        if (allDone) {
-            epic.setStatus(Status.DONE);
-        } else if (allNew) {
+    // Добавление задачи с уже назначенным id (восстановление из файла); эпик подзадачи должен существовать.
+    // После загрузки вызывающий восстанавливает порядок ключей (restoreKeyOrder) и подзадач (restoreSubtaskOrder)
+    protected void restoreTask(Task task) {
+        // Восстановление не порождает событий, поэтому закешированный снимок сбрасывается явно
+        snapshot = null;
+        if (task instanceof Subtask) {
+            Subtask subtask = (Subtask) task;
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic == null) {
+                throw new IllegalStateException("Подзадача " + subtask.getId()
+                        + " ссылается на отсутствующий эпик " + subtask.getEpicId());
+            }
+            schedule(subtask.getId(), subtask);
+            subtasks.put(subtask.getId(), subtask);
+            attachSubtask(epic, subtask);
+            for (int id = epic.getId(); id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+                refreshEpicStatus(id);
+            }
+        } else if (task instanceof Epic) {
+            Epic epic = (Epic) task;
+            int parentId = epic.getParentId();
+            if (parentId != Epic.NO_PARENT && !epics.containsKey(parentId)) {
+                throw new IllegalStateException("Эпик " + epic.getId() + " вложен в отсутствующий эпик " + parentId);
+            }
+            IntLinkedSet order = epic.swapSubtaskIds(new IntLinkedSet());
+            if (!order.isEmpty()) {
+                restoredSubtaskOrders.put(epic.getId(), order);
+            }
             epic.setStatus(Status.NEW);
+            epics.put(epic.getId(), epic);
+            epicStatuses.put(epic.getId(), Status.NEW);
+            epicStatusCounters.put(epic.getId(), new EpicStatusCounter());
+            EpicSchedule epicSchedule = new EpicSchedule();
+            epicSchedule.applyTo(epic);
+            epicSchedules.put(epic.getId(), epicSchedule);
+            if (parentId != Epic.NO_PARENT) {
+                epicTree.attach(epic.getId(), parentId);
+            }
         } else {
-            epic.setStatus(Status.IN_PROGRESS);
+            schedule(task.getId(), task);
+            tasks.put(task.getId(), task);
+            taskStatuses.put(task.getId(), task.getStatus());
         }
+        index(task);
+        setNextId(task.getId() + 1);
     }
 
     @Override
@@ -73,33 +476,67 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void deleteAllTasks() {
-        tasks.clear();
+        recordClear(detachTasks(false));
     }
 
     @Override
     public Task getTaskById(int id) {
         Task task = tasks.get(id);
-        historyManager.add(task);
+        addToHistory(task);
         return task;
     }
 
     @Override
     public Task createTask(Task task) {
+        checkIdsAvailable(1);
+        schedule(nextId, task);
         task.setId(generateId());
-        tasks.put(task.getId(), task);
+        insertTask(task);
+        record(changeOf(task.getId(), null));
         return task;
     }
 
     @Override
     public void updateTask(Task task) {
         if (tasks.containsKey(task.getId())) {
-            tasks.put(task.getId(), task);
+            ItemChanges changes = changeOf(task.getId());
+            storeTask(task);
+            record(changes);
         }
     }
 
     @Override
     public void deleteTaskById(int id) {
-        tasks.remove(id);
+        ItemChanges changes = tasks.containsKey(id) ? changeOf(id) : null;
+        removeTask(id);
+        record(changes);
+    }
+
+    // Время задачи к этому моменту уже учтено в scheduleIndex
+    private void insertTask(Task task) {
+        tasks.put(task.getId(), task);
+        taskStatuses.put(task.getId(), task.getStatus());
+        index(task);
+        recordCreated(task);
+    }
+
+    private void storeTask(Task task) {
+        schedule(task.getId(), task);
+        tasks.put(task.getId(), task);
+        taskStatuses.put(task.getId(), task.getStatus());
+        index(task);
+        recordUpdated(task);
+    }
+
+    // Id задачи другого вида не трогает ни хранилища, ни историю
+    private void removeTask(int id) {
+        if (tasks.remove(id) != null) {
+            taskStatuses.remove(id);
+            scheduleIndex.remove(id);
+            textIndex.remove(id);
+            historyManager.remove(id);
+            recordDeleted(TaskType.TASK, id);
+        }
     }
 
     @Override
@@ -109,48 +546,181 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void deleteAllEpics() {
-        for (Epic epic : epics.values()) {
-            for (int subtaskId : epic.getSubtaskIds()) {
-                subtasks.remove(subtaskId);
-            }
-        }
-        epics.clear();
+        recordClear(detachEpics(false));
     }
 
     @Override
     public Epic getEpicById(int id) {
         Epic epic = epics.get(id);
-        historyManager.add(epic);
+        addToHistory(epic);
         return epic;
     }
 
     @Override
     public Epic createEpic(Epic epic) {
+        int parentId = epic.getParentId();
+        if (parentId != Epic.NO_PARENT && !epics.containsKey(parentId)) {
+            return null;
+        }
+
         epic.setId(generateId());
+        insertEpic(epic);
+        record(changeOf(epic.getId(), null));
+        return epic;
+    }
+
+    // Эпик вкладывается в epic.getParentId(), который должен существовать
+    private void insertEpic(Epic epic) {
+        int parentId = epic.getParentId();
         epic.setStatus(Status.NEW);
         epics.put(epic.getId(), epic);
-        return epic;
+        epicStatuses.put(epic.getId(), Status.NEW);
+        epicStatusCounters.put(epic.getId(), new EpicStatusCounter());
+        EpicSchedule epicSchedule = new EpicSchedule();
+        epicSchedule.applyTo(epic);
+        epicSchedules.put(epic.getId(), epicSchedule);
+        if (parentId != Epic.NO_PARENT) {
+            epicTree.attach(epic.getId(), parentId);
+        }
+        index(epic);
+        recordCreated(epic);
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        Epic existingEpic = epics.get(epic.getId());
-        if (existingEpic != null) {
-            List<Integer> subtaskIds = existingEpic.getSubtaskIds();
-            epic.setSubtaskIds(new ArrayList<>(subtaskIds));
-            epics.put(epic.getId(), epic);
-            updateEpicStatus(epic.getId());
+        if (epics.containsKey(epic.getId())) {
+            ItemChanges changes = changeOf(epic.getId());
+            storeEpic(epic);
+            record(changes);
+        }
+    }
+
+    private void storeEpic(Epic epic) {
+        epic.copySubtaskIdsFrom(epics.get(epic.getId()));
+        epic.setParentId(epicTree.parentOf(epic.getId()));
+        epicSchedules.get(epic.getId()).applyTo(epic);
+        epics.put(epic.getId(), epic);
+        refreshEpicStatus(epic.getId());
+        index(epic);
+        recordUpdated(epic);
+    }
+
+    // Перенос поддерева: его итоги вычитаются из прежних предков и прибавляются к новым
+    @Override
+    public boolean moveEpic(int epicId, int parentId) {
+        Epic epic = epics.get(epicId);
+        if (epic == null || parentId != Epic.NO_PARENT
+                && (!epics.containsKey(parentId) || epicTree.contains(epicId, parentId))) {
+            return false;
+        }
+        int oldParentId = epicTree.parentOf(epicId);
+        if (oldParentId == parentId) {
+            return true;
+        }
+        int oldPosition = epicTree.indexOf(epicId);
+        placeEpic(epicId, parentId);
+        if (journal.isEnabled()) {
+            record(new EpicMove(epicId, oldParentId, oldPosition));
+        }
+        return true;
+    }
+
+    private void placeEpic(int epicId, int parentId) {
+        Epic epic = epics.get(epicId);
+        int oldParentId = epicTree.parentOf(epicId);
+        EpicStatusCounter counter = epicStatusCounters.get(epicId);
+        EpicSchedule schedule = epicSchedules.get(epicId);
+        for (int id = oldParentId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+            epicStatusCounters.get(id).subtract(counter);
+            EpicSchedule epicSchedule = epicSchedules.get(id);
+            epicSchedule.subtract(schedule);
+            epicSchedule.applyTo(epics.get(id));
+        }
+        epicTree.detach(epicId);
+        if (parentId != Epic.NO_PARENT) {
+            epicTree.attach(epicId, parentId);
+            for (int id = parentId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+                epicStatusCounters.get(id).add(counter);
+                EpicSchedule epicSchedule = epicSchedules.get(id);
+                epicSchedule.add(schedule);
+                epicSchedule.applyTo(epics.get(id));
+            }
         }
+        epic.setParentId(parentId);
+        recordUpdated(epic);
+        updateEpicStatus(oldParentId);
+        updateEpicStatus(parentId);
     }
 
+    // Удаляется всё поддерево эпика; вложенные эпики удаляются раньше родителя,
+    // чтобы подписчики не видели эпиков с уже удалённым родителем
     @Override
     public void deleteEpicById(int id) {
-        Epic epic = epics.remove(id);
-        if (epic != null) {
-            for (int subtaskId : epic.getSubtaskIds()) {
+        ItemChanges changes = epics.containsKey(id) && journal.isEnabled() ? subtreeChanges(id) : null;
+        removeEpic(id);
+        record(changes);
+    }
+
+    // Отмена вернёт эпики от корня к листьям, а подзадачи каждого эпика - в прежнем порядке,
+    // поэтому записи идут в обратном порядке: вложенные эпики раньше родителей, подзадачи - с конца
+    private ItemChanges subtreeChanges(int id) {
+        IntLinkedSet subtree = new IntLinkedSet();
+        epicTree.forEachInSubtree(id, (epicId, depth) -> subtree.add(epicId));
+        int[] order = subtree.view().stream().toArray();
+        ItemChanges changes = new ItemChanges(order.length + epicStatusCounters.get(id).total());
+        for (int i = order.length - 1; i >= 0; i--) {
+            int[] subtaskIds = epics.get(order[i]).getSubtaskIdsView().stream().toArray();
+            for (int j = subtaskIds.length - 1; j >= 0; j--) {
+                changes.add(subtaskIds[j], storedState(subtaskIds[j]));
+            }
+            changes.add(order[i], storedState(order[i]));
+        }
+        return changes;
+    }
+
+    private void removeEpic(int id) {
+        Epic epic = epics.get(id);
+        if (epic == null) {
+            return;
+        }
+        int parentId = epicTree.parentOf(id);
+        EpicStatusCounter removed = epicStatusCounters.get(id);
+        EpicSchedule removedSchedule = epicSchedules.get(id);
+        for (int ancestorId = parentId; ancestorId != Epic.NO_PARENT; ancestorId = epicTree.parentOf(ancestorId)) {
+            epicStatusCounters.get(ancestorId).subtract(removed);
+            EpicSchedule epicSchedule = epicSchedules.get(ancestorId);
+            epicSchedule.subtract(removedSchedule);
+            epicSchedule.applyTo(epics.get(ancestorId));
+        }
+        IntLinkedSet subtree = new IntLinkedSet();
+        epicTree.forEachInSubtree(id, (epicId, depth) -> subtree.add(epicId));
+        IntLinkedSet.View epicIds = subtree.view();
+        forgetDeleted(epicIds.size() + removed.total(), taskId -> {
+            Integer epicId = subtaskEpicIds.get(taskId);
+            return epicIds.contains(epicId == null ? taskId : epicId);
+        }, action -> epicIds.stream().forEach(epicId -> {
+            epics.get(epicId).getSubtaskIdsView().stream().forEach(action);
+            action.accept(epicId);
+        }));
+
+        int[] order = epicIds.stream().toArray();
+        for (int i = order.length - 1; i >= 0; i--) {
+            int epicId = order[i];
+            for (PrimitiveIterator.OfInt ids = epics.get(epicId).getSubtaskIdsView().iterator(); ids.hasNext(); ) {
+                int subtaskId = ids.nextInt();
                 subtasks.remove(subtaskId);
+                subtaskStatuses.remove(subtaskId);
+                subtaskEpicIds.remove(subtaskId);
+                changeLog.deleted(TaskType.SUBTASK, subtaskId);
             }
+            epics.remove(epicId);
+            epicStatusCounters.remove(epicId);
+            epicSchedules.remove(epicId);
+            epicStatuses.remove(epicId);
+            changeLog.deleted(TaskType.EPIC, epicId);
         }
+        epicTree.removeSubtree(id);
+        updateEpicStatus(parentId);
     }
 
     @Override
@@ -160,17 +730,13 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void deleteAllSubtasks() {
-        for (Epic epic : epics.values()) {
-            epic.clearSubtaskIds();
-            updateEpicStatus(epic.getId());
-        }
-        subtasks.clear();
+        recordClear(detachSubtasks(false));
     }
 
     @Override
     public Subtask getSubtaskById(int id) {
         Subtask subtask = subtasks.get(id);
-        historyManager.add(subtask);
+        addToHistory(subtask);
         return subtask;
     }
 
@@ -181,55 +747,1130 @@ public class InMemoryTaskManager implements TaskManager {
             return null;
         }
 
+        checkIdsAvailable(1);
+        schedule(nextId, subtask);
         subtask.setId(generateId());
-        subtasks.put(subtask.getId(), subtask);
-        epic.addSubtaskId(subtask.getId());
+        insertSubtask(epic, subtask);
         updateEpicStatus(epic.getId());
+        record(changeOf(subtask.getId(), null));
         return subtask;
     }
 
+    // Время подзадачи уже учтено в scheduleIndex; статус эпика пересчитывает вызывающий
+    private void insertSubtask(Epic epic, Subtask subtask) {
+        subtasks.put(subtask.getId(), subtask);
+        attachSubtask(epic, subtask);
+        index(subtask);
+        recordCreated(subtask);
+    }
+
     @Override
     public void updateSubtask(Subtask subtask) {
-        Subtask existingSubtask = subtasks.get(subtask.getId());
-        if (existingSubtask != null) {
-            subtasks.put(subtask.getId(), subtask);
-            updateEpicStatus(subtask.getEpicId());
+        if (!subtasks.containsKey(subtask.getId()) || !epics.containsKey(subtask.getEpicId())) {
+            // Перенос в несуществующий эпик не допускается
+            return;
+        }
+
+        ItemChanges changes = changeOf(subtask.getId());
+        storeSubtask(subtask);
+        record(changes);
+    }
+
+    private void storeSubtask(Subtask subtask) {
+        ScheduleIndex.Slot previousSlot = schedule(subtask.getId(), subtask);
+        int oldEpicId = replaceSubtask(subtask, previousSlot);
+        recordUpdated(subtask);
+        if (oldEpicId != subtask.getEpicId()) {
+            updateEpicStatus(oldEpicId);
         }
+        updateEpicStatus(subtask.getEpicId());
     }
 
     @Override
     public void deleteSubtaskById(int id) {
-        Subtask subtask = subtasks.remove(id);
-        if (subtask != null) {
-            Epic epic = epics.get(subtask.getEpicId());
-            if (epic != null) {
-                epic.removeSubtaskId(id);
-                updateEpicStatus(epic.getId());
+        ItemChanges changes = subtasks.containsKey(id) ? changeOf(id) : null;
+        Integer epicId = removeSubtask(id);
+        if (epicId != null) {
+            updateEpicStatus(epicId);
+        }
+        record(changes);
+    }
+
+    // Замена существующей подзадачи без пересчёта статусов; эпик подзадачи должен существовать,
+    // а новое время - быть уже учтено в scheduleIndex (previousSlot - прежнее время).
+    // Возвращает id эпика, к которому подзадача относилась до замены
+    private int replaceSubtask(Subtask subtask, ScheduleIndex.Slot previousSlot) {
+        int id = subtask.getId();
+        int oldEpicId = subtaskEpicIds.get(id);
+        subtasks.put(id, subtask);
+        if (oldEpicId == subtask.getEpicId()) {
+            uncountSubtask(oldEpicId, subtaskStatuses.get(id));
+            countSubtask(oldEpicId, subtask.getStatus());
+            subtaskStatuses.put(id, subtask.getStatus());
+            rescheduleSubtask(oldEpicId, previousSlot, scheduleIndex.get(id));
+        } else {
+            detachSubtask(id, previousSlot);
+            attachSubtask(epics.get(subtask.getEpicId()), subtask);
+        }
+        index(subtask);
+        return oldEpicId;
+    }
+
+    // Удаление без пересчёта статуса эпика; возвращает id эпика или null, если подзадачи не было
+    private Integer removeSubtask(int id) {
+        if (subtasks.remove(id) == null) {
+            return null;
+        }
+        historyManager.remove(id);
+        int epicId = subtaskEpicIds.get(id);
+        detachSubtask(id, scheduleIndex.remove(id));
+        textIndex.remove(id);
+        recordDeleted(TaskType.SUBTASK, id);
+        return epicId;
+    }
+
+    // Пакетные операции: id выделяются одним диапазоном, статус каждого затронутого эпика
+    // пересчитывается один раз за пакет. Время всего пакета проверяется до изменений:
+    // при пересечении бросается TaskOverlapException и пакет не применяется
+    @Override
+    public List<Task> createTasks(List<Task> newTasks) {
+        checkIdsAvailable(newTasks.size());
+        scheduleIndex.putAll(consecutiveIds(nextId, newTasks.size()), newTasks);
+        int id = reserveIds(newTasks.size());
+        for (Task task : newTasks) {
+            task.setId(id++);
+            insertTask(task);
+        }
+        record(createdChanges(newTasks));
+        return new ArrayList<>(newTasks);
+    }
+
+    @Override
+    public void updateTasks(List<Task> updatedTasks) {
+        List<Task> existing = new ArrayList<>(updatedTasks.size());
+        for (Task task : updatedTasks) {
+            if (tasks.containsKey(task.getId())) {
+                existing.add(task);
             }
         }
+        ItemChanges changes = storedChanges(existing);
+        scheduleIndex.putAll(idsOf(existing), existing);
+        for (Task task : existing) {
+            tasks.put(task.getId(), task);
+            taskStatuses.put(task.getId(), task.getStatus());
+            index(task);
+            recordUpdated(task);
+        }
+        record(changes);
     }
 
-    // Дополнительные методы
     @Override
-    public List<Subtask> getSubtasksByEpicId(int epicId) {
-        Epic epic = epics.get(epicId);
-        if (epic == null) {
-            return new ArrayList<>();
+    public void deleteTasksByIds(List<Integer> ids) {
+        ItemChanges changes = deletedChanges(ids, tasks::containsKey);
+        for (int id : ids) {
+            removeTask(id);
         }
+        record(changes);
+    }
 
-        List<Subtask> result = new ArrayList<>();
-        for (int subtaskId : epic.getSubtaskIds()) {
-            Subtask subtask = subtasks.get(subtaskId);
-            if (subtask != null) {
-                result.add(subtask);
+    // Пакет применяется целиком или не применяется вовсе, если хотя бы одного эпика нет; тогда возвращается null
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> newSubtasks) {
+        for (Subtask subtask : newSubtasks) {
+            if (!epics.containsKey(subtask.getEpicId())) {
+                return null;
             }
         }
-        return result;
+
+        checkIdsAvailable(newSubtasks.size());
+        scheduleIndex.putAll(consecutiveIds(nextId, newSubtasks.size()), newSubtasks);
+        int id = reserveIds(newSubtasks.size());
+        IntLinkedSet affectedEpics = new IntLinkedSet();
+        for (Subtask subtask : newSubtasks) {
+            subtask.setId(id++);
+            insertSubtask(epics.get(subtask.getEpicId()), subtask);
+            affectedEpics.add(subtask.getEpicId());
+        }
+        updateEpicStatuses(affectedEpics);
+        record(createdChanges(newSubtasks));
+        return new ArrayList<>(newSubtasks);
     }
 
-    // История просмотров
+    // Если хотя бы одна подзадача ссылается на несуществующий эпик, пакет не применяется.
+    // Подзадачи с неизвестными id пропускаются, как и в updateSubtask
     @Override
-    public List<Task> getHistory() {
-        return historyManager.getHistory();
+    public void updateSubtasks(List<Subtask> updatedSubtasks) {
+        for (Subtask subtask : updatedSubtasks) {
+            if (!epics.containsKey(subtask.getEpicId())) {
+                return;
+            }
+        }
+
+        List<Subtask> existing = new ArrayList<>(updatedSubtasks.size());
+        for (Subtask subtask : updatedSubtasks) {
+            if (subtasks.containsKey(subtask.getId())) {
+                existing.add(subtask);
+            }
+        }
+        ItemChanges changes = storedChanges(existing);
+        ScheduleIndex.Slot[] previousSlots = scheduleIndex.putAll(idsOf(existing), existing);
+        IntLinkedSet affectedEpics = new IntLinkedSet();
+        for (int i = 0; i < existing.size(); i++) {
+            Subtask subtask = existing.get(i);
+            affectedEpics.add(replaceSubtask(subtask, previousSlots[i]));
+            affectedEpics.add(subtask.getEpicId());
+            recordUpdated(subtask);
+        }
+        updateEpicStatuses(affectedEpics);
+        record(changes);
+    }
+
+    @Override
+    public void deleteSubtasksByIds(List<Integer> ids) {
+        ItemChanges changes = deletedChanges(ids, subtasks::containsKey);
+        IntLinkedSet affectedEpics = new IntLinkedSet();
+        for (int id : ids) {
+            Integer epicId = removeSubtask(id);
+            if (epicId != null) {
+                affectedEpics.add(epicId);
+            }
+        }
+        updateEpicStatuses(affectedEpics);
+        record(changes);
+    }
+
+    private void updateEpicStatuses(IntLinkedSet epicIds) {
+        for (PrimitiveIterator.OfInt ids = epicIds.view().iterator(); ids.hasNext(); ) {
+            updateEpicStatus(ids.nextInt());
+        }
+    }
+
+    // Части - деревья корневых эпиков. Подзадачи отбираются параллельно только чтением хранилищ,
+    // поэтому менять менеджер во время вызова нельзя; отобранные применяются одним пакетом
+    @Override
+    public int transitionSubtasks(ForkJoinPool pool, BiPredicate<? super Epic, ? super Subtask> filter,
+                                  Status status) {
+        Objects.requireNonNull(status);
+        int[] roots = rootEpicIds();
+        List<Subtask> changed = EpicPartitions.reduce(pool, roots.length, i -> {
+            List<Subtask> found = new ArrayList<>();
+            forEachSubtaskInTree(roots[i], (epic, subtask) -> {
+                if (subtask.getStatus() != status && filter.test(epic, subtask)) {
+                    found.add(withStatus(subtask, status));
+                }
+            });
+            return found;
+        }, InMemoryTaskManager::concat, new ArrayList<>());
+        if (!changed.isEmpty()) {
+            applyStatusTransition(changed);
+        }
+        return changed.size();
+    }
+
+    // Смена только статуса хранимых подзадач: эпик, время и текст прежние, поэтому расписание и поисковый
+    // индекс не затрагиваются, а статус каждого затронутого эпика пересчитывается один раз
+    protected void applyStatusTransition(List<Subtask> changed) {
+        if (journal.isEnabled()) {
+            int[] ids = idsOf(changed);
+            Status[] statuses = new Status[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                statuses[i] = subtaskStatuses.get(ids[i]);
+            }
+            transitionStatuses(changed);
+            record(new StatusChanges(ids, statuses));
+        } else {
+            transitionStatuses(changed);
+        }
+    }
+
+    private void transitionStatuses(List<Subtask> changed) {
+        IntLinkedSet affectedEpics = new IntLinkedSet();
+        for (Subtask subtask : changed) {
+            int id = subtask.getId();
+            int epicId = subtaskEpicIds.get(id);
+            subtasks.put(id, subtask);
+            uncountSubtask(epicId, subtaskStatuses.get(id));
+            countSubtask(epicId, subtask.getStatus());
+            subtaskStatuses.put(id, subtask.getStatus());
+            recordUpdated(subtask);
+            affectedEpics.add(epicId);
+        }
+        updateEpicStatuses(affectedEpics);
+    }
+
+    @Override
+    public <R> R collectSubtasks(ForkJoinPool pool, Collector<? super Subtask, ?, R> collector) {
+        return collect(pool, collector);
+    }
+
+    private <A, R> R collect(ForkJoinPool pool, Collector<? super Subtask, A, R> collector) {
+        int[] roots = rootEpicIds();
+        BiConsumer<A, ? super Subtask> accumulator = collector.accumulator();
+        A result = EpicPartitions.reduce(pool, roots.length, i -> {
+            A container = collector.supplier().get();
+            forEachSubtaskInTree(roots[i], (epic, subtask) -> accumulator.accept(container, subtask));
+            return container;
+        }, collector.combiner(), collector.supplier().get());
+        return collector.finisher().apply(result);
+    }
+
+    private int[] rootEpicIds() {
+        int[] roots = new int[epics.size()];
+        int[] count = {0};
+        epics.forEachKey(id -> {
+            if (epicTree.parentOf(id) == Epic.NO_PARENT) {
+                roots[count[0]++] = id;
+            }
+        });
+        return Arrays.copyOf(roots, count[0]);
+    }
+
+    // Подзадачи эпика rootId и всех вложенных в него эпиков вместе с их эпиком
+    private void forEachSubtaskInTree(int rootId, BiConsumer<Epic, Subtask> action) {
+        epicTree.forEachInSubtree(rootId, (epicId, depth) -> {
+            Epic epic = epics.get(epicId);
+            for (PrimitiveIterator.OfInt ids = epic.getSubtaskIdsView().iterator(); ids.hasNext(); ) {
+                action.accept(epic, subtasks.get(ids.nextInt()));
+            }
+        });
+    }
+
+    private static Subtask withStatus(Subtask subtask, Status status) {
+        Subtask copy = new Subtask(subtask.getName(), subtask.getDescription(), status, subtask.getEpicId(),
+                subtask.getStartTime(), subtask.getDuration());
+        copy.setId(subtask.getId());
+        return copy;
+    }
+
+    private static <T> List<T> concat(List<T> first, List<T> second) {
+        first.addAll(second);
+        return first;
+    }
+
+    // Дополнительные методы
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        if (!tasks.containsKey(task.getId()) || getVersion(task.getId()) != expectedVersion) {
+            return false;
+        }
+        updateTask(task);
+        return true;
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        if (!subtasks.containsKey(subtask.getId()) || !epics.containsKey(subtask.getEpicId())
+                || getVersion(subtask.getId()) != expectedVersion) {
+            return false;
+        }
+        updateSubtask(subtask);
+        return true;
+    }
+
+    @Override
+    public long getVersion(int id) {
+        Long version = taskVersions.get(id);
+        if (version == null) {
+            version = subtaskVersions.get(id);
+        }
+        if (version == null) {
+            version = epicVersions.get(id);
+        }
+        return version == null ? 0 : version;
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return tasks.containsKey(id) || subtasks.containsKey(id) || epics.containsKey(id);
+    }
+
+    // Снимок собирается заново, только если после предыдущего были изменения
+    @Override
+    public BoardSnapshot getSnapshot() {
+        long version = changeLog.getLastSequence();
+        if (snapshot == null || snapshot.getVersion() != version) {
+            Map<Integer, TaskRecord> taskRecords = new LinkedHashMap<>();
+            for (Task task : tasks.values()) {
+                taskRecords.put(task.getId(), toRecord(task, TaskType.TASK, taskStatuses.get(task.getId()),
+                        0, List.of()));
+            }
+            Map<Integer, TaskRecord> epicRecords = new LinkedHashMap<>();
+            for (Epic epic : epics.values()) {
+                epicRecords.put(epic.getId(), toRecord(epic, TaskType.EPIC, epicStatuses.get(epic.getId()),
+                        0, epic.getSubtaskIdsView().toList()));
+            }
+            Map<Integer, TaskRecord> subtaskRecords = new LinkedHashMap<>();
+            for (Subtask subtask : subtasks.values()) {
+                subtaskRecords.put(subtask.getId(), toRecord(subtask, TaskType.SUBTASK,
+                        subtaskStatuses.get(subtask.getId()), subtaskEpicIds.get(subtask.getId()), List.of()));
+            }
+            snapshot = new BoardSnapshot(version, taskRecords, epicRecords, subtaskRecords);
+        }
+        return snapshot;
+    }
+
+    // Статус, эпик и время берутся из индексов менеджера, а не из объекта, который могли изменить снаружи
+    private TaskRecord toRecord(Task task, TaskType type, Status status, int epicId, List<Integer> subtaskIds) {
+        LocalDateTime startTime = null;
+        Duration duration = null;
+        LocalDateTime endTime = null;
+        if (type == TaskType.EPIC) {
+            EpicSchedule epicSchedule = epicSchedules.get(task.getId());
+            startTime = epicSchedule.getStartTime();
+            duration = epicSchedule.getDuration();
+            endTime = epicSchedule.getEndTime();
+        } else {
+            ScheduleIndex.Slot slot = scheduleIndex.get(task.getId());
+            if (slot != null) {
+                startTime = slot.start;
+                duration = slot.duration;
+                endTime = slot.end;
+            }
+        }
+        return new TaskRecord(task.getId(), type, task.getName(), task.getDescription(), status, epicId,
+                subtaskIds, startTime, duration, endTime, getVersion(task.getId()));
+    }
+
+    // Порядок поддерживается индексом при каждом изменении, поэтому выдача стоит O(n) без сортировки
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Task> result = new ArrayList<>(scheduleIndex.scheduledCount());
+        scheduleIndex.forEachScheduled(id -> result.add(findTask(id)));
+        return result;
+    }
+
+    // Задачи берутся из хранилища по id из индекса; просмотры в историю не записываются
+    @Override
+    public List<Task> search(String query, SearchOrder order, int limit) {
+        int[] ids = textIndex.search(query, order, limit);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(findTask(id));
+        }
+        return result;
+    }
+
+    @Override
+    public ChangeSubscription subscribe(long afterSequence) {
+        return changeLog.subscribe(afterSequence);
+    }
+
+    @Override
+    public long getLastChangeSequence() {
+        return changeLog.getLastSequence();
+    }
+
+    // Журнал изменений. Отмена и повтор проходят через те же операции хранилищ, что и обычные изменения,
+    // и публикуют события; задачи возвращаются в состоянии, которое учёл менеджер (статус, эпик и время -
+    // из индексов), но уже другими объектами. Просмотры удалённых задач не возвращаются
+    @Override
+    public boolean undo() {
+        return journal.undo();
+    }
+
+    @Override
+    public boolean redo() {
+        return journal.redo();
+    }
+
+    @Override
+    public void restoreTo(long sequence) {
+        journal.restoreTo(sequence);
+    }
+
+    @Override
+    public long getJournalSequence() {
+        return journal.getSequence();
+    }
+
+    private void record(MutationJournal.Entry entry) {
+        if (entry != null) {
+            journal.record(entry);
+        }
+    }
+
+    // Запись об одной задаче с состоянием, которое вернёт отмена; null, если журнал выключен
+    private ItemChanges changeOf(int id, Task state) {
+        if (!journal.isEnabled()) {
+            return null;
+        }
+        ItemChanges changes = new ItemChanges(1);
+        changes.add(id, state);
+        return changes;
+    }
+
+    // Запись о задаче, которую сейчас изменят
+    private ItemChanges changeOf(int id) {
+        return journal.isEnabled() ? changeOf(id, storedState(id)) : null;
+    }
+
+    private ItemChanges createdChanges(List<? extends Task> created) {
+        if (!journal.isEnabled()) {
+            return null;
+        }
+        ItemChanges changes = new ItemChanges(created.size());
+        for (Task task : created) {
+            changes.add(task.getId(), null);
+        }
+        return changes;
+    }
+
+    private ItemChanges storedChanges(List<? extends Task> updated) {
+        if (!journal.isEnabled()) {
+            return null;
+        }
+        ItemChanges changes = new ItemChanges(updated.size());
+        for (Task task : updated) {
+            changes.add(task.getId(), storedState(task.getId()));
+        }
+        return changes;
+    }
+
+    // С конца, чтобы отмена вернула задачи в прежнем порядке
+    private ItemChanges deletedChanges(List<Integer> ids, IntPredicate stored) {
+        if (!journal.isEnabled()) {
+            return null;
+        }
+        ItemChanges changes = new ItemChanges(ids.size());
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            int id = ids.get(i);
+            if (stored.test(id)) {
+                changes.add(id, storedState(id));
+            }
+        }
+        return changes;
+    }
+
+    // Копия задачи, как её учёл менеджер: статус, эпик и время берутся из индексов; null - задачи нет
+    private Task storedState(int id) {
+        Task task = tasks.get(id);
+        if (task != null) {
+            ScheduleIndex.Slot slot = scheduleIndex.get(id);
+            Task state = new Task(task.getName(), task.getDescription(), taskStatuses.get(id),
+                    slot == null ? null : slot.start, slot == null ? null : slot.duration);
+            state.setId(id);
+            return state;
+        }
+        Subtask subtask = subtasks.get(id);
+        if (subtask != null) {
+            ScheduleIndex.Slot slot = scheduleIndex.get(id);
+            Subtask state = new Subtask(subtask.getName(), subtask.getDescription(), subtaskStatuses.get(id),
+                    subtaskEpicIds.get(id), slot == null ? null : slot.start, slot == null ? null : slot.duration);
+            state.setId(id);
+            return state;
+        }
+        Epic epic = epics.get(id);
+        if (epic != null) {
+            Epic state = new Epic(epic.getName(), epic.getDescription(), id, epicStatuses.get(id));
+            state.setParentId(epicTree.parentOf(id));
+            return state;
+        }
+        return null;
+    }
+
+    // Место подзадачи в списке её эпика или вложенного эпика среди детей родителя; -1 - у задачи места нет
+    protected int positionOf(int id) {
+        if (subtasks.containsKey(id)) {
+            return epics.get(subtaskEpicIds.get(id)).indexOfSubtaskId(id);
+        }
+        return epics.containsKey(id) ? epicTree.indexOf(id) : -1;
+    }
+
+    // Ставит задачи ids[i] на места positions[i] в их списках; остальные задачи списков сохраняют взаимный порядок
+    protected void placeTasks(int[] ids, int[] positions, int count) {
+        long[] placements = new long[count];
+        for (int i = 0; i < count; i++) {
+            placements[i] = (long) positions[i] << 32 | i;
+        }
+        restorePositions(ids, placements, count);
+    }
+
+    // Ставит вернувшиеся задачи на прежние места; placements - место << 32 | номер записи в ids.
+    // Места по возрастанию, поэтому каждый список переставляется один раз за O(его длины)
+    private void restorePositions(int[] ids, long[] placements, int count) {
+        if (count == 0) {
+            return;
+        }
+        Arrays.sort(placements, 0, count);
+        IntHashMap<Placement> subtaskLists = new IntHashMap<>();
+        IntHashMap<Placement> childLists = new IntHashMap<>();
+        for (int i = 0; i < count; i++) {
+            int id = ids[(int) placements[i]];
+            int position = (int) (placements[i] >>> 32);
+            if (subtasks.containsKey(id)) {
+                Placement.of(subtaskLists, subtaskEpicIds.get(id)).add(id, position);
+            } else if (epics.containsKey(id) && epicTree.parentOf(id) != Epic.NO_PARENT) {
+                Placement.of(childLists, epicTree.parentOf(id)).add(id, position);
+            }
+        }
+        subtaskLists.forEachKey(epicId -> {
+            Placement placement = subtaskLists.get(epicId);
+            epics.get(epicId).placeSubtaskIds(placement.ids, placement.positions, placement.size);
+        });
+        childLists.forEachKey(parentId -> {
+            Placement placement = childLists.get(parentId);
+            epicTree.place(parentId, placement.ids, placement.positions, placement.size);
+        });
+    }
+
+    private static final class Placement {
+        private int[] ids = new int[4];
+        private int[] positions = new int[4];
+        private int size;
+
+        static Placement of(IntHashMap<Placement> lists, int listId) {
+            Placement placement = lists.get(listId);
+            if (placement == null) {
+                placement = new Placement();
+                lists.put(listId, placement);
+            }
+            return placement;
+        }
+
+        void add(int id, int position) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            ids[size] = id;
+            positions[size++] = position;
+        }
+    }
+
+    // Приводит задачу id к состоянию state (null - удаляет) с обычными событиями
+    private void setStored(int id, Task state) {
+        if (state == null) {
+            if (tasks.containsKey(id)) {
+                removeTask(id);
+            } else if (subtasks.containsKey(id)) {
+                updateEpicStatus(removeSubtask(id));
+            } else if (epics.containsKey(id)) {
+                removeEpic(id);
+            }
+        } else if (state instanceof Subtask) {
+            Subtask subtask = (Subtask) state;
+            if (subtasks.containsKey(id)) {
+                storeSubtask(subtask);
+            } else {
+                schedule(id, subtask);
+                insertSubtask(epics.get(subtask.getEpicId()), subtask);
+                updateEpicStatus(subtask.getEpicId());
+            }
+        } else if (state instanceof Epic) {
+            if (epics.containsKey(id)) {
+                storeEpic((Epic) state);
+            } else {
+                insertEpic((Epic) state);
+            }
+        } else if (tasks.containsKey(id)) {
+            storeTask(state);
+        } else {
+            schedule(id, state);
+            insertTask(state);
+        }
+    }
+
+    // Очистка без изменений в журнал не попадает, а отсоединённые слова сразу отпускаются
+    private void recordClear(Cleared cleared) {
+        if (cleared.count == 0) {
+            textIndex.release(cleared.text);
+        } else {
+            journal.record(new Clear(cleared));
+        }
+    }
+
+    // Сама очистка публикует DELETED на каждую задачу, повтор очистки из журнала (bulk) - одно событие CLEARED
+    private Cleared detachTasks(boolean bulk) {
+        Cleared cleared = new Cleared(TaskType.TASK, tasks.size());
+        detachDeleted(cleared, tasks::containsKey, tasks::forEachKey);
+        if (bulk) {
+            changeLog.cleared(TaskType.TASK);
+        } else {
+            tasks.forEachKey(id -> changeLog.deleted(TaskType.TASK, id));
+        }
+        cleared.tasks = tasks;
+        cleared.taskStatuses = taskStatuses;
+        cleared.taskVersions = taskVersions;
+        tasks = new IntHashMap<>();
+        taskStatuses = new StatusIndex();
+        taskVersions = new IntHashMap<>();
+        return cleared;
+    }
+
+    // Подзадачи без эпиков не существуют, поэтому отсоединяются вместе с эпиками
+    private Cleared detachEpics(boolean bulk) {
+        Cleared cleared = new Cleared(TaskType.EPIC, epics.size() + subtasks.size());
+        detachDeleted(cleared, id -> subtasks.containsKey(id) || epics.containsKey(id), action -> {
+            subtasks.forEachKey(action);
+            epics.forEachKey(action);
+        });
+        if (bulk) {
+            changeLog.cleared(TaskType.EPIC);
+        } else {
+            for (Epic epic : epics.values()) {
+                for (PrimitiveIterator.OfInt ids = epic.getSubtaskIdsView().iterator(); ids.hasNext(); ) {
+                    changeLog.deleted(TaskType.SUBTASK, ids.nextInt());
+                }
+                changeLog.deleted(TaskType.EPIC, epic.getId());
+            }
+        }
+        cleared.epics = epics;
+        cleared.epicStatuses = epicStatuses;
+        cleared.epicStatusCounters = epicStatusCounters;
+        cleared.epicSchedules = epicSchedules;
+        cleared.epicTree = epicTree;
+        cleared.epicVersions = epicVersions;
+        epics = new IntHashMap<>();
+        epicStatuses = new StatusIndex();
+        epicStatusCounters = new IntHashMap<>();
+        epicSchedules = new IntHashMap<>();
+        epicTree = new EpicTree();
+        epicVersions = new IntHashMap<>();
+        detachSubtaskStorage(cleared);
+        return cleared;
+    }
+
+    private Cleared detachSubtasks(boolean bulk) {
+        Cleared cleared = new Cleared(TaskType.SUBTASK, subtasks.size());
+        detachDeleted(cleared, subtasks::containsKey, subtasks::forEachKey);
+        if (bulk) {
+            changeLog.cleared(TaskType.SUBTASK);
+        } else {
+            subtasks.forEachKey(id -> changeLog.deleted(TaskType.SUBTASK, id));
+        }
+        // Эпики без подзадач в поддереве и так в NEW с пустыми сроками; у остальных списки, счётчики
+        // и сроки подменяются пустыми, а прежние уходят в cleared
+        cleared.resetEpics = new ArrayList<>();
+        for (Epic epic : epics.values()) {
+            int id = epic.getId();
+            if (epicStatusCounters.get(id).total() > 0) {
+                EpicSchedule epicSchedule = new EpicSchedule();
+                cleared.resetEpics.add(new DetachedEpic(id, epic.swapSubtaskIds(new IntLinkedSet()),
+                        epicStatusCounters.put(id, new EpicStatusCounter()), epicSchedules.put(id, epicSchedule),
+                        epicStatuses.get(id)));
+                epicSchedule.applyTo(epic);
+                epic.setStatus(Status.NEW);
+                if (epicStatuses.put(id, Status.NEW) != Status.NEW) {
+                    recordEpicStatusChanged(epic);
+                }
+            }
+        }
+        detachSubtaskStorage(cleared);
+        return cleared;
+    }
+
+    private void detachSubtaskStorage(Cleared cleared) {
+        cleared.subtasks = subtasks;
+        cleared.subtaskStatuses = subtaskStatuses;
+        cleared.subtaskEpicIds = subtaskEpicIds;
+        cleared.subtaskVersions = subtaskVersions;
+        subtasks = new IntHashMap<>();
+        subtaskStatuses = new StatusIndex();
+        subtaskEpicIds = new IntHashMap<>();
+        subtaskVersions = new IntHashMap<>();
+    }
+
+    // Отмена очистки: отсоединённые хранилища возвращаются на место целиком за O(1) на хранилище. Новых задач
+    // этого вида к этому моменту нет - изменения после очистки уже отменены. Задачи вернулись в прежнем
+    // состоянии, поэтому версии у них прежние, а подписчики получают одно событие RESTORED
+    private void attach(Cleared cleared) {
+        scheduleIndex.attach(cleared.slots);
+        textIndex.attach(cleared.text);
+        if (cleared.type == TaskType.TASK) {
+            tasks = cleared.tasks;
+            taskStatuses = cleared.taskStatuses;
+            taskVersions = cleared.taskVersions;
+            changeLog.restored(TaskType.TASK);
+            return;
+        }
+        if (cleared.type == TaskType.EPIC) {
+            epics = cleared.epics;
+            epicStatuses = cleared.epicStatuses;
+            epicStatusCounters = cleared.epicStatusCounters;
+            epicSchedules = cleared.epicSchedules;
+            epicTree = cleared.epicTree;
+            epicVersions = cleared.epicVersions;
+        }
+        subtasks = cleared.subtasks;
+        subtaskStatuses = cleared.subtaskStatuses;
+        subtaskEpicIds = cleared.subtaskEpicIds;
+        subtaskVersions = cleared.subtaskVersions;
+        changeLog.restored(cleared.type);
+        if (cleared.type == TaskType.SUBTASK) {
+            for (DetachedEpic state : cleared.resetEpics) {
+                Epic epic = epics.get(state.id);
+                epic.swapSubtaskIds(state.subtaskIds);
+                epicStatusCounters.put(state.id, state.counter);
+                epicSchedules.put(state.id, state.schedule);
+                state.schedule.applyTo(epic);
+                epic.setStatus(state.status);
+                if (epicStatuses.put(state.id, state.status) != state.status) {
+                    recordEpicStatusChanged(epic);
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByEpicId(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic == null) {
+            return new ArrayList<>();
+        }
+
+        List<Subtask> result = new ArrayList<>(epic.getSubtaskIdsView().size());
+        for (PrimitiveIterator.OfInt ids = epic.getSubtaskIdsView().iterator(); ids.hasNext(); ) {
+            Subtask subtask = subtasks.get(ids.nextInt());
+            if (subtask != null) {
+                result.add(subtask);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public EpicRollup getEpicRollup(int epicId) {
+        if (!epics.containsKey(epicId)) {
+            return null;
+        }
+        return rollupOf(epicId, epicTree.depthOf(epicId));
+    }
+
+    // Итоги уже лежат в счётчиках узлов, поэтому обход поддерева не касается подзадач
+    @Override
+    public List<EpicRollup> getEpicRollups(int epicId) {
+        List<EpicRollup> result = new ArrayList<>();
+        if (epics.containsKey(epicId)) {
+            int depth = epicTree.depthOf(epicId);
+            epicTree.forEachInSubtree(epicId, (id, subtreeDepth) -> result.add(rollupOf(id, depth + subtreeDepth)));
+        }
+        return result;
+    }
+
+    private EpicRollup rollupOf(int epicId, int depth) {
+        return epicStatusCounters.get(epicId).toRollup(epicId, epicTree.parentOf(epicId), depth,
+                epicStatuses.get(epicId), epics.get(epicId).getSubtaskIdsView().size(), epicTree.childCount(epicId));
+    }
+
+    // Эпики в порядке, в котором их принимает restoreTask: родитель раньше вложенных
+    protected List<Epic> getEpicsParentsFirst() {
+        if (epicTree.isEmpty()) {
+            return getAllEpics();
+        }
+        List<Epic> result = new ArrayList<>(epics.size());
+        for (Epic epic : epics.values()) {
+            if (epicTree.parentOf(epic.getId()) == Epic.NO_PARENT) {
+                epicTree.forEachInSubtree(epic.getId(), (id, depth) -> result.add(epics.get(id)));
+            }
+        }
+        return result;
+    }
+
+    // История просмотров
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public TaskPage<Task> getTasksPage(int afterId, int pageSize) {
+        return TaskPage.of(tasks.valuesAfter(afterId), pageSize);
+    }
+
+    @Override
+    public TaskPage<Epic> getEpicsPage(int afterId, int pageSize) {
+        return TaskPage.of(epics.valuesAfter(afterId), pageSize);
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasksPage(int afterId, int pageSize) {
+        return TaskPage.of(subtasks.valuesAfter(afterId), pageSize);
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasksPageByEpicId(int epicId, int afterId, int pageSize) {
+        TaskPage.checkPageSize(pageSize);
+        Epic epic = epics.get(epicId);
+        if (epic == null) {
+            return TaskPage.empty();
+        }
+
+        IntLinkedSet.View subtaskIds = epic.getSubtaskIdsView();
+        PrimitiveIterator.OfInt ids = afterId == TaskPage.FIRST_PAGE
+                ? subtaskIds.iterator()
+                : subtaskIds.iteratorAfter(afterId);
+        if (ids == null) {
+            // Подзадачу из токена удалили или перенесли - продолжать не с чего
+            return TaskPage.empty();
+        }
+        return TaskPage.of(StreamSupport.intStream(Spliterators.spliteratorUnknownSize(ids, Spliterator.ORDERED), false)
+                .mapToObj(subtasks::get)
+                .filter(Objects::nonNull)
+                .iterator(), pageSize);
+    }
+
+    @Override
+    public TaskPage<Task> getHistoryPage(int afterId, int pageSize) {
+        return historyManager.getHistoryPage(afterId, pageSize);
+    }
+
+    // Представления живые: изменение менеджера во время обхода приводит к ConcurrentModificationException
+    @Override
+    public Stream<Task> streamTasks() {
+        return tasks.values().stream();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epics.values().stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.values().stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksByEpicId(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic == null) {
+            return Stream.empty();
+        }
+        return epic.getSubtaskIdsView().stream()
+                .mapToObj(subtasks::get)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public Stream<Task> streamHistory() {
+        return historyManager.streamHistory();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return collectByIds(taskStatuses.idsWith(status), tasks);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return collectByIds(epicStatuses.idsWith(status), epics);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return collectByIds(subtaskStatuses.idsWith(status), subtasks);
+    }
+
+    private static <T extends Task> List<T> collectByIds(IntLinkedSet.View ids, IntHashMap<T> source) {
+        List<T> result = new ArrayList<>(ids.size());
+        for (PrimitiveIterator.OfInt iterator = ids.iterator(); iterator.hasNext(); ) {
+            result.add(source.get(iterator.nextInt()));
+        }
+        return result;
+    }
+
+    // Состояния задач, которые вернёт отмена (null - задачи не было). Записи идут в порядке изменения:
+    // отмена применяет их с конца, повтор - с начала, и каждая запись меняется на состояние до применения
+    // Вместе с состоянием запоминается место задачи в списке подзадач эпика или среди дочерних эпиков:
+    // вернувшиеся задачи встают туда, где были, а не в конец списка
+    private final class ItemChanges implements MutationJournal.Entry {
+        private final int[] ids;
+        private final Task[] states;
+        private final int[] positions;
+        private int size;
+        private boolean undone;
+
+        ItemChanges(int capacity) {
+            ids = new int[capacity];
+            states = new Task[capacity];
+            positions = new int[capacity];
+        }
+
+        void add(int id, Task state) {
+            ids[size] = id;
+            positions[size] = state == null ? -1 : positionOf(id);
+            states[size++] = state;
+        }
+
+        @Override
+        public void apply() {
+            // Места снимаются до изменений: все записи восстанавливают одно и то же состояние списка
+            int[] current = new int[size];
+            for (int i = 0; i < size; i++) {
+                current[i] = positionOf(ids[i]);
+            }
+            long[] placements = new long[size];
+            int placed = 0;
+            for (int i = 0; i < size; i++) {
+                int index = undone ? i : size - 1 - i;
+                Task state = storedState(ids[index]);
+                setStored(ids[index], states[index]);
+                journalApplied(ids[index], state);
+                if (states[index] != null && positions[index] >= 0) {
+                    placements[placed++] = (long) positions[index] << 32 | index;
+                }
+                states[index] = state;
+                positions[index] = state == null ? -1 : current[index];
+            }
+            restorePositions(ids, placements, placed);
+            restoreKeyOrder();
+            undone = !undone;
+        }
+
+        @Override
+        public long weight() {
+            return size;
+        }
+    }
+
+    // Прежние статусы подзадач после transitionSubtasks: отмена - такой же перевод без переиндексации
+    private final class StatusChanges implements MutationJournal.Entry {
+        private final int[] ids;
+        private final Status[] statuses;
+
+        StatusChanges(int[] ids, Status[] statuses) {
+            this.ids = ids;
+            this.statuses = statuses;
+        }
+
+        @Override
+        public void apply() {
+            List<Subtask> changed = new ArrayList<>(ids.length);
+            List<Subtask> previous = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                Status current = subtaskStatuses.get(ids[i]);
+                previous.add(subtasks.get(ids[i]));
+                changed.add(withStatus(subtasks.get(ids[i]), statuses[i]));
+                statuses[i] = current;
+            }
+            transitionStatuses(changed);
+            for (int i = 0; i < ids.length; i++) {
+                journalApplied(ids[i], previous.get(i));
+            }
+        }
+
+        @Override
+        public long weight() {
+            return ids.length;
+        }
+    }
+
+    private final class EpicMove implements MutationJournal.Entry {
+        private final int epicId;
+        private int parentId;
+        private int position;
+
+        EpicMove(int epicId, int parentId, int position) {
+            this.epicId = epicId;
+            this.parentId = parentId;
+            this.position = position;
+        }
+
+        @Override
+        public void apply() {
+            int currentParentId = epicTree.parentOf(epicId);
+            int currentPosition = epicTree.indexOf(epicId);
+            Task previous = storedState(epicId);
+            placeEpic(epicId, parentId);
+            if (position >= 0) {
+                epicTree.place(parentId, new int[] {epicId}, new int[] {position}, 1);
+            }
+            journalApplied(epicId, previous);
+            parentId = currentParentId;
+            position = currentPosition;
+        }
+
+        @Override
+        public long weight() {
+            return 1;
+        }
+    }
+
+    // Очистка хранилища - одна запись со ссылками на отсоединённые хранилища, а не запись на задачу.
+    // Пока очистка не отменена, запись держит снятые задачи; отмена возвращает их, повтор снимает заново
+    private final class Clear implements MutationJournal.Entry {
+        private final TaskType type;
+        private final long weight;
+        private Cleared cleared;
+
+        Clear(Cleared cleared) {
+            this.type = cleared.type;
+            this.weight = cleared.count;
+            this.cleared = cleared;
+        }
+
+        @Override
+        public void apply() {
+            boolean restored = cleared != null;
+            if (restored) {
+                attach(cleared);
+                cleared = null;
+            } else if (type == TaskType.TASK) {
+                cleared = detachTasks(true);
+            } else if (type == TaskType.EPIC) {
+                cleared = detachEpics(true);
+            } else {
+                cleared = detachSubtasks(true);
+            }
+            journalClearApplied(type, restored);
+        }
+
+        @Override
+        public long weight() {
+            return weight;
+        }
+
+        @Override
+        public void discard() {
+            if (cleared != null) {
+                textIndex.release(cleared.text);
+                cleared = null;
+            }
+        }
+    }
+
+    // Хранилища и записи индексов, снятые очисткой задач вида type
+    private static final class Cleared {
+        final TaskType type;
+        final int count;
+        List<ScheduleIndex.Slot> slots;
+        TextIndex.Detached text;
+        IntHashMap<Task> tasks;
+        StatusIndex taskStatuses;
+        IntHashMap<Long> taskVersions;
+        IntHashMap<Epic> epics;
+        StatusIndex epicStatuses;
+        IntHashMap<EpicStatusCounter> epicStatusCounters;
+        IntHashMap<EpicSchedule> epicSchedules;
+        EpicTree epicTree;
+        IntHashMap<Long> epicVersions;
+        IntHashMap<Subtask> subtasks;
+        StatusIndex subtaskStatuses;
+        IntHashMap<Integer> subtaskEpicIds;
+        IntHashMap<Long> subtaskVersions;
+        // Очистка подзадач: эпики, у которых они были
+        List<DetachedEpic> resetEpics;
+
+        Cleared(TaskType type, int count) {
+            this.type = type;
+            this.count = count;
+        }
+    }
+
+    private static final class DetachedEpic {
+        final int id;
+        final IntLinkedSet subtaskIds;
+        final EpicStatusCounter counter;
+        final EpicSchedule schedule;
+        final Status status;
+
+        DetachedEpic(int id, IntLinkedSet subtaskIds, EpicStatusCounter counter, EpicSchedule schedule,
+                     Status status) {
+            this.id = id;
+            this.subtaskIds = subtaskIds;
+            this.counter = counter;
+            this.schedule = schedule;
+            this.status = status;
+        }
     }
-}
\ No newline at end of file
+}
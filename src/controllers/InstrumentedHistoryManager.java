@@ -0,0 +1,108 @@
+package controllers;
+
+import impl.HistoryManager;
+import model.Task;
+import model.TaskPage;
+import utils.LatencyHistogram;
+import utils.OperationMetrics;
+
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+// Декоратор истории: операции замеряются в metrics с префиксом "history.", датчик history.size
+// вычисляется при чтении метрик. Потокобезопасен, если потокобезопасен delegate
+public class InstrumentedHistoryManager implements HistoryManager {
+    private final HistoryManager delegate;
+    private final OperationMetrics metrics;
+    private final LatencyHistogram add;
+    private final LatencyHistogram remove;
+    private final LatencyHistogram removeIf;
+    private final LatencyHistogram getHistory;
+    private final LatencyHistogram getHistoryPage;
+    private final LatencyHistogram streamHistory;
+
+    public InstrumentedHistoryManager(HistoryManager delegate, OperationMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        add = metrics.operation("history.add");
+        remove = metrics.operation("history.remove");
+        removeIf = metrics.operation("history.removeIf");
+        getHistory = metrics.operation("history.getHistory");
+        getHistoryPage = metrics.operation("history.getHistoryPage");
+        streamHistory = metrics.operation("history.streamHistory");
+        metrics.gauge("history.size", () -> {
+            try {
+                return delegate.size();
+            } catch (ConcurrentModificationException e) {
+                return -1;
+            }
+        });
+    }
+
+    @Override
+    public void add(Task task) {
+        long start = metrics.start();
+        try {
+            delegate.add(task);
+        } finally {
+            add.recordSince(start);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        long start = metrics.start();
+        try {
+            delegate.remove(id);
+        } finally {
+            remove.recordSince(start);
+        }
+    }
+
+    @Override
+    public void removeIf(IntPredicate deleted) {
+        long start = metrics.start();
+        try {
+            delegate.removeIf(deleted);
+        } finally {
+            removeIf.recordSince(start);
+        }
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        long start = metrics.start();
+        try {
+            return delegate.getHistory();
+        } finally {
+            getHistory.recordSince(start);
+        }
+    }
+
+    @Override
+    public TaskPage<Task> getHistoryPage(int afterId, int pageSize) {
+        long start = metrics.start();
+        try {
+            return delegate.getHistoryPage(afterId, pageSize);
+        } finally {
+            getHistoryPage.recordSince(start);
+        }
+    }
+
+    @Override
+    public Stream<Task> streamHistory() {
+        long start = metrics.start();
+        try {
+            return delegate.streamHistory();
+        } finally {
+            streamHistory.recordSince(start);
+        }
+    }
+}
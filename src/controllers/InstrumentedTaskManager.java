@@ -0,0 +1,760 @@
+package controllers;
+
+import enums.SearchOrder;
+import enums.Status;
+import impl.JournaledTaskManager;
+import model.BoardSnapshot;
+import model.Epic;
+import model.EpicRollup;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import utils.ChangeSubscription;
+import utils.LatencyHistogram;
+import utils.OperationMetrics;
+
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
+import java.util.function.LongSupplier;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+// Декоратор, замеряющий каждую операцию delegate: число вызовов и гистограмма задержек в metrics
+// под именем метода (версионные обновления - updateTaskIfVersion и updateSubtaskIfVersion).
+// Пересчёт статуса эпика входит в замеры операций с подзадачами, которые его вызывают.
+// Датчики tasks, epics, subtasks и largestEpicSubtasks вычисляются по delegate при чтении метрик.
+// Потокобезопасен, если потокобезопасен delegate
+public class InstrumentedTaskManager implements JournaledTaskManager {
+    // Датчик, прочитанный во время изменения непотокобезопасного менеджера, пробует ещё раз
+    private static final int GAUGE_ATTEMPTS = 3;
+
+    private final JournaledTaskManager delegate;
+    private final OperationMetrics metrics;
+    private final LatencyHistogram getAllTasks;
+    private final LatencyHistogram deleteAllTasks;
+    private final LatencyHistogram getTaskById;
+    private final LatencyHistogram createTask;
+    private final LatencyHistogram updateTask;
+    private final LatencyHistogram deleteTaskById;
+    private final LatencyHistogram getAllEpics;
+    private final LatencyHistogram deleteAllEpics;
+    private final LatencyHistogram getEpicById;
+    private final LatencyHistogram createEpic;
+    private final LatencyHistogram updateEpic;
+    private final LatencyHistogram deleteEpicById;
+    private final LatencyHistogram moveEpic;
+    private final LatencyHistogram getEpicRollup;
+    private final LatencyHistogram getEpicRollups;
+    private final LatencyHistogram getAllSubtasks;
+    private final LatencyHistogram deleteAllSubtasks;
+    private final LatencyHistogram getSubtaskById;
+    private final LatencyHistogram createSubtask;
+    private final LatencyHistogram updateSubtask;
+    private final LatencyHistogram deleteSubtaskById;
+    private final LatencyHistogram getSubtasksByEpicId;
+    private final LatencyHistogram getHistory;
+    private final LatencyHistogram createTasks;
+    private final LatencyHistogram updateTasks;
+    private final LatencyHistogram deleteTasksByIds;
+    private final LatencyHistogram createSubtasks;
+    private final LatencyHistogram updateSubtasks;
+    private final LatencyHistogram deleteSubtasksByIds;
+    private final LatencyHistogram transitionSubtasks;
+    private final LatencyHistogram collectSubtasks;
+    private final LatencyHistogram updateTaskIfVersion;
+    private final LatencyHistogram updateSubtaskIfVersion;
+    private final LatencyHistogram getVersion;
+    private final LatencyHistogram contains;
+    private final LatencyHistogram getPrioritizedTasks;
+    private final LatencyHistogram search;
+    private final LatencyHistogram getSnapshot;
+    private final LatencyHistogram subscribe;
+    private final LatencyHistogram getLastChangeSequence;
+    private final LatencyHistogram undo;
+    private final LatencyHistogram redo;
+    private final LatencyHistogram restoreTo;
+    private final LatencyHistogram getJournalSequence;
+    private final LatencyHistogram getTasksPage;
+    private final LatencyHistogram getEpicsPage;
+    private final LatencyHistogram getSubtasksPage;
+    private final LatencyHistogram getSubtasksPageByEpicId;
+    private final LatencyHistogram getHistoryPage;
+    private final LatencyHistogram streamTasks;
+    private final LatencyHistogram streamEpics;
+    private final LatencyHistogram streamSubtasks;
+    private final LatencyHistogram streamSubtasksByEpicId;
+    private final LatencyHistogram streamHistory;
+    private final LatencyHistogram getTasksByStatus;
+    private final LatencyHistogram getEpicsByStatus;
+    private final LatencyHistogram getSubtasksByStatus;
+
+    public InstrumentedTaskManager(JournaledTaskManager delegate, OperationMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        getAllTasks = metrics.operation("getAllTasks");
+        deleteAllTasks = metrics.operation("deleteAllTasks");
+        getTaskById = metrics.operation("getTaskById");
+        createTask = metrics.operation("createTask");
+        updateTask = metrics.operation("updateTask");
+        deleteTaskById = metrics.operation("deleteTaskById");
+        getAllEpics = metrics.operation("getAllEpics");
+        deleteAllEpics = metrics.operation("deleteAllEpics");
+        getEpicById = metrics.operation("getEpicById");
+        createEpic = metrics.operation("createEpic");
+        updateEpic = metrics.operation("updateEpic");
+        deleteEpicById = metrics.operation("deleteEpicById");
+        moveEpic = metrics.operation("moveEpic");
+        getEpicRollup = metrics.operation("getEpicRollup");
+        getEpicRollups = metrics.operation("getEpicRollups");
+        getAllSubtasks = metrics.operation("getAllSubtasks");
+        deleteAllSubtasks = metrics.operation("deleteAllSubtasks");
+        getSubtaskById = metrics.operation("getSubtaskById");
+        createSubtask = metrics.operation("createSubtask");
+        updateSubtask = metrics.operation("updateSubtask");
+        deleteSubtaskById = metrics.operation("deleteSubtaskById");
+        getSubtasksByEpicId = metrics.operation("getSubtasksByEpicId");
+        getHistory = metrics.operation("getHistory");
+        createTasks = metrics.operation("createTasks");
+        updateTasks = metrics.operation("updateTasks");
+        deleteTasksByIds = metrics.operation("deleteTasksByIds");
+        createSubtasks = metrics.operation("createSubtasks");
+        updateSubtasks = metrics.operation("updateSubtasks");
+        deleteSubtasksByIds = metrics.operation("deleteSubtasksByIds");
+        transitionSubtasks = metrics.operation("transitionSubtasks");
+        collectSubtasks = metrics.operation("collectSubtasks");
+        updateTaskIfVersion = metrics.operation("updateTaskIfVersion");
+        updateSubtaskIfVersion = metrics.operation("updateSubtaskIfVersion");
+        getVersion = metrics.operation("getVersion");
+        contains = metrics.operation("contains");
+        getPrioritizedTasks = metrics.operation("getPrioritizedTasks");
+        search = metrics.operation("search");
+        getSnapshot = metrics.operation("getSnapshot");
+        subscribe = metrics.operation("subscribe");
+        getLastChangeSequence = metrics.operation("getLastChangeSequence");
+        undo = metrics.operation("undo");
+        redo = metrics.operation("redo");
+        restoreTo = metrics.operation("restoreTo");
+        getJournalSequence = metrics.operation("getJournalSequence");
+        getTasksPage = metrics.operation("getTasksPage");
+        getEpicsPage = metrics.operation("getEpicsPage");
+        getSubtasksPage = metrics.operation("getSubtasksPage");
+        getSubtasksPageByEpicId = metrics.operation("getSubtasksPageByEpicId");
+        getHistoryPage = metrics.operation("getHistoryPage");
+        streamTasks = metrics.operation("streamTasks");
+        streamEpics = metrics.operation("streamEpics");
+        streamSubtasks = metrics.operation("streamSubtasks");
+        streamSubtasksByEpicId = metrics.operation("streamSubtasksByEpicId");
+        streamHistory = metrics.operation("streamHistory");
+        getTasksByStatus = metrics.operation("getTasksByStatus");
+        getEpicsByStatus = metrics.operation("getEpicsByStatus");
+        getSubtasksByStatus = metrics.operation("getSubtasksByStatus");
+        metrics.gauge("tasks", gauge(() -> delegate.streamTasks().count()));
+        metrics.gauge("epics", gauge(() -> delegate.streamEpics().count()));
+        metrics.gauge("subtasks", gauge(() -> delegate.streamSubtasks().count()));
+        metrics.gauge("largestEpicSubtasks", gauge(() -> delegate.streamEpics()
+                .mapToLong(Epic::getSubtaskCount)
+                .max()
+                .orElse(0)));
+    }
+
+    public OperationMetrics getMetrics() {
+        return metrics;
+    }
+
+    // -1, если значение так и не удалось прочитать
+    private static LongSupplier gauge(LongSupplier value) {
+        return () -> {
+            for (int attempt = 0; attempt < GAUGE_ATTEMPTS; attempt++) {
+                try {
+                    return value.getAsLong();
+                } catch (ConcurrentModificationException e) {
+                    // Менеджер изменили во время обхода
+                }
+            }
+            return -1;
+        };
+    }
+
+    // Методы для задач
+    @Override
+    public List<Task> getAllTasks() {
+        long start = metrics.start();
+        try {
+            return delegate.getAllTasks();
+        } finally {
+            getAllTasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        long start = metrics.start();
+        try {
+            delegate.deleteAllTasks();
+        } finally {
+            deleteAllTasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        long start = metrics.start();
+        try {
+            return delegate.getTaskById(id);
+        } finally {
+            getTaskById.recordSince(start);
+        }
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        long start = metrics.start();
+        try {
+            return delegate.createTask(task);
+        } finally {
+            createTask.recordSince(start);
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        long start = metrics.start();
+        try {
+            delegate.updateTask(task);
+        } finally {
+            updateTask.recordSince(start);
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        long start = metrics.start();
+        try {
+            delegate.deleteTaskById(id);
+        } finally {
+            deleteTaskById.recordSince(start);
+        }
+    }
+
+    // Методы для эпиков
+    @Override
+    public List<Epic> getAllEpics() {
+        long start = metrics.start();
+        try {
+            return delegate.getAllEpics();
+        } finally {
+            getAllEpics.recordSince(start);
+        }
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        long start = metrics.start();
+        try {
+            delegate.deleteAllEpics();
+        } finally {
+            deleteAllEpics.recordSince(start);
+        }
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        long start = metrics.start();
+        try {
+            return delegate.getEpicById(id);
+        } finally {
+            getEpicById.recordSince(start);
+        }
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        long start = metrics.start();
+        try {
+            return delegate.createEpic(epic);
+        } finally {
+            createEpic.recordSince(start);
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        long start = metrics.start();
+        try {
+            delegate.updateEpic(epic);
+        } finally {
+            updateEpic.recordSince(start);
+        }
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        long start = metrics.start();
+        try {
+            delegate.deleteEpicById(id);
+        } finally {
+            deleteEpicById.recordSince(start);
+        }
+    }
+
+    // Методы для подзадач
+    @Override
+    public boolean moveEpic(int epicId, int parentId) {
+        long start = metrics.start();
+        try {
+            return delegate.moveEpic(epicId, parentId);
+        } finally {
+            moveEpic.recordSince(start);
+        }
+    }
+
+    @Override
+    public EpicRollup getEpicRollup(int epicId) {
+        long start = metrics.start();
+        try {
+            return delegate.getEpicRollup(epicId);
+        } finally {
+            getEpicRollup.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<EpicRollup> getEpicRollups(int epicId) {
+        long start = metrics.start();
+        try {
+            return delegate.getEpicRollups(epicId);
+        } finally {
+            getEpicRollups.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        long start = metrics.start();
+        try {
+            return delegate.getAllSubtasks();
+        } finally {
+            getAllSubtasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        long start = metrics.start();
+        try {
+            delegate.deleteAllSubtasks();
+        } finally {
+            deleteAllSubtasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        long start = metrics.start();
+        try {
+            return delegate.getSubtaskById(id);
+        } finally {
+            getSubtaskById.recordSince(start);
+        }
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        long start = metrics.start();
+        try {
+            return delegate.createSubtask(subtask);
+        } finally {
+            createSubtask.recordSince(start);
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        long start = metrics.start();
+        try {
+            delegate.updateSubtask(subtask);
+        } finally {
+            updateSubtask.recordSince(start);
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        long start = metrics.start();
+        try {
+            delegate.deleteSubtaskById(id);
+        } finally {
+            deleteSubtaskById.recordSince(start);
+        }
+    }
+
+    // Дополнительные методы
+    @Override
+    public List<Subtask> getSubtasksByEpicId(int epicId) {
+        long start = metrics.start();
+        try {
+            return delegate.getSubtasksByEpicId(epicId);
+        } finally {
+            getSubtasksByEpicId.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        long start = metrics.start();
+        try {
+            return delegate.getHistory();
+        } finally {
+            getHistory.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Task> createTasks(List<Task> tasks) {
+        long start = metrics.start();
+        try {
+            return delegate.createTasks(tasks);
+        } finally {
+            createTasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public void updateTasks(List<Task> tasks) {
+        long start = metrics.start();
+        try {
+            delegate.updateTasks(tasks);
+        } finally {
+            updateTasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public void deleteTasksByIds(List<Integer> ids) {
+        long start = metrics.start();
+        try {
+            delegate.deleteTasksByIds(ids);
+        } finally {
+            deleteTasksByIds.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> subtasks) {
+        long start = metrics.start();
+        try {
+            return delegate.createSubtasks(subtasks);
+        } finally {
+            createSubtasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public void updateSubtasks(List<Subtask> subtasks) {
+        long start = metrics.start();
+        try {
+            delegate.updateSubtasks(subtasks);
+        } finally {
+            updateSubtasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public void deleteSubtasksByIds(List<Integer> ids) {
+        long start = metrics.start();
+        try {
+            delegate.deleteSubtasksByIds(ids);
+        } finally {
+            deleteSubtasksByIds.recordSince(start);
+        }
+    }
+
+    @Override
+    public int transitionSubtasks(ForkJoinPool pool, BiPredicate<? super Epic, ? super Subtask> filter,
+                                  Status status) {
+        long start = metrics.start();
+        try {
+            return delegate.transitionSubtasks(pool, filter, status);
+        } finally {
+            transitionSubtasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public <R> R collectSubtasks(ForkJoinPool pool, Collector<? super Subtask, ?, R> collector) {
+        long start = metrics.start();
+        try {
+            return delegate.collectSubtasks(pool, collector);
+        } finally {
+            collectSubtasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        long start = metrics.start();
+        try {
+            return delegate.updateTask(task, expectedVersion);
+        } finally {
+            updateTaskIfVersion.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        long start = metrics.start();
+        try {
+            return delegate.updateSubtask(subtask, expectedVersion);
+        } finally {
+            updateSubtaskIfVersion.recordSince(start);
+        }
+    }
+
+    @Override
+    public long getVersion(int id) {
+        long start = metrics.start();
+        try {
+            return delegate.getVersion(id);
+        } finally {
+            getVersion.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean contains(int id) {
+        long start = metrics.start();
+        try {
+            return delegate.contains(id);
+        } finally {
+            contains.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        long start = metrics.start();
+        try {
+            return delegate.getPrioritizedTasks();
+        } finally {
+            getPrioritizedTasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Task> search(String query, SearchOrder order, int limit) {
+        long start = metrics.start();
+        try {
+            return delegate.search(query, order, limit);
+        } finally {
+            search.recordSince(start);
+        }
+    }
+
+    @Override
+    public BoardSnapshot getSnapshot() {
+        long start = metrics.start();
+        try {
+            return delegate.getSnapshot();
+        } finally {
+            getSnapshot.recordSince(start);
+        }
+    }
+
+    @Override
+    public ChangeSubscription subscribe(long afterSequence) {
+        long start = metrics.start();
+        try {
+            return delegate.subscribe(afterSequence);
+        } finally {
+            subscribe.recordSince(start);
+        }
+    }
+
+    @Override
+    public long getLastChangeSequence() {
+        long start = metrics.start();
+        try {
+            return delegate.getLastChangeSequence();
+        } finally {
+            getLastChangeSequence.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean undo() {
+        long start = metrics.start();
+        try {
+            return delegate.undo();
+        } finally {
+            undo.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean redo() {
+        long start = metrics.start();
+        try {
+            return delegate.redo();
+        } finally {
+            redo.recordSince(start);
+        }
+    }
+
+    @Override
+    public void restoreTo(long sequence) {
+        long start = metrics.start();
+        try {
+            delegate.restoreTo(sequence);
+        } finally {
+            restoreTo.recordSince(start);
+        }
+    }
+
+    @Override
+    public long getJournalSequence() {
+        long start = metrics.start();
+        try {
+            return delegate.getJournalSequence();
+        } finally {
+            getJournalSequence.recordSince(start);
+        }
+    }
+
+    @Override
+    public void setJournalLimits(int maxEntries, long maxTasks) {
+        delegate.setJournalLimits(maxEntries, maxTasks);
+    }
+
+    @Override
+    public TaskPage<Task> getTasksPage(int afterId, int pageSize) {
+        long start = metrics.start();
+        try {
+            return delegate.getTasksPage(afterId, pageSize);
+        } finally {
+            getTasksPage.recordSince(start);
+        }
+    }
+
+    @Override
+    public TaskPage<Epic> getEpicsPage(int afterId, int pageSize) {
+        long start = metrics.start();
+        try {
+            return delegate.getEpicsPage(afterId, pageSize);
+        } finally {
+            getEpicsPage.recordSince(start);
+        }
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasksPage(int afterId, int pageSize) {
+        long start = metrics.start();
+        try {
+            return delegate.getSubtasksPage(afterId, pageSize);
+        } finally {
+            getSubtasksPage.recordSince(start);
+        }
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasksPageByEpicId(int epicId, int afterId, int pageSize) {
+        long start = metrics.start();
+        try {
+            return delegate.getSubtasksPageByEpicId(epicId, afterId, pageSize);
+        } finally {
+            getSubtasksPageByEpicId.recordSince(start);
+        }
+    }
+
+    @Override
+    public TaskPage<Task> getHistoryPage(int afterId, int pageSize) {
+        long start = metrics.start();
+        try {
+            return delegate.getHistoryPage(afterId, pageSize);
+        } finally {
+            getHistoryPage.recordSince(start);
+        }
+    }
+
+    // Замеряется только создание ленивого представления, а не обход
+    @Override
+    public Stream<Task> streamTasks() {
+        long start = metrics.start();
+        try {
+            return delegate.streamTasks();
+        } finally {
+            streamTasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        long start = metrics.start();
+        try {
+            return delegate.streamEpics();
+        } finally {
+            streamEpics.recordSince(start);
+        }
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        long start = metrics.start();
+        try {
+            return delegate.streamSubtasks();
+        } finally {
+            streamSubtasks.recordSince(start);
+        }
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksByEpicId(int epicId) {
+        long start = metrics.start();
+        try {
+            return delegate.streamSubtasksByEpicId(epicId);
+        } finally {
+            streamSubtasksByEpicId.recordSince(start);
+        }
+    }
+
+    @Override
+    public Stream<Task> streamHistory() {
+        long start = metrics.start();
+        try {
+            return delegate.streamHistory();
+        } finally {
+            streamHistory.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        long start = metrics.start();
+        try {
+            return delegate.getTasksByStatus(status);
+        } finally {
+            getTasksByStatus.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        long start = metrics.start();
+        try {
+            return delegate.getEpicsByStatus(status);
+        } finally {
+            getEpicsByStatus.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        long start = metrics.start();
+        try {
+            return delegate.getSubtasksByStatus(status);
+        } finally {
+            getSubtasksByStatus.recordSince(start);
+        }
+    }
+}
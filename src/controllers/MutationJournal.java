@@ -0,0 +1,167 @@
+package controllers;
+
+import exceptions.ReplayUnavailableException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+// Журнал обратимых изменений. Запись хранит только обратную операцию: применение меняет её на
+// противоположную, поэтому одна и та же запись служит и для отмены, и для повтора.
+// Номер состояния - число изменений на текущей ветке: отмена уменьшает его, повтор увеличивает,
+// а новое изменение после отмены отбрасывает отменённые записи и получает следующий номер.
+// Объём ограничен числом записей и числом задач, которые они держат: самые старые записи вытесняются.
+// Запись тяжелее предела не сохраняется, а журнал обнуляется - изменения до неё отменить уже нельзя
+final class MutationJournal {
+    interface Entry {
+        // Отмена или повтор; после вызова запись хранит противоположную операцию
+        void apply();
+
+        // Число задач, которые держит запись
+        long weight();
+
+        // Запись вытеснена из журнала
+        default void discard() {
+        }
+    }
+
+    private final Deque<Entry> done = new ArrayDeque<>();
+    private final Deque<Entry> undone = new ArrayDeque<>();
+    private int maxEntries;
+    private long maxWeight;
+    private long weight;
+    // Номер состояния до самой старой из сохранённых записей
+    private long base;
+
+    MutationJournal(int maxEntries, long maxWeight) {
+        setLimits(maxEntries, maxWeight);
+    }
+
+    void setLimits(int maxEntries, long maxWeight) {
+        if (maxEntries < 0 || maxWeight < 0) {
+            throw new IllegalArgumentException("Пределы журнала изменений не могут быть отрицательными: "
+                    + maxEntries + ", " + maxWeight);
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        if (!isEnabled()) {
+            reset();
+        }
+        evict();
+    }
+
+    boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    void record(Entry entry) {
+        if (!isEnabled()) {
+            entry.discard();
+            return;
+        }
+        discardUndone();
+        if (entry.weight() > maxWeight) {
+            entry.discard();
+            base = getSequence() + 1;
+            clearDone();
+            return;
+        }
+        done.addLast(entry);
+        weight += entry.weight();
+        evict();
+    }
+
+    boolean undo() {
+        Entry entry = done.peekLast();
+        if (entry == null) {
+            return false;
+        }
+        entry.apply();
+        undone.addLast(done.removeLast());
+        return true;
+    }
+
+    boolean redo() {
+        Entry entry = undone.peekLast();
+        if (entry == null) {
+            return false;
+        }
+        entry.apply();
+        done.addLast(undone.removeLast());
+        return true;
+    }
+
+    void restoreTo(long sequence) {
+        if (sequence < base) {
+            throw new ReplayUnavailableException("Изменения до состояния " + (base + 1)
+                    + " вытеснены из журнала: вернуться к состоянию " + sequence + " нельзя");
+        }
+        if (sequence > getLatestSequence()) {
+            throw new IllegalArgumentException("Состояния " + sequence + " нет: последнее - "
+                    + getLatestSequence());
+        }
+        while (getSequence() > sequence) {
+            undo();
+        }
+        while (getSequence() < sequence) {
+            redo();
+        }
+    }
+
+    long getSequence() {
+        return base + done.size();
+    }
+
+    // Последняя применённая запись; null - её нет
+    Entry getLatest() {
+        return done.peekLast();
+    }
+
+    // Последнее состояние, которое можно вернуть повтором
+    long getLatestSequence() {
+        return getSequence() + undone.size();
+    }
+
+    // Изменения, которые журнал не умеет отменять: номер состояния растёт на count,
+    // а прежние записи отменить и повторить уже нельзя
+    void skip(long count) {
+        long sequence = getSequence() + count;
+        discardUndone();
+        clearDone();
+        base = sequence;
+    }
+
+    // Пустой журнал с нулевым номером состояния
+    void reset() {
+        discardUndone();
+        clearDone();
+        base = 0;
+    }
+
+    private void evict() {
+        while (!done.isEmpty() && (done.size() + undone.size() > maxEntries || weight > maxWeight)) {
+            Entry entry = done.removeFirst();
+            weight -= entry.weight();
+            entry.discard();
+            base++;
+        }
+        if (done.isEmpty() && (undone.size() > maxEntries || weight > maxWeight)) {
+            discardUndone();
+        }
+    }
+
+    private void clearDone() {
+        while (!done.isEmpty()) {
+            Entry entry = done.removeFirst();
+            weight -= entry.weight();
+            entry.discard();
+        }
+    }
+
+    private void discardUndone() {
+        while (!undone.isEmpty()) {
+            Entry entry = undone.removeFirst();
+            weight -= entry.weight();
+            entry.discard();
+        }
+    }
+}
@@ -0,0 +1,1347 @@
+package controllers;
+
+import enums.SearchOrder;
+import enums.Status;
+import enums.TaskType;
+import impl.HistoryManager;
+import impl.ObservableTaskManager;
+import impl.ParallelTaskManager;
+import model.BoardSnapshot;
+import model.Epic;
+import model.EpicRollup;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskRecord;
+import utils.ChangeLog;
+import utils.ChangeSubscription;
+import utils.IntHashMap;
+import utils.IntLinkedSet;
+import utils.Managers;
+import utils.OffHeapColumn;
+import utils.StringArena;
+import utils.TextIndex;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Менеджер для очень больших досок: вид, статус, эпик подзадачи, версия и ссылки на имя и описание хранятся
+// в столбцах вне кучи (строка столбца - id минус первый id диапазона), имена и описания - в StringArena.
+// Объекты задач не хранятся: каждое чтение собирает новый объект из столбцов, а изменения объекта
+// снаружи менеджера не видны, пока его не передадут в update*.
+// Подзадачи эпика - двусвязный список в столбцах previous/next, замкнутый через строку самого эпика:
+// у эпика next - первая подзадача, previous - последняя.
+// В куче остаются только разреженные структуры: состояние эпиков, вложенность, время запланированных задач,
+// история, буфер событий и (если включён) поисковый индекс. Выборки по типу и статусу просматривают
+// столбцы вида и статуса подряд. Не потокобезопасен
+public class OffHeapTaskManager implements ObservableTaskManager, ParallelTaskManager {
+    // Вид строки - TaskType.ordinal() + 1, статус - Status.ordinal() + 1; 0 - строки нет или статус не задан
+    private static final byte NONE = 0;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    // Строки переписываются в новую арену, когда мусора больше, чем живых строк, и не меньше страницы
+    private static final long MIN_GARBAGE_TO_COMPACT = StringArena.PAGE_SIZE;
+
+    // Состояние эпика, которого нет в столбцах; эпиков на доске намного меньше, чем подзадач
+    private static final class EpicState {
+        // Включает подзадачи всех вложенных эпиков
+        final EpicStatusCounter counter = new EpicStatusCounter();
+        // Включает подзадачи всех вложенных эпиков; создаётся с первой подзадачей со временем
+        EpicSchedule schedule;
+        int subtaskCount;
+    }
+
+    private final OffHeapColumn kinds = new OffHeapColumn(Byte.BYTES);
+    private final OffHeapColumn statuses = new OffHeapColumn(Byte.BYTES);
+    private final OffHeapColumn epicIds = new OffHeapColumn(Integer.BYTES);
+    private final OffHeapColumn previous = new OffHeapColumn(Integer.BYTES);
+    private final OffHeapColumn next = new OffHeapColumn(Integer.BYTES);
+    // Версия задачи - номер последнего изменившего её события
+    private final OffHeapColumn versions = new OffHeapColumn(Long.BYTES);
+    private final OffHeapColumn names = new OffHeapColumn(Long.BYTES);
+    private final OffHeapColumn descriptions = new OffHeapColumn(Long.BYTES);
+    private StringArena strings = new StringArena();
+    private final IntHashMap<EpicState> epicStates = new IntHashMap<>();
+    private final EpicTree epicTree = new EpicTree();
+    private final ScheduleIndex scheduleIndex = new ScheduleIndex();
+    // null, если поиск выключен
+    private final TextIndex textIndex;
+    private final HistoryManager historyManager;
+    private final ChangeLog changeLog = new ChangeLog();
+    private BoardSnapshot snapshot;
+    private final int firstId;
+    private final int lastId;
+    private int nextId;
+    private int taskCount;
+    private int epicCount;
+    private int subtaskCount;
+
+    public OffHeapTaskManager() {
+        this(Managers.getDefaultHistory(), true);
+    }
+
+    // Без поискового индекса (textSearch = false) в куче не остаётся ничего, что растёт с числом задач
+    // без времени; search тогда перебирает имена и описания в столбцах
+    public OffHeapTaskManager(HistoryManager historyManager, boolean textSearch) {
+        this(historyManager, textSearch, 1, Integer.MAX_VALUE);
+    }
+
+    // Менеджер, выдающий id из диапазона [firstId, lastId]
+    public OffHeapTaskManager(HistoryManager historyManager, boolean textSearch, int firstId, int lastId) {
+        if (firstId < 1 || lastId < firstId) {
+            throw new IllegalArgumentException("Некорректный диапазон id: " + firstId + " - " + lastId);
+        }
+        this.historyManager = historyManager;
+        this.textIndex = textSearch ? new TextIndex() : null;
+        this.firstId = firstId;
+        this.lastId = lastId;
+        this.nextId = firstId;
+    }
+
+    // Прямая память под столбцы и строки
+    public long getOffHeapBytes() {
+        return kinds.getAllocatedBytes() + statuses.getAllocatedBytes() + epicIds.getAllocatedBytes()
+                + previous.getAllocatedBytes() + next.getAllocatedBytes() + versions.getAllocatedBytes()
+                + names.getAllocatedBytes() + descriptions.getAllocatedBytes() + strings.getAllocatedBytes();
+    }
+
+    private int generateId() {
+        checkIdsAvailable(1);
+        return nextId++;
+    }
+
+    // Проверяется до любых изменений, чтобы создание при исчерпанном диапазоне ничего не меняло
+    private void checkIdsAvailable(int count) {
+        if ((long) nextId + count - 1 > lastId) {
+            throw new IllegalStateException("Диапазон id исчерпан: нужно " + count + ", последний id " + lastId
+                    + ", следующий " + nextId);
+        }
+    }
+
+    private int reserveIds(int count) {
+        checkIdsAvailable(count);
+        int first = nextId;
+        nextId += count;
+        return first;
+    }
+
+    private static int[] idsOf(List<? extends Task> items) {
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = items.get(i).getId();
+        }
+        return ids;
+    }
+
+    private static int[] consecutiveIds(int first, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = first + i;
+        }
+        return ids;
+    }
+
+    // Строки столбцов
+
+    private int rowOf(int id) {
+        return id - firstId;
+    }
+
+    // Вид задачи с id или null, если её нет
+    private TaskType typeOf(int id) {
+        if (id < firstId || id >= nextId) {
+            return null;
+        }
+        byte kind = kinds.getByte(rowOf(id));
+        return kind == NONE ? null : TYPES[kind - 1];
+    }
+
+    private boolean isStored(int id, TaskType type) {
+        return typeOf(id) == type;
+    }
+
+    private Status statusAt(int row) {
+        byte code = statuses.getByte(row);
+        return code == NONE ? null : STATUSES[code - 1];
+    }
+
+    private void putStatus(int row, Status status) {
+        statuses.putByte(row, status == null ? NONE : (byte) (status.ordinal() + 1));
+    }
+
+    private void putText(int row, Task task) {
+        names.putLong(row, strings.put(task.getName()));
+        descriptions.putLong(row, strings.put(task.getDescription()));
+    }
+
+    private void replaceText(int row, Task task) {
+        strings.release(names.getLong(row));
+        strings.release(descriptions.getLong(row));
+        putText(row, task);
+    }
+
+    private void writeRow(int id, TaskType type, Task task) {
+        int row = rowOf(id);
+        kinds.putByte(row, (byte) (type.ordinal() + 1));
+        putStatus(row, task.getStatus());
+        putText(row, task);
+    }
+
+    private void clearRow(int id) {
+        int row = rowOf(id);
+        strings.release(names.getLong(row));
+        strings.release(descriptions.getLong(row));
+        kinds.putByte(row, NONE);
+        statuses.putByte(row, NONE);
+        epicIds.putInt(row, 0);
+        previous.putInt(row, 0);
+        next.putInt(row, 0);
+        versions.putLong(row, 0);
+    }
+
+    // Ссылки на строки в столбцах меняются, поэтому вызывается только между операциями
+    private void compactStringsIfNeeded() {
+        if (strings.getGarbageBytes() < MIN_GARBAGE_TO_COMPACT || strings.getGarbageBytes() < strings.getLiveBytes()) {
+            return;
+        }
+        StringArena compacted = new StringArena();
+        for (int row = 0, rows = nextId - firstId; row < rows; row++) {
+            if (kinds.getByte(row) != NONE) {
+                names.putLong(row, strings.copyTo(names.getLong(row), compacted));
+                descriptions.putLong(row, strings.copyTo(descriptions.getLong(row), compacted));
+            }
+        }
+        strings = compacted;
+    }
+
+    // Сборка объектов по столбцам
+
+    private Task toTask(int id) {
+        TaskType type = typeOf(id);
+        if (type == null) {
+            return null;
+        }
+        switch (type) {
+            case EPIC:
+                return newEpic(id);
+            case SUBTASK:
+                return newSubtask(id);
+            default:
+                return newTask(id);
+        }
+    }
+
+    private Task newTask(int id) {
+        int row = rowOf(id);
+        Task task = new Task(strings.get(names.getLong(row)), strings.get(descriptions.getLong(row)), id,
+                statusAt(row));
+        applySlot(task, scheduleIndex.get(id));
+        return task;
+    }
+
+    private Subtask newSubtask(int id) {
+        int row = rowOf(id);
+        Subtask subtask = new Subtask(strings.get(names.getLong(row)), strings.get(descriptions.getLong(row)), id,
+                statusAt(row), epicIds.getInt(row));
+        applySlot(subtask, scheduleIndex.get(id));
+        return subtask;
+    }
+
+    private Epic newEpic(int id) {
+        int row = rowOf(id);
+        Epic epic = new Epic(strings.get(names.getLong(row)), strings.get(descriptions.getLong(row)), id,
+                statusAt(row));
+        forEachSubtaskId(id, epic::addSubtaskId);
+        epic.setParentId(epicTree.parentOf(id));
+        applySchedule(epic, epicStates.get(id));
+        return epic;
+    }
+
+    private static void applySlot(Task task, ScheduleIndex.Slot slot) {
+        if (slot != null) {
+            task.setStartTime(slot.start);
+            task.setDuration(slot.duration);
+        }
+    }
+
+    private static void applySchedule(Epic epic, EpicState state) {
+        if (state.schedule != null) {
+            state.schedule.applyTo(epic);
+        } else {
+            epic.setStartTime(null);
+            epic.setDuration(null);
+            epic.setEndTime(null);
+        }
+    }
+
+    // Подзадачи эпика
+
+    private void forEachSubtaskId(int epicId, IntConsumer action) {
+        for (int id = next.getInt(rowOf(epicId)); id != epicId; id = next.getInt(rowOf(id))) {
+            action.accept(id);
+        }
+    }
+
+    // Подзадачи эпика после подзадачи afterId (или с первой, если afterId == epicId)
+    private PrimitiveIterator.OfInt subtaskIdsAfter(int epicId, int afterId) {
+        return new PrimitiveIterator.OfInt() {
+            private int current = next.getInt(rowOf(afterId));
+
+            @Override
+            public boolean hasNext() {
+                return current != epicId;
+            }
+
+            @Override
+            public int nextInt() {
+                if (current == epicId) {
+                    throw new NoSuchElementException();
+                }
+                int id = current;
+                current = next.getInt(rowOf(id));
+                return id;
+            }
+        };
+    }
+
+    private void initSubtaskList(int epicId) {
+        previous.putInt(rowOf(epicId), epicId);
+        next.putInt(rowOf(epicId), epicId);
+    }
+
+    private void linkSubtask(int epicId, int subtaskId) {
+        int epicRow = rowOf(epicId);
+        int last = previous.getInt(epicRow);
+        previous.putInt(rowOf(subtaskId), last);
+        next.putInt(rowOf(subtaskId), epicId);
+        next.putInt(rowOf(last), subtaskId);
+        previous.putInt(epicRow, subtaskId);
+    }
+
+    private void unlinkSubtask(int subtaskId) {
+        int row = rowOf(subtaskId);
+        int before = previous.getInt(row);
+        int after = next.getInt(row);
+        next.putInt(rowOf(before), after);
+        previous.putInt(rowOf(after), before);
+    }
+
+    // Обход строк одного вида по возрастанию id
+
+    private void forEachId(TaskType type, IntConsumer action) {
+        byte kind = (byte) (type.ordinal() + 1);
+        for (int row = 0, rows = nextId - firstId; row < rows; row++) {
+            if (kinds.getByte(row) == kind) {
+                action.accept(firstId + row);
+            }
+        }
+    }
+
+    // Поиск без индекса: те же результаты, но каждый запрос разбирает текст всех задач
+    private int[] scanText(String query, SearchOrder order, int limit) {
+        TextIndex.Scan scan = new TextIndex.Scan(query, order, limit);
+        for (int row = 0, rows = nextId - firstId; row < rows; row++) {
+            if (kinds.getByte(row) != NONE && !scan.accept(firstId + row, strings.get(names.getLong(row)),
+                    strings.get(descriptions.getLong(row)))) {
+                break;
+            }
+        }
+        return scan.result();
+    }
+
+    private <T extends Task> Iterator<T> iterate(TaskType type, int afterId, Status status, IntFunction<T> factory) {
+        byte kind = (byte) (type.ordinal() + 1);
+        // Без фильтра по статусу - -1
+        int statusCode = status == null ? -1 : status.ordinal() + 1;
+        return new Iterator<>() {
+            private int row = (int) Math.max(0, (long) afterId + 1 - firstId);
+            private int found = -1;
+
+            @Override
+            public boolean hasNext() {
+                if (found >= 0) {
+                    return true;
+                }
+                for (int rows = nextId - firstId; row < rows; row++) {
+                    if (kinds.getByte(row) == kind && (statusCode < 0 || statuses.getByte(row) == statusCode)) {
+                        found = row++;
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int id = firstId + found;
+                found = -1;
+                return factory.apply(id);
+            }
+        };
+    }
+
+    private <T extends Task> List<T> collect(TaskType type, Status status, IntFunction<T> factory, int expected) {
+        List<T> result = new ArrayList<>(expected);
+        iterate(type, TaskPage.FIRST_PAGE, status, factory).forEachRemaining(result::add);
+        return result;
+    }
+
+    private static <T extends Task> Stream<T> stream(Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // События, история и индексы
+
+    // Промах по id не доходит до менеджера истории
+    private void addToHistory(Task task) {
+        if (task != null) {
+            historyManager.add(task);
+        }
+    }
+
+    private void recordCreated(Task task) {
+        versions.putLong(rowOf(task.getId()), changeLog.created(task));
+    }
+
+    private void recordUpdated(Task task) {
+        versions.putLong(rowOf(task.getId()), changeLog.updated(task));
+    }
+
+    private void recordEpicStatusChanged(int epicId) {
+        Epic epic = newEpic(epicId);
+        versions.putLong(rowOf(epicId), changeLog.epicStatusChanged(epic, epic.getStatus()));
+    }
+
+    // Учитывает время задачи с id; при пересечении бросает TaskOverlapException до любых изменений
+    private ScheduleIndex.Slot schedule(int id, Task task) {
+        return scheduleIndex.put(id, task.getStartTime(), task.getDuration());
+    }
+
+    private void index(Task task) {
+        if (textIndex != null) {
+            textIndex.put(task.getId(), task.getName(), task.getDescription());
+        }
+    }
+
+    private void unindex(int id) {
+        if (textIndex != null) {
+            textIndex.remove(id);
+        }
+    }
+
+    // Снимает удаляемые задачи с истории, расписания и поиска, пока они ещё в столбцах (stored проверяет id
+    // по ним); версии исчезают вместе со строками. Как и в InMemoryTaskManager, большую долю структуры
+    // дешевле вычистить одним проходом
+    private void forgetDeleted(int count, IntPredicate stored, Consumer<IntConsumer> forEachDeleted) {
+        IntPredicate deleted = count > 1 ? DeletedIds.of(forEachDeleted, stored) : stored;
+        if (prefersScan(count, historyManager.size())) {
+            historyManager.removeIf(deleted);
+        } else {
+            forEachDeleted.accept(historyManager::remove);
+        }
+        if (prefersScan(count, scheduleIndex.size())) {
+            scheduleIndex.removeIf(deleted);
+        } else {
+            forEachDeleted.accept(scheduleIndex::remove);
+        }
+        if (textIndex != null) {
+            if (prefersScan(count, textIndex.size())) {
+                textIndex.removeIf(deleted);
+            } else {
+                forEachDeleted.accept(textIndex::remove);
+            }
+        }
+    }
+
+    private static boolean prefersScan(int count, int size) {
+        return count >= size / 2;
+    }
+
+    // Статусы эпиков
+
+    // Пересчитываются эпик и его предки: их счётчики включают подзадачи эпика
+    private void updateEpicStatus(int epicId) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+            if (refreshEpicStatus(id)) {
+                recordEpicStatusChanged(id);
+            }
+        }
+    }
+
+    // Пересчёт без события; true, если статус эпика изменился
+    private boolean refreshEpicStatus(int epicId) {
+        if (!isStored(epicId, TaskType.EPIC)) {
+            return false;
+        }
+        int row = rowOf(epicId);
+        Status status = epicStates.get(epicId).counter.toStatus();
+        boolean changed = statusAt(row) != status;
+        putStatus(row, status);
+        return changed;
+    }
+
+    private void updateEpicStatuses(IntLinkedSet epicIds) {
+        for (PrimitiveIterator.OfInt ids = epicIds.view().iterator(); ids.hasNext(); ) {
+            updateEpicStatus(ids.nextInt());
+        }
+    }
+
+    private void countSubtask(int epicId, Status status) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+            epicStates.get(id).counter.increment(status);
+        }
+    }
+
+    private void uncountSubtask(int epicId, Status status) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+            epicStates.get(id).counter.decrement(status);
+        }
+    }
+
+    // Строка подзадачи уже записана, а её время учтено в scheduleIndex
+    private void attachSubtask(int epicId, Subtask subtask) {
+        int id = subtask.getId();
+        linkSubtask(epicId, id);
+        epicIds.putInt(rowOf(id), epicId);
+        countSubtask(epicId, subtask.getStatus());
+        epicStates.get(epicId).subtaskCount++;
+        rescheduleSubtask(epicId, null, scheduleIndex.get(id));
+    }
+
+    // Время подзадачи учитывается в сроках эпика и всех его предков, как и статус
+    private void rescheduleSubtask(int epicId, ScheduleIndex.Slot removed, ScheduleIndex.Slot added) {
+        for (int id = epicId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+            EpicState state = epicStates.get(id);
+            if (state.schedule != null) {
+                state.schedule.remove(removed);
+            }
+            if (added != null) {
+                if (state.schedule == null) {
+                    state.schedule = new EpicSchedule();
+                }
+                state.schedule.add(added);
+            }
+        }
+    }
+
+    // slot - время, с которым подзадача была учтена в эпике; статус берётся из столбца
+    private void detachSubtask(int subtaskId, ScheduleIndex.Slot slot) {
+        int row = rowOf(subtaskId);
+        int epicId = epicIds.getInt(row);
+        unlinkSubtask(subtaskId);
+        uncountSubtask(epicId, statusAt(row));
+        epicStates.get(epicId).subtaskCount--;
+        rescheduleSubtask(epicId, slot, null);
+    }
+
+    // Поддерево со своими итогами уходит из предка: при переносе или удалении
+    private static void subtractSubtree(EpicState ancestor, EpicState subtree) {
+        ancestor.counter.subtract(subtree.counter);
+        if (ancestor.schedule != null && subtree.schedule != null) {
+            ancestor.schedule.subtract(subtree.schedule);
+        }
+    }
+
+    // Эпик остался без подзадач: статус NEW ставится сразу, без пересчёта по счётчикам
+    private void resetEpic(int epicId) {
+        EpicState state = epicStates.get(epicId);
+        initSubtaskList(epicId);
+        state.counter.clear();
+        state.schedule = null;
+        state.subtaskCount = 0;
+        int row = rowOf(epicId);
+        if (statusAt(row) != Status.NEW) {
+            putStatus(row, Status.NEW);
+            recordEpicStatusChanged(epicId);
+        }
+    }
+
+    // Задачи
+
+    @Override
+    public List<Task> getAllTasks() {
+        return collect(TaskType.TASK, null, this::newTask, taskCount);
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        forgetDeleted(taskCount, id -> isStored(id, TaskType.TASK), action -> forEachId(TaskType.TASK, action));
+        forEachId(TaskType.TASK, id -> {
+            changeLog.deleted(TaskType.TASK, id);
+            clearRow(id);
+        });
+        taskCount = 0;
+        compactStringsIfNeeded();
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        Task task = isStored(id, TaskType.TASK) ? newTask(id) : null;
+        addToHistory(task);
+        return task;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        checkIdsAvailable(1);
+        schedule(nextId, task);
+        task.setId(generateId());
+        writeRow(task.getId(), TaskType.TASK, task);
+        taskCount++;
+        index(task);
+        recordCreated(task);
+        return task;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (isStored(task.getId(), TaskType.TASK)) {
+            schedule(task.getId(), task);
+            int row = rowOf(task.getId());
+            putStatus(row, task.getStatus());
+            replaceText(row, task);
+            index(task);
+            recordUpdated(task);
+            compactStringsIfNeeded();
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        if (isStored(id, TaskType.TASK)) {
+            scheduleIndex.remove(id);
+            unindex(id);
+            changeLog.deleted(TaskType.TASK, id);
+            clearRow(id);
+            taskCount--;
+            historyManager.remove(id);
+            compactStringsIfNeeded();
+        }
+    }
+
+    // Эпики
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return collect(TaskType.EPIC, null, this::newEpic, epicCount);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        forgetDeleted(epicCount + subtaskCount, id -> {
+            TaskType type = typeOf(id);
+            return type == TaskType.EPIC || type == TaskType.SUBTASK;
+        }, action -> {
+            forEachId(TaskType.SUBTASK, action);
+            forEachId(TaskType.EPIC, action);
+        });
+        forEachId(TaskType.EPIC, epicId -> {
+            for (int id = next.getInt(rowOf(epicId)); id != epicId; ) {
+                int after = next.getInt(rowOf(id));
+                changeLog.deleted(TaskType.SUBTASK, id);
+                clearRow(id);
+                id = after;
+            }
+            changeLog.deleted(TaskType.EPIC, epicId);
+            clearRow(epicId);
+        });
+        epicCount = 0;
+        subtaskCount = 0;
+        epicStates.clear();
+        epicTree.clear();
+        compactStringsIfNeeded();
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        Epic epic = isStored(id, TaskType.EPIC) ? newEpic(id) : null;
+        addToHistory(epic);
+        return epic;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        int parentId = epic.getParentId();
+        if (parentId != Epic.NO_PARENT && !isStored(parentId, TaskType.EPIC)) {
+            return null;
+        }
+
+        epic.setId(generateId());
+        epic.setStatus(Status.NEW);
+        writeRow(epic.getId(), TaskType.EPIC, epic);
+        initSubtaskList(epic.getId());
+        EpicState state = new EpicState();
+        epicStates.put(epic.getId(), state);
+        applySchedule(epic, state);
+        if (parentId != Epic.NO_PARENT) {
+            epicTree.attach(epic.getId(), parentId);
+        }
+        epicCount++;
+        index(epic);
+        recordCreated(epic);
+        return epic;
+    }
+
+    // Подзадачи, родитель, статус и сроки переданного эпика заменяются хранимыми
+    @Override
+    public void updateEpic(Epic epic) {
+        if (isStored(epic.getId(), TaskType.EPIC)) {
+            int id = epic.getId();
+            int row = rowOf(id);
+            epic.clearSubtaskIds();
+            forEachSubtaskId(id, epic::addSubtaskId);
+            epic.setParentId(epicTree.parentOf(id));
+            applySchedule(epic, epicStates.get(id));
+            epic.setStatus(statusAt(row));
+            replaceText(row, epic);
+            index(epic);
+            recordUpdated(epic);
+            compactStringsIfNeeded();
+        }
+    }
+
+    // Перенос поддерева: его итоги вычитаются из прежних предков и прибавляются к новым
+    @Override
+    public boolean moveEpic(int epicId, int parentId) {
+        if (!isStored(epicId, TaskType.EPIC) || parentId != Epic.NO_PARENT
+                && (!isStored(parentId, TaskType.EPIC) || epicTree.contains(epicId, parentId))) {
+            return false;
+        }
+        int oldParentId = epicTree.parentOf(epicId);
+        if (oldParentId == parentId) {
+            return true;
+        }
+
+        EpicState moved = epicStates.get(epicId);
+        for (int id = oldParentId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+            subtractSubtree(epicStates.get(id), moved);
+        }
+        epicTree.detach(epicId);
+        if (parentId != Epic.NO_PARENT) {
+            epicTree.attach(epicId, parentId);
+            for (int id = parentId; id != Epic.NO_PARENT; id = epicTree.parentOf(id)) {
+                EpicState state = epicStates.get(id);
+                state.counter.add(moved.counter);
+                if (moved.schedule != null) {
+                    if (state.schedule == null) {
+                        state.schedule = new EpicSchedule();
+                    }
+                    state.schedule.add(moved.schedule);
+                }
+            }
+        }
+        recordUpdated(newEpic(epicId));
+        updateEpicStatus(oldParentId);
+        updateEpicStatus(parentId);
+        return true;
+    }
+
+    // Удаляется всё поддерево эпика; вложенные эпики удаляются раньше родителя
+    @Override
+    public void deleteEpicById(int id) {
+        if (!isStored(id, TaskType.EPIC)) {
+            return;
+        }
+        int parentId = epicTree.parentOf(id);
+        EpicStatusCounter removed = epicStates.get(id).counter;
+        for (int ancestorId = parentId; ancestorId != Epic.NO_PARENT; ancestorId = epicTree.parentOf(ancestorId)) {
+            subtractSubtree(epicStates.get(ancestorId), epicStates.get(id));
+        }
+        IntLinkedSet subtree = new IntLinkedSet();
+        epicTree.forEachInSubtree(id, (epicId, depth) -> subtree.add(epicId));
+        IntLinkedSet.View subtreeIds = subtree.view();
+        forgetDeleted(subtreeIds.size() + removed.total(), taskId -> {
+            TaskType type = typeOf(taskId);
+            return type == TaskType.EPIC && subtreeIds.contains(taskId)
+                    || type == TaskType.SUBTASK && subtreeIds.contains(epicIds.getInt(rowOf(taskId)));
+        }, action -> subtreeIds.stream().forEach(epicId -> {
+            forEachSubtaskId(epicId, action);
+            action.accept(epicId);
+        }));
+
+        int[] order = subtreeIds.stream().toArray();
+        for (int i = order.length - 1; i >= 0; i--) {
+            int epicId = order[i];
+            for (int subtaskId = next.getInt(rowOf(epicId)); subtaskId != epicId; ) {
+                int after = next.getInt(rowOf(subtaskId));
+                changeLog.deleted(TaskType.SUBTASK, subtaskId);
+                clearRow(subtaskId);
+                subtaskCount--;
+                subtaskId = after;
+            }
+            epicStates.remove(epicId);
+            changeLog.deleted(TaskType.EPIC, epicId);
+            clearRow(epicId);
+            epicCount--;
+        }
+        epicTree.removeSubtree(id);
+        updateEpicStatus(parentId);
+        compactStringsIfNeeded();
+    }
+
+    // Подзадачи
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return collect(TaskType.SUBTASK, null, this::newSubtask, subtaskCount);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        forgetDeleted(subtaskCount, id -> isStored(id, TaskType.SUBTASK),
+                action -> forEachId(TaskType.SUBTASK, action));
+        forEachId(TaskType.SUBTASK, id -> changeLog.deleted(TaskType.SUBTASK, id));
+        // Эпики без подзадач в поддереве и так в NEW с пустыми сроками
+        forEachId(TaskType.EPIC, epicId -> {
+            if (epicStates.get(epicId).counter.total() > 0) {
+                resetEpic(epicId);
+            }
+        });
+        forEachId(TaskType.SUBTASK, this::clearRow);
+        subtaskCount = 0;
+        compactStringsIfNeeded();
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        Subtask subtask = isStored(id, TaskType.SUBTASK) ? newSubtask(id) : null;
+        addToHistory(subtask);
+        return subtask;
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        if (!isStored(subtask.getEpicId(), TaskType.EPIC)) {
+            return null;
+        }
+
+        checkIdsAvailable(1);
+        schedule(nextId, subtask);
+        subtask.setId(generateId());
+        writeRow(subtask.getId(), TaskType.SUBTASK, subtask);
+        attachSubtask(subtask.getEpicId(), subtask);
+        subtaskCount++;
+        index(subtask);
+        recordCreated(subtask);
+        updateEpicStatus(subtask.getEpicId());
+        return subtask;
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        if (!isStored(subtask.getId(), TaskType.SUBTASK) || !isStored(subtask.getEpicId(), TaskType.EPIC)) {
+            // Перенос в несуществующий эпик не допускается
+            return;
+        }
+
+        ScheduleIndex.Slot previousSlot = schedule(subtask.getId(), subtask);
+        int oldEpicId = replaceSubtask(subtask, previousSlot);
+        recordUpdated(subtask);
+        if (oldEpicId != subtask.getEpicId()) {
+            updateEpicStatus(oldEpicId);
+        }
+        updateEpicStatus(subtask.getEpicId());
+        compactStringsIfNeeded();
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        int epicId = removeSubtask(id);
+        if (epicId != Epic.NO_PARENT) {
+            updateEpicStatus(epicId);
+            compactStringsIfNeeded();
+        }
+    }
+
+    // Замена существующей подзадачи без пересчёта статусов; эпик подзадачи должен существовать,
+    // а новое время - быть уже учтено в scheduleIndex (previousSlot - прежнее время).
+    // Возвращает id эпика, к которому подзадача относилась до замены
+    private int replaceSubtask(Subtask subtask, ScheduleIndex.Slot previousSlot) {
+        int id = subtask.getId();
+        int row = rowOf(id);
+        int oldEpicId = epicIds.getInt(row);
+        if (oldEpicId == subtask.getEpicId()) {
+            uncountSubtask(oldEpicId, statusAt(row));
+            countSubtask(oldEpicId, subtask.getStatus());
+            rescheduleSubtask(oldEpicId, previousSlot, scheduleIndex.get(id));
+        } else {
+            detachSubtask(id, previousSlot);
+            attachSubtask(subtask.getEpicId(), subtask);
+        }
+        putStatus(row, subtask.getStatus());
+        replaceText(row, subtask);
+        index(subtask);
+        return oldEpicId;
+    }
+
+    // Удаление без пересчёта статуса эпика; возвращает id эпика или NO_PARENT, если подзадачи не было
+    private int removeSubtask(int id) {
+        if (!isStored(id, TaskType.SUBTASK)) {
+            return Epic.NO_PARENT;
+        }
+        historyManager.remove(id);
+        int epicId = epicIds.getInt(rowOf(id));
+        detachSubtask(id, scheduleIndex.remove(id));
+        unindex(id);
+        changeLog.deleted(TaskType.SUBTASK, id);
+        clearRow(id);
+        subtaskCount--;
+        return epicId;
+    }
+
+    // Пакетные операции: id выделяются одним диапазоном, статус каждого затронутого эпика
+    // пересчитывается один раз за пакет. Время всего пакета проверяется до изменений:
+    // при пересечении бросается TaskOverlapException и пакет не применяется
+    @Override
+    public List<Task> createTasks(List<Task> newTasks) {
+        checkIdsAvailable(newTasks.size());
+        scheduleIndex.putAll(consecutiveIds(nextId, newTasks.size()), newTasks);
+        int id = reserveIds(newTasks.size());
+        for (Task task : newTasks) {
+            task.setId(id++);
+            writeRow(task.getId(), TaskType.TASK, task);
+            taskCount++;
+            index(task);
+            recordCreated(task);
+        }
+        return new ArrayList<>(newTasks);
+    }
+
+    @Override
+    public void updateTasks(List<Task> updatedTasks) {
+        List<Task> existing = new ArrayList<>(updatedTasks.size());
+        for (Task task : updatedTasks) {
+            if (isStored(task.getId(), TaskType.TASK)) {
+                existing.add(task);
+            }
+        }
+        scheduleIndex.putAll(idsOf(existing), existing);
+        for (Task task : existing) {
+            int row = rowOf(task.getId());
+            putStatus(row, task.getStatus());
+            replaceText(row, task);
+            index(task);
+            recordUpdated(task);
+        }
+        compactStringsIfNeeded();
+    }
+
+    @Override
+    public void deleteTasksByIds(List<Integer> ids) {
+        for (int id : ids) {
+            if (isStored(id, TaskType.TASK)) {
+                scheduleIndex.remove(id);
+                unindex(id);
+                changeLog.deleted(TaskType.TASK, id);
+                clearRow(id);
+                taskCount--;
+                historyManager.remove(id);
+            }
+        }
+        compactStringsIfNeeded();
+    }
+
+    // Пакет применяется целиком или не применяется вовсе, если хотя бы одного эпика нет; тогда возвращается null
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> newSubtasks) {
+        for (Subtask subtask : newSubtasks) {
+            if (!isStored(subtask.getEpicId(), TaskType.EPIC)) {
+                return null;
+            }
+        }
+
+        checkIdsAvailable(newSubtasks.size());
+        scheduleIndex.putAll(consecutiveIds(nextId, newSubtasks.size()), newSubtasks);
+        int id = reserveIds(newSubtasks.size());
+        IntLinkedSet affectedEpics = new IntLinkedSet();
+        for (Subtask subtask : newSubtasks) {
+            subtask.setId(id++);
+            writeRow(subtask.getId(), TaskType.SUBTASK, subtask);
+            attachSubtask(subtask.getEpicId(), subtask);
+            subtaskCount++;
+            index(subtask);
+            recordCreated(subtask);
+            affectedEpics.add(subtask.getEpicId());
+        }
+        updateEpicStatuses(affectedEpics);
+        return new ArrayList<>(newSubtasks);
+    }
+
+    // Если хотя бы одна подзадача ссылается на несуществующий эпик, пакет не применяется.
+    // Подзадачи с неизвестными id пропускаются, как и в updateSubtask
+    @Override
+    public void updateSubtasks(List<Subtask> updatedSubtasks) {
+        for (Subtask subtask : updatedSubtasks) {
+            if (!isStored(subtask.getEpicId(), TaskType.EPIC)) {
+                return;
+            }
+        }
+
+        List<Subtask> existing = new ArrayList<>(updatedSubtasks.size());
+        for (Subtask subtask : updatedSubtasks) {
+            if (isStored(subtask.getId(), TaskType.SUBTASK)) {
+                existing.add(subtask);
+            }
+        }
+        ScheduleIndex.Slot[] previousSlots = scheduleIndex.putAll(idsOf(existing), existing);
+        IntLinkedSet affectedEpics = new IntLinkedSet();
+        for (int i = 0; i < existing.size(); i++) {
+            Subtask subtask = existing.get(i);
+            affectedEpics.add(replaceSubtask(subtask, previousSlots[i]));
+            affectedEpics.add(subtask.getEpicId());
+            recordUpdated(subtask);
+        }
+        updateEpicStatuses(affectedEpics);
+        compactStringsIfNeeded();
+    }
+
+    @Override
+    public void deleteSubtasksByIds(List<Integer> ids) {
+        IntLinkedSet affectedEpics = new IntLinkedSet();
+        for (int id : ids) {
+            int epicId = removeSubtask(id);
+            if (epicId != Epic.NO_PARENT) {
+                affectedEpics.add(epicId);
+            }
+        }
+        updateEpicStatuses(affectedEpics);
+        compactStringsIfNeeded();
+    }
+
+    // Части - деревья корневых эпиков. Столбцы читаются абсолютными get, поэтому подзадачи отбираются
+    // параллельно без блокировок, пока менеджер не меняют. Отобранные применяются одним пакетом, в котором
+    // меняется только столбец статусов: имя и описание в арене строк не переписываются
+    @Override
+    public int transitionSubtasks(ForkJoinPool pool, BiPredicate<? super Epic, ? super Subtask> filter,
+                                  Status status) {
+        Objects.requireNonNull(status);
+        int[] roots = rootEpicIds();
+        List<Subtask> changed = EpicPartitions.reduce(pool, roots.length, i -> {
+            List<Subtask> found = new ArrayList<>();
+            epicTree.forEachInSubtree(roots[i], (epicId, depth) -> {
+                Epic epic = newEpic(epicId);
+                forEachSubtaskId(epicId, id -> {
+                    Subtask subtask = newSubtask(id);
+                    if (subtask.getStatus() != status && filter.test(epic, subtask)) {
+                        // Объект собран только что, поэтому его можно менять
+                        subtask.setStatus(status);
+                        found.add(subtask);
+                    }
+                });
+            });
+            return found;
+        }, (first, second) -> {
+            first.addAll(second);
+            return first;
+        }, new ArrayList<>());
+        IntLinkedSet affectedEpics = new IntLinkedSet();
+        for (Subtask subtask : changed) {
+            int row = rowOf(subtask.getId());
+            int epicId = epicIds.getInt(row);
+            uncountSubtask(epicId, statusAt(row));
+            countSubtask(epicId, status);
+            putStatus(row, status);
+            recordUpdated(subtask);
+            affectedEpics.add(epicId);
+        }
+        updateEpicStatuses(affectedEpics);
+        return changed.size();
+    }
+
+    @Override
+    public <R> R collectSubtasks(ForkJoinPool pool, Collector<? super Subtask, ?, R> collector) {
+        return collect(pool, collector);
+    }
+
+    private <A, R> R collect(ForkJoinPool pool, Collector<? super Subtask, A, R> collector) {
+        int[] roots = rootEpicIds();
+        BiConsumer<A, ? super Subtask> accumulator = collector.accumulator();
+        A result = EpicPartitions.reduce(pool, roots.length, i -> {
+            A container = collector.supplier().get();
+            epicTree.forEachInSubtree(roots[i], (epicId, depth) ->
+                    forEachSubtaskId(epicId, id -> accumulator.accept(container, newSubtask(id))));
+            return container;
+        }, collector.combiner(), collector.supplier().get());
+        return collector.finisher().apply(result);
+    }
+
+    private int[] rootEpicIds() {
+        int[] roots = new int[epicStates.size()];
+        int[] count = {0};
+        epicStates.forEachKey(id -> {
+            if (epicTree.parentOf(id) == Epic.NO_PARENT) {
+                roots[count[0]++] = id;
+            }
+        });
+        return Arrays.copyOf(roots, count[0]);
+    }
+
+    // Дополнительные методы
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        if (!isStored(task.getId(), TaskType.TASK) || getVersion(task.getId()) != expectedVersion) {
+            return false;
+        }
+        updateTask(task);
+        return true;
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        if (!isStored(subtask.getId(), TaskType.SUBTASK) || !isStored(subtask.getEpicId(), TaskType.EPIC)
+                || getVersion(subtask.getId()) != expectedVersion) {
+            return false;
+        }
+        updateSubtask(subtask);
+        return true;
+    }
+
+    @Override
+    public long getVersion(int id) {
+        return typeOf(id) == null ? 0 : versions.getLong(rowOf(id));
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return typeOf(id) != null;
+    }
+
+    // Снимок собирается заново, только если после предыдущего были изменения
+    @Override
+    public BoardSnapshot getSnapshot() {
+        long version = changeLog.getLastSequence();
+        if (snapshot == null || snapshot.getVersion() != version) {
+            Map<Integer, TaskRecord> taskRecords = new LinkedHashMap<>();
+            Map<Integer, TaskRecord> epicRecords = new LinkedHashMap<>();
+            Map<Integer, TaskRecord> subtaskRecords = new LinkedHashMap<>();
+            for (int row = 0, rows = nextId - firstId; row < rows; row++) {
+                int id = firstId + row;
+                TaskType type = typeOf(id);
+                if (type == TaskType.TASK) {
+                    taskRecords.put(id, toRecord(id, type, 0, List.of()));
+                } else if (type == TaskType.EPIC) {
+                    List<Integer> subtaskIds = new ArrayList<>(epicStates.get(id).subtaskCount);
+                    forEachSubtaskId(id, subtaskIds::add);
+                    epicRecords.put(id, toRecord(id, type, 0, subtaskIds));
+                } else if (type == TaskType.SUBTASK) {
+                    subtaskRecords.put(id, toRecord(id, type, epicIds.getInt(row), List.of()));
+                }
+            }
+            snapshot = new BoardSnapshot(version, taskRecords, epicRecords, subtaskRecords);
+        }
+        return snapshot;
+    }
+
+    private TaskRecord toRecord(int id, TaskType type, int epicId, List<Integer> subtaskIds) {
+        int row = rowOf(id);
+        LocalDateTime startTime = null;
+        Duration duration = null;
+        LocalDateTime endTime = null;
+        if (type == TaskType.EPIC) {
+            EpicSchedule epicSchedule = epicStates.get(id).schedule;
+            if (epicSchedule != null) {
+                startTime = epicSchedule.getStartTime();
+                duration = epicSchedule.getDuration();
+                endTime = epicSchedule.getEndTime();
+            }
+        } else {
+            ScheduleIndex.Slot slot = scheduleIndex.get(id);
+            if (slot != null) {
+                startTime = slot.start;
+                duration = slot.duration;
+                endTime = slot.end;
+            }
+        }
+        return new TaskRecord(id, type, strings.get(names.getLong(row)), strings.get(descriptions.getLong(row)),
+                statusAt(row), epicId, subtaskIds, startTime, duration, endTime, versions.getLong(row));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Task> result = new ArrayList<>(scheduleIndex.scheduledCount());
+        scheduleIndex.forEachScheduled(id -> result.add(toTask(id)));
+        return result;
+    }
+
+    // Просмотры в историю не записываются
+    @Override
+    public List<Task> search(String query, SearchOrder order, int limit) {
+        int[] ids = textIndex != null ? textIndex.search(query, order, limit) : scanText(query, order, limit);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(toTask(id));
+        }
+        return result;
+    }
+
+    @Override
+    public ChangeSubscription subscribe(long afterSequence) {
+        return changeLog.subscribe(afterSequence);
+    }
+
+    @Override
+    public long getLastChangeSequence() {
+        return changeLog.getLastSequence();
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByEpicId(int epicId) {
+        if (!isStored(epicId, TaskType.EPIC)) {
+            return new ArrayList<>();
+        }
+        List<Subtask> result = new ArrayList<>(epicStates.get(epicId).subtaskCount);
+        forEachSubtaskId(epicId, id -> result.add(newSubtask(id)));
+        return result;
+    }
+
+    @Override
+    public EpicRollup getEpicRollup(int epicId) {
+        if (!isStored(epicId, TaskType.EPIC)) {
+            return null;
+        }
+        return rollupOf(epicId, epicTree.depthOf(epicId));
+    }
+
+    @Override
+    public List<EpicRollup> getEpicRollups(int epicId) {
+        List<EpicRollup> result = new ArrayList<>();
+        if (isStored(epicId, TaskType.EPIC)) {
+            int depth = epicTree.depthOf(epicId);
+            epicTree.forEachInSubtree(epicId, (id, subtreeDepth) -> result.add(rollupOf(id, depth + subtreeDepth)));
+        }
+        return result;
+    }
+
+    private EpicRollup rollupOf(int epicId, int depth) {
+        EpicState state = epicStates.get(epicId);
+        return state.counter.toRollup(epicId, epicTree.parentOf(epicId), depth, statusAt(rowOf(epicId)),
+                state.subtaskCount, epicTree.childCount(epicId));
+    }
+
+    // История просмотров
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public TaskPage<Task> getTasksPage(int afterId, int pageSize) {
+        TaskPage.checkPageSize(pageSize);
+        return TaskPage.of(iterate(TaskType.TASK, afterId, null, this::newTask), pageSize);
+    }
+
+    @Override
+    public TaskPage<Epic> getEpicsPage(int afterId, int pageSize) {
+        TaskPage.checkPageSize(pageSize);
+        return TaskPage.of(iterate(TaskType.EPIC, afterId, null, this::newEpic), pageSize);
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasksPage(int afterId, int pageSize) {
+        TaskPage.checkPageSize(pageSize);
+        return TaskPage.of(iterate(TaskType.SUBTASK, afterId, null, this::newSubtask), pageSize);
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasksPageByEpicId(int epicId, int afterId, int pageSize) {
+        TaskPage.checkPageSize(pageSize);
+        if (!isStored(epicId, TaskType.EPIC)) {
+            return TaskPage.empty();
+        }
+        if (afterId != TaskPage.FIRST_PAGE
+                && (!isStored(afterId, TaskType.SUBTASK) || epicIds.getInt(rowOf(afterId)) != epicId)) {
+            // Подзадачу из токена удалили или перенесли - продолжать не с чего
+            return TaskPage.empty();
+        }
+        PrimitiveIterator.OfInt ids = subtaskIdsAfter(epicId, afterId == TaskPage.FIRST_PAGE ? epicId : afterId);
+        return TaskPage.of(new Iterator<Subtask>() {
+            @Override
+            public boolean hasNext() {
+                return ids.hasNext();
+            }
+
+            @Override
+            public Subtask next() {
+                return newSubtask(ids.nextInt());
+            }
+        }, pageSize);
+    }
+
+    @Override
+    public TaskPage<Task> getHistoryPage(int afterId, int pageSize) {
+        return historyManager.getHistoryPage(afterId, pageSize);
+    }
+
+    // Потоки читают столбцы по мере обхода: изменение менеджера во время обхода не допускается
+    @Override
+    public Stream<Task> streamTasks() {
+        return stream(iterate(TaskType.TASK, TaskPage.FIRST_PAGE, null, this::newTask));
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return stream(iterate(TaskType.EPIC, TaskPage.FIRST_PAGE, null, this::newEpic));
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return stream(iterate(TaskType.SUBTASK, TaskPage.FIRST_PAGE, null, this::newSubtask));
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksByEpicId(int epicId) {
+        if (!isStored(epicId, TaskType.EPIC)) {
+            return Stream.empty();
+        }
+        return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(subtaskIdsAfter(epicId, epicId),
+                Spliterator.ORDERED), false).mapToObj(this::newSubtask);
+    }
+
+    @Override
+    public Stream<Task> streamHistory() {
+        return historyManager.streamHistory();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        Objects.requireNonNull(status);
+        return collect(TaskType.TASK, status, this::newTask, 0);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        Objects.requireNonNull(status);
+        return collect(TaskType.EPIC, status, this::newEpic, 0);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        Objects.requireNonNull(status);
+        return collect(TaskType.SUBTASK, status, this::newSubtask, 0);
+    }
+}
@@ -0,0 +1,199 @@
+package controllers;
+
+import exceptions.TaskOverlapException;
+import model.Task;
+import utils.IntHashMap;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+// Время задач и подзадач: учтённые начало и продолжительность по id и упорядоченное по началу расписание.
+// Интервалы [начало, конец) в расписании не пересекаются, поэтому при порядке (начало, конец, id)
+// концы тоже не убывают. Значит, с новым интервалом может пересечься только ближайший сосед слева
+// (у него самый поздний конец среди предыдущих) или справа (у него самое раннее начало среди следующих),
+// и проверка стоит O(log n)
+class ScheduleIndex {
+    private static final Comparator<Slot> ORDER = Comparator.comparing((Slot slot) -> slot.start)
+            .thenComparing(slot -> slot.end)
+            .thenComparingInt(slot -> slot.id);
+
+    // Время задачи, с которым она учтена в индексе: объект задачи могут изменить снаружи
+    static final class Slot {
+        final int id;
+        final LocalDateTime start;
+        final Duration duration;
+        final LocalDateTime end;
+
+        private Slot(int id, LocalDateTime start, Duration duration) {
+            this.id = id;
+            this.start = start;
+            this.duration = duration;
+            this.end = start == null || duration == null ? start : start.plus(duration);
+        }
+
+        boolean isScheduled() {
+            return start != null;
+        }
+
+        boolean overlaps(Slot other) {
+            return start.isBefore(other.end) && other.start.isBefore(end);
+        }
+    }
+
+    // Задачи без начала и продолжительности не хранятся вовсе
+    private final IntHashMap<Slot> slots = new IntHashMap<>();
+    private final NavigableSet<Slot> schedule = new TreeSet<>(ORDER);
+
+    Slot get(int id) {
+        return slots.get(id);
+    }
+
+    // Учитывает новое время задачи и возвращает прежнее (или null).
+    // При пересечении с другой задачей бросает TaskOverlapException и ничего не меняет
+    Slot put(int id, LocalDateTime start, Duration duration) {
+        Slot previous = slots.get(id);
+        if (start == null && duration == null) {
+            remove(id);
+            return previous;
+        }
+
+        Slot slot = new Slot(id, start, duration);
+        if (slot.isScheduled()) {
+            checkOverlap(slot);
+        }
+        if (previous != null && previous.isScheduled()) {
+            schedule.remove(previous);
+        }
+        slots.put(id, slot);
+        if (slot.isScheduled()) {
+            schedule.add(slot);
+        }
+        return previous;
+    }
+
+    // Пакет учитывается целиком: при пересечении уже внесённые изменения откатываются.
+    // Возвращает прежнее время каждой задачи пакета
+    Slot[] putAll(int[] ids, List<? extends Task> tasks) {
+        Slot[] previous = new Slot[ids.length];
+        int applied = 0;
+        try {
+            for (; applied < ids.length; applied++) {
+                Task task = tasks.get(applied);
+                previous[applied] = put(ids[applied], task.getStartTime(), task.getDuration());
+            }
+            return previous;
+        } catch (TaskOverlapException e) {
+            for (int i = applied - 1; i >= 0; i--) {
+                restore(ids[i], previous[i]);
+            }
+            throw e;
+        }
+    }
+
+    Slot remove(int id) {
+        Slot previous = slots.remove(id);
+        if (previous != null && previous.isScheduled()) {
+            schedule.remove(previous);
+        }
+        return previous;
+    }
+
+    // Снимает все задачи, id которых подходят под deleted, одним проходом
+    void removeIf(IntPredicate deleted) {
+        if (slots.removeIf(deleted) > 0) {
+            schedule.removeIf(slot -> deleted.test(slot.id));
+        }
+    }
+
+    // Как removeIf, но возвращает снятое время для attach
+    List<Slot> detachIf(IntPredicate deleted) {
+        List<Slot> removed = new ArrayList<>();
+        if (slots.removeIf(deleted, removed::add) > 0) {
+            schedule.removeIf(slot -> deleted.test(slot.id));
+        }
+        return removed;
+    }
+
+    List<Slot> detach(int[] ids) {
+        List<Slot> removed = new ArrayList<>();
+        for (int id : ids) {
+            Slot slot = remove(id);
+            if (slot != null) {
+                removed.add(slot);
+            }
+        }
+        return removed;
+    }
+
+    // Возвращает время, снятое detach; проверки пересечений нет: с тех пор время никто не занимал
+    void attach(List<Slot> detached) {
+        for (Slot slot : detached) {
+            slots.put(slot.id, slot);
+            if (slot.isScheduled()) {
+                schedule.add(slot);
+            }
+        }
+    }
+
+    // Число задач со временем (в том числе без начала)
+    int size() {
+        return slots.size();
+    }
+
+    // id запланированных задач по возрастанию начала
+    void forEachScheduled(IntConsumer action) {
+        for (Slot slot : schedule) {
+            action.accept(slot.id);
+        }
+    }
+
+    int scheduledCount() {
+        return schedule.size();
+    }
+
+    void clear() {
+        slots.clear();
+        schedule.clear();
+    }
+
+    // Возвращает задаче время previous, полученное от put
+    void restore(int id, Slot previous) {
+        remove(id);
+        if (previous != null) {
+            slots.put(id, previous);
+            if (previous.isScheduled()) {
+                schedule.add(previous);
+            }
+        }
+    }
+
+    private void checkOverlap(Slot slot) {
+        Slot before = schedule.lower(slot);
+        if (before != null && before.id == slot.id) {
+            before = schedule.lower(before);
+        }
+        if (before != null && before.overlaps(slot)) {
+            throw overlap(slot, before);
+        }
+        Slot after = schedule.higher(slot);
+        if (after != null && after.id == slot.id) {
+            after = schedule.higher(after);
+        }
+        if (after != null && after.overlaps(slot)) {
+            throw overlap(slot, after);
+        }
+    }
+
+    private static TaskOverlapException overlap(Slot slot, Slot conflicting) {
+        return new TaskOverlapException("Интервал " + slot.start + " - " + slot.end + " задачи " + slot.id
+                + " пересекается с задачей " + conflicting.id + " (" + conflicting.start + " - "
+                + conflicting.end + ")", conflicting.id);
+    }
+}
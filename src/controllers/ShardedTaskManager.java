@@ -0,0 +1,856 @@
+package controllers;
+
+import enums.SearchOrder;
+import enums.Status;
+import impl.HistoryManager;
+import impl.ParallelTaskManager;
+import impl.TaskManager;
+import model.BoardSnapshot;
+import model.Epic;
+import model.EpicRollup;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskRecord;
+import utils.IntLinkedSet;
+import utils.Managers;
+import utils.TextIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Менеджер, разбитый на шарды. Эпик живёт в одном шарде со всеми своими подзадачами, поэтому статус
+// и время эпика пересчитываются внутри шарда. Каждый шард выдаёт id из своего диапазона (см. firstId),
+// так что шард задачи определяется по id без общего счётчика и таблицы размещения, а новые задачи и эпики
+// раскладываются по шардам по очереди. Диапазоны возрастают с номером шарда, поэтому задачи шардов,
+// взятые подряд, идут по возрастанию id: getAll*, страницы и потоки склеиваются без сортировки.
+// Маршрутизатор хранит только историю просмотров и общее расписание, по которому пересечения
+// по времени проверяются между задачами всех шардов.
+// Вложенный эпик создаётся в шарде родителя, поэтому всё дерево эпиков живёт в одном шарде.
+// Ограничения: подзадачу нельзя перенести в эпик другого шарда (обновление отклоняется
+// с IllegalArgumentException), а эпик - под эпик другого шарда (moveEpic возвращает false);
+// пакет, разошедшийся по нескольким шардам, применяется по шардам; номера событий у шардов свои,
+// поэтому ObservableTaskManager маршрутизатор не реализует, и подписка оформляется на каждый шард
+// отдельно (getShard(i)).
+// Шарды - InMemoryTaskManager в этом процессе (Managers.getSharded) или в отдельных процессах
+// (cluster.LocalCluster). Не потокобезопасен
+public class ShardedTaskManager implements ParallelTaskManager {
+    // Порядок getPrioritizedTasks у каждого шарда
+    private static final Comparator<Task> PRIORITY = Comparator.comparing(Task::getStartTime)
+            .thenComparing(Task::getEndTime)
+            .thenComparingInt(Task::getId);
+    // Размер страниц, которыми читаются шарды при обходе нескольких шардов
+    private static final int BATCH_SIZE = 1024;
+
+    private final List<TaskManager> shards;
+    private final int rangeSize;
+    private final HistoryManager historyManager;
+    private final ScheduleIndex scheduleIndex = new ScheduleIndex();
+    private int nextShard;
+
+    public ShardedTaskManager(List<? extends TaskManager> shards) {
+        this(shards, Managers.getDefaultHistory());
+    }
+
+    // Шард i должен выдавать id из диапазона [firstId(i, shards.size()), lastId(i, shards.size())]
+    public ShardedTaskManager(List<? extends TaskManager> shards, HistoryManager historyManager) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Нужен хотя бы один шард");
+        }
+        this.shards = new ArrayList<>(shards);
+        this.rangeSize = rangeSize(shards.size());
+        this.historyManager = historyManager;
+    }
+
+    // Диапазоны id шардов одинаковы и покрывают положительные int
+    private static int rangeSize(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Число шардов должно быть положительным: " + shardCount);
+        }
+        return Integer.MAX_VALUE / shardCount;
+    }
+
+    public static int firstId(int shard, int shardCount) {
+        return shard * rangeSize(shardCount) + 1;
+    }
+
+    public static int lastId(int shard, int shardCount) {
+        return (shard + 1) * rangeSize(shardCount);
+    }
+
+    // Менеджер шарда в этом процессе. История шарду не нужна: её ведёт маршрутизатор
+    public static InMemoryTaskManager newShard(int shard, int shardCount) {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("Нет шарда " + shard + " из " + shardCount);
+        }
+        InMemoryTaskManager manager = new InMemoryTaskManager(Managers.getDefaultHistory(1),
+                firstId(shard, shardCount), lastId(shard, shardCount));
+        // Отмены по шардам нет: журнал только держал бы очищенные задачи
+        manager.setJournalLimits(0, 0);
+        return manager;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    // Шард с номером index - для подписки на его события (шарды в этом процессе - ObservableTaskManager).
+    // Изменять задачи нужно через маршрутизатор, иначе его расписание и история разойдутся с шардом
+    public TaskManager getShard(int index) {
+        return shards.get(index);
+    }
+
+    // Номер шарда, которому принадлежит id, или -1
+    public int shardIndexOf(int id) {
+        if (id < 1) {
+            return -1;
+        }
+        int index = (id - 1) / rangeSize;
+        return index < shards.size() ? index : -1;
+    }
+
+    private TaskManager shardOf(int id) {
+        int index = shardIndexOf(id);
+        return index < 0 ? null : shards.get(index);
+    }
+
+    private int nextShardIndex() {
+        int index = nextShard;
+        nextShard = (nextShard + 1) % shards.size();
+        return index;
+    }
+
+    private void checkOwned(int shard, Task task) {
+        if (task != null && shardIndexOf(task.getId()) != shard) {
+            throw new IllegalStateException("Шард " + shard + " выдал id " + task.getId() + " не из своего диапазона");
+        }
+    }
+
+    private void addToHistory(Task task) {
+        if (task != null) {
+            historyManager.add(task);
+        }
+    }
+
+    // Удалённая задача уходит из истории и расписания маршрутизатора
+    private void forget(int id) {
+        historyManager.remove(id);
+        scheduleIndex.remove(id);
+    }
+
+    // Время снимается, только если шард действительно удалил задачу (id мог принадлежать задаче другого типа)
+    private void forgetIfDeleted(TaskManager shard, int id) {
+        historyManager.remove(id);
+        if (scheduleIndex.get(id) != null && shard.getVersion(id) == 0) {
+            scheduleIndex.remove(id);
+        }
+    }
+
+    private boolean affectsSchedule(Task task) {
+        return task.getStartTime() != null || task.getDuration() != null || scheduleIndex.get(task.getId()) != null;
+    }
+
+    private void schedule(Task task) {
+        if (task.getStartTime() != null || task.getDuration() != null) {
+            scheduleIndex.put(task.getId(), task.getStartTime(), task.getDuration());
+        }
+    }
+
+    // Время новых задач учитывается под временными отрицательными id до того, как шарды выдадут настоящие
+    private void reservePending(List<? extends Task> items) {
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = -(i + 1);
+        }
+        scheduleIndex.putAll(ids, items);
+    }
+
+    private void releasePending(int count) {
+        for (int i = 1; i <= count; i++) {
+            scheduleIndex.remove(-i);
+        }
+    }
+
+    // Новое время учитывается в общем расписании до шардов. Если шард изменение не применил
+    // (версия задачи не изменилась), задаче возвращается прежнее время
+    private <T extends Task> void applyUpdates(List<T> updates, BiConsumer<TaskManager, List<T>> update) {
+        List<List<T>> parts = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            parts.add(new ArrayList<>());
+        }
+        List<T> timed = new ArrayList<>();
+        for (T task : updates) {
+            int index = shardIndexOf(task.getId());
+            if (index >= 0) {
+                parts.get(index).add(task);
+                if (affectsSchedule(task)) {
+                    timed.add(task);
+                }
+            }
+        }
+        int[] ids = new int[timed.size()];
+        long[] versions = new long[timed.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = timed.get(i).getId();
+            versions[i] = shardOf(ids[i]).getVersion(ids[i]);
+        }
+
+        ScheduleIndex.Slot[] previous = scheduleIndex.putAll(ids, timed);
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                if (!parts.get(i).isEmpty()) {
+                    update.accept(shards.get(i), parts.get(i));
+                }
+            }
+        } finally {
+            for (int i = ids.length - 1; i >= 0; i--) {
+                if (shardOf(ids[i]).getVersion(ids[i]) == versions[i]) {
+                    scheduleIndex.restore(ids[i], previous[i]);
+                }
+            }
+        }
+    }
+
+    // Все эпики пакета подзадач существуют. Пакет, целиком попадающий в один шард, проверит сам шард
+    private boolean epicsExist(List<Subtask> subtasks) {
+        IntLinkedSet epicIds = new IntLinkedSet();
+        IntLinkedSet epicShards = new IntLinkedSet();
+        for (Subtask subtask : subtasks) {
+            int epicShard = shardIndexOf(subtask.getEpicId());
+            if (epicShard < 0) {
+                return false;
+            }
+            epicIds.add(subtask.getEpicId());
+            epicShards.add(epicShard);
+        }
+        return epicShards.size() <= 1
+                || epicIds.view().stream().allMatch(epicId -> shardOf(epicId).getVersion(epicId) > 0);
+    }
+
+    // Подзадача обновляется в шарде своего эпика; перенос в эпик другого шарда отклоняется, а неизвестная
+    // подзадача или отсутствующий эпик пропускаются, как в менеджере без шардов
+    private boolean staysInShard(Subtask subtask) {
+        int index = shardIndexOf(subtask.getId());
+        int epicIndex = shardIndexOf(subtask.getEpicId());
+        if (index == epicIndex) {
+            return true;
+        }
+        if (index >= 0 && epicIndex >= 0 && contains(subtask.getId()) && contains(subtask.getEpicId())) {
+            throw new IllegalArgumentException("Подзадачу " + subtask.getId() + " нельзя перенести в эпик "
+                    + subtask.getEpicId() + " другого шарда");
+        }
+        return false;
+    }
+
+    // Методы для задач
+    @Override
+    public List<Task> getAllTasks() {
+        return streamTasks().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        for (TaskManager shard : shards) {
+            List<Integer> ids = shard.streamTasks().map(Task::getId).toList();
+            shard.deleteAllTasks();
+            ids.forEach(this::forget);
+        }
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        TaskManager shard = shardOf(id);
+        Task task = shard == null ? null : shard.getTaskById(id);
+        addToHistory(task);
+        return task;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        int index = nextShardIndex();
+        reservePending(List.of(task));
+        Task created;
+        try {
+            created = shards.get(index).createTask(task);
+        } finally {
+            releasePending(1);
+        }
+        checkOwned(index, created);
+        schedule(created);
+        return created;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        applyUpdates(List.of(task), (shard, part) -> shard.updateTask(part.get(0)));
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        TaskManager shard = shardOf(id);
+        if (shard == null) {
+            historyManager.remove(id);
+            return;
+        }
+        shard.deleteTaskById(id);
+        forgetIfDeleted(shard, id);
+    }
+
+    // Методы для эпиков
+    @Override
+    public List<Epic> getAllEpics() {
+        return streamEpics().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        for (TaskManager shard : shards) {
+            List<Integer> ids = Stream.concat(shard.streamEpics(), shard.streamSubtasks()).map(Task::getId).toList();
+            shard.deleteAllEpics();
+            ids.forEach(this::forget);
+        }
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        TaskManager shard = shardOf(id);
+        Epic epic = shard == null ? null : shard.getEpicById(id);
+        addToHistory(epic);
+        return epic;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        int index = epic.getParentId() == Epic.NO_PARENT ? nextShardIndex() : shardIndexOf(epic.getParentId());
+        if (index < 0) {
+            return null;
+        }
+        Epic created = shards.get(index).createEpic(epic);
+        checkOwned(index, created);
+        return created;
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        TaskManager shard = shardOf(epic.getId());
+        if (shard != null) {
+            shard.updateEpic(epic);
+        }
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        TaskManager shard = shardOf(id);
+        if (shard == null) {
+            historyManager.remove(id);
+            return;
+        }
+        // Вместе с эпиком удаляются вложенные эпики и подзадачи всего поддерева
+        List<Integer> deletedIds = new ArrayList<>();
+        for (EpicRollup rollup : shard.getEpicRollups(id)) {
+            deletedIds.add(rollup.getEpicId());
+            shard.streamSubtasksByEpicId(rollup.getEpicId()).map(Task::getId).forEach(deletedIds::add);
+        }
+        shard.deleteEpicById(id);
+        historyManager.remove(id);
+        if (shard.getVersion(id) == 0) {
+            deletedIds.forEach(this::forget);
+        }
+    }
+
+    @Override
+    public boolean moveEpic(int epicId, int parentId) {
+        TaskManager shard = shardOf(epicId);
+        if (shard == null || parentId != Epic.NO_PARENT && shardIndexOf(parentId) != shardIndexOf(epicId)) {
+            return false;
+        }
+        return shard.moveEpic(epicId, parentId);
+    }
+
+    @Override
+    public EpicRollup getEpicRollup(int epicId) {
+        TaskManager shard = shardOf(epicId);
+        return shard == null ? null : shard.getEpicRollup(epicId);
+    }
+
+    @Override
+    public List<EpicRollup> getEpicRollups(int epicId) {
+        TaskManager shard = shardOf(epicId);
+        return shard == null ? new ArrayList<>() : shard.getEpicRollups(epicId);
+    }
+
+    // Методы для подзадач
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return streamSubtasks().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        for (TaskManager shard : shards) {
+            List<Integer> ids = shard.streamSubtasks().map(Task::getId).toList();
+            shard.deleteAllSubtasks();
+            ids.forEach(this::forget);
+        }
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        TaskManager shard = shardOf(id);
+        Subtask subtask = shard == null ? null : shard.getSubtaskById(id);
+        addToHistory(subtask);
+        return subtask;
+    }
+
+    // Подзадача создаётся в шарде своего эпика
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        int index = shardIndexOf(subtask.getEpicId());
+        if (index < 0) {
+            return null;
+        }
+        reservePending(List.of(subtask));
+        Subtask created;
+        try {
+            created = shards.get(index).createSubtask(subtask);
+        } finally {
+            releasePending(1);
+        }
+        if (created != null) {
+            checkOwned(index, created);
+            schedule(created);
+        }
+        return created;
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        if (staysInShard(subtask)) {
+            applyUpdates(List.of(subtask), (shard, part) -> shard.updateSubtask(part.get(0)));
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        TaskManager shard = shardOf(id);
+        if (shard == null) {
+            historyManager.remove(id);
+            return;
+        }
+        shard.deleteSubtaskById(id);
+        forgetIfDeleted(shard, id);
+    }
+
+    // Дополнительные методы
+    @Override
+    public List<Subtask> getSubtasksByEpicId(int epicId) {
+        TaskManager shard = shardOf(epicId);
+        return shard == null ? new ArrayList<>() : shard.getSubtasksByEpicId(epicId);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    // Пакеты делятся по шардам; новые задачи раскладываются по шардам по очереди
+    @Override
+    public List<Task> createTasks(List<Task> newTasks) {
+        List<List<Task>> parts = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            parts.add(new ArrayList<>());
+        }
+        for (Task task : newTasks) {
+            parts.get(nextShardIndex()).add(task);
+        }
+
+        reservePending(newTasks);
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                if (!parts.get(i).isEmpty()) {
+                    for (Task created : shards.get(i).createTasks(parts.get(i))) {
+                        checkOwned(i, created);
+                    }
+                }
+            }
+        } finally {
+            releasePending(newTasks.size());
+        }
+        newTasks.forEach(this::schedule);
+        return new ArrayList<>(newTasks);
+    }
+
+    @Override
+    public void updateTasks(List<Task> tasks) {
+        applyUpdates(tasks, TaskManager::updateTasks);
+    }
+
+    @Override
+    public void deleteTasksByIds(List<Integer> ids) {
+        Map<Integer, List<Integer>> parts = ids.stream().filter(id -> shardIndexOf(id) >= 0)
+                .collect(Collectors.groupingBy(this::shardIndexOf));
+        parts.forEach((index, part) -> shards.get(index).deleteTasksByIds(part));
+        for (int id : ids) {
+            TaskManager shard = shardOf(id);
+            if (shard == null) {
+                historyManager.remove(id);
+            } else {
+                forgetIfDeleted(shard, id);
+            }
+        }
+    }
+
+    // Если шард отклонил свою часть пакета (его эпика нет), подзадачи, уже созданные в других шардах, удаляются
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> newSubtasks) {
+        if (!epicsExist(newSubtasks)) {
+            return null;
+        }
+        Map<Integer, List<Subtask>> parts = newSubtasks.stream()
+                .collect(Collectors.groupingBy(subtask -> shardIndexOf(subtask.getEpicId()), LinkedHashMap::new,
+                        Collectors.toList()));
+
+        reservePending(newSubtasks);
+        try {
+            Map<Integer, List<Subtask>> created = new LinkedHashMap<>();
+            for (Map.Entry<Integer, List<Subtask>> part : parts.entrySet()) {
+                List<Subtask> result = shards.get(part.getKey()).createSubtasks(part.getValue());
+                if (result == null) {
+                    created.forEach((index, subtasks) -> shards.get(index).deleteSubtasksByIds(
+                            subtasks.stream().map(Task::getId).toList()));
+                    return null;
+                }
+                result.forEach(subtask -> checkOwned(part.getKey(), subtask));
+                created.put(part.getKey(), result);
+            }
+        } finally {
+            releasePending(newSubtasks.size());
+        }
+        newSubtasks.forEach(this::schedule);
+        return new ArrayList<>(newSubtasks);
+    }
+
+    @Override
+    public void updateSubtasks(List<Subtask> subtasks) {
+        if (!epicsExist(subtasks)) {
+            return;
+        }
+        // Перенос в эпик другого шарда отклоняет весь пакет до изменений
+        List<Subtask> updates = new ArrayList<>(subtasks.size());
+        for (Subtask subtask : subtasks) {
+            if (staysInShard(subtask)) {
+                updates.add(subtask);
+            }
+        }
+        applyUpdates(updates, TaskManager::updateSubtasks);
+    }
+
+    @Override
+    public void deleteSubtasksByIds(List<Integer> ids) {
+        Map<Integer, List<Integer>> parts = ids.stream().filter(id -> shardIndexOf(id) >= 0)
+                .collect(Collectors.groupingBy(this::shardIndexOf));
+        parts.forEach((index, part) -> shards.get(index).deleteSubtasksByIds(part));
+        for (int id : ids) {
+            TaskManager shard = shardOf(id);
+            if (shard == null) {
+                historyManager.remove(id);
+            } else {
+                forgetIfDeleted(shard, id);
+            }
+        }
+    }
+
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        boolean[] applied = new boolean[1];
+        applyUpdates(List.of(task), (shard, part) -> applied[0] = shard.updateTask(part.get(0), expectedVersion));
+        return applied[0];
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        if (!staysInShard(subtask)) {
+            return false;
+        }
+        boolean[] applied = new boolean[1];
+        applyUpdates(List.of(subtask),
+                (shard, part) -> applied[0] = shard.updateSubtask(part.get(0), expectedVersion));
+        return applied[0];
+    }
+
+    // Дерево эпиков целиком живёт в одном шарде, поэтому шарды обрабатываются параллельно независимо
+    // друг от друга, а внутри шарда работа делится по его корневым эпикам в том же пуле.
+    // Время подзадач не меняется, и общее расписание не затрагивается
+    @Override
+    public int transitionSubtasks(ForkJoinPool pool, BiPredicate<? super Epic, ? super Subtask> filter,
+                                  Status status) {
+        return EpicPartitions.reduce(pool, shards.size(),
+                i -> transitionSubtasks(shards.get(i), pool, filter, status), Integer::sum, 0);
+    }
+
+    // Шард в другом процессе (RemoteTaskManager) условие не принимает: его эпики и подзадачи читаются
+    // страницами, отбираются здесь, а отобранные переводятся одним пакетом. В отличие от шарда в процессе,
+    // перевод не атомарен относительно других клиентов шарда
+    private static int transitionSubtasks(TaskManager shard, ForkJoinPool pool,
+                                          BiPredicate<? super Epic, ? super Subtask> filter, Status status) {
+        if (shard instanceof ParallelTaskManager) {
+            return ((ParallelTaskManager) shard).transitionSubtasks(pool, filter, status);
+        }
+        Map<Integer, Epic> epics = new HashMap<>();
+        shard.streamEpics().forEach(epic -> epics.put(epic.getId(), epic));
+        List<Subtask> changed = new ArrayList<>();
+        shard.streamSubtasks().forEach(subtask -> {
+            if (subtask.getStatus() != status && filter.test(epics.get(subtask.getEpicId()), subtask)) {
+                Subtask copy = new Subtask(subtask.getName(), subtask.getDescription(), status, subtask.getEpicId(),
+                        subtask.getStartTime(), subtask.getDuration());
+                copy.setId(subtask.getId());
+                changed.add(copy);
+            }
+        });
+        if (!changed.isEmpty()) {
+            shard.updateSubtasks(changed);
+        }
+        return changed.size();
+    }
+
+    @Override
+    public <R> R collectSubtasks(ForkJoinPool pool, Collector<? super Subtask, ?, R> collector) {
+        return collect(pool, collector);
+    }
+
+    // Шарды возвращают контейнеры без finisher, чтобы их можно было слить
+    private <A, R> R collect(ForkJoinPool pool, Collector<? super Subtask, A, R> collector) {
+        BiConsumer<A, ? super Subtask> accumulator = collector.accumulator();
+        Collector<Subtask, A, A> containers = Collector.of(collector.supplier(), accumulator::accept,
+                collector.combiner());
+        A result = EpicPartitions.reduce(pool, shards.size(),
+                i -> collectSubtasks(shards.get(i), pool, containers), collector.combiner(),
+                collector.supplier().get());
+        return collector.finisher().apply(result);
+    }
+
+    // Шард в другом процессе свёртку не принимает, и его подзадачи сворачиваются здесь по страницам
+    private static <A> A collectSubtasks(TaskManager shard, ForkJoinPool pool, Collector<Subtask, A, A> containers) {
+        if (shard instanceof ParallelTaskManager) {
+            return ((ParallelTaskManager) shard).collectSubtasks(pool, containers);
+        }
+        return shard.streamSubtasks().collect(containers);
+    }
+
+    // Версии задач - номера событий их шарда
+    @Override
+    public long getVersion(int id) {
+        TaskManager shard = shardOf(id);
+        return shard == null ? 0 : shard.getVersion(id);
+    }
+
+    @Override
+    public boolean contains(int id) {
+        TaskManager shard = shardOf(id);
+        return shard != null && shard.contains(id);
+    }
+
+    // Списки шардов уже упорядочены, поэтому общий порядок получается слиянием
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return shards.stream()
+                .flatMap(shard -> shard.getPrioritizedTasks().stream())
+                .sorted(PRIORITY)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    // По id: шарды опрашиваются по очереди, пока не наберётся limit задач.
+    // По релевантности: лучшие limit задач каждого шарда ранжируются заново по индексу из одних этих задач,
+    // поэтому редкость слов оценивается по найденным задачам, а не по всей доске
+    @Override
+    public List<Task> search(String query, SearchOrder order, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Лимит поиска должен быть положительным: " + limit);
+        }
+        List<Task> result = new ArrayList<>();
+        if (order == SearchOrder.ID) {
+            for (TaskManager shard : shards) {
+                if (result.size() == limit) {
+                    break;
+                }
+                result.addAll(shard.search(query, order, limit - result.size()));
+            }
+            return result;
+        }
+
+        Map<Integer, Task> found = new HashMap<>();
+        TextIndex index = new TextIndex();
+        for (TaskManager shard : shards) {
+            for (Task task : shard.search(query, order, limit)) {
+                found.put(task.getId(), task);
+                index.put(task.getId(), task.getName(), task.getDescription());
+            }
+        }
+        for (int id : index.search(query, order, limit)) {
+            result.add(found.get(id));
+        }
+        return result;
+    }
+
+    // Снимки шардов берутся по очереди и согласованы каждый в пределах своего шарда
+    @Override
+    public BoardSnapshot getSnapshot() {
+        long version = 0;
+        Map<Integer, TaskRecord> tasks = new LinkedHashMap<>();
+        Map<Integer, TaskRecord> epics = new LinkedHashMap<>();
+        Map<Integer, TaskRecord> subtasks = new LinkedHashMap<>();
+        for (TaskManager shard : shards) {
+            BoardSnapshot snapshot = shard.getSnapshot();
+            version += snapshot.getVersion();
+            snapshot.getTasks().forEach(record -> tasks.put(record.getId(), record));
+            snapshot.getEpics().forEach(record -> epics.put(record.getId(), record));
+            snapshot.getSubtasks().forEach(record -> subtasks.put(record.getId(), record));
+        }
+        return new BoardSnapshot(version, tasks, epics, subtasks);
+    }
+
+    // Сумма номеров событий шардов: растёт с каждым изменением любого шарда
+    @Override
+    public long getLastChangeSequence() {
+        long sequence = 0;
+        for (TaskManager shard : shards) {
+            sequence += shard.getLastChangeSequence();
+        }
+        return sequence;
+    }
+
+    @Override
+    public TaskPage<Task> getTasksPage(int afterId, int pageSize) {
+        TaskPage.checkPageSize(pageSize);
+        return TaskPage.of(iterateAfter(afterId, pageSize + 1, TaskManager::getTasksPage), pageSize);
+    }
+
+    @Override
+    public TaskPage<Epic> getEpicsPage(int afterId, int pageSize) {
+        TaskPage.checkPageSize(pageSize);
+        return TaskPage.of(iterateAfter(afterId, pageSize + 1, TaskManager::getEpicsPage), pageSize);
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasksPage(int afterId, int pageSize) {
+        TaskPage.checkPageSize(pageSize);
+        return TaskPage.of(iterateAfter(afterId, pageSize + 1, TaskManager::getSubtasksPage), pageSize);
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasksPageByEpicId(int epicId, int afterId, int pageSize) {
+        TaskManager shard = shardOf(epicId);
+        if (shard == null) {
+            TaskPage.checkPageSize(pageSize);
+            return TaskPage.empty();
+        }
+        return shard.getSubtasksPageByEpicId(epicId, afterId, pageSize);
+    }
+
+    @Override
+    public TaskPage<Task> getHistoryPage(int afterId, int pageSize) {
+        return historyManager.getHistoryPage(afterId, pageSize);
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return shards.stream().flatMap(TaskManager::streamTasks);
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return shards.stream().flatMap(TaskManager::streamEpics);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return shards.stream().flatMap(TaskManager::streamSubtasks);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksByEpicId(int epicId) {
+        TaskManager shard = shardOf(epicId);
+        return shard == null ? Stream.empty() : shard.streamSubtasksByEpicId(epicId);
+    }
+
+    @Override
+    public Stream<Task> streamHistory() {
+        return historyManager.streamHistory();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return shards.stream().flatMap(shard -> shard.getTasksByStatus(status).stream())
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return shards.stream().flatMap(shard -> shard.getEpicsByStatus(status).stream())
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return shards.stream().flatMap(shard -> shard.getSubtasksByStatus(status).stream())
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    // Постраничное чтение одного шарда
+    @FunctionalInterface
+    private interface PageReader<T extends Task> {
+        TaskPage<T> read(TaskManager shard, int afterId, int pageSize);
+    }
+
+    // Задачи всех шардов с id больше afterId по возрастанию id: шарды читаются страницами по batchSize,
+    // начиная с шарда, которому принадлежит afterId
+    private <T extends Task> Iterator<T> iterateAfter(int afterId, int batchSize, PageReader<T> reader) {
+        int firstShard = afterId == TaskPage.FIRST_PAGE ? 0 : shardIndexOf(afterId);
+        if (firstShard < 0) {
+            return Collections.emptyIterator();
+        }
+        return new Iterator<>() {
+            private int shard = firstShard;
+            private Integer token = afterId;
+            private Iterator<T> page = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext()) {
+                    if (shard == shards.size()) {
+                        return false;
+                    }
+                    TaskPage<T> next = reader.read(shards.get(shard), token, Math.min(batchSize, BATCH_SIZE));
+                    page = next.getItems().iterator();
+                    token = next.getNextToken();
+                    if (token == null) {
+                        shard++;
+                        token = TaskPage.FIRST_PAGE;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package controllers;
+
+import enums.Status;
+import utils.IntHashMap;
+import utils.IntLinkedSet;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Индекс id по статусу: запоминает, с каким статусом учтена каждая задача,
+// и держит по множеству id на каждый статус. id хранятся без упаковки
+class StatusIndex {
+    private final IntHashMap<Status> statuses = new IntHashMap<>();
+    private final Map<Status, IntLinkedSet> idsByStatus = new EnumMap<>(Status.class);
+
+    StatusIndex() {
+        for (Status status : Status.values()) {
+            idsByStatus.put(status, new IntLinkedSet());
+        }
+    }
+
+    // Возвращает статус, с которым задача была учтена до этого
+    Status put(int id, Status status) {
+        Status previous = status == null ? statuses.remove(id) : statuses.put(id, status);
+        if (previous != status) {
+            if (previous != null) {
+                idsByStatus.get(previous).remove(id);
+            }
+            if (status != null) {
+                idsByStatus.get(status).add(id);
+            }
+        }
+        return previous;
+    }
+
+    Status remove(int id) {
+        Status previous = statuses.remove(id);
+        if (previous != null) {
+            idsByStatus.get(previous).remove(id);
+        }
+        return previous;
+    }
+
+    Status get(int id) {
+        return statuses.get(id);
+    }
+
+    IntLinkedSet.View idsWith(Status status) {
+        return idsByStatus.get(status).view();
+    }
+
+    void clear() {
+        statuses.clear();
+        for (IntLinkedSet ids : idsByStatus.values()) {
+            ids.clear();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package controllers;
+
+import model.ViewEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+// Просмотры одного пользователя: кольцо пар (id задачи, время) в порядке просмотра, повторы не схлопываются.
+// Массивы растут удвоением до maxSize, дальше новый просмотр вытесняет самый старый. Не потокобезопасно
+final class ViewRing {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final int maxSize;
+    private int[] taskIds;
+    private long[] times;
+    private int head;
+    private int size;
+
+    ViewRing(int maxSize) {
+        this.maxSize = maxSize;
+        int capacity = Math.min(maxSize, INITIAL_CAPACITY);
+        taskIds = new int[capacity];
+        times = new long[capacity];
+    }
+
+    // true, если ради нового просмотра вытеснен самый старый
+    boolean add(int taskId, long time) {
+        if (size == taskIds.length && size < maxSize) {
+            resize(Math.min(maxSize, size * 2));
+        }
+        int tail = (head + size) % taskIds.length;
+        taskIds[tail] = taskId;
+        times[tail] = time;
+        if (size == taskIds.length) {
+            head = (head + 1) % taskIds.length;
+            return true;
+        }
+        size++;
+        return false;
+    }
+
+    // Снимает просмотры старше minTime; время просмотров не убывает, поэтому они лежат в начале кольца
+    int removeBefore(long minTime) {
+        int removed = 0;
+        while (size > 0 && times[head] < minTime) {
+            head = (head + 1) % taskIds.length;
+            size--;
+            removed++;
+        }
+        return removed;
+    }
+
+    int removeIf(IntPredicate deleted) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int position = (head + i) % taskIds.length;
+            if (!deleted.test(taskIds[position])) {
+                int target = (head + kept) % taskIds.length;
+                taskIds[target] = taskIds[position];
+                times[target] = times[position];
+                kept++;
+            }
+        }
+        int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int taskIdAt(int index) {
+        return taskIds[(head + index) % taskIds.length];
+    }
+
+    long timeAt(int index) {
+        return times[(head + index) % taskIds.length];
+    }
+
+    // От старых к новым
+    List<ViewEntry> toList() {
+        List<ViewEntry> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new ViewEntry(taskIdAt(i), timeAt(i)));
+        }
+        return result;
+    }
+
+    private void resize(int capacity) {
+        int[] newTaskIds = new int[capacity];
+        long[] newTimes = new long[capacity];
+        for (int i = 0; i < size; i++) {
+            newTaskIds[i] = taskIdAt(i);
+            newTimes[i] = timeAt(i);
+        }
+        taskIds = newTaskIds;
+        times = newTimes;
+        head = 0;
+    }
+}
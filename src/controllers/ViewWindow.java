@@ -0,0 +1,126 @@
+package controllers;
+
+import model.ViewCount;
+import utils.IntHashMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+// Скользящее окно просмотров: счётчики по задачам в корзинах по bucketMillis, кольцо из bucketCount корзин.
+// Просмотр увеличивает один счётчик; корзина, из которой ушло окно, очищается при первой записи в её ячейку.
+// Запрос за последние k корзин складывает их счётчики, поэтому стоит O(разных задач в этих корзинах),
+// а не O(просмотров). Текущая корзина заполнена частично, так что окно из k корзин покрывает
+// от k - 1 до k интервалов. Не потокобезопасно
+final class ViewWindow {
+    // Худший из отобранных - в вершине кучи: меньше просмотров, при равенстве больший id
+    private static final Comparator<ViewCount> WORST_FIRST = Comparator.comparingInt(ViewCount::getViews)
+            .thenComparing(ViewCount::getTaskId, Comparator.reverseOrder());
+
+    private final long bucketMillis;
+    private final long[] bucketIndexes;
+    private final List<IntHashMap<int[]>> counts;
+    private long latestIndex = Long.MIN_VALUE;
+
+    ViewWindow(long bucketMillis, int bucketCount) {
+        this.bucketMillis = bucketMillis;
+        this.bucketIndexes = new long[bucketCount];
+        this.counts = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            bucketIndexes[i] = Long.MIN_VALUE;
+            counts.add(new IntHashMap<>());
+        }
+    }
+
+    int bucketCount() {
+        return bucketIndexes.length;
+    }
+
+    // Просмотр старше окна относительно самого позднего учтённого не считается
+    void add(int taskId, long time) {
+        long index = Math.floorDiv(time, bucketMillis);
+        if (latestIndex != Long.MIN_VALUE && index <= latestIndex - bucketIndexes.length) {
+            return;
+        }
+        latestIndex = Math.max(latestIndex, index);
+        int slot = slotOf(index);
+        IntHashMap<int[]> bucket = counts.get(slot);
+        if (bucketIndexes[slot] != index) {
+            bucketIndexes[slot] = index;
+            bucket.clear();
+        }
+        int[] count = bucket.get(taskId);
+        if (count == null) {
+            bucket.put(taskId, new int[]{1});
+        } else {
+            count[0]++;
+        }
+    }
+
+    // Не больше limit задач с наибольшим числом просмотров в buckets корзинах до момента now включительно
+    List<ViewCount> top(long now, int buckets, int limit) {
+        long current = Math.floorDiv(now, bucketMillis);
+        IntHashMap<int[]> totals = null;
+        for (long index = current; index > current - buckets; index--) {
+            int slot = slotOf(index);
+            if (bucketIndexes[slot] != index) {
+                continue;
+            }
+            IntHashMap<int[]> bucket = counts.get(slot);
+            if (totals == null) {
+                totals = new IntHashMap<>(bucket.size());
+            }
+            IntHashMap<int[]> sum = totals;
+            bucket.forEachKey(taskId -> {
+                int[] total = sum.get(taskId);
+                if (total == null) {
+                    sum.put(taskId, new int[]{bucket.get(taskId)[0]});
+                } else {
+                    total[0] += bucket.get(taskId)[0];
+                }
+            });
+        }
+        if (totals == null) {
+            return new ArrayList<>();
+        }
+
+        PriorityQueue<ViewCount> best = new PriorityQueue<>(WORST_FIRST);
+        IntHashMap<int[]> sum = totals;
+        totals.forEachKey(taskId -> {
+            ViewCount candidate = new ViewCount(taskId, sum.get(taskId)[0]);
+            if (best.size() < limit) {
+                best.add(candidate);
+            } else if (WORST_FIRST.compare(candidate, best.peek()) > 0) {
+                best.poll();
+                best.add(candidate);
+            }
+        });
+        List<ViewCount> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    void removeIf(IntPredicate deleted) {
+        for (IntHashMap<int[]> bucket : counts) {
+            bucket.removeIf(deleted);
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < bucketIndexes.length; i++) {
+            bucketIndexes[i] = Long.MIN_VALUE;
+            counts.get(i).clear();
+        }
+        latestIndex = Long.MIN_VALUE;
+    }
+
+    private int slotOf(long index) {
+        return (int) Math.floorMod(index, (long) bucketIndexes.length);
+    }
+}
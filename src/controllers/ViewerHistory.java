@@ -0,0 +1,343 @@
+package controllers;
+
+import exceptions.ManagerSaveException;
+import model.ViewCount;
+import model.ViewEntry;
+import utils.IntLinkedSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+
+// История просмотров по пользователям. У каждого пользователя кольцо из не больше maxEntriesPerViewer пар
+// (id задачи, время); просмотры старше retention снимаются при следующем обращении к его истории.
+// "Самые просматриваемые за последние N минут" отвечаются минутными счётчиками ViewWindow без обхода колец.
+// С файлом каждый просмотр дописывается в конец (журнал сбрасывается в ОС сразу, fsync - в sync и close),
+// а removeIf дописывает id задач, чьи просмотры он снял, чтобы они не вернулись после перезапуска.
+// При открытии журнал читается заново: недописанная при сбое запись отбрасывается, а файл переписывается
+// только живыми записями; так же он переписывается, когда мёртвых записей становится больше живых.
+// После перезапуска минутные счётчики восстанавливаются по сохранённым просмотрам.
+// Потокобезопасна: операции выполняются под одной блокировкой
+public class ViewerHistory implements Closeable {
+    public static final int DEFAULT_MAX_ENTRIES_PER_VIEWER = 1000;
+    public static final Duration DEFAULT_RETENTION = Duration.ofDays(30);
+    public static final int DEFAULT_WINDOW_MINUTES = 60;
+
+    // Формат журнала: MAGIC, затем записи; VIEWER (номер, имя) вводит номер пользователя для записей VIEW
+    // (номер, id задачи, время в мс). Номера действуют в пределах одного файла.
+    // REMOVE (id задачи) снимает все записанные до него просмотры задачи
+    private static final int MAGIC = 0x4B564831;
+    private static final byte VIEWER = 1;
+    private static final byte VIEW = 2;
+    private static final byte REMOVE = 3;
+    // Журнал не переписывается, пока мёртвых записей меньше этого числа
+    private static final int MIN_DEAD_RECORDS = 1024;
+    private static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, ViewRing> viewers = new HashMap<>();
+    private final ViewWindow window;
+    private final int maxEntriesPerViewer;
+    private final long retentionMillis;
+    private final Clock clock;
+    private final Path file;
+    private DataOutputStream journal;
+    private FileOutputStream journalFile;
+    private final Map<String, Integer> journalViewerIds = new HashMap<>();
+    private long journalRecords;
+    private long liveEntries;
+    // Время просмотров не убывает, даже если системные часы перевели назад
+    private long lastTime = Long.MIN_VALUE;
+
+    public ViewerHistory() {
+        this(null, DEFAULT_MAX_ENTRIES_PER_VIEWER, DEFAULT_RETENTION, DEFAULT_WINDOW_MINUTES, Clock.systemUTC());
+    }
+
+    public ViewerHistory(Path file) {
+        this(file, DEFAULT_MAX_ENTRIES_PER_VIEWER, DEFAULT_RETENTION, DEFAULT_WINDOW_MINUTES, Clock.systemUTC());
+    }
+
+    // file = null - история только в памяти; windowMinutes - самое длинное окно для getMostViewed
+    public ViewerHistory(Path file, int maxEntriesPerViewer, Duration retention, int windowMinutes, Clock clock) {
+        if (maxEntriesPerViewer <= 0 || retention.isNegative() || retention.isZero() || windowMinutes <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры истории просмотров");
+        }
+        this.maxEntriesPerViewer = maxEntriesPerViewer;
+        this.retentionMillis = retention.toMillis();
+        this.window = new ViewWindow(BUCKET_MILLIS, windowMinutes);
+        this.clock = clock;
+        this.file = file;
+        if (file != null) {
+            try {
+                load();
+                rewrite();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Не удалось загрузить историю просмотров из " + file, e);
+            }
+        }
+    }
+
+    public void record(String viewer, int taskId) {
+        lock.lock();
+        try {
+            long time = Math.max(lastTime, clock.millis());
+            lastTime = time;
+            apply(viewer, taskId, time);
+            if (journal != null) {
+                appendView(viewer, taskId, time);
+                journal.flush();
+                journalRecords++;
+                if (journalRecords - liveEntries >= Math.max(MIN_DEAD_RECORDS, liveEntries)) {
+                    rewrite();
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать просмотр в " + file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Просмотры пользователя от старых к новым; удалённые задачи вызывающий отсеивает сам
+    public List<ViewEntry> getHistory(String viewer) {
+        lock.lock();
+        try {
+            ViewRing ring = viewers.get(viewer);
+            if (ring == null) {
+                return new ArrayList<>();
+            }
+            expire(ring);
+            return ring.toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Не больше limit задач, которые чаще всего смотрели все пользователи за последние minutes минут:
+    // по убыванию числа просмотров, при равенстве - по возрастанию id. Текущая минута учитывается целиком
+    public List<ViewCount> getMostViewed(int minutes, int limit) {
+        if (minutes <= 0 || minutes > window.bucketCount() || limit <= 0) {
+            throw new IllegalArgumentException("Окно должно быть от 1 до " + window.bucketCount()
+                    + " минут, а число задач положительным: " + minutes + ", " + limit);
+        }
+        lock.lock();
+        try {
+            return window.top(Math.max(lastTime, clock.millis()), minutes, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Снимает просмотры задач, id которых подходят под deleted, у всех пользователей и из счётчиков окна.
+    // С файлом id снятых задач дописываются в журнал
+    public void removeIf(IntPredicate deleted) {
+        lock.lock();
+        try {
+            IntLinkedSet removedIds = new IntLinkedSet();
+            remove(id -> {
+                if (deleted.test(id)) {
+                    removedIds.add(id);
+                    return true;
+                }
+                return false;
+            });
+            if (journal != null && !removedIds.isEmpty()) {
+                for (PrimitiveIterator.OfInt ids = removedIds.view().iterator(); ids.hasNext(); ) {
+                    journal.writeByte(REMOVE);
+                    journal.writeInt(ids.nextInt());
+                    journalRecords++;
+                }
+                journal.flush();
+                if (journalRecords - liveEntries >= Math.max(MIN_DEAD_RECORDS, liveEntries)) {
+                    rewrite();
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать удаление просмотров в " + file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(IntPredicate deleted) {
+        for (ViewRing ring : viewers.values()) {
+            liveEntries -= ring.removeIf(deleted);
+        }
+        window.removeIf(deleted);
+    }
+
+    public int getViewerCount() {
+        lock.lock();
+        try {
+            return viewers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Принудительный fsync журнала
+    public void sync() {
+        lock.lock();
+        try {
+            if (journal != null) {
+                journal.flush();
+                journalFile.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось сбросить историю просмотров " + file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (journal != null) {
+                sync();
+                journal.close();
+                journal = null;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось закрыть историю просмотров " + file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(String viewer, int taskId, long time) {
+        ViewRing ring = viewers.computeIfAbsent(viewer, key -> new ViewRing(maxEntriesPerViewer));
+        expire(ring);
+        if (!ring.add(taskId, time)) {
+            liveEntries++;
+        }
+        window.add(taskId, time);
+    }
+
+    private void expire(ViewRing ring) {
+        liveEntries -= ring.removeBefore(Math.max(lastTime, clock.millis()) - retentionMillis);
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        Map<Integer, String> names = new HashMap<>();
+        // Подряд идущие REMOVE (их пишет один removeIf) применяются одним проходом по кольцам
+        IntLinkedSet removedIds = new IntLinkedSet();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new ManagerSaveException("Файл " + file + " не является историей просмотров");
+            }
+            for (int tag = in.read(); tag >= 0; tag = in.read()) {
+                if (tag != REMOVE && !removedIds.isEmpty()) {
+                    remove(removedIds::contains);
+                    removedIds.clear();
+                }
+                if (tag == REMOVE) {
+                    removedIds.add(in.readInt());
+                } else if (tag == VIEWER) {
+                    int number = in.readInt();
+                    names.put(number, in.readUTF());
+                } else if (tag == VIEW) {
+                    String viewer = names.get(in.readInt());
+                    int taskId = in.readInt();
+                    long time = in.readLong();
+                    if (viewer == null) {
+                        throw new ManagerSaveException("Просмотр неизвестного пользователя в " + file);
+                    }
+                    lastTime = Math.max(lastTime, time);
+                    apply(viewer, taskId, time);
+                } else {
+                    throw new ManagerSaveException("Неизвестная запись " + tag + " в истории просмотров " + file);
+                }
+            }
+        } catch (EOFException e) {
+            // Недописанная при сбое запись; файл будет переписан без неё
+        }
+        if (!removedIds.isEmpty()) {
+            remove(removedIds::contains);
+        }
+    }
+
+    // Переписывает журнал живыми просмотрами через временный файл; пользователи без просмотров забываются
+    private void rewrite() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        journalViewerIds.clear();
+        journalRecords = 0;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        FileOutputStream tmpFile = new FileOutputStream(tmp.toFile());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(tmpFile))) {
+            journal = out;
+            out.writeInt(MAGIC);
+            for (Iterator<Map.Entry<String, ViewRing>> entries = viewers.entrySet().iterator(); entries.hasNext(); ) {
+                Map.Entry<String, ViewRing> entry = entries.next();
+                ViewRing ring = entry.getValue();
+                expire(ring);
+                if (ring.size() == 0) {
+                    entries.remove();
+                    continue;
+                }
+                for (int i = 0; i < ring.size(); i++) {
+                    appendView(entry.getKey(), ring.taskIdAt(i), ring.timeAt(i));
+                    journalRecords++;
+                }
+            }
+            // Временный файл должен лечь на диск раньше, чем переименование заменит им журнал
+            out.flush();
+            tmpFile.getChannel().force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(file.toAbsolutePath().getParent());
+        journalFile = new FileOutputStream(file.toFile(), true);
+        journal = new DataOutputStream(new BufferedOutputStream(journalFile));
+    }
+
+    // fsync каталога закрепляет переименование; не все ОС позволяют открыть каталог, тогда шаг пропускается
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Каталог не открывается на чтение (например, в Windows)
+        }
+    }
+
+    private void appendView(String viewer, int taskId, long time) throws IOException {
+        Integer number = journalViewerIds.get(viewer);
+        if (number == null) {
+            number = journalViewerIds.size();
+            journalViewerIds.put(viewer, number);
+            journal.writeByte(VIEWER);
+            journal.writeInt(number);
+            journal.writeUTF(viewer);
+        }
+        journal.writeByte(VIEW);
+        journal.writeInt(number);
+        journal.writeInt(taskId);
+        journal.writeLong(time);
+    }
+}
@@ -0,0 +1,14 @@
+package enums;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    // Пересчитанный статус эпика отличается от прежнего
+    EPIC_STATUS_CHANGED,
+    // Повтор очистки снял все задачи вида taskType (для EPIC - вместе с подзадачами) одним событием;
+    // сама очистка публикует DELETED на каждую задачу
+    CLEARED,
+    // Отмена очистки вернула все задачи вида taskType одним событием; задачи читаются из менеджера
+    RESTORED
+}
@@ -0,0 +1,11 @@
+package enums;
+
+// Что делать с событием, если буфер асинхронной истории заполнен
+public enum OverflowPolicy {
+    // Событие отбрасывается
+    DROP,
+    // Поток ждёт, пока потребитель освободит место
+    BLOCK,
+    // При заполнении больше чем наполовину принимается только часть событий, при полном буфере - ни одного
+    SAMPLE
+}
@@ -0,0 +1,10 @@
+package enums;
+
+// Порядок результатов полнотекстового поиска
+public enum SearchOrder {
+    // По возрастанию id; поиск останавливается, как только набрано нужное число задач
+    ID,
+    // Сначала задачи, где слова запроса встречаются чаще (в имени - с большим весом) и реже встречаются
+    // в остальных задачах; при равной релевантности - по возрастанию id
+    RELEVANCE
+}
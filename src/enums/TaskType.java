@@ -0,0 +1,7 @@
+package enums;
+
+public enum TaskType {
+    TASK,
+    EPIC,
+    SUBTASK
+}
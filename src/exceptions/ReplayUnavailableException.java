@@ -0,0 +1,10 @@
+package exceptions;
+
+// Запрошенные события уже вытеснены из буфера повтора; подписчику нужно заново прочитать состояние
+public class ReplayUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ReplayUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package exceptions;
+
+// Шард в другом процессе не ответил: соединение разорвано или процесс завершился
+public class ShardUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ShardUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
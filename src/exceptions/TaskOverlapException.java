@@ -0,0 +1,17 @@
+package exceptions;
+
+// Время задачи пересекается с уже запланированной задачей
+public class TaskOverlapException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int conflictingId;
+
+    public TaskOverlapException(String message, int conflictingId) {
+        super(message);
+        this.conflictingId = conflictingId;
+    }
+
+    public int getConflictingId() {
+        return conflictingId;
+    }
+}
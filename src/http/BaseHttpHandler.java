@@ -0,0 +1,175 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import controllers.ViewerHistory;
+import enums.TaskType;
+import exceptions.TaskOverlapException;
+import impl.TaskManager;
+import model.Task;
+import utils.JSONTaskFormat;
+import utils.JsonTaskWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Общая часть обработчиков: разбор пути, чтение тела и ответы.
+// Тело запроса всегда дочитывается, а ответ имеет длину или передаётся кусками (chunked),
+// поэтому соединение остаётся открытым для следующего запроса (keep-alive)
+abstract class BaseHttpHandler implements HttpHandler {
+    static final int OK = 200;
+    static final int CREATED = 201;
+    static final int BAD_REQUEST = 400;
+    static final int NOT_FOUND = 404;
+    static final int METHOD_NOT_ALLOWED = 405;
+    static final int NOT_ACCEPTABLE = 406;
+    static final int PRECONDITION_FAILED = 412;
+    static final int INTERNAL_ERROR = 500;
+
+    private static final String JSON_TYPE = "application/json;charset=utf-8";
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    // Заголовок с именем пользователя, чьи просмотры записываются в ViewerHistory
+    static final String VIEWER_HEADER = "X-Viewer";
+
+    protected final TaskManager manager;
+    // null - просмотры по пользователям не записываются
+    protected final ViewerHistory views;
+
+    protected BaseHttpHandler(TaskManager manager) {
+        this(manager, null);
+    }
+
+    protected BaseHttpHandler(TaskManager manager, ViewerHistory views) {
+        this.manager = manager;
+        this.views = views;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = readBody(exchange);
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            handle(exchange, exchange.getRequestMethod(), path, body);
+        } catch (IllegalArgumentException e) {
+            sendText(exchange, BAD_REQUEST, e.getMessage());
+        } catch (TaskOverlapException e) {
+            sendText(exchange, NOT_ACCEPTABLE, e.getMessage());
+        } catch (RuntimeException e) {
+            sendText(exchange, INTERNAL_ERROR, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // path[0] - пустая строка перед первым "/", path[1] - имя ресурса
+    protected abstract void handle(HttpExchange exchange, String method, String[] path, byte[] body)
+            throws IOException;
+
+    protected static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный id: " + value);
+        }
+    }
+
+    protected static Task parseTask(byte[] body, TaskType type) {
+        return JSONTaskFormat.fromJson(body, type);
+    }
+
+    // Ожидаемая версия из заголовка If-Match или -1, если заголовка нет
+    protected static long expectedVersion(HttpExchange exchange) {
+        String value = exchange.getRequestHeaders().getFirst("If-Match");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.replace("\"", "").trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректная версия в If-Match: " + value);
+        }
+    }
+
+    protected void sendTask(HttpExchange exchange, int code, Task task) throws IOException {
+        if (task == null) {
+            sendNotFound(exchange);
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", "\"" + manager.getVersion(task.getId()) + "\"");
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        send(exchange, code, JSONTaskFormat.toJsonBytes(task));
+    }
+
+    // Ответ на GET по id: найденная задача записывается в историю пользователя из заголовка X-Viewer
+    protected void sendViewedTask(HttpExchange exchange, Task task) throws IOException {
+        String viewer = viewer(exchange);
+        if (task != null && viewer != null) {
+            views.record(viewer, task.getId());
+        }
+        sendTask(exchange, OK, task);
+    }
+
+    // Пользователь из заголовка X-Viewer или null, если заголовка нет либо история не подключена
+    protected String viewer(HttpExchange exchange) {
+        if (views == null) {
+            return null;
+        }
+        String viewer = exchange.getRequestHeaders().getFirst(VIEWER_HEADER);
+        return viewer == null || viewer.isBlank() ? null : viewer;
+    }
+
+    // Список пишется по мере обхода прямо в тело ответа, без сборки всего ответа и строк для отдельных задач
+    protected static void sendList(HttpExchange exchange, Stream<? extends Task> tasks) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(OK, 0);
+        try (JsonTaskWriter writer = new JsonTaskWriter(exchange.getResponseBody(), STREAM_BUFFER_SIZE)) {
+            writer.beginArray();
+            for (Iterator<? extends Task> iterator = tasks.iterator(); iterator.hasNext(); ) {
+                writer.write(iterator.next());
+            }
+            writer.endArray();
+        }
+    }
+
+    protected static void sendJson(HttpExchange exchange, int code, String json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        send(exchange, code, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected static void sendText(HttpExchange exchange, int code, String text) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain;charset=utf-8");
+        send(exchange, code, String.valueOf(text).getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected static void sendNoContent(HttpExchange exchange, int code) throws IOException {
+        exchange.sendResponseHeaders(code, -1);
+    }
+
+    protected static void sendNotFound(HttpExchange exchange) throws IOException {
+        sendNoContent(exchange, NOT_FOUND);
+    }
+
+    protected static void sendMethodNotAllowed(HttpExchange exchange) throws IOException {
+        sendNoContent(exchange, METHOD_NOT_ALLOWED);
+    }
+
+    private static void send(HttpExchange exchange, int code, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return in.readAllBytes();
+        }
+    }
+}
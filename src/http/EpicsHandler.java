@@ -0,0 +1,62 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import controllers.ViewerHistory;
+import enums.TaskType;
+import impl.TaskManager;
+import model.Epic;
+import model.EpicRollup;
+import utils.JSONTaskFormat;
+
+import java.io.IOException;
+import java.util.List;
+
+// /epics, /epics/{id}, /epics/{id}/subtasks и /epics/{id}/rollups - итоги эпика и всех вложенных эпиков
+class EpicsHandler extends BaseHttpHandler {
+    EpicsHandler(TaskManager manager, ViewerHistory views) {
+        super(manager, views);
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange, String method, String[] path, byte[] body) throws IOException {
+        switch (method) {
+            case "GET":
+                if (path.length == 2) {
+                    sendList(exchange, manager.streamEpics());
+                } else if (path.length == 3) {
+                    sendViewedTask(exchange, manager.getEpicById(parseId(path[2])));
+                } else if (path.length == 4 && path[3].equals("subtasks")) {
+                    sendList(exchange, manager.streamSubtasksByEpicId(parseId(path[2])));
+                } else if (path.length == 4 && path[3].equals("rollups")) {
+                    List<EpicRollup> rollups = manager.getEpicRollups(parseId(path[2]));
+                    if (rollups.isEmpty()) {
+                        sendNotFound(exchange);
+                    } else {
+                        sendJson(exchange, OK, JSONTaskFormat.toJson(rollups));
+                    }
+                } else {
+                    sendNotFound(exchange);
+                }
+                break;
+            case "POST":
+                Epic epic = (Epic) parseTask(body, TaskType.EPIC);
+                if (epic.getId() == 0) {
+                    sendTask(exchange, CREATED, manager.createEpic(epic));
+                } else {
+                    manager.updateEpic(epic);
+                    sendNoContent(exchange, CREATED);
+                }
+                break;
+            case "DELETE":
+                if (path.length == 2) {
+                    manager.deleteAllEpics();
+                } else {
+                    manager.deleteEpicById(parseId(path[2]));
+                }
+                sendNoContent(exchange, OK);
+                break;
+            default:
+                sendMethodNotAllowed(exchange);
+        }
+    }
+}
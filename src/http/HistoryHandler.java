@@ -0,0 +1,62 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import controllers.ViewerHistory;
+import impl.TaskManager;
+import model.ViewCount;
+import model.ViewEntry;
+import utils.JSONTaskFormat;
+
+import java.io.IOException;
+import java.util.List;
+
+// /history - общая история менеджера, а с заголовком X-Viewer - просмотры этого пользователя с временем.
+// Просмотры удалённых задач в ответы не попадают и при обнаружении снимаются из ViewerHistory
+// (проверка через contains не собирает снимок доски и не пишет в историю);
+// /history/top/{minutes}[/{limit}] - самые просматриваемые задачи за последние minutes минут
+class HistoryHandler extends BaseHttpHandler {
+    private static final int DEFAULT_TOP_LIMIT = 10;
+
+    HistoryHandler(TaskManager manager, ViewerHistory views) {
+        super(manager, views);
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange, String method, String[] path, byte[] body) throws IOException {
+        if (!method.equals("GET")) {
+            sendMethodNotAllowed(exchange);
+        } else if (path.length == 2) {
+            String viewer = viewer(exchange);
+            if (viewer == null) {
+                sendList(exchange, manager.streamHistory());
+            } else {
+                List<ViewEntry> entries = views.getHistory(viewer);
+                if (entries.removeIf(entry -> !manager.contains(entry.getTaskId()))) {
+                    views.removeIf(id -> !manager.contains(id));
+                }
+                sendJson(exchange, OK, JSONTaskFormat.historyToJson(entries));
+            }
+        } else if (views != null && (path.length == 4 || path.length == 5) && path[2].equals("top")) {
+            int minutes = parseNumber(path[3]);
+            int limit = path.length == 5 ? parseNumber(path[4]) : DEFAULT_TOP_LIMIT;
+            List<ViewCount> top = views.getMostViewed(minutes, limit);
+            if (top.removeIf(count -> !manager.contains(count.getTaskId()))) {
+                // Удалённые задачи забываются, и их места занимают следующие по числу просмотров
+                views.removeIf(id -> !manager.contains(id));
+                top = views.getMostViewed(minutes, limit);
+                top.removeIf(count -> !manager.contains(count.getTaskId()));
+            }
+            sendJson(exchange, OK, JSONTaskFormat.viewCountsToJson(top));
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+
+    private static int parseNumber(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное число: " + value);
+        }
+    }
+}
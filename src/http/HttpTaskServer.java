@@ -0,0 +1,73 @@
+package http;
+
+import com.sun.net.httpserver.HttpServer;
+import controllers.ViewerHistory;
+import impl.TaskManager;
+import utils.Managers;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// HTTP/JSON API над TaskManager. Каждый запрос обрабатывается в своём виртуальном потоке,
+// поэтому менеджер должен быть потокобезопасным (Managers.getConcurrent()).
+// Эндпоинты: /tasks, /epics, /epics/{id}/subtasks, /subtasks, /history, /history/top/{minutes}
+public class HttpTaskServer {
+    public static final int DEFAULT_PORT = 8080;
+    // Очередь ещё не принятых соединений: рассчитана на тысячи одновременных клиентов
+    private static final int BACKLOG = 16_384;
+
+    static {
+        // Без TCP_NODELAY заголовки и тело ответа уходят разными сегментами, и на keep-alive соединении
+        // каждый ответ ждёт отложенного ACK клиента (~40 мс). Свойство читается при первом создании сервера
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public HttpTaskServer(TaskManager manager) throws IOException {
+        this(manager, DEFAULT_PORT);
+    }
+
+    // port = 0 - свободный порт, см. getPort
+    public HttpTaskServer(TaskManager manager, int port) throws IOException {
+        this(manager, null, port);
+    }
+
+    // views - история просмотров по пользователям из заголовка X-Viewer; null - не вести её
+    public HttpTaskServer(TaskManager manager, ViewerHistory views, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.createContext("/tasks", new TasksHandler(manager, views));
+        server.createContext("/subtasks", new SubtasksHandler(manager, views));
+        server.createContext("/epics", new EpicsHandler(manager, views));
+        server.createContext("/history", new HistoryHandler(manager, views));
+        server.createContext("/prioritized", new PrioritizedHandler(manager));
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Запуск: HttpTaskServer [port]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        HttpTaskServer server = new HttpTaskServer(Managers.getConcurrent(), new ViewerHistory(), port);
+        server.start();
+        System.out.println("HTTP-сервер запущен на порту " + server.getPort());
+    }
+}
@@ -0,0 +1,24 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import impl.TaskManager;
+
+import java.io.IOException;
+
+// /prioritized
+class PrioritizedHandler extends BaseHttpHandler {
+    PrioritizedHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange, String method, String[] path, byte[] body) throws IOException {
+        if (!method.equals("GET")) {
+            sendMethodNotAllowed(exchange);
+        } else if (path.length == 2) {
+            sendList(exchange, manager.getPrioritizedTasks().stream());
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import controllers.ViewerHistory;
+import enums.TaskType;
+import impl.TaskManager;
+import model.Subtask;
+
+import java.io.IOException;
+
+// /subtasks и /subtasks/{id}
+class SubtasksHandler extends BaseHttpHandler {
+    SubtasksHandler(TaskManager manager, ViewerHistory views) {
+        super(manager, views);
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange, String method, String[] path, byte[] body) throws IOException {
+        switch (method) {
+            case "GET":
+                if (path.length == 2) {
+                    sendList(exchange, manager.streamSubtasks());
+                } else if (path.length == 3) {
+                    sendViewedTask(exchange, manager.getSubtaskById(parseId(path[2])));
+                } else {
+                    sendNotFound(exchange);
+                }
+                break;
+            case "POST":
+                Subtask subtask = (Subtask) parseTask(body, TaskType.SUBTASK);
+                if (subtask.getId() == 0) {
+                    // null - эпика подзадачи нет
+                    sendTask(exchange, CREATED, manager.createSubtask(subtask));
+                } else {
+                    long expectedVersion = expectedVersion(exchange);
+                    if (expectedVersion < 0) {
+                        manager.updateSubtask(subtask);
+                        sendNoContent(exchange, CREATED);
+                    } else if (manager.updateSubtask(subtask, expectedVersion)) {
+                        sendNoContent(exchange, CREATED);
+                    } else {
+                        sendNoContent(exchange, PRECONDITION_FAILED);
+                    }
+                }
+                break;
+            case "DELETE":
+                if (path.length == 2) {
+                    manager.deleteAllSubtasks();
+                } else {
+                    manager.deleteSubtaskById(parseId(path[2]));
+                }
+                sendNoContent(exchange, OK);
+                break;
+            default:
+                sendMethodNotAllowed(exchange);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import controllers.ViewerHistory;
+import enums.TaskType;
+import impl.TaskManager;
+import model.Task;
+
+import java.io.IOException;
+
+// /tasks и /tasks/{id}
+class TasksHandler extends BaseHttpHandler {
+    TasksHandler(TaskManager manager, ViewerHistory views) {
+        super(manager, views);
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange, String method, String[] path, byte[] body) throws IOException {
+        switch (method) {
+            case "GET":
+                if (path.length == 2) {
+                    sendList(exchange, manager.streamTasks());
+                } else if (path.length == 3) {
+                    sendViewedTask(exchange, manager.getTaskById(parseId(path[2])));
+                } else {
+                    sendNotFound(exchange);
+                }
+                break;
+            case "POST":
+                Task task = parseTask(body, TaskType.TASK);
+                if (task.getId() == 0) {
+                    sendTask(exchange, CREATED, manager.createTask(task));
+                } else {
+                    long expectedVersion = expectedVersion(exchange);
+                    if (expectedVersion < 0) {
+                        manager.updateTask(task);
+                        sendNoContent(exchange, CREATED);
+                    } else if (manager.updateTask(task, expectedVersion)) {
+                        sendNoContent(exchange, CREATED);
+                    } else {
+                        sendNoContent(exchange, PRECONDITION_FAILED);
+                    }
+                }
+                break;
+            case "DELETE":
+                if (path.length == 2) {
+                    manager.deleteAllTasks();
+                } else {
+                    manager.deleteTaskById(parseId(path[2]));
+                }
+                sendNoContent(exchange, OK);
+                break;
+            default:
+                sendMethodNotAllowed(exchange);
+        }
+    }
+}
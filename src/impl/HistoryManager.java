@@ -1,10 +1,36 @@
 package impl;
 
 import model.Task;
+import model.TaskPage;
 
 import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
 
 public interface HistoryManager {
     void add(Task task);
+
+    void remove(int id);
+
+    // Удаляет из истории все задачи, id которых подходят под deleted; реализации делают это одним проходом
+    default void removeIf(IntPredicate deleted) {
+        for (Task task : getHistory()) {
+            if (deleted.test(task.getId())) {
+                remove(task.getId());
+            }
+        }
+    }
+
+    // Число задач в истории
+    default int size() {
+        return getHistory().size();
+    }
+
     List<Task> getHistory();
+
+    // Страница истории, начиная после просмотра задачи afterId (или с начала для TaskPage.FIRST_PAGE)
+    TaskPage<Task> getHistoryPage(int afterId, int pageSize);
+
+    // Ленивое представление истории без копирования
+    Stream<Task> streamHistory();
 }
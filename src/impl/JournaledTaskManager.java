@@ -0,0 +1,23 @@
+package impl;
+
+// Менеджер с журналом изменений в памяти. Номер состояния - число изменений доски на текущей ветке: отмена
+// уменьшает его, повтор увеличивает, а новое изменение после отмены отбрасывает отменённые.
+// Очистка хранилища - одно изменение. Менеджеры без журнала (OffHeapTaskManager, ShardedTaskManager)
+// этот интерфейс не реализуют. Менеджеры с журналом работают в этом процессе и поддерживают параллельные операции
+public interface JournaledTaskManager extends ObservableTaskManager, ParallelTaskManager {
+    // false - отменять нечего
+    boolean undo();
+
+    // false - повторять нечего
+    boolean redo();
+
+    // Отмена или повтор до состояния с номером sequence; ReplayUnavailableException, если нужные записи
+    // уже вытеснены из журнала
+    void restoreTo(long sequence);
+
+    long getJournalSequence();
+
+    // Пределы журнала: не больше maxEntries записей, которые вместе держат не больше maxTasks задач.
+    // maxEntries = 0 выключает журнал
+    void setJournalLimits(int maxEntries, long maxTasks);
+}
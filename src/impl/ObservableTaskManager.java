@@ -0,0 +1,12 @@
+package impl;
+
+import utils.ChangeSubscription;
+
+// Менеджер с единой лентой событий изменений. ShardedTaskManager её не даёт: у шардов свои номера событий,
+// и одним номером позицию в их общем потоке не выразить, поэтому подписка оформляется на каждый шард
+// (getShard(i)). RemoteTaskManager тоже не подписывается: события шарда остаются в его процессе
+public interface ObservableTaskManager extends TaskManager {
+    // Подписка на события изменений с номерами больше afterSequence;
+    // ChangeLog.LATEST - только события, появившиеся после подписки
+    ChangeSubscription subscribe(long afterSequence);
+}
@@ -0,0 +1,25 @@
+package impl;
+
+import enums.Status;
+import model.Epic;
+import model.Subtask;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
+import java.util.stream.Collector;
+
+// Менеджер с параллельными операциями над всей доской. Условие и свёртку нельзя передать в другой процесс,
+// поэтому RemoteTaskManager этот интерфейс не реализует; ShardedTaskManager обходит такие шарды по страницам
+public interface ParallelTaskManager extends TaskManager {
+    // Операции идут в пуле pool. Доска делится по деревьям корневых эпиков:
+    // часть владеет эпиками своего дерева и их подзадачами, поэтому части не блокируют друг друга.
+    // filter и collector вызываются из потоков пула и не должны обращаться к менеджеру.
+    // transitionSubtasks переводит в status подзадачи, для которых filter(эпик подзадачи, подзадача) истинен,
+    // и возвращает их число; filter видит статусы до перевода, подзадачи уже в status пропускаются,
+    // а статус каждого затронутого эпика пересчитывается один раз. Подзадачи заменяются копиями
+    int transitionSubtasks(ForkJoinPool pool, BiPredicate<? super Epic, ? super Subtask> filter, Status status);
+
+    // Свёртка всех подзадач: каждая часть копит свой контейнер collector, контейнеры частей сливаются
+    // его combiner
+    <R> R collectSubtasks(ForkJoinPool pool, Collector<? super Subtask, ?, R> collector);
+}
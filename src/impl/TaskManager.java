@@ -1,10 +1,17 @@
 package impl;
 
+import enums.SearchOrder;
+import enums.Status;
+import model.BoardSnapshot;
 import model.Epic;
+import model.EpicRollup;
 import model.Subtask;
 import model.Task;
+import model.TaskPage;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TaskManager {
     // Методы для задач
@@ -33,6 +40,19 @@ public interface TaskManager {
 
     void deleteEpicById(int id);
 
+    // Вложенные эпики. createEpic с parentId отсутствующего эпика возвращает null, updateEpic родителя не меняет,
+    // удаление эпика удаляет всё его поддерево, а статус эпика выводится из подзадач всего поддерева.
+    // moveEpic переносит эпик с поддеревом под parentId (Epic.NO_PARENT - в корень); false, если эпика
+    // или родителя нет или родитель вложен в сам эпик
+    boolean moveEpic(int epicId, int parentId);
+
+    // Итоги поддерева эпика или null, если эпика нет. Итоги хранятся в каждом эпике и при изменении подзадачи
+    // обновляются только на пути до корня, поэтому запрос не перебирает подзадачи
+    EpicRollup getEpicRollup(int epicId);
+
+    // Итоги эпика и всех вложенных в него эпиков в прямом порядке обхода; пустой список, если эпика нет
+    List<EpicRollup> getEpicRollups(int epicId);
+
     // Методы для подзадач
     List<Subtask> getAllSubtasks();
 
@@ -51,4 +71,93 @@ public interface TaskManager {
 
     // Новая функциональность - история просмотров
     List<Task> getHistory();
+
+    // Пакетные операции: статус каждого затронутого эпика пересчитывается один раз за пакет.
+    // createSubtasks возвращает null и ничего не создаёт, если хотя бы одного эпика нет
+    List<Task> createTasks(List<Task> tasks);
+
+    void updateTasks(List<Task> tasks);
+
+    void deleteTasksByIds(List<Integer> ids);
+
+    List<Subtask> createSubtasks(List<Subtask> subtasks);
+
+    void updateSubtasks(List<Subtask> subtasks);
+
+    void deleteSubtasksByIds(List<Integer> ids);
+
+    // Параллельные операции над всей доской (transitionSubtasks, collectSubtasks) - у ParallelTaskManager
+
+    // Оптимистичное обновление: применяется, только если версия задачи равна expectedVersion.
+    // Возвращает false, если задачу изменили или удалили после чтения версии
+    boolean updateTask(Task task, long expectedVersion);
+
+    boolean updateSubtask(Subtask subtask, long expectedVersion);
+
+    // Номер последнего события, изменившего задачу; 0 - задачи нет или она не менялась после загрузки
+    long getVersion(int id);
+
+    // Есть ли задача, эпик или подзадача с таким id; в историю не записывается
+    boolean contains(int id);
+
+    // Задачи и подзадачи с заданным временем начала по возрастанию начала; эпики не входят.
+    // Создание и обновление, при которых интервал задачи пересекается с другой задачей,
+    // отклоняются с TaskOverlapException без изменений
+    List<Task> getPrioritizedTasks();
+
+    // Полнотекстовый поиск по имени и описанию задач, эпиков и подзадач: задача должна содержать все слова
+    // запроса, слово со '*' на конце ищется как префикс, регистр не важен. Не больше limit задач в порядке order
+    List<Task> search(String query, SearchOrder order, int limit);
+
+    // Согласованный неизменяемый снимок задач, эпиков и подзадач на момент последнего изменения
+    BoardSnapshot getSnapshot();
+
+    // Номер последнего события изменений; подписка на события - у ObservableTaskManager
+    long getLastChangeSequence();
+
+    // Постраничное чтение по возрастанию id: afterId - токен предыдущей страницы или TaskPage.FIRST_PAGE
+    TaskPage<Task> getTasksPage(int afterId, int pageSize);
+
+    TaskPage<Epic> getEpicsPage(int afterId, int pageSize);
+
+    TaskPage<Subtask> getSubtasksPage(int afterId, int pageSize);
+
+    // Подзадачи эпика идут в порядке добавления в эпик
+    TaskPage<Subtask> getSubtasksPageByEpicId(int epicId, int afterId, int pageSize);
+
+    TaskPage<Task> getHistoryPage(int afterId, int pageSize);
+
+    // Ленивые представления хранилища без копирования; просмотры в историю не записываются
+    Stream<Task> streamTasks();
+
+    Stream<Epic> streamEpics();
+
+    Stream<Subtask> streamSubtasks();
+
+    Stream<Subtask> streamSubtasksByEpicId(int epicId);
+
+    Stream<Task> streamHistory();
+
+    // Выборки по статусу; реализации с индексами переопределяют полный перебор
+    default List<Task> getTasksByStatus(Status status) {
+        return filterByStatus(getAllTasks(), status);
+    }
+
+    default List<Epic> getEpicsByStatus(Status status) {
+        return filterByStatus(getAllEpics(), status);
+    }
+
+    default List<Subtask> getSubtasksByStatus(Status status) {
+        return filterByStatus(getAllSubtasks(), status);
+    }
+
+    private static <T extends Task> List<T> filterByStatus(List<T> tasks, Status status) {
+        List<T> result = new ArrayList<>();
+        for (T task : tasks) {
+            if (task.getStatus() == status) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
 }
\ No newline at end of file
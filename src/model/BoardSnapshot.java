@@ -0,0 +1,63 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Согласованное состояние менеджера на момент события version: задачи, эпики и подзадачи
+// из одного и того же состояния. Снимок не меняется и читается без блокировок
+public final class BoardSnapshot {
+    private final long version;
+    private final Map<Integer, TaskRecord> tasks;
+    private final Map<Integer, TaskRecord> epics;
+    private final Map<Integer, TaskRecord> subtasks;
+
+    // Карты передаются во владение снимку и дальше не должны меняться
+    public BoardSnapshot(long version, Map<Integer, TaskRecord> tasks, Map<Integer, TaskRecord> epics,
+                         Map<Integer, TaskRecord> subtasks) {
+        this.version = version;
+        this.tasks = Collections.unmodifiableMap(tasks);
+        this.epics = Collections.unmodifiableMap(epics);
+        this.subtasks = Collections.unmodifiableMap(subtasks);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Задача любого типа по id или null
+    public TaskRecord get(int id) {
+        TaskRecord record = tasks.get(id);
+        if (record == null) {
+            record = epics.get(id);
+        }
+        if (record == null) {
+            record = subtasks.get(id);
+        }
+        return record;
+    }
+
+    public List<TaskRecord> getTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    public List<TaskRecord> getEpics() {
+        return new ArrayList<>(epics.values());
+    }
+
+    public List<TaskRecord> getSubtasks() {
+        return new ArrayList<>(subtasks.values());
+    }
+
+    public List<TaskRecord> getSubtasksByEpicId(int epicId) {
+        TaskRecord epic = epics.get(epicId);
+        List<TaskRecord> result = new ArrayList<>();
+        if (epic != null) {
+            for (int subtaskId : epic.getSubtaskIds()) {
+                result.add(subtasks.get(subtaskId));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package model;
+
+import enums.ChangeType;
+import enums.Status;
+import enums.TaskType;
+
+// Изменение в менеджере задач. record - неизменяемая копия задачи сразу после изменения с версией sequence
+// (для DELETED, CLEARED и RESTORED - null, у двух последних и taskId = 0): объект в менеджере меняется дальше,
+// а событие описывает состояние на свой номер.
+// status - новый статус эпика для EPIC_STATUS_CHANGED, иначе статус задачи
+public class ChangeEvent {
+    private final long sequence;
+    private final ChangeType type;
+    private final TaskType taskType;
+    private final int taskId;
+    private final TaskRecord record;
+    private final Status status;
+
+    public ChangeEvent(long sequence, ChangeType type, TaskType taskType, int taskId, TaskRecord record,
+                       Status status) {
+        this.sequence = sequence;
+        this.type = type;
+        this.taskType = taskType;
+        this.taskId = taskId;
+        this.record = record;
+        this.status = status;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public TaskType getTaskType() {
+        return taskType;
+    }
+
+    public int getTaskId() {
+        return taskId;
+    }
+
+    public TaskRecord getRecord() {
+        return record;
+    }
+
+    // Новая изменяемая копия при каждом вызове
+    public Task getTask() {
+        return record == null ? null : record.toTask();
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", taskType=" + taskType +
+                ", taskId=" + taskId +
+                ", status=" + status +
+                '}';
+    }
+}
@@ -3,42 +3,114 @@ package model;
 import enums.Status;
 import model.Task;
 
-import java.util.ArrayList;
+import utils.IntLinkedSet;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public class Epic extends Task {
-    private List<Integer> subtaskIds;
+    // Родитель корневого эпика
+    public static final int NO_PARENT = 0;
+
+    private IntLinkedSet subtaskIds;
+    // Эпик, в который вложен этот эпик; меняется только через TaskManager.moveEpic
+    private int parentId = NO_PARENT;
+    // Начало, конец и продолжительность эпика вычисляет менеджер по его подзадачам
+    private LocalDateTime endTime;
 
     public Epic(String name, String description) {
         super(name, description, Status.NEW);
-        this.subtaskIds = new ArrayList<>();
+        this.subtaskIds = new IntLinkedSet();
     }
 
     public Epic(String name, String description, int id, Status status) {
         super(name, description, id, status);
-        this.subtaskIds = new ArrayList<>();
+        this.subtaskIds = new IntLinkedSet();
     }
 
-    public List<Integer> getSubtaskIds() {
-        return new ArrayList<>(subtaskIds);
+    // Список подзадач может меняться из нескольких потоков (ConcurrentTaskManager)
+    public synchronized List<Integer> getSubtaskIds() {
+        return subtaskIds.toList();
     }
 
-    public void setSubtaskIds(List<Integer> subtaskIds) {
-        this.subtaskIds = subtaskIds;
+    public synchronized int getSubtaskCount() {
+        return subtaskIds.size();
+    }
+
+    // Представление без копирования и упаковки; не потокобезопасно
+    public IntLinkedSet.View getSubtaskIdsView() {
+        return subtaskIds.view();
+    }
+
+    public synchronized void setSubtaskIds(List<Integer> subtaskIds) {
+        IntLinkedSet ids = new IntLinkedSet(subtaskIds.size());
+        for (int subtaskId : subtaskIds) {
+            ids.add(subtaskId);
+        }
+        this.subtaskIds = ids;
     }
 
-    public void addSubtaskId(int subtaskId) {
+    public void copySubtaskIdsFrom(Epic other) {
+        if (other == this) {
+            return;
+        }
+        IntLinkedSet ids;
+        synchronized (other) {
+            ids = other.subtaskIds.copy();
+        }
+        synchronized (this) {
+            this.subtaskIds = ids;
+        }
+    }
+
+    public synchronized void addSubtaskId(int subtaskId) {
         subtaskIds.add(subtaskId);
     }
 
-    public void removeSubtaskId(int subtaskId) {
-        subtaskIds.remove(Integer.valueOf(subtaskId));
+    public synchronized void removeSubtaskId(int subtaskId) {
+        subtaskIds.remove(subtaskId);
+    }
+
+    // Место подзадачи в списке эпика или -1
+    public synchronized int indexOfSubtaskId(int subtaskId) {
+        return subtaskIds.indexOf(subtaskId);
+    }
+
+    // Ставит подзадачи на прежние места (indexes - по возрастанию); так отмена изменений
+    // возвращает подзадачи туда, где они были, а не в конец списка
+    public synchronized void placeSubtaskIds(int[] subtaskIds, int[] indexes, int count) {
+        this.subtaskIds.place(subtaskIds, indexes, count);
     }
 
-    public void clearSubtaskIds() {
+    public synchronized void clearSubtaskIds() {
         subtaskIds.clear();
     }
 
+    // Подменяет список подзадач без копирования и возвращает прежний: так менеджер снимает
+    // и возвращает подзадачи эпика при очистке и её отмене
+    public synchronized IntLinkedSet swapSubtaskIds(IntLinkedSet subtaskIds) {
+        IntLinkedSet previous = this.subtaskIds;
+        this.subtaskIds = subtaskIds;
+        return previous;
+    }
+
+    public int getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(int parentId) {
+        this.parentId = parentId;
+    }
+
+    @Override
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
     @Override
     public String toString() {
         return "main.java.model.Epic{" +
@@ -46,7 +118,10 @@ public class Epic extends Task {
                 ", description='" + description + '\'' +
                 ", id=" + id +
                 ", status=" + status +
+                ", parentId=" + parentId +
                 ", subtaskIds=" + subtaskIds +
+                ", startTime=" + startTime +
+                ", endTime=" + endTime +
                 '}';
     }
 
@@ -0,0 +1,97 @@
+package model;
+
+import enums.Status;
+
+import java.util.Arrays;
+
+// Неизменяемые итоги эпика по всему его поддереву: подзадачи самого эпика и всех вложенных эпиков.
+// depth - глубина эпика в дереве (у корневого 0), subtaskCount и childEpicCount - только прямые потомки
+public final class EpicRollup {
+    private final int epicId;
+    private final int parentId;
+    private final int depth;
+    private final Status status;
+    private final int[] statusCounts;
+    private final int subtaskTotal;
+    private final int subtaskCount;
+    private final int childEpicCount;
+
+    // statusCounts - число подзадач поддерева по Status.ordinal()
+    public EpicRollup(int epicId, int parentId, int depth, Status status, int[] statusCounts, int subtaskTotal,
+                      int subtaskCount, int childEpicCount) {
+        this.epicId = epicId;
+        this.parentId = parentId;
+        this.depth = depth;
+        this.status = status;
+        this.statusCounts = Arrays.copyOf(statusCounts, Status.values().length);
+        this.subtaskTotal = subtaskTotal;
+        this.subtaskCount = subtaskCount;
+        this.childEpicCount = childEpicCount;
+    }
+
+    public int getEpicId() {
+        return epicId;
+    }
+
+    public int getParentId() {
+        return parentId;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getCount(Status status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    public int getSubtaskTotal() {
+        return subtaskTotal;
+    }
+
+    public int getSubtaskCount() {
+        return subtaskCount;
+    }
+
+    public int getChildEpicCount() {
+        return childEpicCount;
+    }
+
+    // Доля выполненных подзадач поддерева в процентах, округлённая вниз; у пустого поддерева 0
+    public int getProgress() {
+        return subtaskTotal == 0 ? 0 : (int) ((long) getCount(Status.DONE) * 100 / subtaskTotal);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EpicRollup)) return false;
+        EpicRollup that = (EpicRollup) o;
+        return epicId == that.epicId && parentId == that.parentId && depth == that.depth
+                && subtaskTotal == that.subtaskTotal && subtaskCount == that.subtaskCount
+                && childEpicCount == that.childEpicCount && status == that.status
+                && Arrays.equals(statusCounts, that.statusCounts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(statusCounts) + epicId;
+    }
+
+    @Override
+    public String toString() {
+        return "EpicRollup{" +
+                "epicId=" + epicId +
+                ", parentId=" + parentId +
+                ", depth=" + depth +
+                ", status=" + status +
+                ", statusCounts=" + Arrays.toString(statusCounts) +
+                ", subtaskTotal=" + subtaskTotal +
+                ", progress=" + getProgress() +
+                '}';
+    }
+}
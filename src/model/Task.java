@@ -2,6 +2,8 @@ package model;
 
 import enums.Status;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 public class Task {
@@ -9,6 +11,9 @@ public class Task {
     protected String description;
     protected int id;
     protected Status status;
+    // Необязательные время начала и продолжительность; задачи без начала не попадают в расписание
+    protected LocalDateTime startTime;
+    protected Duration duration;
 
     public Task(String name, String description, Status status) {
         this.name = name;
@@ -23,6 +28,12 @@ public class Task {
         this.status = status;
     }
 
+    public Task(String name, String description, Status status, LocalDateTime startTime, Duration duration) {
+        this(name, description, status);
+        this.startTime = startTime;
+        this.duration = duration;
+    }
+
     // Геттеры и сеттеры
     public String getName() {
         return name;
@@ -56,6 +67,30 @@ public class Task {
         this.status = status;
     }
 
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    // Без продолжительности задача считается мгновенной
+    public LocalDateTime getEndTime() {
+        if (startTime == null) {
+            return null;
+        }
+        return duration == null ? startTime : startTime.plus(duration);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -76,6 +111,8 @@ public class Task {
                 ", description='" + description + '\'' +
                 ", id=" + id +
                 ", status=" + status +
+                ", startTime=" + startTime +
+                ", duration=" + duration +
                 '}';
     }
 }
@@ -0,0 +1,52 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+// Страница выборки: nextToken - id последней задачи страницы, если за ней есть ещё задачи, иначе null
+public class TaskPage<T extends Task> {
+    public static final int FIRST_PAGE = 0;
+
+    private final List<T> items;
+    private final Integer nextToken;
+
+    public TaskPage(List<T> items, Integer nextToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextToken = nextToken;
+    }
+
+    public static <T extends Task> TaskPage<T> empty() {
+        return new TaskPage<>(new ArrayList<>(), null);
+    }
+
+    // Забирает из итератора не больше pageSize элементов
+    public static <T extends Task> TaskPage<T> of(Iterator<? extends T> iterator, int pageSize) {
+        checkPageSize(pageSize);
+        List<T> items = new ArrayList<>(pageSize);
+        while (items.size() < pageSize && iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        Integer nextToken = iterator.hasNext() ? items.get(items.size() - 1).getId() : null;
+        return new TaskPage<>(items, nextToken);
+    }
+
+    public static void checkPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + pageSize);
+        }
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Integer getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
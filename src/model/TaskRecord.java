@@ -0,0 +1,134 @@
+package model;
+
+import enums.Status;
+import enums.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+// Неизменяемая версия задачи в снимке менеджера. version - номер события изменения,
+// после которого задача стала такой (см. TaskManager.getLastChangeSequence).
+// epicId задан только у подзадач, subtaskIds - только у эпиков; время эпика вычислено по подзадачам
+public final class TaskRecord {
+    private final int id;
+    private final TaskType type;
+    private final String name;
+    private final String description;
+    private final Status status;
+    private final int epicId;
+    private final List<Integer> subtaskIds;
+    private final LocalDateTime startTime;
+    private final Duration duration;
+    private final LocalDateTime endTime;
+    private final long version;
+
+    public TaskRecord(int id, TaskType type, String name, String description, Status status, int epicId,
+                      List<Integer> subtaskIds, LocalDateTime startTime, Duration duration, LocalDateTime endTime,
+                      long version) {
+        this.id = id;
+        this.type = type;
+        this.name = name;
+        this.description = description;
+        this.status = status;
+        this.epicId = epicId;
+        this.subtaskIds = Collections.unmodifiableList(subtaskIds);
+        this.startTime = startTime;
+        this.duration = duration;
+        this.endTime = endTime;
+        this.version = version;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getEpicId() {
+        return epicId;
+    }
+
+    public List<Integer> getSubtaskIds() {
+        return subtaskIds;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Изменяемая копия для передачи в update*
+    public Task toTask() {
+        switch (type) {
+            case EPIC:
+                Epic epic = new Epic(name, description, id, status);
+                epic.setSubtaskIds(subtaskIds);
+                epic.setStartTime(startTime);
+                epic.setDuration(duration);
+                epic.setEndTime(endTime);
+                return epic;
+            case SUBTASK:
+                Subtask subtask = new Subtask(name, description, id, status, epicId);
+                subtask.setStartTime(startTime);
+                subtask.setDuration(duration);
+                return subtask;
+            default:
+                Task task = new Task(name, description, id, status);
+                task.setStartTime(startTime);
+                task.setDuration(duration);
+                return task;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TaskRecord)) return false;
+        TaskRecord that = (TaskRecord) o;
+        return id == that.id && version == that.version && type == that.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, type, version);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskRecord{" +
+                "id=" + id +
+                ", type=" + type +
+                ", name='" + name + '\'' +
+                ", status=" + status +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package model;
+
+// Число просмотров задачи за окно времени
+public final class ViewCount {
+    private final int taskId;
+    private final int views;
+
+    public ViewCount(int taskId, int views) {
+        this.taskId = taskId;
+        this.views = views;
+    }
+
+    public int getTaskId() {
+        return taskId;
+    }
+
+    public int getViews() {
+        return views;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ViewCount)) return false;
+        ViewCount that = (ViewCount) o;
+        return taskId == that.taskId && views == that.views;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * taskId + views;
+    }
+
+    @Override
+    public String toString() {
+        return "ViewCount{" +
+                "taskId=" + taskId +
+                ", views=" + views +
+                '}';
+    }
+}
@@ -0,0 +1,48 @@
+package model;
+
+import java.time.Instant;
+
+// Просмотр задачи пользователем: id задачи и момент просмотра. Ссылки на саму задачу нет,
+// поэтому удалённая задача не удерживается историей
+public final class ViewEntry {
+    private final int taskId;
+    private final long viewedAtMillis;
+
+    public ViewEntry(int taskId, long viewedAtMillis) {
+        this.taskId = taskId;
+        this.viewedAtMillis = viewedAtMillis;
+    }
+
+    public int getTaskId() {
+        return taskId;
+    }
+
+    public long getViewedAtMillis() {
+        return viewedAtMillis;
+    }
+
+    public Instant getViewedAt() {
+        return Instant.ofEpochMilli(viewedAtMillis);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ViewEntry)) return false;
+        ViewEntry that = (ViewEntry) o;
+        return taskId == that.taskId && viewedAtMillis == that.viewedAtMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * taskId + Long.hashCode(viewedAtMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "ViewEntry{" +
+                "taskId=" + taskId +
+                ", viewedAt=" + getViewedAt() +
+                '}';
+    }
+}
@@ -0,0 +1,316 @@
+package utils;
+
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.function.Consumer;
+
+// Двоичный снимок задач.
+// Заголовок: magic, version, nextId, sequence, число записей, смещение таблицы строк.
+// Запись: байт (тип << 4 | статус), id, ссылки на имя и описание в таблице строк;
+// у подзадачи дальше id эпика, у эпика - число подзадач и их id в виде varint-разностей.
+// С версии 2 старшие биты первого байта отмечают время задачи или подзадачи: тогда в конце записи идут
+// секунды и наносекунды начала (UTC) и/или продолжительность в минутах. В версии 1 эти биты всегда нулевые,
+// поэтому её снимки читаются тем же кодом.
+// С версии 3 бит HAS_PARENT у эпика отмечает вложенный эпик: id родителя идёт после id подзадач.
+// Таблица строк в конце файла: каждая уникальная строка хранится один раз.
+public class BinaryTaskFormat {
+    public static final int MAGIC = 0x4B4E424E;
+    public static final short VERSION = 3;
+    private static final short VERSION_WITHOUT_TIME = 1;
+
+    private static final int HEADER_SIZE = 4 + 2 + 4 + 8 + 4 + 8;
+    private static final int NO_STRING = -1;
+    private static final int NO_STATUS = 0x0F;
+    private static final int TYPE_MASK = 0x03;
+    private static final int HAS_START_TIME = 0x40;
+    private static final int HAS_DURATION = 0x80;
+    // Эпики не хранят время, поэтому бит начала у них свободен
+    private static final int HAS_PARENT = 0x40;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private BinaryTaskFormat() {
+    }
+
+    public static class Header {
+        private final int nextId;
+        private final long sequence;
+        private final int recordCount;
+
+        Header(int nextId, long sequence, int recordCount) {
+            this.nextId = nextId;
+            this.sequence = sequence;
+            this.recordCount = recordCount;
+        }
+
+        public int getNextId() {
+            return nextId;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public int getRecordCount() {
+            return recordCount;
+        }
+    }
+
+    // Эпики должны идти раньше своих подзадач и вложенных эпиков, если загрузчик сразу связывает их
+    @SafeVarargs
+    public static void write(Path file, int nextId, long sequence, Iterable<? extends Task>... groups) throws IOException {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int recordCount = 0;
+        long stringTableOffset;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CountingOutputStream counter = new CountingOutputStream(channel, HEADER_SIZE);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(counter, 1 << 16));
+            for (Iterable<? extends Task> group : groups) {
+                for (Task task : group) {
+                    writeRecord(out, task, stringIds, strings);
+                    recordCount++;
+                }
+            }
+            out.flush();
+            stringTableOffset = counter.position();
+
+            out.writeInt(strings.size());
+            for (String value : strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putInt(nextId).putLong(sequence)
+                    .putInt(recordCount).putLong(stringTableOffset).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+    }
+
+    // Файл отображается в память целиком, строки декодируются один раз через общий буфер
+    public static Header read(Path file, Consumer<Task> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Снимок больше 2 ГБ не поддерживается: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("Файл не является снимком задач: " + file);
+            }
+            short version = buffer.getShort();
+            if (version < VERSION_WITHOUT_TIME || version > VERSION) {
+                throw new IOException("Неподдерживаемая версия снимка " + version + ": " + file);
+            }
+            Header header = new Header(buffer.getInt(), buffer.getLong(), buffer.getInt());
+            int stringTableOffset = (int) buffer.getLong();
+
+            String[] strings = readStrings(buffer, stringTableOffset);
+            buffer.position(HEADER_SIZE);
+            for (int i = 0; i < header.getRecordCount(); i++) {
+                consumer.accept(readRecord(buffer, strings));
+            }
+            return header;
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Task task, Map<String, Integer> stringIds,
+                                    List<String> strings) throws IOException {
+        TaskType type = CSVTaskFormat.typeOf(task);
+        int status = task.getStatus() == null ? NO_STATUS : task.getStatus().ordinal();
+        int flags;
+        if (type == TaskType.EPIC) {
+            flags = ((Epic) task).getParentId() == Epic.NO_PARENT ? 0 : HAS_PARENT;
+        } else {
+            flags = (task.getStartTime() == null ? 0 : HAS_START_TIME) | (task.getDuration() == null ? 0 : HAS_DURATION);
+        }
+        out.writeByte(flags | type.ordinal() << 4 | status);
+        out.writeInt(task.getId());
+        out.writeInt(stringId(task.getName(), stringIds, strings));
+        out.writeInt(stringId(task.getDescription(), stringIds, strings));
+        if (type == TaskType.SUBTASK) {
+            out.writeInt(((Subtask) task).getEpicId());
+            writeTime(out, task);
+        } else if (type == TaskType.EPIC) {
+            IntLinkedSet.View subtaskIds = ((Epic) task).getSubtaskIdsView();
+            writeVarInt(out, subtaskIds.size());
+            int previous = 0;
+            for (PrimitiveIterator.OfInt ids = subtaskIds.iterator(); ids.hasNext(); ) {
+                int subtaskId = ids.nextInt();
+                writeVarInt(out, zigZag(subtaskId - previous));
+                previous = subtaskId;
+            }
+            if ((flags & HAS_PARENT) != 0) {
+                out.writeInt(((Epic) task).getParentId());
+            }
+        } else {
+            writeTime(out, task);
+        }
+    }
+
+    private static void writeTime(DataOutputStream out, Task task) throws IOException {
+        LocalDateTime startTime = task.getStartTime();
+        if (startTime != null) {
+            out.writeLong(startTime.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(startTime.getNano());
+        }
+        if (task.getDuration() != null) {
+            out.writeLong(task.getDuration().toMinutes());
+        }
+    }
+
+    private static Task readTime(ByteBuffer buffer, int packed, Task task) {
+        if ((packed & HAS_START_TIME) != 0) {
+            long seconds = buffer.getLong();
+            task.setStartTime(LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC));
+        }
+        if ((packed & HAS_DURATION) != 0) {
+            task.setDuration(Duration.ofMinutes(buffer.getLong()));
+        }
+        return task;
+    }
+
+    private static Task readRecord(ByteBuffer buffer, String[] strings) {
+        int packed = buffer.get() & 0xFF;
+        TaskType type = TYPES[packed >>> 4 & TYPE_MASK];
+        Status status = (packed & 0x0F) == NO_STATUS ? null : STATUSES[packed & 0x0F];
+        int id = buffer.getInt();
+        String name = string(strings, buffer.getInt());
+        String description = string(strings, buffer.getInt());
+        switch (type) {
+            case SUBTASK:
+                Subtask subtask = new Subtask(name, description, id, status, buffer.getInt());
+                return readTime(buffer, packed, subtask);
+            case EPIC:
+                Epic epic = new Epic(name, description, id, status);
+                int count = readVarInt(buffer);
+                int previous = 0;
+                for (int i = 0; i < count; i++) {
+                    previous += unZigZag(readVarInt(buffer));
+                    epic.addSubtaskId(previous);
+                }
+                if ((packed & HAS_PARENT) != 0) {
+                    epic.setParentId(buffer.getInt());
+                }
+                return epic;
+            default:
+                Task task = new Task(name, description, id, status);
+                return readTime(buffer, packed, task);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int offset) {
+        buffer.position(offset);
+        String[] strings = new String[buffer.getInt()];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt();
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static int stringId(String value, Map<String, Integer> stringIds, List<String> strings) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(value, id);
+            strings.add(value);
+        }
+        return id;
+    }
+
+    private static String string(String[] strings, int id) {
+        return id == NO_STRING ? null : strings[id];
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    // Пишет в канал начиная с заданной позиции и считает смещение записанных данных
+    private static class CountingOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private long position;
+
+        CountingOutputStream(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        long position() {
+            return position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+}
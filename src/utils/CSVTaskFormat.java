@@ -0,0 +1,144 @@
+package utils;
+
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Строка формата: id,type,name,status,description,epic,startTime,duration
+// startTime - в ISO-8601, duration - в минутах; у эпиков время вычисляется и не записывается.
+// В поле epic у подзадачи - её эпик, у вложенного эпика - родитель, у корневого эпика поле пустое.
+// Строки без двух последних полей (прежний формат) читаются как задачи без времени.
+// Запятые, переводы строк и обратный слеш в текстовых полях экранируются, null записывается как \N
+public class CSVTaskFormat {
+    private static final String NULL = "\\N";
+
+    private CSVTaskFormat() {
+    }
+
+    public static TaskType typeOf(Task task) {
+        if (task instanceof Subtask) {
+            return TaskType.SUBTASK;
+        }
+        if (task instanceof Epic) {
+            return TaskType.EPIC;
+        }
+        return TaskType.TASK;
+    }
+
+    public static String toString(Task task) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(task.getId()).append(',')
+                .append(typeOf(task)).append(',')
+                .append(escape(task.getName())).append(',')
+                .append(task.getStatus() == null ? NULL : task.getStatus().name()).append(',')
+                .append(escape(task.getDescription())).append(',');
+        if (task instanceof Subtask) {
+            builder.append(((Subtask) task).getEpicId());
+        } else if (task instanceof Epic && ((Epic) task).getParentId() != Epic.NO_PARENT) {
+            builder.append(((Epic) task).getParentId());
+        }
+        boolean timed = !(task instanceof Epic);
+        builder.append(',').append(timed && task.getStartTime() != null ? task.getStartTime().toString() : NULL)
+                .append(',').append(timed && task.getDuration() != null ? task.getDuration().toMinutes() : NULL);
+        return builder.toString();
+    }
+
+    public static Task fromString(String value) {
+        List<String> fields = split(value);
+        if (fields.size() != 6 && fields.size() != 8) {
+            throw new IllegalArgumentException("Ожидалось 6 или 8 полей, получено " + fields.size() + ": " + value);
+        }
+
+        int id = Integer.parseInt(fields.get(0));
+        TaskType type = TaskType.valueOf(fields.get(1));
+        String name = unescape(fields.get(2));
+        Status status = fields.get(3).equals(NULL) ? null : Status.valueOf(fields.get(3));
+        String description = unescape(fields.get(4));
+        Task task;
+        switch (type) {
+            case EPIC:
+                Epic epic = new Epic(name, description, id, status);
+                if (!fields.get(5).isEmpty()) {
+                    epic.setParentId(Integer.parseInt(fields.get(5)));
+                }
+                return epic;
+            case SUBTASK:
+                task = new Subtask(name, description, id, status, Integer.parseInt(fields.get(5)));
+                break;
+            default:
+                task = new Task(name, description, id, status);
+        }
+        if (fields.size() == 8) {
+            task.setStartTime(fields.get(6).equals(NULL) ? null : LocalDateTime.parse(fields.get(6)));
+            task.setDuration(fields.get(7).equals(NULL) ? null : Duration.ofMinutes(Long.parseLong(fields.get(7))));
+        }
+        return task;
+    }
+
+    public static List<String> split(String value) {
+        List<String> fields = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == ',') {
+                fields.add(value.substring(start, i));
+                start = i + 1;
+            }
+        }
+        fields.add(value.substring(start));
+        return fields;
+    }
+
+    static String escape(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case ',':
+                    builder.append("\\,");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    static String unescape(String value) {
+        if (value.equals(NULL)) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                builder.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
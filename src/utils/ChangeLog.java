@@ -0,0 +1,174 @@
+package utils;
+
+import enums.ChangeType;
+import enums.Status;
+import enums.TaskType;
+import exceptions.ReplayUnavailableException;
+import model.ChangeEvent;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Буфер повтора последних событий изменений. Номер события выдаётся атомарным счётчиком,
+// событие записывается в ячейку sequence % capacity без блокировок.
+// Читатель продолжает с номера, на котором остановился: событие, номер которого уже выдан,
+// но ещё не записано, завершает пачку; вытесненное событие означает, что подписчик отстал.
+// Блокировка берётся, только если есть ждущие читатели.
+public class ChangeLog {
+    // Подписка только на события, появившиеся после подписки
+    public static final long LATEST = -1;
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final AtomicReferenceArray<ChangeEvent> events;
+    private final int mask;
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+
+    public ChangeLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ChangeLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость буфера событий должна быть положительной: " + capacity);
+        }
+        int size = Math.max(1, Integer.highestOneBit(capacity - 1) << 1);
+        events = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    public ChangeSubscription subscribe(long afterSequence) {
+        long start = afterSequence == LATEST ? lastSequence.get() : afterSequence;
+        if (start < 0 || start > lastSequence.get()) {
+            throw new IllegalArgumentException("Некорректный номер события: " + afterSequence);
+        }
+        checkAvailable(start);
+        return new ChangeSubscription(this, start);
+    }
+
+    public long created(Task task) {
+        return append(ChangeType.CREATED, task);
+    }
+
+    public long updated(Task task) {
+        return append(ChangeType.UPDATED, task);
+    }
+
+    public long deleted(TaskType taskType, int id) {
+        return publish(ChangeType.DELETED, taskType, id, null, null);
+    }
+
+    // Очистка или её отмена целиком: одно событие без задачи вместо события на каждую задачу
+    public long cleared(TaskType taskType) {
+        return publish(ChangeType.CLEARED, taskType, 0, null, null);
+    }
+
+    public long restored(TaskType taskType) {
+        return publish(ChangeType.RESTORED, taskType, 0, null, null);
+    }
+
+    public long epicStatusChanged(Task epic, Status status) {
+        return publish(ChangeType.EPIC_STATUS_CHANGED, TaskType.EPIC, epic.getId(), epic, status);
+    }
+
+    private long append(ChangeType type, Task task) {
+        return publish(type, CSVTaskFormat.typeOf(task), task.getId(), task, task.getStatus());
+    }
+
+    // Возвращает номер записанного события. Копия задачи снимается здесь, пока писатель держит её
+    // блокировку: подписчик читает событие позже и из другого потока
+    private long publish(ChangeType type, TaskType taskType, int id, Task task, Status status) {
+        long sequence = lastSequence.incrementAndGet();
+        TaskRecord record = task == null ? null : recordOf(task, taskType, status, sequence);
+        events.set((int) sequence & mask, new ChangeEvent(sequence, type, taskType, id, record, status));
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                appended.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return sequence;
+    }
+
+    private static TaskRecord recordOf(Task task, TaskType taskType, Status status, long version) {
+        int epicId = task instanceof Subtask ? ((Subtask) task).getEpicId() : 0;
+        List<Integer> subtaskIds = task instanceof Epic ? ((Epic) task).getSubtaskIds() : List.of();
+        return new TaskRecord(task.getId(), taskType, task.getName(), task.getDescription(), status, epicId,
+                subtaskIds, task.getStartTime(), task.getDuration(), task.getEndTime(), version);
+    }
+
+    // События с номерами больше afterSequence, не больше maxEvents
+    List<ChangeEvent> read(long afterSequence, int maxEvents) {
+        checkAvailable(afterSequence);
+        List<ChangeEvent> batch = new ArrayList<>(Math.min(maxEvents, 64));
+        long last = lastSequence.get();
+        for (long sequence = afterSequence + 1; sequence <= last && batch.size() < maxEvents; sequence++) {
+            ChangeEvent event = events.get((int) sequence & mask);
+            if (event == null || event.getSequence() < sequence) {
+                // Номер выдан, но событие ещё не записано
+                break;
+            }
+            if (event.getSequence() > sequence) {
+                throw lagged(afterSequence);
+            }
+            batch.add(event);
+        }
+        return batch;
+    }
+
+    // Ждёт событие с номером больше afterSequence не дольше timeout; false, если не дождался
+    boolean await(long afterSequence, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        waiters.incrementAndGet();
+        lock.lock();
+        try {
+            while (!isPublished(afterSequence + 1)) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = appended.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+            waiters.decrementAndGet();
+        }
+    }
+
+    private boolean isPublished(long sequence) {
+        if (sequence > lastSequence.get()) {
+            return false;
+        }
+        ChangeEvent event = events.get((int) sequence & mask);
+        return event != null && event.getSequence() >= sequence;
+    }
+
+    private void checkAvailable(long afterSequence) {
+        if (lastSequence.get() - afterSequence > events.length()) {
+            throw lagged(afterSequence);
+        }
+    }
+
+    private ReplayUnavailableException lagged(long afterSequence) {
+        return new ReplayUnavailableException("События после " + afterSequence
+                + " вытеснены из буфера повтора ёмкостью " + events.length());
+    }
+}
@@ -0,0 +1,45 @@
+package utils;
+
+import model.ChangeEvent;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Подписка читает события пачками в своём темпе: менеджер никогда не ждёт подписчика.
+// Отставший больше чем на ёмкость буфера подписчик получает ReplayUnavailableException.
+// Позицию можно сохранить и позже продолжить с неё через ObservableTaskManager.subscribe(position).
+public class ChangeSubscription {
+    private final ChangeLog log;
+    private long position;
+
+    ChangeSubscription(ChangeLog log, long position) {
+        this.log = log;
+        this.position = position;
+    }
+
+    // Номер последнего полученного события
+    public long getPosition() {
+        return position;
+    }
+
+    // Следующая пачка не больше maxEvents событий; пустая, если новых событий нет
+    public List<ChangeEvent> poll(int maxEvents) {
+        if (maxEvents <= 0) {
+            throw new IllegalArgumentException("Размер пачки должен быть положительным: " + maxEvents);
+        }
+        List<ChangeEvent> batch = log.read(position, maxEvents);
+        if (!batch.isEmpty()) {
+            position = batch.get(batch.size() - 1).getSequence();
+        }
+        return batch;
+    }
+
+    // Как poll, но ждёт появления хотя бы одного события не дольше timeout
+    public List<ChangeEvent> poll(int maxEvents, long timeout, TimeUnit unit) throws InterruptedException {
+        List<ChangeEvent> batch = poll(maxEvents);
+        if (batch.isEmpty() && log.await(position, timeout, unit)) {
+            batch = poll(maxEvents);
+        }
+        return batch;
+    }
+}
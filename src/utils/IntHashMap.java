@@ -0,0 +1,415 @@
+package utils;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+// Отображение int -> V без упаковки ключей.
+// Записи лежат подряд в массивах ключей и значений, хэш-индекс с открытой адресацией хранит их позиции.
+// Удалённая запись остаётся в массиве с пустым значением, пока массив не уплотнится.
+// Обход идёт в порядке добавления; пока ключи добавляются по возрастанию (как id из generateId),
+// это порядок ключей, и valuesAfter находит продолжение двоичным поиском.
+// Ключ, добавленный не по порядку, ломает этот порядок: пишущий код восстанавливает его вызовом sortByKey
+// после пачки таких вставок (отмена удаления, загрузка из файла). Чтение карту не меняет: valuesAfter
+// без порядка ключей работает, но сортирует подходящие записи на каждый вызов.
+// Значения null не допускаются.
+public class IntHashMap<V> {
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private Object[] values;
+    private int[] index;
+    private int used;
+    private int size;
+    private boolean sorted = true;
+    private int modCount;
+
+    public IntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntHashMap(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        keys = new int[capacity];
+        values = new Object[capacity];
+        index = new int[IntLinkedSet.tableSizeFor(capacity)];
+    }
+
+    public V get(int key) {
+        int position = index[findSlot(key)] - 1;
+        return position < 0 ? null : value(position);
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("IntHashMap не хранит null");
+        }
+        int slot = findSlot(key);
+        int position = index[slot] - 1;
+        if (position >= 0 && values[position] != null) {
+            V previous = value(position);
+            values[position] = value;
+            return previous;
+        }
+
+        if (used == keys.length) {
+            grow();
+            slot = findSlot(key);
+        }
+        if (used > 0 && keys[used - 1] >= key) {
+            sorted = false;
+        }
+        keys[used] = key;
+        values[used] = value;
+        index[slot] = ++used;
+        size++;
+        modCount++;
+        if (used * 2 > index.length) {
+            rebuildIndex(index.length * 2);
+        }
+        return null;
+    }
+
+    public V remove(int key) {
+        int position = index[findSlot(key)] - 1;
+        if (position < 0 || values[position] == null) {
+            return null;
+        }
+
+        V previous = value(position);
+        values[position] = null;
+        size--;
+        modCount++;
+        if (used > MIN_CAPACITY && size < used - size) {
+            compact(false);
+        }
+        return previous;
+    }
+
+    // Удаляет записи, ключи которых подходят под filter, одним проходом по массиву вместо поиска
+    // каждого ключа; возвращает число удалённых
+    public int removeIf(IntPredicate filter) {
+        return removeIf(filter, value -> {
+        });
+    }
+
+    // То же, removed получает каждое удалённое значение
+    public int removeIf(IntPredicate filter, Consumer<? super V> removed) {
+        int removedCount = 0;
+        for (int position = 0; position < used; position++) {
+            if (values[position] != null && filter.test(keys[position])) {
+                removed.accept(value(position));
+                values[position] = null;
+                removedCount++;
+            }
+        }
+        if (removedCount == 0) {
+            return 0;
+        }
+        size -= removedCount;
+        if (size == 0) {
+            clear();
+        } else {
+            compact(false);
+        }
+        return removedCount;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        keys = new int[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+        index = new int[IntLinkedSet.tableSizeFor(MIN_CAPACITY)];
+        used = 0;
+        size = 0;
+        sorted = true;
+        modCount++;
+    }
+
+    public void forEachKey(IntConsumer action) {
+        int expectedModCount = modCount;
+        for (int position = 0; position < used; position++) {
+            if (values[position] != null) {
+                action.accept(keys[position]);
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    // Живое представление значений без копирования
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return iteratorFrom(0);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Spliterator<V> spliterator() {
+                return new ValueSpliterator(0, used, modCount);
+            }
+        };
+    }
+
+    // Восстанавливает порядок ключей после вставок не по порядку за O(n log n); при порядке ничего не делает.
+    // Переставляет записи, поэтому открытые итераторы бросят ConcurrentModificationException
+    public void sortByKey() {
+        if (!sorted) {
+            compact(true);
+        }
+    }
+
+    public boolean isSortedByKey() {
+        return sorted;
+    }
+
+    // Значения с ключами больше afterKey по возрастанию ключей. При порядке ключей - двоичный поиск,
+    // иначе подходящие записи сортируются заново при каждом вызове (см. sortByKey)
+    public Iterator<V> valuesAfter(int afterKey) {
+        if (!sorted) {
+            return unsortedValuesAfter(afterKey);
+        }
+        int low = 0;
+        int high = used;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] <= afterKey) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return iteratorFrom(low);
+    }
+
+    private Iterator<V> unsortedValuesAfter(int afterKey) {
+        long[] order = new long[size];
+        int count = 0;
+        for (int position = 0; position < used; position++) {
+            if (values[position] != null && keys[position] > afterKey) {
+                order[count++] = ((long) keys[position] << 32) | position;
+            }
+        }
+        Arrays.sort(order, 0, count);
+        int total = count;
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < total;
+            }
+
+            @Override
+            public V next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= total) {
+                    throw new NoSuchElementException();
+                }
+                return value((int) order[next++]);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int position) {
+        return (V) values[position];
+    }
+
+    private Iterator<V> iteratorFrom(int start) {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private int position = advance(start);
+
+            private int advance(int from) {
+                while (from < used && values[from] == null) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return position < used;
+            }
+
+            @Override
+            public V next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (position >= used) {
+                    throw new NoSuchElementException();
+                }
+                V value = value(position);
+                position = advance(position + 1);
+                return value;
+            }
+        };
+    }
+
+    // Делится пополам по диапазону позиций - без копирования, как у ArrayList
+    private class ValueSpliterator implements Spliterator<V> {
+        private final int expectedModCount;
+        private int position;
+        private final int end;
+
+        ValueSpliterator(int position, int end, int expectedModCount) {
+            this.position = position;
+            this.end = end;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super V> action) {
+            while (position < end) {
+                V value = value(position++);
+                if (value != null) {
+                    action.accept(value);
+                    checkModCount();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super V> action) {
+            for (; position < end; position++) {
+                V value = value(position);
+                if (value != null) {
+                    action.accept(value);
+                }
+            }
+            checkModCount();
+        }
+
+        @Override
+        public Spliterator<V> trySplit() {
+            int middle = (position + end) >>> 1;
+            if (middle <= position) {
+                return null;
+            }
+            ValueSpliterator prefix = new ValueSpliterator(position, middle, expectedModCount);
+            position = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+
+        private void checkModCount() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    // Слот индекса с этим ключом (живым или удалённым) либо первый пустой слот
+    private int findSlot(int key) {
+        int mask = index.length - 1;
+        int slot = IntLinkedSet.mix(key) & mask;
+        while (index[slot] != 0 && keys[index[slot] - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        if (size < used - size) {
+            compact(false);
+            if (used < keys.length) {
+                return;
+            }
+        }
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    private void compact(boolean sort) {
+        int target = 0;
+        for (int position = 0; position < used; position++) {
+            if (values[position] != null) {
+                keys[target] = keys[position];
+                values[target] = values[position];
+                target++;
+            }
+        }
+        Arrays.fill(values, target, used, null);
+        used = target;
+        if (sort && !sorted) {
+            sortEntries();
+        }
+        modCount++;
+        rebuildIndex(IntLinkedSet.tableSizeFor(Math.max(MIN_CAPACITY, used)));
+    }
+
+    private void sortEntries() {
+        long[] order = new long[used];
+        for (int position = 0; position < used; position++) {
+            order[position] = ((long) keys[position] << 32) | position;
+        }
+        Arrays.sort(order);
+        int[] sortedKeys = new int[keys.length];
+        Object[] sortedValues = new Object[values.length];
+        for (int i = 0; i < used; i++) {
+            int position = (int) order[i];
+            sortedKeys[i] = keys[position];
+            sortedValues[i] = values[position];
+        }
+        keys = sortedKeys;
+        values = sortedValues;
+        sorted = true;
+    }
+
+    private void rebuildIndex(int tableSize) {
+        index = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int position = 0; position < used; position++) {
+            if (values[position] == null) {
+                continue;
+            }
+            int slot = IntLinkedSet.mix(keys[position]) & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = position + 1;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+// Множество int с сохранением порядка добавления.
+// Значения лежат подряд в массиве, хэш-индекс с открытой адресацией хранит их позиции.
+// Удаление помечает позицию пустой за O(1); когда пустых становится больше живых, массив уплотняется.
+public class IntLinkedSet {
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] values;
+    private boolean[] live;
+    private int[] index;
+    private int used;
+    private int size;
+    private int modCount;
+    private final View view = new View();
+
+    public IntLinkedSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntLinkedSet(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        values = new int[capacity];
+        live = new boolean[capacity];
+        index = new int[tableSizeFor(capacity)];
+    }
+
+    public boolean add(int value) {
+        int slot = findSlot(value);
+        int position = index[slot] - 1;
+        if (position >= 0 && live[position]) {
+            return false;
+        }
+
+        if (used == values.length) {
+            grow();
+            slot = findSlot(value);
+        }
+        values[used] = value;
+        live[used] = true;
+        index[slot] = ++used;
+        size++;
+        modCount++;
+        if (used * 2 > index.length) {
+            rebuildIndex(index.length * 2);
+        }
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int position = positionOf(value);
+        if (position < 0) {
+            return false;
+        }
+
+        live[position] = false;
+        size--;
+        modCount++;
+        if (used > MIN_CAPACITY && size < used - size) {
+            compact();
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return positionOf(value) >= 0;
+    }
+
+    // Номер значения в порядке обхода или -1; без удалённых позиций за O(1), иначе за O(n)
+    public int indexOf(int value) {
+        int position = positionOf(value);
+        if (position < 0 || used == size) {
+            return position;
+        }
+        int ordinal = 0;
+        for (int i = 0; i < position; i++) {
+            if (live[i]) {
+                ordinal++;
+            }
+        }
+        return ordinal;
+    }
+
+    // Переносит значение на место ordinal в порядке обхода (за последним - в конец) за O(n)
+    public void move(int value, int ordinal) {
+        place(new int[] {value}, new int[] {ordinal}, 1);
+    }
+
+    // Ставит values[i] на место ordinals[i] в порядке обхода, остальные значения сохраняют взаимный порядок.
+    // ordinals - по возрастанию; значения, которых нет в множестве, и повторы пропускаются. За O(n) на весь набор
+    public void place(int[] values, int[] ordinals, int count) {
+        if (used != size) {
+            compact();
+        }
+        IntLinkedSet moving = new IntLinkedSet(count);
+        boolean inPlace = true;
+        for (int i = 0; i < count; i++) {
+            int ordinal = indexOf(values[i]);
+            if (ordinal >= 0 && moving.add(values[i])) {
+                inPlace &= ordinal == Math.min(ordinals[i], size - 1);
+            }
+        }
+        if (inPlace) {
+            return;
+        }
+        int[] order = new int[size];
+        int next = 0;
+        int source = 0;
+        int rest = size - moving.size();
+        IntLinkedSet pending = moving.copy();
+        for (int i = 0; i <= count; i++) {
+            if (i < count && !pending.remove(values[i])) {
+                continue;
+            }
+            for (; (i == count || next < ordinals[i]) && rest > 0; rest--) {
+                while (moving.contains(this.values[source])) {
+                    source++;
+                }
+                order[next++] = this.values[source++];
+            }
+            if (i < count) {
+                order[next++] = values[i];
+            }
+        }
+        System.arraycopy(order, 0, this.values, 0, size);
+        modCount++;
+        rebuildIndex(index.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        values = new int[MIN_CAPACITY];
+        live = new boolean[MIN_CAPACITY];
+        index = new int[tableSizeFor(MIN_CAPACITY)];
+        used = 0;
+        size = 0;
+        modCount++;
+    }
+
+    public IntLinkedSet copy() {
+        IntLinkedSet copy = new IntLinkedSet(size);
+        for (PrimitiveIterator.OfInt iterator = iteratorFrom(0); iterator.hasNext(); ) {
+            copy.add(iterator.nextInt());
+        }
+        return copy;
+    }
+
+    public List<Integer> toList() {
+        List<Integer> result = new ArrayList<>(size);
+        for (PrimitiveIterator.OfInt iterator = iteratorFrom(0); iterator.hasNext(); ) {
+            result.add(iterator.nextInt());
+        }
+        return result;
+    }
+
+    public View view() {
+        return view;
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+
+    // Представление только для чтения; отражает текущее состояние множества
+    public class View {
+        private View() {
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public boolean contains(int value) {
+            return IntLinkedSet.this.contains(value);
+        }
+
+        public PrimitiveIterator.OfInt iterator() {
+            return iteratorFrom(0);
+        }
+
+        // Итератор по значениям, добавленным после value; null, если value нет в множестве
+        public PrimitiveIterator.OfInt iteratorAfter(int value) {
+            int position = positionOf(value);
+            return position < 0 ? null : iteratorFrom(position + 1);
+        }
+
+        public IntStream stream() {
+            Spliterator.OfInt spliterator = Spliterators.spliterator(iteratorFrom(0), size,
+                    Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+            return StreamSupport.intStream(spliterator, false);
+        }
+
+        public List<Integer> toList() {
+            return IntLinkedSet.this.toList();
+        }
+
+        @Override
+        public String toString() {
+            return IntLinkedSet.this.toString();
+        }
+    }
+
+    private PrimitiveIterator.OfInt iteratorFrom(int start) {
+        return new PrimitiveIterator.OfInt() {
+            private final int expectedModCount = modCount;
+            private int position = advance(start);
+
+            private int advance(int from) {
+                while (from < used && !live[from]) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return position < used;
+            }
+
+            @Override
+            public int nextInt() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (position >= used) {
+                    throw new NoSuchElementException();
+                }
+                int value = values[position];
+                position = advance(position + 1);
+                return value;
+            }
+        };
+    }
+
+    private int positionOf(int value) {
+        int position = index[findSlot(value)] - 1;
+        return position >= 0 && live[position] ? position : -1;
+    }
+
+    // Слот индекса с этим значением (живым или удалённым) либо первый пустой слот
+    private int findSlot(int value) {
+        int mask = index.length - 1;
+        int slot = mix(value) & mask;
+        while (index[slot] != 0 && values[index[slot] - 1] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        if (size < used - size) {
+            compact();
+            if (used < values.length) {
+                return;
+            }
+        }
+        int capacity = values.length * 2;
+        values = Arrays.copyOf(values, capacity);
+        live = Arrays.copyOf(live, capacity);
+    }
+
+    private void compact() {
+        int target = 0;
+        for (int position = 0; position < used; position++) {
+            if (live[position]) {
+                values[target] = values[position];
+                live[target] = true;
+                target++;
+            }
+        }
+        for (int position = target; position < used; position++) {
+            live[position] = false;
+        }
+        used = target;
+        modCount++;
+        rebuildIndex(tableSizeFor(Math.max(MIN_CAPACITY, used)));
+    }
+
+    private void rebuildIndex(int tableSize) {
+        index = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int position = 0; position < used; position++) {
+            if (!live[position]) {
+                continue;
+            }
+            int slot = mix(values[position]) & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = position + 1;
+        }
+    }
+
+    static int tableSizeFor(int entries) {
+        return Integer.highestOneBit(Math.max(entries, 2) * 2 - 1) * 2;
+    }
+
+    static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
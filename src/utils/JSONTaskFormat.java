@@ -0,0 +1,113 @@
+package utils;
+
+import enums.Status;
+import enums.TaskType;
+import model.EpicRollup;
+import model.Task;
+import model.ViewCount;
+import model.ViewEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// JSON-представление задач для HTTP API:
+// {"id":1,"name":"...","description":"...","status":"NEW","epicId":2,"subtaskIds":[3,4],
+//  "startTime":"2024-01-31T09:00:00","duration":90,"endTime":"2024-01-31T10:30:00"}
+// epicId есть только у подзадач, subtaskIds - только у эпиков, parentId - только у вложенных эпиков;
+// duration - в минутах, endTime вычисляется
+// и при разборе не читается. Неизвестные поля при разборе пропускаются.
+// Строковые обёртки над JsonTaskWriter и JsonTaskReader; для потоков данных удобнее использовать их напрямую
+public class JSONTaskFormat {
+    private static final int BUFFER_SIZE = 256;
+
+    private JSONTaskFormat() {
+    }
+
+    public static String toJson(Task task) {
+        return new String(toJsonBytes(task), StandardCharsets.UTF_8);
+    }
+
+    // JSON в UTF-8 без промежуточной строки
+    public static byte[] toJsonBytes(Task task) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        try (JsonTaskWriter writer = new JsonTaskWriter(out, BUFFER_SIZE)) {
+            writer.write(task);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Задача типа type; id = 0, если поле id не задано
+    public static Task fromJson(String json, TaskType type) {
+        return fromJson(json.getBytes(StandardCharsets.UTF_8), type);
+    }
+
+    public static Task fromJson(byte[] json, TaskType type) {
+        JsonTaskReader reader = new JsonTaskReader(new ByteArrayInputStream(json), Math.max(1, json.length));
+        try {
+            Task task = reader.read(type);
+            reader.expectEnd();
+            return task;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Итоги эпиков: [{"epicId":1,"parentId":0,"depth":0,"status":"IN_PROGRESS","counts":{"NEW":1,...},
+    // "subtaskTotal":3,"subtaskCount":1,"childEpicCount":1,"progress":33}]
+    public static String toJson(List<EpicRollup> rollups) {
+        StringBuilder json = new StringBuilder(rollups.size() * 160).append('[');
+        for (EpicRollup rollup : rollups) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"epicId\":").append(rollup.getEpicId())
+                    .append(",\"parentId\":").append(rollup.getParentId())
+                    .append(",\"depth\":").append(rollup.getDepth())
+                    .append(",\"status\":\"").append(rollup.getStatus()).append("\",\"counts\":{");
+            for (Status status : Status.values()) {
+                if (status.ordinal() > 0) {
+                    json.append(',');
+                }
+                json.append('"').append(status).append("\":").append(rollup.getCount(status));
+            }
+            json.append("},\"subtaskTotal\":").append(rollup.getSubtaskTotal())
+                    .append(",\"subtaskCount\":").append(rollup.getSubtaskCount())
+                    .append(",\"childEpicCount\":").append(rollup.getChildEpicCount())
+                    .append(",\"progress\":").append(rollup.getProgress())
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    // История просмотров пользователя: [{"id":1,"viewedAt":"2024-01-31T09:00:00.123Z"}]
+    public static String historyToJson(List<ViewEntry> entries) {
+        StringBuilder json = new StringBuilder(entries.size() * 48).append('[');
+        for (ViewEntry entry : entries) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(entry.getTaskId())
+                    .append(",\"viewedAt\":\"").append(entry.getViewedAt()).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    // Самые просматриваемые задачи: [{"id":1,"views":12}]
+    public static String viewCountsToJson(List<ViewCount> counts) {
+        StringBuilder json = new StringBuilder(counts.size() * 24).append('[');
+        for (ViewCount count : counts) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(count.getTaskId())
+                    .append(",\"views\":").append(count.getViews()).append('}');
+        }
+        return json.append(']').toString();
+    }
+}
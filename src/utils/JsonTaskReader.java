@@ -0,0 +1,444 @@
+package utils;
+
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Потоковый разбор задач из JSON (формат см. JSONTaskFormat) без промежуточного дерева:
+// поля записываются прямо в создаваемую задачу, имена полей, статусы и даты разбираются как байты.
+// Из объектов создаются только сама задача и её строки. Неизвестные поля пропускаются.
+// Ошибки формата - IllegalArgumentException. Не потокобезопасен
+public class JsonTaskReader {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final byte[] ID = ascii("id");
+    private static final byte[] NAME = ascii("name");
+    private static final byte[] DESCRIPTION = ascii("description");
+    private static final byte[] STATUS = ascii("status");
+    private static final byte[] EPIC_ID = ascii("epicId");
+    private static final byte[] SUBTASK_IDS = ascii("subtaskIds");
+    private static final byte[] PARENT_ID = ascii("parentId");
+    private static final byte[] START_TIME = ascii("startTime");
+    private static final byte[] DURATION = ascii("duration");
+    private static final byte[][] STATUS_NAMES = new byte[Status.values().length][];
+
+    static {
+        for (Status status : Status.values()) {
+            STATUS_NAMES[status.ordinal()] = ascii(status.name());
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private long consumed;
+    // Байты имени поля или статуса, символы строкового значения - переиспользуются между вызовами
+    private byte[] key = new byte[32];
+    private int keyLength;
+    private char[] chars = new char[64];
+
+    public JsonTaskReader(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public JsonTaskReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    // Следующий объект как задача типа type; id = 0, если поле id не задано
+    public Task read(TaskType type) throws IOException {
+        Task task = newTask(type);
+        expect('{');
+        if (!consume('}')) {
+            do {
+                readKey();
+                expect(':');
+                readField(task);
+            } while (consume(','));
+            expect('}');
+        }
+        return task;
+    }
+
+    // Массив объектов; каждая задача передаётся в action сразу после разбора
+    public void readArray(TaskType type, Consumer<? super Task> action) throws IOException {
+        expect('[');
+        if (!consume(']')) {
+            do {
+                action.accept(read(type));
+            } while (consume(','));
+            expect(']');
+        }
+    }
+
+    // Проверяет, что после разобранного значения остались только пробелы
+    public void expectEnd() throws IOException {
+        if (peek() >= 0) {
+            throw error("лишние данные после значения");
+        }
+    }
+
+    private static Task newTask(TaskType type) {
+        switch (type) {
+            case EPIC:
+                return new Epic(null, null);
+            case SUBTASK:
+                return new Subtask(null, null, null, 0);
+            default:
+                return new Task(null, null, null);
+        }
+    }
+
+    private void readField(Task task) throws IOException {
+        if (keyEquals(ID)) {
+            task.setId(readInt());
+        } else if (keyEquals(NAME)) {
+            task.setName(readNullableString());
+        } else if (keyEquals(DESCRIPTION)) {
+            task.setDescription(readNullableString());
+        } else if (keyEquals(STATUS)) {
+            Status status = readStatus();
+            // У эпика статус вычисляется, пустой статус означает NEW
+            task.setStatus(status == null && task instanceof Epic ? Status.NEW : status);
+        } else if (keyEquals(START_TIME)) {
+            task.setStartTime(readDateTime());
+        } else if (keyEquals(DURATION)) {
+            task.setDuration(consumeNull() ? null : Duration.ofMinutes(readLong()));
+        } else if (keyEquals(EPIC_ID) && task instanceof Subtask) {
+            ((Subtask) task).setEpicId(readInt());
+        } else if (keyEquals(PARENT_ID) && task instanceof Epic) {
+            ((Epic) task).setParentId(consumeNull() ? Epic.NO_PARENT : readInt());
+        } else if (keyEquals(SUBTASK_IDS) && task instanceof Epic) {
+            Epic epic = (Epic) task;
+            expect('[');
+            if (!consume(']')) {
+                do {
+                    epic.addSubtaskId(readInt());
+                } while (consume(','));
+                expect(']');
+            }
+        } else {
+            skipValue();
+        }
+    }
+
+    private Status readStatus() throws IOException {
+        if (consumeNull()) {
+            return null;
+        }
+        readKey();
+        for (Status status : Status.values()) {
+            if (keyEquals(STATUS_NAMES[status.ordinal()])) {
+                return status;
+            }
+        }
+        throw error("неизвестный статус " + new String(key, 0, keyLength, StandardCharsets.UTF_8));
+    }
+
+    private int readInt() throws IOException {
+        long value = readLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("число вне диапазона int");
+        }
+        return (int) value;
+    }
+
+    private long readLong() throws IOException {
+        int c = peek();
+        boolean negative = c == '-';
+        if (negative) {
+            position++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (position < limit || fill()) {
+            int digit = buffer[position] - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                throw error("число вне диапазона long");
+            }
+            value = value * 10 + digit;
+            position++;
+            digits++;
+        }
+        if (digits == 0) {
+            throw error("ожидалось целое число");
+        }
+        return negative ? -value : value;
+    }
+
+    // ISO-8601 без зоны; частый вид yyyy-MM-ddTHH:mm[:ss[.n...]] разбирается из байтов без строки
+    private LocalDateTime readDateTime() throws IOException {
+        if (consumeNull()) {
+            return null;
+        }
+        readKey();
+        try {
+            if (keyLength >= 16 && key[4] == '-' && key[7] == '-' && key[10] == 'T' && key[13] == ':') {
+                int second = 0;
+                int nano = 0;
+                if (keyLength == 16 || key[16] == ':' && (keyLength == 19
+                        || keyLength > 20 && keyLength <= 29 && key[19] == '.')) {
+                    if (keyLength > 16) {
+                        second = digits(17, 2);
+                    }
+                    if (keyLength > 20) {
+                        int fraction = keyLength - 20;
+                        nano = digits(20, fraction);
+                        for (int i = fraction; i < 9; i++) {
+                            nano *= 10;
+                        }
+                    }
+                    if (second >= 0 && nano >= 0) {
+                        int year = digits(0, 4);
+                        int month = digits(5, 2);
+                        int day = digits(8, 2);
+                        int hour = digits(11, 2);
+                        int minute = digits(14, 2);
+                        if ((year | month | day | hour | minute) >= 0) {
+                            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+                        }
+                    }
+                }
+            }
+            return LocalDateTime.parse(new String(key, 0, keyLength, StandardCharsets.US_ASCII));
+        } catch (DateTimeException e) {
+            throw error("некорректная дата " + new String(key, 0, keyLength, StandardCharsets.UTF_8));
+        }
+    }
+
+    // Число из count цифр key начиная с from; -1, если встретилась не цифра
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = key[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Строка без escape-последовательностей и не-ASCII символов - в key; используется для имён полей и статусов
+    private void readKey() throws IOException {
+        expect('"');
+        keyLength = 0;
+        while (true) {
+            int c = next();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\' || c < 0) {
+                // Экранированное имя поля не совпадёт ни с одним известным, но должно быть корректно пропущено
+                position--;
+                skipStringTail();
+                keyLength = 0;
+                return;
+            }
+            if (keyLength == key.length) {
+                key = Arrays.copyOf(key, key.length * 2);
+            }
+            key[keyLength++] = (byte) c;
+        }
+    }
+
+    private boolean keyEquals(byte[] expected) {
+        return Arrays.equals(key, 0, keyLength, expected, 0, expected.length);
+    }
+
+    private String readNullableString() throws IOException {
+        if (consumeNull()) {
+            return null;
+        }
+        expect('"');
+        int length = 0;
+        while (true) {
+            int c = next();
+            if (c < 0) {
+                throw error("незакрытая строка");
+            }
+            if (c == '"') {
+                return new String(chars, 0, length);
+            }
+            if (length + 2 > chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+            if (c == '\\') {
+                chars[length++] = readEscape();
+            } else if (c < 0x80) {
+                chars[length++] = (char) c;
+            } else if ((c & 0xE0) == 0xC0) {
+                chars[length++] = (char) ((c & 0x1F) << 6 | continuation());
+            } else if ((c & 0xF0) == 0xE0) {
+                int high = (c & 0x0F) << 12 | continuation() << 6;
+                chars[length++] = (char) (high | continuation());
+            } else if ((c & 0xF8) == 0xF0) {
+                int codePoint = (c & 0x07) << 18 | continuation() << 12;
+                codePoint |= continuation() << 6;
+                codePoint |= continuation();
+                chars[length++] = Character.highSurrogate(codePoint);
+                chars[length++] = Character.lowSurrogate(codePoint);
+            } else {
+                throw error("некорректный UTF-8");
+            }
+        }
+    }
+
+    private int continuation() throws IOException {
+        int c = next();
+        if ((c & 0xC0) != 0x80) {
+            throw error("некорректный UTF-8");
+        }
+        return c & 0x3F;
+    }
+
+    private char readEscape() throws IOException {
+        int c = next();
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(next(), 16);
+                    if (digit < 0) {
+                        throw error("некорректная escape-последовательность");
+                    }
+                    value = value << 4 | digit;
+                }
+                return (char) value;
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw error("некорректная escape-последовательность");
+        }
+    }
+
+    private void skipStringTail() throws IOException {
+        while (true) {
+            int c = next();
+            if (c < 0) {
+                throw error("незакрытая строка");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                next();
+            }
+        }
+    }
+
+    // Пропуск значения неизвестного поля: строки, числа, литерала, массива или объекта
+    private void skipValue() throws IOException {
+        int c = peek();
+        if (c == '"') {
+            position++;
+            skipStringTail();
+        } else if (c == '[' || c == '{') {
+            char close = c == '[' ? ']' : '}';
+            position++;
+            if (!consume(close)) {
+                do {
+                    if (c == '{') {
+                        readKey();
+                        expect(':');
+                    }
+                    skipValue();
+                } while (consume(','));
+                expect(close);
+            }
+        } else if (c < 0) {
+            throw error("ожидалось значение");
+        } else {
+            while ((position < limit || fill()) && ",}] \t\r\n".indexOf(buffer[position]) < 0) {
+                position++;
+            }
+        }
+    }
+
+    private boolean consumeNull() throws IOException {
+        if (peek() != 'n') {
+            return false;
+        }
+        position++;
+        if (next() != 'u' || next() != 'l' || next() != 'l') {
+            throw error("ожидалось null");
+        }
+        return true;
+    }
+
+    private boolean consume(char expected) throws IOException {
+        if (peek() == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (!consume(expected)) {
+            throw error("ожидался символ '" + expected + "'");
+        }
+    }
+
+    // Следующий значимый байт без пробелов перед ним; -1 в конце данных
+    private int peek() throws IOException {
+        while (position < limit || fill()) {
+            byte c = buffer[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c & 0xFF;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    private int next() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        consumed += limit;
+        position = 0;
+        limit = Math.max(0, in.read(buffer));
+        return limit > 0;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Некорректный JSON в позиции " + (consumed + position) + ": " + message);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
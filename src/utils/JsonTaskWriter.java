@@ -0,0 +1,324 @@
+package utils;
+
+import enums.Status;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.PrimitiveIterator;
+
+// Потоковая запись задач в JSON (формат см. JSONTaskFormat) прямо в байтовый буфер.
+// Числа, даты и строки кодируются в UTF-8 без промежуточных String и StringBuilder,
+// поэтому запись задачи почти не создаёт мусора. Буфер сбрасывается в out по заполнении.
+// Не потокобезопасен
+public class JsonTaskWriter implements Flushable, Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    // Самая длинная запись одного символа: escape-последовательность \\u001f
+    private static final int MAX_CHAR_BYTES = 6;
+    private static final int MAX_LONG_BYTES = 20;
+    private static final int NANOS_DIGITS = 9;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] NAME = ascii(",\"name\":");
+    private static final byte[] DESCRIPTION = ascii(",\"description\":");
+    private static final byte[] STATUS = ascii(",\"status\":");
+    private static final byte[] EPIC_ID = ascii(",\"epicId\":");
+    private static final byte[] SUBTASK_IDS = ascii(",\"subtaskIds\":[");
+    private static final byte[] PARENT_ID = ascii(",\"parentId\":");
+    private static final byte[] START_TIME = ascii(",\"startTime\":");
+    private static final byte[] DURATION = ascii(",\"duration\":");
+    private static final byte[] END_TIME = ascii(",\"endTime\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[][] STATUS_NAMES = new byte[Status.values().length][];
+
+    static {
+        for (Status status : Status.values()) {
+            STATUS_NAMES[status.ordinal()] = ascii("\"" + status.name() + "\"");
+        }
+    }
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+    // Вложенных массивов нет: задачи пишутся только в массив верхнего уровня
+    private boolean inArray;
+    private boolean firstInArray;
+
+    public JsonTaskWriter(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public JsonTaskWriter(OutputStream out, int bufferSize) {
+        if (bufferSize < MAX_LONG_BYTES + MAX_CHAR_BYTES) {
+            throw new IllegalArgumentException("Слишком маленький буфер: " + bufferSize);
+        }
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    public void beginArray() throws IOException {
+        if (inArray) {
+            throw new IllegalStateException("Массив уже открыт");
+        }
+        writeByte('[');
+        inArray = true;
+        firstInArray = true;
+    }
+
+    public void endArray() throws IOException {
+        if (!inArray) {
+            throw new IllegalStateException("Массив не открыт");
+        }
+        writeByte(']');
+        inArray = false;
+    }
+
+    public void write(Task task) throws IOException {
+        if (inArray) {
+            if (!firstInArray) {
+                writeByte(',');
+            }
+            firstInArray = false;
+        }
+        writeBytes(ID);
+        writeInt(task.getId());
+        writeBytes(NAME);
+        writeString(task.getName());
+        writeBytes(DESCRIPTION);
+        writeString(task.getDescription());
+        writeBytes(STATUS);
+        writeBytes(task.getStatus() == null ? NULL : STATUS_NAMES[task.getStatus().ordinal()]);
+        if (task instanceof Subtask) {
+            writeBytes(EPIC_ID);
+            writeInt(((Subtask) task).getEpicId());
+        }
+        if (task instanceof Epic) {
+            Epic epic = (Epic) task;
+            writeSubtaskIds(epic);
+            if (epic.getParentId() != Epic.NO_PARENT) {
+                writeBytes(PARENT_ID);
+                writeInt(epic.getParentId());
+            }
+        }
+        writeBytes(START_TIME);
+        writeDateTime(task.getStartTime());
+        writeBytes(DURATION);
+        Duration duration = task.getDuration();
+        if (duration == null) {
+            writeBytes(NULL);
+        } else {
+            writeLong(duration.toMinutes());
+        }
+        writeBytes(END_TIME);
+        writeDateTime(task.getEndTime());
+        writeByte('}');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeSubtaskIds(Epic epic) throws IOException {
+        writeBytes(SUBTASK_IDS);
+        // Список подзадач эпика может меняться другими потоками, поэтому обход под его монитором
+        synchronized (epic) {
+            boolean first = true;
+            for (PrimitiveIterator.OfInt ids = epic.getSubtaskIdsView().iterator(); ids.hasNext(); ) {
+                if (!first) {
+                    writeByte(',');
+                }
+                writeInt(ids.nextInt());
+                first = false;
+            }
+        }
+        writeByte(']');
+    }
+
+    private void writeByte(int value) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            drain();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeInt(int value) throws IOException {
+        writeLong(value);
+    }
+
+    private void writeLong(long value) throws IOException {
+        ensureCapacity(MAX_LONG_BYTES);
+        if (value == Long.MIN_VALUE) {
+            writeBytes(ascii(Long.toString(value)));
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    // ISO-8601 без зоны: 2024-01-31T09:05:00, дробная часть - только если есть наносекунды
+    private void writeDateTime(LocalDateTime value) throws IOException {
+        if (value == null) {
+            writeBytes(NULL);
+            return;
+        }
+        if (value.getYear() < 0 || value.getYear() > 9999) {
+            writeString(value.toString());
+            return;
+        }
+        writeByte('"');
+        writeDigits(value.getYear(), 4);
+        writeByte('-');
+        writeDigits(value.getMonthValue(), 2);
+        writeByte('-');
+        writeDigits(value.getDayOfMonth(), 2);
+        writeByte('T');
+        writeDigits(value.getHour(), 2);
+        writeByte(':');
+        writeDigits(value.getMinute(), 2);
+        writeByte(':');
+        writeDigits(value.getSecond(), 2);
+        if (value.getNano() != 0) {
+            writeByte('.');
+            writeDigits(value.getNano(), NANOS_DIGITS);
+        }
+        writeByte('"');
+    }
+
+    // Неотрицательное число ровно в count цифр с ведущими нулями
+    private void writeDigits(int value, int count) throws IOException {
+        ensureCapacity(count);
+        for (int i = position + count - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += count;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeBytes(NULL);
+            return;
+        }
+        writeByte('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            ensureCapacity(MAX_CHAR_BYTES);
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                writeAsciiChar(c);
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // Непарный суррогат нельзя записать в UTF-8
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        writeByte('"');
+    }
+
+    // Вызывается, когда в буфере есть место под MAX_CHAR_BYTES
+    private void writeAsciiChar(char c) {
+        switch (c) {
+            case '"':
+            case '\\':
+                buffer[position++] = '\\';
+                buffer[position++] = (byte) c;
+                break;
+            case '\n':
+                buffer[position++] = '\\';
+                buffer[position++] = 'n';
+                break;
+            case '\r':
+                buffer[position++] = '\\';
+                buffer[position++] = 'r';
+                break;
+            case '\t':
+                buffer[position++] = '\\';
+                buffer[position++] = 't';
+                break;
+            default:
+                if (c < 0x20) {
+                    buffer[position++] = '\\';
+                    buffer[position++] = 'u';
+                    buffer[position++] = '0';
+                    buffer[position++] = '0';
+                    buffer[position++] = HEX[c >> 4];
+                    buffer[position++] = HEX[c & 0xF];
+                } else {
+                    buffer[position++] = (byte) c;
+                }
+        }
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.length - position < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
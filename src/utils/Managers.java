@@ -1,16 +1,84 @@
 package utils;
 
+import controllers.AsyncHistoryManager;
+import controllers.ConcurrentTaskManager;
+import controllers.FileBackedTaskManager;
 import controllers.InMemoryHistoryManager;
 import controllers.InMemoryTaskManager;
+import controllers.InstrumentedHistoryManager;
+import controllers.InstrumentedTaskManager;
+import controllers.OffHeapTaskManager;
+import controllers.ShardedTaskManager;
 import impl.HistoryManager;
+import impl.JournaledTaskManager;
 import impl.TaskManager;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
 public class Managers {
-    public static TaskManager getDefault() {
+    public static JournaledTaskManager getDefault() {
         return new InMemoryTaskManager();
     }
 
+    // Менеджер для совместного использования из нескольких потоков
+    public static JournaledTaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
+    // Менеджер для очень больших досок: задачи хранятся в столбцах вне кучи, объекты собираются при чтении
+    public static OffHeapTaskManager getOffHeap() {
+        return new OffHeapTaskManager();
+    }
+
+    // Менеджер с журналом изменений и снимками в каталоге directory
+    public static FileBackedTaskManager getFileBacked(Path directory) {
+        return new FileBackedTaskManager(directory);
+    }
+
+    // Менеджер из shardCount шардов в этом процессе; шарды в отдельных процессах - cluster.LocalCluster
+    public static ShardedTaskManager getSharded(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Число шардов должно быть положительным: " + shardCount);
+        }
+        List<TaskManager> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(ShardedTaskManager.newShard(i, shardCount));
+        }
+        return new ShardedTaskManager(shards);
+    }
+
+    // Менеджер по умолчанию с замерами операций менеджера и истории в одних метриках;
+    // метрики выключаются через getMetrics().setEnabled(false) и публикуются в JMX через registerMBean
+    public static InstrumentedTaskManager getInstrumented() {
+        OperationMetrics metrics = new OperationMetrics();
+        return new InstrumentedTaskManager(new InMemoryTaskManager(
+                new InstrumentedHistoryManager(getDefaultHistory(), metrics)), metrics);
+    }
+
+    // Замеры операций любого менеджера с журналом изменений
+    public static InstrumentedTaskManager getInstrumented(JournaledTaskManager manager) {
+        return new InstrumentedTaskManager(manager, new OperationMetrics());
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    // maxSize = InMemoryHistoryManager.UNLIMITED отключает ограничение размера истории
+    public static HistoryManager getDefaultHistory(int maxSize) {
+        return new InMemoryHistoryManager(maxSize);
+    }
+
+    // История, в которую просмотры записываются фоновым потоком; getHistory видит все
+    // просмотры, завершившиеся до вызова
+    public static AsyncHistoryManager getAsyncHistory() {
+        return new AsyncHistoryManager(getDefaultHistory());
+    }
+
+    // Менеджер, у которого чтение по id не ждёт обновления истории
+    public static JournaledTaskManager getReadOptimized() {
+        return new InMemoryTaskManager(getAsyncHistory());
+    }
 }
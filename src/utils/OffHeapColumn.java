@@ -0,0 +1,91 @@
+package utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Столбец значений фиксированной ширины вне кучи. Строки лежат страницами по ROWS_PER_PAGE в прямых ByteBuffer;
+// страница выделяется при первой записи в неё, поэтому столбец растёт без копирования, а незаписанные строки
+// читаются как нули. Для кучи столбец - только массив ссылок на страницы, сборщик мусора значения не обходит.
+// Память страниц освобождается, когда сборщик убирает сами буферы. Не потокобезопасен
+public class OffHeapColumn {
+    public static final int PAGE_SHIFT = 16;
+    public static final int ROWS_PER_PAGE = 1 << PAGE_SHIFT;
+    private static final int ROW_MASK = ROWS_PER_PAGE - 1;
+
+    private final int width;
+    private ByteBuffer[] pages = new ByteBuffer[16];
+    private long allocatedBytes;
+
+    // width - байт на строку: 1 для getByte, 4 для getInt, 8 для getLong
+    public OffHeapColumn(int width) {
+        if (width != Byte.BYTES && width != Integer.BYTES && width != Long.BYTES) {
+            throw new IllegalArgumentException("Ширина столбца должна быть 1, 4 или 8 байт: " + width);
+        }
+        this.width = width;
+    }
+
+    public byte getByte(int row) {
+        ByteBuffer page = pageOf(row);
+        return page == null ? 0 : page.get(offsetOf(row));
+    }
+
+    public void putByte(int row, byte value) {
+        writablePageOf(row).put(offsetOf(row), value);
+    }
+
+    public int getInt(int row) {
+        ByteBuffer page = pageOf(row);
+        return page == null ? 0 : page.getInt(offsetOf(row));
+    }
+
+    public void putInt(int row, int value) {
+        writablePageOf(row).putInt(offsetOf(row), value);
+    }
+
+    public long getLong(int row) {
+        ByteBuffer page = pageOf(row);
+        return page == null ? 0 : page.getLong(offsetOf(row));
+    }
+
+    public void putLong(int row, long value) {
+        writablePageOf(row).putLong(offsetOf(row), value);
+    }
+
+    // Выделенная под страницы прямая память
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    // Отпускает все страницы; строки снова читаются как нули
+    public void clear() {
+        Arrays.fill(pages, null);
+        allocatedBytes = 0;
+    }
+
+    private int offsetOf(int row) {
+        return (row & ROW_MASK) * width;
+    }
+
+    private ByteBuffer pageOf(int row) {
+        int page = row >>> PAGE_SHIFT;
+        return page < pages.length ? pages[page] : null;
+    }
+
+    private ByteBuffer writablePageOf(int row) {
+        if (row < 0) {
+            throw new IndexOutOfBoundsException("Отрицательный номер строки: " + row);
+        }
+        int index = row >>> PAGE_SHIFT;
+        if (index >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(pages.length * 2, index + 1));
+        }
+        ByteBuffer page = pages[index];
+        if (page == null) {
+            page = ByteBuffer.allocateDirect(ROWS_PER_PAGE * width).order(ByteOrder.nativeOrder());
+            pages[index] = page;
+            allocatedBytes += page.capacity();
+        }
+        return page;
+    }
+}
@@ -0,0 +1,126 @@
+package utils;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Метрики операций менеджера: гистограмма задержек на каждую операцию и датчики (размеры хранилищ),
+// которые вычисляются при чтении. Замер ведётся так:
+//     long start = metrics.start();
+//     try { ... } finally { histogram.recordSince(start); }
+// При выключенных метриках start не вызывает System.nanoTime, и замер стоит одно чтение volatile-поля
+public class OperationMetrics implements OperationMetricsMXBean {
+    public static final String JMX_DOMAIN = "java-kanban";
+
+    private final Map<String, LatencyHistogram> operations = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+
+    public OperationMetrics() {
+        this(true);
+    }
+
+    public OperationMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // Гистограмма операции name; повторный вызов с тем же именем возвращает ту же гистограмму
+    public LatencyHistogram operation(String name) {
+        return operations.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public long start() {
+        return enabled ? System.nanoTime() : LatencyHistogram.NOT_STARTED;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // Операции, которые уже выполнялись, по имени
+    @Override
+    public Map<String, LatencyHistogram.Snapshot> getOperations() {
+        Map<String, LatencyHistogram.Snapshot> result = new TreeMap<>();
+        operations.forEach((name, histogram) -> {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            if (snapshot.getCount() > 0) {
+                result.put(name, snapshot);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> result = new TreeMap<>();
+        gauges.forEach((name, value) -> result.put(name, value.getAsLong()));
+        return result;
+    }
+
+    // Текстовая таблица: число вызовов и задержки в микросекундах, затем датчики
+    @Override
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%-28s %12s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "mean_us", "p50_us", "p90_us", "p99_us", "max_us"));
+        getOperations().forEach((name, snapshot) -> text.append(String.format(Locale.ROOT,
+                "%-28s %12d %10.3f %10.3f %10.3f %10.3f %10.3f%n", name, snapshot.getCount(),
+                snapshot.getMean() / 1000, snapshot.getP50() / 1000.0, snapshot.getP90() / 1000.0,
+                snapshot.getP99() / 1000.0, snapshot.getMax() / 1000.0)));
+        getGauges().forEach((name, value) -> text.append(String.format(Locale.ROOT, "%-28s %12d%n", name, value)));
+        return text.toString();
+    }
+
+    @Override
+    public void reset() {
+        operations.values().forEach(LatencyHistogram::reset);
+    }
+
+    // Регистрирует метрики в платформенном MBeanServer как java-kanban:type=TaskManager,name=name
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = objectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (InstanceAlreadyExistsException | MBeanRegistrationException | NotCompliantMBeanException e) {
+            throw new IllegalStateException("Не удалось зарегистрировать метрики " + name, e);
+        }
+    }
+
+    public void unregisterMBean(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+        } catch (InstanceNotFoundException e) {
+            // Уже снят
+        } catch (MBeanRegistrationException e) {
+            throw new IllegalStateException("Не удалось снять метрики " + name, e);
+        }
+    }
+
+    private static ObjectName objectName(String name) {
+        try {
+            return new ObjectName(JMX_DOMAIN + ":type=TaskManager,name=" + ObjectName.quote(name));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Некорректное имя метрик: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package utils;
+
+import java.util.Map;
+
+// Метрики менеджера в JMX (jconsole, VisualVM): гистограммы задержек в наносекундах по операциям и датчики
+public interface OperationMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    Map<String, LatencyHistogram.Snapshot> getOperations();
+
+    Map<String, Long> getGauges();
+
+    String dump();
+
+    void reset();
+}
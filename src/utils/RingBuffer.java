@@ -0,0 +1,93 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Ограниченная очередь без блокировок для многих производителей и одного потребителя.
+// Каждая ячейка хранит номер позиции, для которой она свободна (pos) или заполнена (pos + 1):
+// производитель занимает позицию CAS-ом по tail, потребитель читает ячейки по порядку без CAS.
+// poll и drainTo должен вызывать только один поток одновременно.
+public class RingBuffer<T> {
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость буфера должна быть положительной: " + capacity);
+        }
+        int size = Math.max(1, Integer.highestOneBit(capacity - 1) << 1);
+        elements = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // false, если буфер заполнен
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException("RingBuffer не хранит null");
+        }
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(slot, element);
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    public T poll() {
+        long position = head;
+        int slot = (int) position & mask;
+        if (sequences.get(slot) != position + 1) {
+            return null;
+        }
+        T element = elements.get(slot);
+        elements.lazySet(slot, null);
+        sequences.set(slot, position + capacity());
+        head = position + 1;
+        return element;
+    }
+
+    // Передаёт action не больше limit элементов; возвращает их число
+    public int drainTo(Consumer<? super T> action, int limit) {
+        int drained = 0;
+        T element;
+        while (drained < limit && (element = poll()) != null) {
+            action.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    // Приблизительный размер: производители могли занять позиции, но ещё не записать элементы
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,108 @@
+package utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Строки вне кучи: байты UTF-8 с длиной впереди дописываются в страницы прямой памяти, строка не пересекает
+// границу страницы (строка длиннее страницы получает собственную страницу). Ссылка на строку -
+// номер страницы в старших 32 битах и смещение в младших. Место освобождённых строк не переиспользуется,
+// а учитывается в getGarbageBytes: владелец арены переписывает живые строки в новую арену через copyTo,
+// когда мусора становится много. Не потокобезопасна
+public class StringArena {
+    public static final long NULL = -1;
+    public static final int PAGE_SIZE = 1 << 22;
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private final List<ByteBuffer> pages = new ArrayList<>();
+    private ByteBuffer current;
+    private long allocatedBytes;
+    private long liveBytes;
+    private long garbageBytes;
+
+    public long put(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        return append(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String get(long ref) {
+        if (ref == NULL) {
+            return null;
+        }
+        ByteBuffer page = pages.get(pageOf(ref));
+        int offset = offsetOf(ref);
+        byte[] bytes = new byte[page.getInt(offset)];
+        page.get(offset + LENGTH_BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Место строки становится мусором; ссылкой больше пользоваться нельзя
+    public void release(long ref) {
+        if (ref != NULL) {
+            int size = sizeOf(ref);
+            liveBytes -= size;
+            garbageBytes += size;
+        }
+    }
+
+    // Переписывает строку в target без декодирования и возвращает ссылку на неё в target
+    public long copyTo(long ref, StringArena target) {
+        if (ref == NULL) {
+            return NULL;
+        }
+        ByteBuffer page = pages.get(pageOf(ref));
+        int offset = offsetOf(ref);
+        byte[] bytes = new byte[page.getInt(offset)];
+        page.get(offset + LENGTH_BYTES, bytes);
+        return target.append(bytes);
+    }
+
+    // Байты живых строк вместе с длинами
+    public long getLiveBytes() {
+        return liveBytes;
+    }
+
+    public long getGarbageBytes() {
+        return garbageBytes;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void clear() {
+        pages.clear();
+        current = null;
+        allocatedBytes = 0;
+        liveBytes = 0;
+        garbageBytes = 0;
+    }
+
+    private long append(byte[] bytes) {
+        int size = LENGTH_BYTES + bytes.length;
+        if (current == null || current.remaining() < size) {
+            current = ByteBuffer.allocateDirect(Math.max(PAGE_SIZE, size));
+            pages.add(current);
+            allocatedBytes += current.capacity();
+        }
+        int offset = current.position();
+        current.putInt(bytes.length).put(bytes);
+        liveBytes += size;
+        return (long) (pages.size() - 1) << 32 | offset;
+    }
+
+    private int sizeOf(long ref) {
+        return LENGTH_BYTES + pages.get(pageOf(ref)).getInt(offsetOf(ref));
+    }
+
+    private static int pageOf(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int offsetOf(long ref) {
+        return (int) ref;
+    }
+}
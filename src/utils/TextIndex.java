@@ -0,0 +1,918 @@
+package utils;
+
+import enums.SearchOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+
+// Инвертированный индекс слов имени и описания задач.
+// Слово - непрерывная последовательность букв и цифр в нижнем регистре (ё считается е).
+// Запрос - слова через пробел, задача должна содержать их все; слово со '*' на конце ищется как префикс.
+// По каждому слову хранятся id задач с весом слова в задаче. Изменение задачи дописывает id только
+// в списки новых слов, а записи исчезнувших слов остаются в списках до уплотнения: документ помнит
+// свои слова отсортированными, и запись считается живой, только если у документа сейчас есть это слово.
+// Список уплотняется, когда мёртвых записей в нём становится больше живых, поэтому обновления
+// стоят O(изменившихся слов).
+// Документы можно снять с индекса набором (detach) и вернуть без разбора текста (attach): их записи
+// остаются в списках мёртвыми и не вычищаются уплотнением, пока набор не отпущен (release).
+// Запрос перебирает самый короткий из списков своих слов, а остальные слова проверяет двоичным поиском
+// по словам документа-кандидата. Запрос из одного слова по списку без мёртвых записей
+// к документам не обращается вовсе: вес для ранжирования лежит в самом списке.
+// Без индекса тот же запрос выполняет перебором TextIndex.Scan.
+// Не потокобезопасен
+public class TextIndex {
+    public static final char PREFIX_MARK = '*';
+    // Вхождение слова в имя весит больше вхождения в описание
+    private static final int NAME_WEIGHT = 3;
+    private static final int[] EMPTY = new int[0];
+    private static final int MIN_TAIL = 16;
+
+    // Оценки размеров для сжатых указателей
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int TREE_ENTRY_BYTES = 40;
+    private static final int POSTINGS_BYTES = 32;
+    private static final int DOCUMENT_BYTES = 24;
+    private static final int STRING_BYTES = 24;
+    // Ключ, значение и две ячейки хэш-индекса IntHashMap на документ
+    private static final int DOCUMENT_SLOT_BYTES = 16;
+
+    private static final Comparator<Cursor> BY_CURRENT_ID = Comparator.comparingInt(Cursor::current);
+    // В вершине кучи - худший из отобранных результатов
+    private static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble((Hit hit) -> hit.score)
+            .thenComparing((Hit hit) -> hit.id, Comparator.reverseOrder());
+
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private IntHashMap<Document> documents = new IntHashMap<>();
+    // Снятые наборы документов, записи которых уплотнение должно сохранить
+    private final List<Detached> detachedSets = new ArrayList<>();
+    private long postingCount;
+
+    // id задач со словом и вес слова в каждой. Новые задачи дописываются в конец основного массива;
+    // id меньше последнего (старая задача получила новое слово) вставляются в короткий отсортированный хвост,
+    // который вливается в основной массив, когда перерастает корень из его длины.
+    // Оба массива упорядочены по id, повторов id нет: вернувшееся слово оживляет прежнюю запись задачи
+    private static final class Postings {
+        final String term;
+        int[] ids = new int[1];
+        short[] weights = new short[1];
+        int size;
+        int[] tailIds;
+        short[] tailWeights;
+        int tailSize;
+        // Записи документов, у которых слова больше нет
+        int stale;
+        // Из них - записи снятых документов: они сохраняются при уплотнении
+        int detached;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        int count() {
+            return size + tailSize;
+        }
+
+        long liveCount() {
+            return Math.max(1, count() - stale);
+        }
+
+        // Запись для задачи, у которой слова не было; false, если ожила её мёртвая запись
+        boolean add(int id, short weight) {
+            if (size == 0 || ids[size - 1] < id) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    weights = Arrays.copyOf(weights, size * 2);
+                }
+                ids[size] = id;
+                weights[size++] = weight;
+                return true;
+            }
+            if (revive(id, weight)) {
+                return false;
+            }
+
+            if (tailIds == null) {
+                tailIds = new int[MIN_TAIL];
+                tailWeights = new short[MIN_TAIL];
+            } else if (tailSize == tailIds.length) {
+                tailIds = Arrays.copyOf(tailIds, tailSize * 2);
+                tailWeights = Arrays.copyOf(tailWeights, tailSize * 2);
+            }
+            int index = -Arrays.binarySearch(tailIds, 0, tailSize, id) - 1;
+            System.arraycopy(tailIds, index, tailIds, index + 1, tailSize - index);
+            System.arraycopy(tailWeights, index, tailWeights, index + 1, tailSize - index);
+            tailIds[index] = id;
+            tailWeights[index] = weight;
+            tailSize++;
+            if (tailSize > Math.max(MIN_TAIL, (int) Math.sqrt(size))) {
+                mergeTail();
+            }
+            return true;
+        }
+
+        private boolean revive(int id, short weight) {
+            if (setWeight(id, weight)) {
+                stale--;
+                return true;
+            }
+            return false;
+        }
+
+        // false, если записи id в списке нет
+        boolean setWeight(int id, short weight) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                weights[index] = weight;
+                return true;
+            }
+            index = tailSize == 0 ? -1 : Arrays.binarySearch(tailIds, 0, tailSize, id);
+            if (index >= 0) {
+                tailWeights[index] = weight;
+                return true;
+            }
+            return false;
+        }
+
+        void mergeTail() {
+            if (tailSize == 0) {
+                return;
+            }
+            int[] mergedIds = new int[size + tailSize];
+            short[] mergedWeights = new short[mergedIds.length];
+            int main = 0;
+            int tail = 0;
+            for (int i = 0; i < mergedIds.length; i++) {
+                if (tail == tailSize || main < size && ids[main] < tailIds[tail]) {
+                    mergedIds[i] = ids[main];
+                    mergedWeights[i] = weights[main++];
+                } else {
+                    mergedIds[i] = tailIds[tail];
+                    mergedWeights[i] = tailWeights[tail++];
+                }
+            }
+            ids = mergedIds;
+            weights = mergedWeights;
+            size = mergedIds.length;
+            tailIds = null;
+            tailWeights = null;
+            tailSize = 0;
+        }
+    }
+
+    // Документы, снятые с индекса detach или detachIf
+    public static final class Detached {
+        private final IntHashMap<Document> documents;
+
+        private Detached(IntHashMap<Document> documents) {
+            this.documents = documents;
+        }
+
+        public int size() {
+            return documents.size();
+        }
+    }
+
+    // Слова задачи по возрастанию и их веса
+    private static final class Document {
+        final Postings[] terms;
+        final short[] weights;
+
+        Document(Postings[] terms, short[] weights) {
+            this.terms = terms;
+            this.weights = weights;
+        }
+
+        // Позиция слова или -(позиция вставки) - 1, как в Arrays.binarySearch
+        int indexOf(String term) {
+            int low = 0;
+            int high = terms.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = terms[middle].term.compareTo(term);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        Postings postingsOf(String term) {
+            int index = indexOf(term);
+            return index < 0 ? null : terms[index];
+        }
+
+        int weightOf(Clause clause) {
+            int index = indexOf(clause.text);
+            if (!clause.prefix) {
+                return index < 0 ? 0 : weights[index];
+            }
+            int weight = 0;
+            for (int i = index < 0 ? -index - 1 : index; i < terms.length && terms[i].term.startsWith(clause.text); i++) {
+                weight += weights[i];
+            }
+            return weight;
+        }
+    }
+
+    // Слово запроса и списки подходящих слов индекса
+    private static final class Clause {
+        final String text;
+        final boolean prefix;
+        final List<Postings> lists = new ArrayList<>();
+        long count;
+
+        Clause(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+
+    // Слияние основного массива и хвоста списка по возрастанию id
+    private static final class Cursor {
+        final Postings postings;
+        int position;
+        int tailPosition;
+
+        Cursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        boolean hasNext() {
+            return position < postings.size || tailPosition < postings.tailSize;
+        }
+
+        private boolean fromTail() {
+            return position == postings.size
+                    || tailPosition < postings.tailSize && postings.tailIds[tailPosition] < postings.ids[position];
+        }
+
+        int current() {
+            return fromTail() ? postings.tailIds[tailPosition] : postings.ids[position];
+        }
+
+        int weight() {
+            return fromTail() ? postings.tailWeights[tailPosition] : postings.weights[position];
+        }
+
+        void advance() {
+            if (fromTail()) {
+                tailPosition++;
+            } else {
+                position++;
+            }
+        }
+    }
+
+    private static final class Hit {
+        final int id;
+        final double score;
+
+        Hit(int id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    // Отбор результатов одного запроса; driver - слово, список которого перебирается
+    private final class Matcher {
+        final List<Clause> clauses;
+        final Clause driver;
+        final SearchOrder order;
+        final int limit;
+        final double[] idf;
+        // В списках перебираемого слова нет мёртвых записей: id и вес из списка можно брать без проверки
+        final boolean verified;
+        int[] ids;
+        int found;
+        PriorityQueue<Hit> best;
+
+        Matcher(List<Clause> clauses, Clause driver, SearchOrder order, int limit) {
+            this.clauses = clauses;
+            this.driver = driver;
+            this.order = order;
+            this.limit = limit;
+            idf = new double[clauses.size()];
+            for (int i = 0; i < idf.length; i++) {
+                idf[i] = Math.log(1 + (double) documents.size() / clauses.get(i).count);
+            }
+            boolean clean = true;
+            for (Postings list : driver.lists) {
+                clean &= list.stale == 0;
+            }
+            verified = clean;
+            if (order == SearchOrder.ID) {
+                ids = new int[(int) Math.min(limit, driver.count)];
+            } else {
+                best = new PriorityQueue<>(Math.min(limit, 64), WORST_FIRST);
+            }
+        }
+
+        // false - набрано достаточно, перебор можно остановить
+        boolean accept(int id, int weight) {
+            double score = 0;
+            if (!verified || clauses.size() > 1) {
+                Document document = documents.get(id);
+                if (document == null) {
+                    return true;
+                }
+                for (int i = 0; i < idf.length; i++) {
+                    Clause clause = clauses.get(i);
+                    int clauseWeight = clause == driver && verified ? weight : document.weightOf(clause);
+                    if (clauseWeight == 0) {
+                        return true;
+                    }
+                    score += clauseWeight * idf[i];
+                }
+            } else {
+                score = weight * idf[0];
+            }
+
+            if (order == SearchOrder.ID) {
+                if (found == ids.length) {
+                    ids = Arrays.copyOf(ids, (int) Math.min(limit, found * 2L + 1));
+                }
+                ids[found++] = id;
+                return found < limit;
+            }
+            if (best.size() < limit) {
+                best.add(new Hit(id, score));
+            } else if (score > best.peek().score || score == best.peek().score && id < best.peek().id) {
+                best.poll();
+                best.add(new Hit(id, score));
+            }
+            return true;
+        }
+
+        int[] result() {
+            if (order == SearchOrder.ID) {
+                return found == ids.length ? ids : Arrays.copyOf(ids, found);
+            }
+            int[] result = new int[best.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = best.poll().id;
+            }
+            return result;
+        }
+    }
+
+    // Учитывает текущие имя и описание задачи вместо прежних
+    public void put(int id, String name, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        addTokens(name, NAME_WEIGHT, weights);
+        addTokens(description, 1, weights);
+        if (weights.isEmpty()) {
+            remove(id);
+            return;
+        }
+
+        String[] words = weights.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        Document previous = documents.get(id);
+        Postings[] terms = new Postings[words.length];
+        short[] termWeights = new short[words.length];
+        for (int i = 0; i < words.length; i++) {
+            short weight = (short) Math.min(weights.get(words[i]), Short.MAX_VALUE);
+            int previousIndex = previous == null ? -1 : previous.indexOf(words[i]);
+            Postings list;
+            if (previousIndex < 0) {
+                list = postings.computeIfAbsent(words[i], Postings::new);
+                if (list.add(id, weight)) {
+                    postingCount++;
+                }
+            } else {
+                list = previous.terms[previousIndex];
+                if (previous.weights[previousIndex] != weight) {
+                    list.setWeight(id, weight);
+                }
+            }
+            terms[i] = list;
+            termWeights[i] = weight;
+        }
+        Document document = new Document(terms, termWeights);
+        documents.put(id, document);
+        if (previous != null) {
+            for (Postings list : previous.terms) {
+                if (document.indexOf(list.term) < 0) {
+                    retire(list);
+                }
+            }
+        }
+    }
+
+    public void remove(int id) {
+        Document document = documents.remove(id);
+        if (document != null) {
+            for (Postings list : document.terms) {
+                retire(list);
+            }
+        }
+    }
+
+    // Удаляет все документы, id которых подходят под deleted: один проход по документам и по словарю
+    // вместо поиска каждого id; выгоднее remove, когда удаляется заметная доля индекса
+    public void removeIf(IntPredicate deleted) {
+        int removed = documents.removeIf(deleted, document -> {
+            for (Postings list : document.terms) {
+                list.stale++;
+            }
+        });
+        if (removed == 0) {
+            return;
+        }
+        compactAll();
+    }
+
+    // Снимает документы с id из ids: поиск их больше не находит, но записи в списках остаются для attach
+    public Detached detach(int[] ids) {
+        IntHashMap<Document> removed = new IntHashMap<>(ids.length);
+        for (int id : ids) {
+            Document document = documents.remove(id);
+            if (document != null) {
+                removed.put(id, document);
+            }
+        }
+        return register(removed);
+    }
+
+    // То же проходом по документам; выгоднее detach, когда снимается заметная доля индекса.
+    // Если снимается больше половины, в новую карту перекладываются оставшиеся документы,
+    // а прежняя карта целиком уходит в набор
+    public Detached detachIf(IntPredicate deleted) {
+        int[] count = new int[1];
+        documents.forEachKey(id -> {
+            if (deleted.test(id)) {
+                count[0]++;
+            }
+        });
+        IntHashMap<Document> removed;
+        if (count[0] * 2L > documents.size()) {
+            removed = documents;
+            documents = new IntHashMap<>(removed.size() - count[0]);
+            removed.forEachKey(id -> {
+                if (!deleted.test(id)) {
+                    documents.put(id, removed.get(id));
+                }
+            });
+            documents.forEachKey(removed::remove);
+        } else {
+            removed = new IntHashMap<>(count[0]);
+            documents.forEachKey(id -> {
+                if (deleted.test(id)) {
+                    removed.put(id, documents.get(id));
+                }
+            });
+            if (removed.size() > 0) {
+                documents.removeIf(removed::containsKey);
+            }
+        }
+        return register(removed);
+    }
+
+    private Detached register(IntHashMap<Document> removed) {
+        for (Document document : removed.values()) {
+            for (Postings list : document.terms) {
+                list.stale++;
+                list.detached++;
+            }
+        }
+        Detached detached = new Detached(removed);
+        detachedSets.add(detached);
+        return detached;
+    }
+
+    // Возвращает снятые документы; их id за это время не должны были появиться в индексе снова.
+    // Меньшая из карт документов вливается в большую, так что отмена очистки не перекладывает
+    // весь снятый набор в индекс по одному документу
+    public void attach(Detached detached) {
+        unregister(detached);
+        for (Document document : detached.documents.values()) {
+            for (Postings list : document.terms) {
+                list.stale--;
+                list.detached--;
+            }
+        }
+        IntHashMap<Document> source = detached.documents;
+        if (source.size() > documents.size()) {
+            source = documents;
+            documents = detached.documents;
+        }
+        IntHashMap<Document> merged = source;
+        merged.forEachKey(id -> documents.put(id, merged.get(id)));
+    }
+
+    // Снятые документы больше не вернутся: их записи становятся обычными мёртвыми записями
+    public void release(Detached detached) {
+        unregister(detached);
+        if (detached.documents.isEmpty()) {
+            return;
+        }
+        for (Document document : detached.documents.values()) {
+            for (Postings list : document.terms) {
+                list.detached--;
+            }
+        }
+        compactAll();
+    }
+
+    private void unregister(Detached detached) {
+        if (!detachedSets.remove(detached)) {
+            throw new IllegalArgumentException("Набор документов уже возвращён или отпущен");
+        }
+    }
+
+    // Опустевшие списки удаляются через итератор, без поиска слова в дереве
+    private void compactAll() {
+        for (Iterator<Postings> lists = postings.values().iterator(); lists.hasNext(); ) {
+            Postings list = lists.next();
+            if (needsCompaction(list) && compactEntries(list) == 0) {
+                lists.remove();
+            }
+        }
+    }
+
+    // Снятые наборы после очистки индекса вернуть уже нельзя
+    public void clear() {
+        postings.clear();
+        documents.clear();
+        detachedSets.clear();
+        postingCount = 0;
+    }
+
+    // Не больше limit id задач, содержащих все слова запроса; пустой запрос ничего не находит
+    public int[] search(String query, SearchOrder order, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Число результатов должно быть положительным: " + limit);
+        }
+        List<Clause> clauses = parse(query);
+        if (clauses.isEmpty()) {
+            return EMPTY;
+        }
+
+        Clause driver = null;
+        for (Clause clause : clauses) {
+            resolve(clause);
+            if (clause.count == 0) {
+                return EMPTY;
+            }
+            if (driver == null || clause.count < driver.count) {
+                driver = clause;
+            }
+        }
+        if (clauses.size() == 1 && driver.lists.size() == 1 && driver.lists.get(0).stale == 0
+                && order == SearchOrder.RELEVANCE) {
+            return topByWeight(driver.lists.get(0), limit);
+        }
+
+        Matcher matcher = new Matcher(clauses, driver, order, limit);
+        forEachCandidate(driver, matcher);
+        return matcher.result();
+    }
+
+    // Тот же поиск перебором задач без индекса: правила запроса, веса и порядок результатов как у search.
+    // Задачи подаются в accept по возрастанию id. Для ID перебор можно остановить, набрав limit задач;
+    // для RELEVANCE нужны все задачи, чтобы посчитать редкость слов, и до result хранятся веса всех найденных
+    public static final class Scan {
+        private final List<Clause> clauses;
+        private final SearchOrder order;
+        private final int limit;
+        // Как длина списков слова в индексе: задачи со словом, для префикса - по каждому подходящему слову
+        private final long[] counts;
+        // id и веса слов запроса в найденной задаче
+        private final List<int[]> found = new ArrayList<>();
+        private int documents;
+
+        public Scan(String query, SearchOrder order, int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Число результатов должно быть положительным: " + limit);
+            }
+            this.clauses = parse(query);
+            this.order = order;
+            this.limit = limit;
+            counts = new long[clauses.size()];
+        }
+
+        // false - набрано достаточно, перебор можно остановить
+        public boolean accept(int id, String name, String description) {
+            if (clauses.isEmpty()) {
+                return false;
+            }
+            Map<String, Integer> weights = new HashMap<>();
+            addTokens(name, NAME_WEIGHT, weights);
+            addTokens(description, 1, weights);
+            if (weights.isEmpty()) {
+                return true;
+            }
+            documents++;
+            int[] hit = new int[clauses.size() + 1];
+            hit[0] = id;
+            boolean matches = true;
+            for (int i = 0; i < counts.length; i++) {
+                Clause clause = clauses.get(i);
+                int weight = 0;
+                if (clause.prefix) {
+                    for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                        if (entry.getKey().startsWith(clause.text)) {
+                            weight += Math.min(entry.getValue(), Short.MAX_VALUE);
+                            counts[i]++;
+                        }
+                    }
+                } else if (weights.containsKey(clause.text)) {
+                    weight = Math.min(weights.get(clause.text), Short.MAX_VALUE);
+                    counts[i]++;
+                }
+                hit[i + 1] = weight;
+                matches &= weight > 0;
+            }
+            if (!matches) {
+                return true;
+            }
+            found.add(hit);
+            return order != SearchOrder.ID || found.size() < limit;
+        }
+
+        public int[] result() {
+            if (order == SearchOrder.ID) {
+                int[] result = new int[found.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = found.get(i)[0];
+                }
+                return result;
+            }
+            double[] idf = new double[counts.length];
+            for (int i = 0; i < idf.length; i++) {
+                idf[i] = Math.log(1 + (double) documents / counts[i]);
+            }
+            PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, 64), WORST_FIRST);
+            for (int[] hit : found) {
+                double score = 0;
+                for (int i = 0; i < idf.length; i++) {
+                    score += hit[i + 1] * idf[i];
+                }
+                if (best.size() < limit) {
+                    best.add(new Hit(hit[0], score));
+                } else if (score > best.peek().score || score == best.peek().score && hit[0] < best.peek().id) {
+                    best.poll();
+                    best.add(new Hit(hit[0], score));
+                }
+            }
+            int[] result = new int[best.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = best.poll().id;
+            }
+            return result;
+        }
+    }
+
+    // Число проиндексированных задач
+    public int size() {
+        return documents.size();
+    }
+
+    public int getTermCount() {
+        return postings.size();
+    }
+
+    // Записей во всех списках, включая ещё не вычищенные мёртвые
+    public long getPostingCount() {
+        return postingCount;
+    }
+
+    // Оценка занимаемой индексом кучи в байтах: слова, списки id с весами, узлы дерева слов и документы.
+    // Сами задачи не учитываются
+    public long estimateFootprint() {
+        long bytes = 0;
+        for (Postings list : postings.values()) {
+            bytes += TREE_ENTRY_BYTES + POSTINGS_BYTES + arrayBytes(list.ids.length, Integer.BYTES)
+                    + arrayBytes(list.weights.length, Short.BYTES) + stringBytes(list.term);
+            if (list.tailIds != null) {
+                bytes += arrayBytes(list.tailIds.length, Integer.BYTES) + arrayBytes(list.tailWeights.length, Short.BYTES);
+            }
+        }
+        for (Document document : documents.values()) {
+            bytes += DOCUMENT_SLOT_BYTES + DOCUMENT_BYTES + arrayBytes(document.terms.length, Integer.BYTES)
+                    + arrayBytes(document.weights.length, Short.BYTES);
+        }
+        return bytes;
+    }
+
+    // Слова текста в нижнем регистре в порядке появления
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                codePoint = Character.toLowerCase(codePoint);
+                token.appendCodePoint(codePoint == 'ё' ? 'е' : codePoint);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private static void addTokens(String text, int weight, Map<String, Integer> weights) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Integer::sum);
+        }
+    }
+
+    // Слово со '*' на конце - префикс; если '*' стоит после составного слова ("foo-ba*"),
+    // префиксом считается только последняя часть
+    private static List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        if (query == null) {
+            return clauses;
+        }
+        for (String part : query.trim().split("\\s+")) {
+            boolean prefix = !part.isEmpty() && part.charAt(part.length() - 1) == PREFIX_MARK;
+            List<String> tokens = tokenize(part);
+            for (int i = 0; i < tokens.size(); i++) {
+                clauses.add(new Clause(tokens.get(i), prefix && i == tokens.size() - 1));
+            }
+        }
+        return clauses;
+    }
+
+    private void resolve(Clause clause) {
+        if (clause.prefix) {
+            String upperBound = clause.text + Character.MAX_VALUE;
+            clause.lists.addAll(postings.subMap(clause.text, true, upperBound, true).values());
+        } else {
+            Postings list = postings.get(clause.text);
+            if (list != null) {
+                clause.lists.add(list);
+            }
+        }
+        for (Postings list : clause.lists) {
+            clause.count += list.liveCount();
+        }
+    }
+
+    // Перебор id из списков слова по возрастанию без повторов, пока matcher принимает их.
+    // Списки префикса сливаются кучей, веса одного id из разных списков складываются;
+    // при раннем останове остаток списков не читается
+    private static void forEachCandidate(Clause clause, Matcher matcher) {
+        if (clause.lists.size() == 1) {
+            Postings list = clause.lists.get(0);
+            if (list.tailSize == 0) {
+                for (int i = 0; i < list.size; i++) {
+                    if (!matcher.accept(list.ids[i], list.weights[i])) {
+                        return;
+                    }
+                }
+                return;
+            }
+            for (Cursor cursor = new Cursor(list); cursor.hasNext(); cursor.advance()) {
+                if (!matcher.accept(cursor.current(), cursor.weight())) {
+                    return;
+                }
+            }
+            return;
+        }
+
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(clause.lists.size(), BY_CURRENT_ID);
+        for (Postings list : clause.lists) {
+            cursors.add(new Cursor(list));
+        }
+        while (!cursors.isEmpty()) {
+            int id = cursors.peek().current();
+            int weight = 0;
+            while (!cursors.isEmpty() && cursors.peek().current() == id) {
+                Cursor cursor = cursors.poll();
+                weight += cursor.weight();
+                cursor.advance();
+                if (cursor.hasNext()) {
+                    cursors.add(cursor);
+                }
+            }
+            if (!matcher.accept(id, weight)) {
+                return;
+            }
+        }
+    }
+
+    // Запрос из одного слова по списку без мёртвых записей: релевантность пропорциональна весу слова,
+    // так что лучшие limit записей находятся одним проходом по массивам весов без обращения к документам
+    private static int[] topByWeight(Postings list, int limit) {
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, 64), WORST_FIRST);
+        offerAll(best, list.ids, list.weights, list.size, limit);
+        offerAll(best, list.tailIds, list.tailWeights, list.tailSize, limit);
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = best.poll().id;
+        }
+        return result;
+    }
+
+    private static void offerAll(PriorityQueue<Hit> best, int[] ids, short[] weights, int size, int limit) {
+        int i = 0;
+        for (; i < size && best.size() < limit; i++) {
+            best.add(new Hit(ids[i], weights[i]));
+        }
+        if (i == size) {
+            return;
+        }
+        Hit worst = best.peek();
+        for (; i < size; i++) {
+            int weight = weights[i];
+            if (weight > worst.score || weight == worst.score && ids[i] < worst.id) {
+                best.poll();
+                best.add(new Hit(ids[i], weight));
+                worst = best.peek();
+            }
+        }
+    }
+
+    // Документ потерял слово: запись в списке становится мёртвой
+    private void retire(Postings list) {
+        list.stale++;
+        if (needsCompaction(list)) {
+            compact(list);
+        }
+    }
+
+    // Записи снятых документов уплотнением не убираются, поэтому в расчёт не идут
+    private static boolean needsCompaction(Postings list) {
+        return (list.stale - list.detached) * 2 > list.count() - list.detached;
+    }
+
+    // Оставляет только записи документов, у которых слово есть сейчас; пустой список удаляется из индекса
+    private void compact(Postings list) {
+        if (compactEntries(list) == 0) {
+            postings.remove(list.term, list);
+        }
+    }
+
+    // Возвращает число оставшихся записей
+    private int compactEntries(Postings list) {
+        list.mergeTail();
+        int write = 0;
+        for (int i = 0; i < list.size; i++) {
+            int id = list.ids[i];
+            Document document = documents.get(id);
+            if (document == null && list.detached > 0) {
+                document = detachedDocument(id);
+            }
+            if (document != null && document.postingsOf(list.term) == list) {
+                list.ids[write] = id;
+                list.weights[write++] = list.weights[i];
+            }
+        }
+        postingCount -= list.size - write;
+        list.size = write;
+        list.stale = list.detached;
+        if (write > 0 && list.ids.length > write * 4) {
+            list.ids = Arrays.copyOf(list.ids, write * 2);
+            list.weights = Arrays.copyOf(list.weights, write * 2);
+        }
+        return write;
+    }
+
+    private Document detachedDocument(int id) {
+        for (Detached detached : detachedSets) {
+            Document document = detached.documents.get(id);
+            if (document != null) {
+                return document;
+            }
+        }
+        return null;
+    }
+
+    private static long arrayBytes(int length, int elementBytes) {
+        return align(ARRAY_HEADER_BYTES + (long) elementBytes * length);
+    }
+
+    private static long stringBytes(String value) {
+        boolean latin1 = true;
+        for (int i = 0; i < value.length() && latin1; i++) {
+            latin1 = value.charAt(i) < 256;
+        }
+        return STRING_BYTES + align(ARRAY_HEADER_BYTES + (long) value.length() * (latin1 ? 1 : 2));
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,130 @@
+package cluster;
+
+import controllers.ShardedTaskManager;
+import enums.SearchOrder;
+import enums.Status;
+import exceptions.TaskOverlapException;
+import model.BoardSnapshot;
+import model.Epic;
+import model.EpicRollup;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalClusterTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Test
+    void shardsInSeparateProcessesShouldBehaveLikeOneManager() throws Exception {
+        try (LocalCluster cluster = LocalCluster.start(2)) {
+            ShardedTaskManager manager = cluster.getManager();
+            Epic epic = manager.createEpic(new Epic("Релиз", "Выпуск 2.0"));
+            Task task = manager.createTask(new Task("Созвон", "про релиз", Status.NEW, START, Duration.ofHours(1)));
+            assertNotEquals(manager.shardIndexOf(epic.getId()), manager.shardIndexOf(task.getId()));
+
+            List<Subtask> subtasks = manager.createSubtasks(List.of(
+                    new Subtask("Тесты", "", Status.DONE, epic.getId()),
+                    new Subtask("Сборка", "", Status.NEW, epic.getId(), START.plusHours(1), Duration.ofHours(1))));
+            assertTrue(subtasks.get(0).getId() > 0, "id выданы шардом и перенесены в переданные объекты");
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(epic.getId()).getStatus());
+            assertEquals(List.of(subtasks.get(0).getId(), subtasks.get(1).getId()),
+                    manager.getEpicById(epic.getId()).getSubtaskIds());
+
+            Epic nested = new Epic("Бэкенд", "");
+            nested.setParentId(epic.getId());
+            manager.createEpic(nested);
+            assertEquals(manager.shardIndexOf(epic.getId()), manager.shardIndexOf(nested.getId()),
+                    "Вложенный эпик создаётся в шарде родителя");
+            assertEquals(epic.getId(), manager.getEpicById(nested.getId()).getParentId());
+            EpicRollup rollup = manager.getEpicRollups(epic.getId()).get(1);
+            assertEquals(nested.getId(), rollup.getEpicId());
+            assertEquals(1, rollup.getDepth());
+            assertEquals(50, manager.getEpicRollup(epic.getId()).getProgress());
+
+            assertThrows(TaskOverlapException.class, () -> manager.createSubtask(
+                    new Subtask("Деплой", "", Status.NEW, epic.getId(), START.plusMinutes(30), Duration.ofHours(1))));
+            // Исключение шарда передаётся клиенту с тем же классом
+            TaskOverlapException error = assertThrows(TaskOverlapException.class, () -> manager
+                    .getShard(manager.shardIndexOf(epic.getId())).createSubtask(new Subtask("Деплой", "",
+                            Status.NEW, epic.getId(), START.plusMinutes(90), Duration.ofHours(1))));
+            assertEquals(subtasks.get(1).getId(), error.getConflictingId());
+
+            Task updated = new Task("Созвон", "перенесён", task.getId(), Status.DONE);
+            updated.setStartTime(START.plusHours(3));
+            assertTrue(manager.updateTask(updated, manager.getVersion(task.getId())));
+            assertEquals(List.of(task.getId(), subtasks.get(1).getId()).stream().sorted().collect(Collectors.toList()),
+                    manager.getPrioritizedTasks().stream().map(Task::getId).sorted().collect(Collectors.toList()));
+            assertEquals(START.plusHours(3), manager.getTaskById(task.getId()).getStartTime());
+
+            assertEquals(List.of(epic.getId()), manager.search("релиз", SearchOrder.ID, 10).stream()
+                    .map(Task::getId).collect(Collectors.toList()));
+            assertEquals(3, manager.streamSubtasks().count() + manager.streamTasks().count());
+
+            BoardSnapshot snapshot = manager.getSnapshot();
+            assertEquals(Status.IN_PROGRESS, snapshot.get(epic.getId()).getStatus());
+            assertEquals(START.plusHours(1), snapshot.get(epic.getId()).getStartTime());
+
+            manager.deleteEpicById(epic.getId());
+            assertTrue(manager.getAllSubtasks().isEmpty());
+            assertEquals(List.of(task.getId()), manager.getHistory().stream().map(Task::getId)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void parallelOperationsShouldReachRemoteShards() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try (LocalCluster cluster = LocalCluster.start(2)) {
+            ShardedTaskManager manager = cluster.getManager();
+            Epic first = manager.createEpic(new Epic("Первый", ""));
+            Epic second = manager.createEpic(new Epic("Второй", ""));
+            assertNotEquals(manager.shardIndexOf(first.getId()), manager.shardIndexOf(second.getId()));
+            List<Subtask> subtasks = manager.createSubtasks(List.of(
+                    new Subtask("Макет", "", Status.NEW, first.getId()),
+                    new Subtask("Ревью", "", Status.DONE, first.getId()),
+                    new Subtask("Сборка", "", Status.NEW, second.getId(), START, Duration.ofHours(1))));
+
+            assertEquals(2, manager.transitionSubtasks(pool,
+                    (epic, subtask) -> epic.getId() == second.getId() || subtask.getStatus() == Status.NEW,
+                    Status.IN_PROGRESS));
+            assertEquals(Status.IN_PROGRESS, manager.getSubtaskById(subtasks.get(0).getId()).getStatus());
+            assertEquals(Status.DONE, manager.getSubtaskById(subtasks.get(1).getId()).getStatus());
+            assertEquals(START, manager.getSubtaskById(subtasks.get(2).getId()).getStartTime(),
+                    "Перевод не меняет время подзадачи");
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(second.getId()).getStatus());
+
+            assertEquals(Map.of(Status.IN_PROGRESS, 2L, Status.DONE, 1L), manager.collectSubtasks(pool,
+                    Collectors.groupingBy(Subtask::getStatus, Collectors.counting())));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void streamsShouldReadRemoteShardsPageByPage() throws Exception {
+        try (LocalCluster cluster = LocalCluster.start(2)) {
+            ShardedTaskManager manager = cluster.getManager();
+            List<Task> batch = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                batch.add(new Task("Задача " + i, "", Status.NEW));
+            }
+            manager.createTasks(batch);
+
+            List<Integer> expected = batch.stream().map(Task::getId).sorted().collect(Collectors.toList());
+            assertEquals(expected, manager.streamTasks().map(Task::getId).collect(Collectors.toList()));
+            assertEquals(expected.subList(0, 10), manager.streamTasks().limit(10).map(Task::getId)
+                    .collect(Collectors.toList()));
+            assertEquals(5000, manager.getTasksByStatus(Status.NEW).size());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package controllers;
+
+import enums.OverflowPolicy;
+import enums.Status;
+import impl.HistoryManager;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncHistoryManagerTest {
+    private static Task task(int id) {
+        return new Task("Task " + id, "Desc", id, Status.NEW);
+    }
+
+    @Test
+    void getHistoryShouldSeeOwnRecentViews() {
+        try (AsyncHistoryManager history = new AsyncHistoryManager(new InMemoryHistoryManager())) {
+            history.add(task(1));
+            history.add(task(2));
+            history.add(task(1));
+
+            assertEquals(List.of(2, 1), ids(history.getHistory()));
+        }
+    }
+
+    @Test
+    void removeShouldNotBeUndoneByPendingView() {
+        try (AsyncHistoryManager history = new AsyncHistoryManager(new InMemoryHistoryManager())) {
+            history.add(task(1));
+            history.remove(1);
+
+            assertTrue(history.getHistory().isEmpty(), "Просмотр, записанный до удаления, не должен вернуть задачу");
+        }
+    }
+
+    @Test
+    void viewAppliedAfterRemoveShouldBeDroppedByStoredFilter() {
+        Set<Integer> stored = new HashSet<>(List.of(1, 2));
+        try (AsyncHistoryManager history = new AsyncHistoryManager(new InMemoryHistoryManager())) {
+            history.setStoredFilter(stored::contains);
+            history.add(task(1));
+            stored.remove(1);
+            history.remove(1);
+            // Читатель нашёл задачу до удаления, а просмотр записал после него
+            history.add(task(1));
+            history.add(task(2));
+
+            assertEquals(List.of(2), ids(history.getHistory()));
+        }
+    }
+
+    @Test
+    void removeIfShouldApplyPendingViewsFirst() {
+        try (AsyncHistoryManager history = new AsyncHistoryManager(new InMemoryHistoryManager())) {
+            history.add(task(1));
+            history.add(task(2));
+            history.add(task(3));
+            history.removeIf(id -> id != 2);
+
+            assertEquals(List.of(task(2)), history.getHistory());
+            assertEquals(1, history.size());
+        }
+    }
+
+    @Test
+    void viewsShouldReachDelegateWithoutReads() throws InterruptedException {
+        HistoryManager delegate = new InMemoryHistoryManager();
+        try (AsyncHistoryManager history = new AsyncHistoryManager(delegate, 16, OverflowPolicy.DROP, 1, false)) {
+            for (int round = 1; round <= 3; round++) {
+                history.add(task(round));
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (delegate.size() < round && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+                assertEquals(round, delegate.size(), "Просмотр после простоя должен перенестись без чтения истории");
+            }
+        }
+    }
+
+    @Test
+    void dropPolicyShouldCountRejectedViews() {
+        // Делегат задерживает фоновый поток, пока буфер не переполнится
+        BlockingHistory delegate = new BlockingHistory();
+        try (AsyncHistoryManager history = new AsyncHistoryManager(delegate, 4, OverflowPolicy.DROP, 1, true)) {
+            delegate.blocked = true;
+            history.add(task(100));
+            while (!delegate.entered) {
+                Thread.onSpinWait();
+            }
+            for (int i = 1; i <= 10; i++) {
+                history.add(task(i));
+            }
+            assertEquals(6, history.getDroppedCount());
+            delegate.blocked = false;
+            assertEquals(5, history.getHistory().size());
+        }
+    }
+
+    @Test
+    void blockPolicyShouldKeepEveryViewFromManyThreads() throws Exception {
+        HistoryManager unlimited = new InMemoryHistoryManager(InMemoryHistoryManager.UNLIMITED);
+        try (AsyncHistoryManager history = new AsyncHistoryManager(unlimited, 16, OverflowPolicy.BLOCK, 1, true)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int base = t * 1000;
+                futures.add(executor.submit(() -> {
+                    for (int i = 1; i <= 1000; i++) {
+                        history.add(task(base + i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            assertEquals(4000, history.getHistory().size());
+            assertEquals(0, history.getDroppedCount());
+        }
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        List<Integer> ids = new ArrayList<>();
+        for (Task task : tasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    private static class BlockingHistory extends InMemoryHistoryManager {
+        private volatile boolean blocked;
+        private volatile boolean entered;
+
+        @Override
+        public void add(Task task) {
+            entered = true;
+            while (blocked) {
+                Thread.onSpinWait();
+            }
+            super.add(task);
+        }
+    }
+}
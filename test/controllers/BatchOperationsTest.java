@@ -0,0 +1,193 @@
+package controllers;
+
+import enums.ChangeType;
+import enums.SearchOrder;
+import enums.Status;
+import impl.ObservableTaskManager;
+import model.ChangeEvent;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import utils.ChangeLog;
+import utils.ChangeSubscription;
+import utils.Managers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchOperationsTest extends ManagerFixture {
+    private List<ObservableTaskManager> managers() {
+        return List.of(Managers.getDefault(), Managers.getConcurrent(), fileBacked(), Managers.getOffHeap());
+    }
+
+    @Test
+    void createTasksShouldAssignConsecutiveIds() {
+        for (ObservableTaskManager manager : managers()) {
+            manager.createTask(new Task("Single", "Desc", Status.NEW));
+            List<Task> created = manager.createTasks(List.of(
+                    new Task("First", "Desc", Status.NEW),
+                    new Task("Second", "Desc", Status.DONE)));
+
+            assertEquals(2, created.size());
+            assertEquals(created.get(0).getId() + 1, created.get(1).getId());
+            assertEquals(3, manager.getAllTasks().size());
+            assertEquals(1, manager.getTasksByStatus(Status.DONE).size());
+        }
+    }
+
+    @Test
+    void createSubtasksShouldRecalculateEveryAffectedEpic() {
+        for (ObservableTaskManager manager : managers()) {
+            Epic first = manager.createEpic(new Epic("First", "Desc"));
+            Epic second = manager.createEpic(new Epic("Second", "Desc"));
+
+            manager.createSubtasks(List.of(
+                    new Subtask("A", "Desc", Status.DONE, first.getId()),
+                    new Subtask("B", "Desc", Status.DONE, first.getId()),
+                    new Subtask("C", "Desc", Status.NEW, second.getId()),
+                    new Subtask("D", "Desc", Status.DONE, second.getId())));
+
+            assertEquals(Status.DONE, manager.getEpicById(first.getId()).getStatus());
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(second.getId()).getStatus());
+            assertEquals(2, manager.getSubtasksByEpicId(second.getId()).size());
+        }
+    }
+
+    @Test
+    void createSubtasksShouldRejectWholeBatchWithMissingEpic() {
+        for (ObservableTaskManager manager : managers()) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+
+            List<Subtask> created = manager.createSubtasks(List.of(
+                    new Subtask("A", "Desc", Status.NEW, epic.getId()),
+                    new Subtask("B", "Desc", Status.NEW, 999)));
+
+            assertNull(created);
+            assertTrue(manager.getAllSubtasks().isEmpty(), "Пакет с несуществующим эпиком не должен применяться частично");
+        }
+    }
+
+    @Test
+    void updateSubtasksShouldMoveBetweenEpicsAndSkipUnknownIds() {
+        for (ObservableTaskManager manager : managers()) {
+            Epic first = manager.createEpic(new Epic("First", "Desc"));
+            Epic second = manager.createEpic(new Epic("Second", "Desc"));
+            List<Subtask> created = manager.createSubtasks(List.of(
+                    new Subtask("A", "Desc", Status.NEW, first.getId()),
+                    new Subtask("B", "Desc", Status.NEW, first.getId())));
+
+            manager.updateSubtasks(List.of(
+                    new Subtask("A", "Desc", created.get(0).getId(), Status.DONE, first.getId()),
+                    new Subtask("B", "Desc", created.get(1).getId(), Status.DONE, second.getId()),
+                    new Subtask("X", "Desc", 999, Status.DONE, second.getId())));
+
+            assertEquals(Status.DONE, manager.getEpicById(first.getId()).getStatus());
+            assertEquals(Status.DONE, manager.getEpicById(second.getId()).getStatus());
+            assertEquals(List.of(created.get(1).getId()), manager.getEpicById(second.getId()).getSubtaskIds());
+            assertNull(manager.getSubtaskById(999));
+        }
+    }
+
+    @Test
+    void deleteByIdsShouldRemoveFromHistoryAndRecalculateEpics() {
+        for (ObservableTaskManager manager : managers()) {
+            Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            List<Subtask> created = manager.createSubtasks(List.of(
+                    new Subtask("A", "Desc", Status.NEW, epic.getId()),
+                    new Subtask("B", "Desc", Status.DONE, epic.getId())));
+            manager.getTaskById(task.getId());
+            manager.getSubtaskById(created.get(0).getId());
+
+            manager.deleteTasksByIds(List.of(task.getId(), 999));
+            manager.deleteSubtasksByIds(List.of(created.get(0).getId(), 999));
+
+            assertTrue(manager.getAllTasks().isEmpty());
+            assertEquals(Status.DONE, manager.getEpicById(epic.getId()).getStatus());
+            assertEquals(List.of(epic), manager.getHistory());
+        }
+    }
+
+    @Test
+    void cascadeDeletesShouldPurgeHistoryIndexesAndResetEpics() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        for (ObservableTaskManager manager : managers()) {
+            Task task = manager.createTask(new Task("Созвон", "Desc", Status.NEW, start, Duration.ofMinutes(30)));
+            Epic done = manager.createEpic(new Epic("Готовый", "Desc"));
+            Epic empty = manager.createEpic(new Epic("Пустой", "Desc"));
+            Epic small = manager.createEpic(new Epic("Малый", "Desc"));
+            List<Subtask> batch = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                batch.add(new Subtask("Шаг " + i, "Desc", Status.DONE, done.getId(),
+                        start.plusHours(1 + i), Duration.ofMinutes(30)));
+            }
+            batch.add(new Subtask("Шаг малый", "Desc", Status.IN_PROGRESS, small.getId()));
+            List<Subtask> created = manager.createSubtasks(batch);
+            manager.getSubtaskById(created.get(0).getId());
+            manager.getEpicById(small.getId());
+            manager.getTaskById(task.getId());
+            ChangeSubscription subscription = manager.subscribe(ChangeLog.LATEST);
+
+            // Малая доля: расписание, поиск и версии чистятся поштучно
+            manager.deleteEpicById(small.getId());
+            assertEquals(List.of(created.get(0).getId(), task.getId()),
+                    manager.getHistory().stream().map(Task::getId).collect(Collectors.toList()));
+            assertTrue(manager.search("малый", SearchOrder.ID, 10).isEmpty());
+            assertEquals(0, manager.getVersion(created.get(100).getId()));
+
+            // Большая доля: одним проходом по каждой структуре
+            manager.deleteAllSubtasks();
+            assertEquals(Status.NEW, manager.getEpicById(done.getId()).getStatus());
+            assertNull(manager.getEpicById(done.getId()).getStartTime());
+            assertTrue(manager.getEpicById(done.getId()).getSubtaskIds().isEmpty());
+            assertEquals(List.of(task.getId(), done.getId()),
+                    manager.getHistory().stream().map(Task::getId).collect(Collectors.toList()));
+            assertTrue(manager.search("шаг", SearchOrder.ID, 10).isEmpty());
+            assertEquals(List.of(task), manager.getPrioritizedTasks());
+            assertEquals(0, manager.getVersion(created.get(0).getId()));
+            List<ChangeEvent> events = subscription.poll(1000);
+            assertEquals(1, events.stream().filter(event -> event.getType() == ChangeType.EPIC_STATUS_CHANGED)
+                    .count(), "Статус меняется только у эпика, который не был в NEW");
+            assertEquals(102, events.stream().filter(event -> event.getType() == ChangeType.DELETED).count());
+
+            Subtask again = manager.createSubtask(new Subtask("Снова", "Desc", Status.NEW, empty.getId(),
+                    start.plusHours(1), Duration.ofMinutes(30)));
+            assertNotNull(again, "Время удалённых подзадач должно освободиться");
+            manager.deleteAllEpics();
+            manager.deleteAllTasks();
+            assertTrue(manager.getHistory().isEmpty());
+            assertTrue(manager.getPrioritizedTasks().isEmpty());
+            assertTrue(manager.search("desc", SearchOrder.ID, 10).isEmpty());
+            assertNotNull(manager.createTask(new Task("Созвон", "Desc", Status.NEW, start, Duration.ofMinutes(30))));
+        }
+    }
+
+    @Test
+    void fileBackedBatchShouldSurviveRestart() {
+        List<Integer> subtaskIds = new ArrayList<>();
+        int epicId;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            epicId = manager.createEpic(new Epic("Epic", "Desc")).getId();
+            for (Subtask subtask : manager.createSubtasks(List.of(
+                    new Subtask("A", "Desc", Status.NEW, epicId),
+                    new Subtask("B", "Desc", Status.NEW, epicId),
+                    new Subtask("C", "Desc", Status.NEW, epicId)))) {
+                subtaskIds.add(subtask.getId());
+            }
+            manager.updateSubtasks(List.of(new Subtask("A", "Desc", subtaskIds.get(0), Status.DONE, epicId)));
+            manager.deleteSubtasksByIds(List.of(subtaskIds.get(1)));
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(List.of(subtaskIds.get(0), subtaskIds.get(2)), restored.getEpicById(epicId).getSubtaskIds());
+            assertEquals(Status.IN_PROGRESS, restored.getEpicById(epicId).getStatus());
+            assertEquals(subtaskIds.get(2) + 1, restored.createTask(new Task("Next", "Desc", Status.NEW)).getId());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package controllers;
+
+import enums.Status;
+import enums.TaskType;
+import impl.TaskManager;
+import model.BoardSnapshot;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskRecord;
+import org.junit.jupiter.api.Test;
+import utils.Managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardSnapshotTest {
+    @Test
+    void snapshotShouldNotSeeLaterChangesOrOutsideMutation() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.DONE, epic.getId()));
+
+            BoardSnapshot snapshot = manager.getSnapshot();
+            // Изменение объекта в обход менеджера не попадает в снимок
+            subtask.setStatus(Status.NEW);
+            manager.deleteTaskById(task.getId());
+
+            assertEquals(Status.NEW, snapshot.get(task.getId()).getStatus());
+            assertEquals(Status.DONE, snapshot.get(subtask.getId()).getStatus());
+            assertEquals(Status.DONE, snapshot.get(epic.getId()).getStatus());
+            assertEquals(List.of(subtask.getId()), snapshot.get(epic.getId()).getSubtaskIds());
+            assertEquals(epic.getId(), snapshot.getSubtasksByEpicId(epic.getId()).get(0).getEpicId());
+            assertNull(manager.getSnapshot().get(task.getId()));
+        }
+    }
+
+    @Test
+    void unchangedManagerShouldReuseSnapshot() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            manager.createTask(new Task("Task", "Desc", Status.NEW));
+            BoardSnapshot first = manager.getSnapshot();
+
+            assertSame(first, manager.getSnapshot());
+            manager.createTask(new Task("Task", "Desc", Status.NEW));
+            assertNotSame(first, manager.getSnapshot());
+            assertEquals(manager.getLastChangeSequence(), manager.getSnapshot().getVersion());
+        }
+    }
+
+    @Test
+    void containsShouldFindEveryKindWithoutRecordingHistory() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId()));
+
+            assertTrue(manager.contains(task.getId()));
+            assertTrue(manager.contains(epic.getId()));
+            assertTrue(manager.contains(subtask.getId()));
+            assertFalse(manager.contains(999));
+            manager.deleteEpicById(epic.getId());
+            assertFalse(manager.contains(subtask.getId()), "Подзадача удаляется вместе с эпиком");
+            assertTrue(manager.getHistory().isEmpty(), "Проверка наличия не должна попадать в историю");
+        }
+    }
+
+    @Test
+    void staleExpectedVersionShouldRejectUpdate() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId()));
+            long taskVersion = manager.getVersion(task.getId());
+            long subtaskVersion = manager.getSnapshot().get(subtask.getId()).getVersion();
+
+            assertTrue(manager.updateTask(new Task("Task", "Desc", task.getId(), Status.DONE), taskVersion));
+            assertFalse(manager.updateTask(new Task("Task", "Desc", task.getId(), Status.NEW), taskVersion),
+                    "Обновление по устаревшей версии должно отклоняться");
+            assertEquals(Status.DONE, manager.getSnapshot().get(task.getId()).getStatus());
+
+            long epicVersion = manager.getVersion(epic.getId());
+            assertTrue(manager.updateSubtask(new Subtask("Sub", "Desc", subtask.getId(), Status.DONE, epic.getId()),
+                    subtaskVersion));
+            assertTrue(manager.getVersion(epic.getId()) > epicVersion, "Пересчёт статуса эпика меняет его версию");
+            assertFalse(manager.updateSubtask(new Subtask("Sub", "Desc", subtask.getId(), Status.NEW, epic.getId()),
+                    subtaskVersion));
+            assertFalse(manager.updateTask(new Task("Missing", "Desc", 999, Status.NEW), 0));
+        }
+    }
+
+    @Test
+    void recordShouldConvertBackToTask() {
+        TaskManager manager = Managers.getDefault();
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.IN_PROGRESS, epic.getId()));
+
+        TaskRecord record = manager.getSnapshot().get(subtask.getId());
+        assertEquals(TaskType.SUBTASK, record.getType());
+        assertEquals(subtask, record.toTask());
+        assertEquals(List.of(subtask.getId()), ((Epic) manager.getSnapshot().get(epic.getId()).toTask()).getSubtaskIds());
+    }
+
+    @Test
+    void concurrentSnapshotShouldKeepEpicStatusConsistentWithSubtasks() throws Exception {
+        TaskManager manager = Managers.getConcurrent();
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ids.add(manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId())).getId());
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> writer = executor.submit(() -> {
+            Status[] statuses = Status.values();
+            for (int i = 0; running.get(); i++) {
+                int id = ids.get(i % ids.size());
+                manager.updateSubtask(new Subtask("Sub", "Desc", id, statuses[i % statuses.length], epic.getId()));
+            }
+        });
+        for (int i = 0; i < 2000; i++) {
+            BoardSnapshot snapshot = manager.getSnapshot();
+            boolean allNew = true;
+            boolean allDone = true;
+            for (TaskRecord record : snapshot.getSubtasksByEpicId(epic.getId())) {
+                allNew &= record.getStatus() == Status.NEW;
+                allDone &= record.getStatus() == Status.DONE;
+            }
+            Status expected = allDone ? Status.DONE : allNew ? Status.NEW : Status.IN_PROGRESS;
+            assertEquals(expected, snapshot.get(epic.getId()).getStatus());
+        }
+        running.set(false);
+        writer.get();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,137 @@
+package controllers;
+
+import enums.ChangeType;
+import enums.Status;
+import enums.TaskType;
+import impl.ObservableTaskManager;
+import model.ChangeEvent;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import utils.ChangeLog;
+import utils.ChangeSubscription;
+import utils.Managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeEventsTest {
+    private static List<String> describe(List<ChangeEvent> events) {
+        List<String> result = new ArrayList<>();
+        for (ChangeEvent event : events) {
+            result.add(event.getType() + " " + event.getTaskType() + " " + event.getStatus());
+        }
+        return result;
+    }
+
+    @Test
+    void managersShouldEmitDerivedEpicStatusChanges() {
+        for (ObservableTaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            ChangeSubscription subscription = manager.subscribe(ChangeLog.LATEST);
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.DONE, epic.getId()));
+            manager.updateSubtask(new Subtask("Sub", "Desc", subtask.getId(), Status.DONE, epic.getId()));
+            manager.deleteSubtaskById(subtask.getId());
+
+            List<ChangeEvent> events = subscription.poll(100);
+            assertEquals(List.of(
+                    "CREATED EPIC NEW",
+                    "CREATED SUBTASK DONE",
+                    "EPIC_STATUS_CHANGED EPIC DONE",
+                    "UPDATED SUBTASK DONE",
+                    "DELETED SUBTASK null",
+                    "EPIC_STATUS_CHANGED EPIC NEW"), describe(events));
+            for (int i = 1; i < events.size(); i++) {
+                assertEquals(events.get(i - 1).getSequence() + 1, events.get(i).getSequence());
+            }
+            assertEquals(manager.getLastChangeSequence(), subscription.getPosition());
+        }
+    }
+
+    // Повтор с начала показывает каждую задачу такой, какой она была на номер события
+    @Test
+    void replayedEventsShouldCarryStateAtTheirSequence() {
+        for (ObservableTaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId()));
+            manager.updateSubtask(new Subtask("Renamed", "Desc", subtask.getId(), Status.DONE, epic.getId()));
+
+            List<ChangeEvent> events = manager.subscribe(0).poll(100);
+            Task createdEpic = events.get(0).getTask();
+            assertEquals(Status.NEW, createdEpic.getStatus());
+            assertTrue(((Epic) createdEpic).getSubtaskIds().isEmpty());
+            assertEquals(events.get(0).getSequence(), events.get(0).getRecord().getVersion());
+            assertEquals("Sub", events.get(1).getTask().getName());
+            assertEquals(Status.NEW, events.get(1).getRecord().getStatus());
+            assertEquals(List.of(subtask.getId()), events.get(3).getRecord().getSubtaskIds());
+            assertEquals(Status.DONE, events.get(3).getRecord().getStatus());
+
+            // Изменение копии из события не трогает ни событие, ни менеджер
+            createdEpic.setName("Changed");
+            assertEquals("Epic", events.get(0).getTask().getName());
+            assertEquals("Epic", manager.getEpicById(epic.getId()).getName());
+        }
+    }
+
+    @Test
+    void ignoredUpdatesShouldNotProduceEvents() {
+        for (ObservableTaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            manager.updateTask(new Task("Missing", "Desc", 42, Status.DONE));
+            manager.deleteTaskById(42);
+            manager.deleteSubtaskById(42);
+
+            assertEquals(0, manager.getLastChangeSequence());
+        }
+    }
+
+    @Test
+    void subscriberShouldResumeFromSavedPosition() {
+        ObservableTaskManager manager = Managers.getDefault();
+        ChangeSubscription first = manager.subscribe(ChangeLog.LATEST);
+        Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+        manager.updateTask(new Task("Task", "Desc", task.getId(), Status.DONE));
+
+        assertEquals(1, first.poll(1).size(), "Пачка не должна превышать запрошенный размер");
+        long position = first.getPosition();
+
+        manager.deleteTaskById(task.getId());
+        List<ChangeEvent> resumed = manager.subscribe(position).poll(10);
+        assertEquals(List.of("UPDATED TASK DONE", "DELETED TASK null"), describe(resumed));
+        assertEquals(task.getId(), resumed.get(1).getTaskId());
+        assertEquals(TaskType.TASK, resumed.get(1).getTaskType());
+    }
+
+    @Test
+    void blockingPollShouldWakeUpOnConcurrentWrites() throws Exception {
+        ObservableTaskManager manager = Managers.getConcurrent();
+        ChangeSubscription subscription = manager.subscribe(ChangeLog.LATEST);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    manager.createTask(new Task("Task", "Desc", Status.NEW));
+                }
+            }));
+        }
+
+        long expected = 1;
+        while (expected <= 4000) {
+            for (ChangeEvent event : subscription.poll(128, 5, TimeUnit.SECONDS)) {
+                assertEquals(expected++, event.getSequence(), "События должны приходить по порядку без пропусков");
+                assertEquals(ChangeType.CREATED, event.getType());
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,246 @@
+package controllers;
+
+import enums.Status;
+import impl.JournaledTaskManager;
+import impl.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import utils.Managers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+
+    @Test
+    void generatedIdsShouldBeUniqueAcrossThreads() throws Exception {
+        TaskManager manager = Managers.getConcurrent();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    manager.createTask(new Task("Task", "Desc", Status.NEW));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : manager.getAllTasks()) {
+            ids.add(task.getId());
+        }
+        assertEquals(THREADS * 1000, ids.size(), "Все сгенерированные ID должны быть уникальны");
+    }
+
+    @Test
+    void parallelReadsShouldRecordEveryViewInHistory() throws Exception {
+        TaskManager manager = new ConcurrentTaskManager(
+                new InMemoryHistoryManager(InMemoryHistoryManager.UNLIMITED), 16);
+        int count = THREADS * 500;
+        for (int i = 0; i < count; i++) {
+            manager.createTask(new Task("Task " + i, "Desc", Status.NEW));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int first = t * 500 + 1;
+            futures.add(executor.submit(() -> {
+                for (int id = first; id < first + 500; id++) {
+                    manager.getTaskById(id);
+                    manager.getTaskById(id);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(count, manager.getHistory().size(), "Каждая прочитанная задача должна попасть в историю");
+        manager.deleteTaskById(1);
+        assertEquals(count - 1, manager.getHistory().size(), "Удалённая задача не должна остаться в истории");
+    }
+
+    @Test
+    void viewsRacingWithDeletesShouldNotReturnDeletedTasksToHistory() throws Exception {
+        TaskManager manager = new ConcurrentTaskManager(
+                new InMemoryHistoryManager(InMemoryHistoryManager.UNLIMITED), 16);
+        List<Integer> taskIds = new ArrayList<>();
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            taskIds.add(manager.createTask(new Task("Task " + i, "Desc", Status.NEW)).getId());
+        }
+        for (int i = 0; i < 200; i++) {
+            int epicId = manager.createEpic(new Epic("Epic " + i, "Desc")).getId();
+            epicIds.add(epicId);
+            for (int j = 0; j < 4; j++) {
+                manager.createSubtask(new Subtask("Sub " + j, "Desc", Status.NEW, epicId));
+            }
+        }
+        int lastId = manager.getAllSubtasks().get(manager.getAllSubtasks().size() - 1).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicBoolean deleting = new AtomicBoolean(true);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int t = 1; t < THREADS; t++) {
+            readers.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (deleting.get()) {
+                    int id = 1 + random.nextInt(lastId);
+                    manager.getTaskById(id);
+                    manager.getEpicById(id);
+                    manager.getSubtaskById(id);
+                }
+            }));
+        }
+        // Удаляются по одной задачи и эпики с подзадачами, затем очищаются оставшиеся подзадачи
+        for (int i = 0; i < taskIds.size(); i++) {
+            manager.deleteTaskById(taskIds.get(i));
+            if (i % 10 == 0 && i / 5 < epicIds.size()) {
+                manager.deleteEpicById(epicIds.get(i / 5));
+            }
+        }
+        manager.deleteAllSubtasks();
+        deleting.set(false);
+        for (Future<?> future : readers) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        Set<Integer> stored = new HashSet<>();
+        manager.getAllEpics().forEach(epic -> stored.add(epic.getId()));
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+        for (Task view : manager.getHistory()) {
+            assertTrue(stored.contains(view.getId()), "Удалённая задача " + view.getId() + " вернулась в историю");
+        }
+    }
+
+    @Test
+    void epicInvariantsShouldHoldUnderConcurrentModification() throws Exception {
+        TaskManager manager = Managers.getConcurrent();
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            epicIds.add(manager.createEpic(new Epic("Epic " + i, "Desc")).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                runRandomOperations(manager, epicIds);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        int linkedSubtasks = 0;
+        for (Epic epic : manager.getAllEpics()) {
+            List<Subtask> epicSubtasks = manager.getSubtasksByEpicId(epic.getId());
+            assertEquals(epicSubtasks.size(), epic.getSubtaskIds().size(), "Список подзадач эпика рассинхронизирован");
+            for (Subtask subtask : epicSubtasks) {
+                assertEquals(epic.getId(), subtask.getEpicId(), "Подзадача числится не в своём эпике");
+            }
+            assertEquals(expectedStatus(epicSubtasks), epic.getStatus(), "Неверный статус эпика " + epic.getId());
+            linkedSubtasks += epicSubtasks.size();
+        }
+        assertEquals(manager.getAllSubtasks().size(), linkedSubtasks, "Каждая подзадача должна принадлежать одному эпику");
+    }
+
+    @Test
+    void parallelTransitionsShouldKeepEpicInvariantsUnderConcurrentModification() throws Exception {
+        JournaledTaskManager manager = Managers.getConcurrent();
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            epicIds.add(manager.createEpic(new Epic("Epic " + i, "Desc")).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS / 2; i++) {
+            futures.add(executor.submit(() -> {
+                runRandomOperations(manager, epicIds);
+                return null;
+            }));
+        }
+        for (int i = 0; i < 200; i++) {
+            Status target = Status.values()[i % Status.values().length];
+            manager.transitionSubtasks(pool, (epic, subtask) -> subtask.getId() % 3 == 0, target);
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        pool.shutdown();
+
+        for (Epic epic : manager.getAllEpics()) {
+            assertEquals(expectedStatus(manager.getSubtasksByEpicId(epic.getId())), epic.getStatus(),
+                    "Неверный статус эпика " + epic.getId());
+        }
+        assertEquals(manager.getAllSubtasks().size(), manager.collectSubtasks(ForkJoinPool.commonPool(),
+                Collectors.counting()).intValue());
+    }
+
+    private static void runRandomOperations(TaskManager manager, List<Integer> epicIds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Status[] statuses = Status.values();
+        List<Integer> created = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+            int epicId = epicIds.get(random.nextInt(epicIds.size()));
+            Status status = statuses[random.nextInt(statuses.length)];
+            int operation = random.nextInt(10);
+            if (operation < 4 || created.isEmpty()) {
+                created.add(manager.createSubtask(new Subtask("Sub", "Desc", status, epicId)).getId());
+            } else if (operation < 8) {
+                int id = created.get(random.nextInt(created.size()));
+                manager.updateSubtask(new Subtask("Sub", "Desc", id, status, epicId));
+            } else if (operation < 9) {
+                manager.deleteSubtaskById(created.remove(random.nextInt(created.size())));
+            } else {
+                manager.getSubtasksByEpicId(epicId);
+                manager.getSubtaskById(created.get(random.nextInt(created.size())));
+            }
+        }
+    }
+
+    private static Status expectedStatus(List<Subtask> subtasks) {
+        boolean allNew = true;
+        boolean allDone = true;
+        for (Subtask subtask : subtasks) {
+            allNew &= subtask.getStatus() == Status.NEW;
+            allDone &= subtask.getStatus() == Status.DONE;
+        }
+        if (allNew) {
+            return Status.NEW;
+        }
+        return allDone ? Status.DONE : Status.IN_PROGRESS;
+    }
+}
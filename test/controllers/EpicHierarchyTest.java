@@ -0,0 +1,301 @@
+package controllers;
+
+import enums.SearchOrder;
+import enums.Status;
+import impl.TaskManager;
+import model.Epic;
+import model.EpicRollup;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import utils.Managers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpicHierarchyTest extends ManagerFixture {
+    private List<TaskManager> managers() {
+        return List.of(verifiedInMemory(), Managers.getConcurrent(), fileBacked(),
+                Managers.getSharded(3), Managers.getOffHeap());
+    }
+
+    private static List<Integer> idsOf(List<EpicRollup> rollups) {
+        return rollups.stream().map(EpicRollup::getEpicId).collect(Collectors.toList());
+    }
+
+    @Test
+    void rollupShouldAggregateSubtasksOfWholeSubtree() {
+        for (TaskManager manager : managers()) {
+            Epic release = manager.createEpic(new Epic("Release", "Desc"));
+            Epic backend = manager.createEpic(nested("Backend", release.getId()));
+            Epic api = manager.createEpic(nested("API", backend.getId()));
+            Epic frontend = manager.createEpic(nested("Frontend", release.getId()));
+            manager.createSubtask(new Subtask("Plan", "Desc", Status.DONE, release.getId()));
+            manager.createSubtasks(List.of(
+                    new Subtask("Schema", "Desc", Status.DONE, backend.getId()),
+                    new Subtask("Endpoints", "Desc", Status.NEW, api.getId()),
+                    new Subtask("Layout", "Desc", Status.NEW, frontend.getId())));
+
+            EpicRollup rollup = manager.getEpicRollup(release.getId());
+            assertEquals(4, rollup.getSubtaskTotal());
+            assertEquals(2, rollup.getCount(Status.DONE));
+            assertEquals(2, rollup.getCount(Status.NEW));
+            assertEquals(50, rollup.getProgress());
+            assertEquals(1, rollup.getSubtaskCount(), "Прямых подзадач у релиза одна");
+            assertEquals(2, rollup.getChildEpicCount());
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(release.getId()).getStatus());
+
+            List<EpicRollup> rollups = manager.getEpicRollups(release.getId());
+            assertEquals(List.of(release.getId(), backend.getId(), api.getId(), frontend.getId()), idsOf(rollups));
+            assertEquals(List.of(0, 1, 2, 1), rollups.stream().map(EpicRollup::getDepth).collect(Collectors.toList()));
+            assertEquals(backend.getId(), rollups.get(2).getParentId());
+            assertEquals(2, manager.getEpicRollup(backend.getId()).getSubtaskTotal());
+            assertEquals(2, manager.getEpicRollup(api.getId()).getDepth());
+
+            assertNull(manager.getEpicRollup(-1));
+            assertTrue(manager.getEpicRollups(-1).isEmpty());
+            assertNull(manager.createEpic(nested("Orphan", -1)), "Родитель должен существовать");
+        }
+    }
+
+    @Test
+    void subtaskChangesShouldUpdateStatusesAlongAncestorPath() {
+        for (TaskManager manager : managers()) {
+            Epic root = manager.createEpic(new Epic("Root", "Desc"));
+            Epic middle = manager.createEpic(nested("Middle", root.getId()));
+            Epic leaf = manager.createEpic(nested("Leaf", middle.getId()));
+            Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, leaf.getId()));
+            assertEquals(Status.NEW, manager.getEpicById(root.getId()).getStatus());
+
+            Subtask done = new Subtask("Sub", "Desc", subtask.getId(), Status.DONE, leaf.getId());
+            manager.updateSubtask(done);
+            for (Epic epic : List.of(root, middle, leaf)) {
+                assertEquals(Status.DONE, manager.getEpicById(epic.getId()).getStatus());
+                assertEquals(100, manager.getEpicRollup(epic.getId()).getProgress());
+            }
+
+            manager.createSubtask(new Subtask("Other", "Desc", Status.NEW, middle.getId()));
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(root.getId()).getStatus());
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(middle.getId()).getStatus());
+            assertEquals(Status.DONE, manager.getEpicById(leaf.getId()).getStatus());
+
+            manager.deleteSubtaskById(subtask.getId());
+            assertEquals(Status.NEW, manager.getEpicById(root.getId()).getStatus());
+            assertEquals(Status.NEW, manager.getEpicById(leaf.getId()).getStatus());
+            assertEquals(1, manager.getEpicRollup(root.getId()).getSubtaskTotal());
+
+            manager.deleteAllSubtasks();
+            assertEquals(0, manager.getEpicRollup(root.getId()).getSubtaskTotal());
+            assertEquals(Status.NEW, manager.getEpicById(middle.getId()).getStatus());
+        }
+    }
+
+    @Test
+    void moveEpicShouldCarrySubtreeTotalsAndRejectCycles() {
+        for (TaskManager manager : managers()) {
+            Epic first = manager.createEpic(new Epic("First", "Desc"));
+            Epic second = manager.createEpic(nested("Second", first.getId()));
+            Epic third = manager.createEpic(nested("Third", second.getId()));
+            manager.createSubtask(new Subtask("Sub", "Desc", Status.DONE, third.getId()));
+            Epic target = manager.createEpic(nested("Target", first.getId()));
+            manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, target.getId()));
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(first.getId()).getStatus());
+
+            assertFalse(manager.moveEpic(first.getId(), third.getId()), "Эпик нельзя вложить в своего потомка");
+            assertFalse(manager.moveEpic(second.getId(), second.getId()));
+            assertFalse(manager.moveEpic(second.getId(), -1));
+
+            assertTrue(manager.moveEpic(second.getId(), target.getId()));
+            assertEquals(target.getId(), manager.getEpicById(second.getId()).getParentId());
+            assertEquals(2, manager.getEpicRollup(target.getId()).getSubtaskTotal());
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(target.getId()).getStatus());
+            assertEquals(3, manager.getEpicRollup(third.getId()).getDepth());
+
+            assertTrue(manager.moveEpic(second.getId(), Epic.NO_PARENT));
+            assertEquals(1, manager.getEpicRollup(first.getId()).getSubtaskTotal());
+            assertEquals(Status.NEW, manager.getEpicById(first.getId()).getStatus());
+            assertEquals(Status.DONE, manager.getEpicById(second.getId()).getStatus());
+            assertEquals(1, manager.getEpicRollup(third.getId()).getDepth());
+
+            // updateEpic не меняет родителя
+            manager.updateEpic(new Epic("Renamed", "Desc", target.getId(), Status.NEW));
+            assertEquals(first.getId(), manager.getEpicById(target.getId()).getParentId());
+        }
+    }
+
+    @Test
+    void epicScheduleShouldCoverSubtasksOfWholeSubtree() {
+        LocalDateTime day = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (TaskManager manager : managers()) {
+            Epic release = manager.createEpic(new Epic("Release", "Desc"));
+            Epic backend = manager.createEpic(nested("Backend", release.getId()));
+            Epic api = manager.createEpic(nested("API", backend.getId()));
+            Subtask endpoints = manager.createSubtask(new Subtask("Endpoints", "Desc", Status.NEW, api.getId(),
+                    day.plusHours(10), Duration.ofMinutes(60)));
+            manager.createSubtask(new Subtask("Schema", "Desc", Status.NEW, backend.getId(),
+                    day.plusDays(1).plusHours(9), Duration.ofMinutes(30)));
+
+            Epic epic = manager.getEpicById(release.getId());
+            assertEquals(day.plusHours(10), epic.getStartTime());
+            assertEquals(day.plusDays(1).plusHours(9).plusMinutes(30), epic.getEndTime());
+            assertEquals(Duration.ofMinutes(90), epic.getDuration());
+
+            Subtask moved = new Subtask("Endpoints", "Desc", Status.NEW, api.getId(),
+                    day.plusDays(2).plusHours(12), Duration.ofMinutes(60));
+            moved.setId(endpoints.getId());
+            manager.updateSubtask(moved);
+            assertEquals(day.plusDays(1).plusHours(9), manager.getEpicById(release.getId()).getStartTime());
+            assertEquals(day.plusDays(2).plusHours(13), manager.getEpicById(release.getId()).getEndTime());
+
+            // Перенос поддерева уносит и его сроки
+            assertTrue(manager.moveEpic(api.getId(), Epic.NO_PARENT));
+            epic = manager.getEpicById(release.getId());
+            assertEquals(day.plusDays(1).plusHours(9).plusMinutes(30), epic.getEndTime());
+            assertEquals(Duration.ofMinutes(30), epic.getDuration());
+            assertTrue(manager.moveEpic(api.getId(), release.getId()));
+            assertEquals(day.plusDays(2).plusHours(13), manager.getEpicById(release.getId()).getEndTime());
+
+            manager.deleteEpicById(backend.getId());
+            epic = manager.getEpicById(release.getId());
+            assertEquals(day.plusDays(2).plusHours(12), epic.getStartTime());
+            assertEquals(Duration.ofMinutes(60), epic.getDuration());
+
+            manager.deleteEpicById(api.getId());
+            epic = manager.getEpicById(release.getId());
+            assertNull(epic.getStartTime());
+            assertNull(epic.getEndTime());
+            assertNull(epic.getDuration());
+        }
+    }
+
+    @Test
+    void deleteEpicShouldRemoveWholeSubtree() {
+        for (TaskManager manager : managers()) {
+            Epic root = manager.createEpic(new Epic("Root", "Desc"));
+            Epic child = manager.createEpic(nested("Child", root.getId()));
+            Epic grandchild = manager.createEpic(nested("Grandchild", child.getId()));
+            Subtask kept = manager.createSubtask(new Subtask("Kept", "Desc", Status.NEW, root.getId()));
+            Subtask deleted = manager.createSubtask(new Subtask("Deleted", "Desc", Status.DONE, grandchild.getId()));
+            manager.getEpicById(grandchild.getId());
+            manager.getSubtaskById(deleted.getId());
+            manager.getSubtaskById(kept.getId());
+
+            manager.deleteEpicById(child.getId());
+
+            assertNull(manager.getEpicById(grandchild.getId()));
+            assertNull(manager.getSubtaskById(deleted.getId()));
+            assertEquals(List.of(root.getId()), idsOf(manager.getEpicRollups(root.getId())));
+            assertEquals(1, manager.getEpicRollup(root.getId()).getSubtaskTotal());
+            assertEquals(Status.NEW, manager.getEpicById(root.getId()).getStatus());
+            assertEquals(List.of(kept.getId(), root.getId()), manager.getHistory().stream().map(Task::getId)
+                    .collect(Collectors.toList()));
+            assertTrue(manager.search("Grandchild", SearchOrder.ID, 10).isEmpty());
+        }
+    }
+
+    @Test
+    void hierarchyShouldSurviveSnapshotAndJournalReplay() {
+        Epic root;
+        Epic child;
+        Epic moved;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, 1, 0, 100_000)) {
+            root = manager.createEpic(new Epic("Root", "Desc"));
+            moved = manager.createEpic(new Epic("Moved", "Desc"));
+            child = manager.createEpic(nested("Child", moved.getId()));
+            manager.createSubtask(new Subtask("Sub", "Desc", Status.DONE, child.getId()));
+            manager.snapshot();
+            // Родитель создан позже эпика, который в него переносится
+            assertTrue(manager.moveEpic(moved.getId(), root.getId()));
+            manager.snapshot();
+            assertTrue(manager.moveEpic(child.getId(), root.getId()));
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(root.getId(), restored.getEpicById(child.getId()).getParentId());
+            assertEquals(root.getId(), restored.getEpicById(moved.getId()).getParentId());
+            assertEquals(List.of(root.getId(), moved.getId(), child.getId()),
+                    idsOf(restored.getEpicRollups(root.getId())));
+            assertEquals(Status.DONE, restored.getEpicById(root.getId()).getStatus());
+            assertEquals(1, restored.getEpicRollup(root.getId()).getSubtaskTotal());
+
+            restored.snapshot();
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(Status.DONE, restored.getEpicById(root.getId()).getStatus());
+            assertEquals(3, restored.getEpicRollups(root.getId()).size());
+        }
+    }
+
+    @Test
+    void concurrentChangesShouldKeepRollupsConsistent() throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(Managers.getDefaultHistory(), 16);
+        Epic root = manager.createEpic(new Epic("Root", "Desc"));
+        List<Epic> leaves = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Epic branch = manager.createEpic(nested("Branch " + i, root.getId()));
+            leaves.add(manager.createEpic(nested("Leaf " + i, branch.getId())));
+        }
+        Epic other = manager.createEpic(new Epic("Other", "Desc"));
+
+        int threads = 4;
+        int operations = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < operations; i++) {
+                    Epic leaf = leaves.get(random.nextInt(leaves.size()));
+                    Status status = Status.values()[random.nextInt(Status.values().length)];
+                    Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", status, leaf.getId()));
+                    if (random.nextBoolean()) {
+                        manager.deleteSubtaskById(subtask.getId());
+                    }
+                }
+                return null;
+            }));
+        }
+        // Ветки переносятся между корнями, пока подзадачи меняются
+        futures.add(executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 200; i++) {
+                Epic leaf = leaves.get(i % leaves.size());
+                manager.moveEpic(leaf.getId(), i % 2 == 0 ? other.getId() : root.getId());
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        int total = manager.getAllSubtasks().size();
+        assertEquals(total, manager.getEpicRollup(root.getId()).getSubtaskTotal()
+                + manager.getEpicRollup(other.getId()).getSubtaskTotal());
+        for (Epic epic : manager.getAllEpics()) {
+            EpicRollup rollup = manager.getEpicRollup(epic.getId());
+            int expected = manager.getEpicRollups(epic.getId()).stream()
+                    .mapToInt(nested -> manager.getSubtasksByEpicId(nested.getEpicId()).size()).sum();
+            assertEquals(expected, rollup.getSubtaskTotal(), "Итоги эпика " + epic.getId());
+            int done = manager.getEpicRollups(epic.getId()).stream()
+                    .mapToInt(nested -> (int) manager.getSubtasksByEpicId(nested.getEpicId()).stream()
+                            .filter(subtask -> subtask.getStatus() == Status.DONE).count()).sum();
+            assertEquals(done, rollup.getCount(Status.DONE));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package controllers;
+
+import enums.Status;
+import model.Epic;
+import model.Subtask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpicStatusCounterTest {
+    private InMemoryTaskManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new InMemoryTaskManager();
+        manager.setEpicStatusVerification(true);
+    }
+
+    @Test
+    void counterShouldDeriveStatusFromCounts() {
+        EpicStatusCounter counter = new EpicStatusCounter();
+        assertEquals(Status.NEW, counter.toStatus(), "Эпик без подзадач должен быть NEW");
+
+        counter.increment(Status.DONE);
+        counter.increment(Status.DONE);
+        assertEquals(Status.DONE, counter.toStatus());
+
+        counter.increment(Status.NEW);
+        assertEquals(Status.IN_PROGRESS, counter.toStatus());
+
+        counter.decrement(Status.DONE);
+        counter.decrement(Status.DONE);
+        assertEquals(Status.NEW, counter.toStatus());
+        assertEquals(1, counter.total());
+    }
+
+    @Test
+    void movingSubtaskShouldUpdateBothEpics() {
+        Epic from = manager.createEpic(new Epic("From", "Desc"));
+        Epic to = manager.createEpic(new Epic("To", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.DONE, from.getId()));
+        manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, to.getId()));
+        assertEquals(Status.DONE, from.getStatus());
+        assertEquals(Status.NEW, to.getStatus());
+
+        subtask.setEpicId(to.getId());
+        manager.updateSubtask(subtask);
+
+        assertEquals(Status.NEW, from.getStatus(), "Эпик без подзадач должен стать NEW");
+        assertEquals(Status.IN_PROGRESS, to.getStatus());
+        assertTrue(from.getSubtaskIds().isEmpty());
+        assertEquals(2, manager.getSubtasksByEpicId(to.getId()).size());
+    }
+
+    @Test
+    void movingSubtaskToMissingEpicShouldBeIgnored() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.DONE, epic.getId()));
+
+        manager.updateSubtask(new Subtask("Sub", "Desc", subtask.getId(), Status.NEW, 999));
+
+        assertSame(subtask, manager.getSubtaskById(subtask.getId()));
+        assertEquals(Status.DONE, epic.getStatus());
+    }
+
+    @Test
+    void countersShouldMatchFullRescanOnRandomOperations() {
+        Random random = new Random(42);
+        Status[] statuses = Status.values();
+        List<Epic> epics = new ArrayList<>();
+        List<Subtask> subtasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            epics.add(manager.createEpic(new Epic("Epic " + i, "Desc")));
+        }
+
+        // Режим проверки бросит IllegalStateException при любом расхождении с перебором
+        for (int i = 0; i < 2000; i++) {
+            Epic epic = epics.get(random.nextInt(epics.size()));
+            Status status = statuses[random.nextInt(statuses.length)];
+            int operation = random.nextInt(4);
+            if (operation == 0 || subtasks.isEmpty()) {
+                subtasks.add(manager.createSubtask(new Subtask("Sub", "Desc", status, epic.getId())));
+            } else if (operation == 1) {
+                Subtask subtask = subtasks.get(random.nextInt(subtasks.size()));
+                manager.updateSubtask(new Subtask("Sub", "Desc", subtask.getId(), status, subtask.getEpicId()));
+            } else if (operation == 2) {
+                Subtask subtask = subtasks.get(random.nextInt(subtasks.size()));
+                manager.updateSubtask(new Subtask("Sub", "Desc", subtask.getId(), status, epic.getId()));
+            } else {
+                Subtask subtask = subtasks.remove(random.nextInt(subtasks.size()));
+                manager.deleteSubtaskById(subtask.getId());
+            }
+        }
+
+        for (Epic epic : epics) {
+            manager.updateEpic(new Epic("Updated", "Desc", epic.getId(), Status.NEW));
+            assertNotNull(manager.getEpicById(epic.getId()));
+        }
+    }
+}
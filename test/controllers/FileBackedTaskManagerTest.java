@@ -0,0 +1,213 @@
+package controllers;
+
+import enums.Status;
+import exceptions.ManagerSaveException;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileBackedTaskManagerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRestoreStateFromJournalAfterRestart() {
+        int epicId;
+        int subtaskId;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            manager.createTask(new Task("Task, with comma", "Line\nbreak", Status.NEW));
+            epicId = manager.createEpic(new Epic("Epic", "Desc")).getId();
+            subtaskId = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epicId)).getId();
+            manager.createSubtask(new Subtask("Sub 2", "Desc", Status.NEW, epicId));
+            manager.updateSubtask(new Subtask("Sub", "Updated", subtaskId, Status.DONE, epicId));
+            manager.deleteSubtaskById(subtaskId + 1);
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals("Task, with comma", restored.getAllTasks().get(0).getName());
+            assertEquals("Line\nbreak", restored.getAllTasks().get(0).getDescription());
+            assertEquals(1, restored.getAllSubtasks().size());
+            assertEquals("Updated", restored.getSubtaskById(subtaskId).getDescription());
+            assertEquals(Status.DONE, restored.getEpicById(epicId).getStatus(), "Статус эпика должен пересчитываться при загрузке");
+            assertEquals(1, restored.getEpicById(epicId).getSubtaskIds().size(), "Связи эпика должны восстанавливаться");
+        }
+    }
+
+    @Test
+    void nextIdShouldStayMonotonicAcrossRestarts() {
+        int lastId;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            manager.createTask(new Task("Task", "Desc", Status.NEW));
+            lastId = manager.createTask(new Task("Task", "Desc", Status.NEW)).getId();
+            manager.deleteTaskById(lastId);
+            manager.snapshot();
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            Task task = restored.createTask(new Task("Task", "Desc", Status.NEW));
+            assertTrue(task.getId() > lastId, "ID удалённой задачи не должен выдаваться повторно");
+        }
+    }
+
+    @Test
+    void snapshotShouldCompactJournal() throws IOException {
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, 1, 0, 10)) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            for (int i = 0; i < 25; i++) {
+                manager.createSubtask(new Subtask("Sub " + i, "Desc", Status.IN_PROGRESS, epic.getId()));
+            }
+            // 26 записей при интервале 10: после двух снимков в журнале осталось 6
+            assertEquals(6, Files.readAllLines(directory.resolve(FileBackedTaskManager.LOG_FILE)).size());
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(25, restored.getAllSubtasks().size());
+            assertEquals(Status.IN_PROGRESS, restored.getAllEpics().get(0).getStatus());
+        }
+    }
+
+    @Test
+    void journalRecordsCoveredBySnapshotShouldNotBeReplayed() throws IOException {
+        Path journal = directory.resolve(FileBackedTaskManager.LOG_FILE);
+        byte[] oldJournal;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+            manager.deleteTaskById(task.getId());
+            manager.sync();
+            oldJournal = Files.readAllBytes(journal);
+            manager.snapshot();
+        }
+        // Имитация сбоя между сохранением снимка и обрезкой журнала
+        Files.write(journal, oldJournal);
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertTrue(restored.getAllTasks().isEmpty());
+        }
+    }
+
+    @Test
+    void snapshotShouldKeepSubtaskOrderOfEpic() {
+        int epicId;
+        List<Integer> order;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            int otherId = manager.createEpic(new Epic("Other", "Desc")).getId();
+            int movedId = manager.createSubtask(new Subtask("Moved", "Desc", Status.NEW, otherId)).getId();
+            epicId = manager.createEpic(new Epic("Epic", "Desc")).getId();
+            manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epicId));
+            // Перенесённая подзадача встаёт в конец списка эпика, хотя её id меньше
+            manager.updateSubtask(new Subtask("Moved", "Desc", movedId, Status.NEW, epicId));
+            order = manager.getEpicById(epicId).getSubtaskIds();
+            assertEquals(movedId, order.get(1));
+            manager.snapshot();
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(order, restored.getEpicById(epicId).getSubtaskIds());
+        }
+    }
+
+    @Test
+    void truncatedLastRecordShouldBeIgnored() throws IOException {
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            manager.createTask(new Task("Task", "Desc", Status.NEW));
+        }
+        Files.write(directory.resolve(FileBackedTaskManager.LOG_FILE), "2,PUT,2,TA".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(1, restored.getAllTasks().size());
+        }
+    }
+
+    // Запись, оборванная внутри поля или после шестого поля, разбирается без ошибки,
+    // поэтому недописанную запись выдаёт только отсутствие '\n' и контрольная сумма
+    @Test
+    void recordTornInsideFieldShouldBeDropped() throws IOException {
+        Path journal = directory.resolve(FileBackedTaskManager.LOG_FILE);
+        int taskId;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            taskId = manager.createTask(new Task("Task", "Desc", Status.NEW)).getId();
+            Task timed = new Task("Task", "Desc", Status.DONE, LocalDateTime.of(2024, 1, 1, 12, 0),
+                    Duration.ofMinutes(45));
+            timed.setId(taskId);
+            manager.updateTask(timed);
+        }
+        byte[] full = Files.readAllBytes(journal);
+        String text = new String(full, StandardCharsets.UTF_8);
+        int lastRecordEnd = text.length() - 1;
+        int afterSixthField = text.lastIndexOf(",2024-01-01T12:00");
+
+        for (int cut : new int[]{lastRecordEnd - 1, afterSixthField, lastRecordEnd}) {
+            Files.write(journal, Arrays.copyOf(full, cut));
+            // Загрузка с оборванной записью сохраняет снимок и обрезает журнал
+            Files.deleteIfExists(directory.resolve(FileBackedTaskManager.SNAPSHOT_FILE));
+            try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+                Task task = restored.getTaskById(taskId);
+                assertEquals(Status.NEW, task.getStatus(), "Обрыв на байте " + cut);
+                assertNull(task.getStartTime());
+                assertNull(task.getDuration());
+            }
+        }
+    }
+
+    @Test
+    void lastRecordWithWrongChecksumShouldBeDroppedAndEarlierOneShouldFailLoading() throws IOException {
+        Path journal = directory.resolve(FileBackedTaskManager.LOG_FILE);
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            manager.createTask(new Task("Task", "Desc", Status.NEW));
+            manager.createTask(new Task("Other", "Desc", Status.NEW));
+        }
+        List<String> lines = Files.readAllLines(journal);
+
+        Files.write(journal, List.of(lines.get(0), lines.get(1).replace("Other", "Othe0")));
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(1, restored.getAllTasks().size());
+        }
+
+        Files.write(journal, List.of(lines.get(0).replace("Task", "Tusk"), lines.get(1)));
+        Files.deleteIfExists(directory.resolve(FileBackedTaskManager.SNAPSHOT_FILE));
+        assertThrows(ManagerSaveException.class, () -> new FileBackedTaskManager(directory));
+    }
+
+    @Test
+    void journalWithoutChecksumsShouldStillBeLoaded() throws IOException {
+        Files.write(directory.resolve(FileBackedTaskManager.LOG_FILE),
+                "1,PUT,1,TASK,Task,NEW,Desc,\n2,PUT,2,TASK,Other,DONE,Desc,\n".getBytes(StandardCharsets.UTF_8));
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(2, restored.getAllTasks().size());
+            assertEquals(Status.DONE, restored.getTaskById(2).getStatus());
+        }
+    }
+
+    @Test
+    void recordsBelowGroupSizeShouldBeSyncedAfterGroupCommitDelay() throws InterruptedException {
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, 1000, 300, 100_000)) {
+            manager.createTask(new Task("Task", "Desc", Status.NEW));
+            manager.createTask(new Task("Other", "Desc", Status.NEW));
+            assertEquals(2, manager.getUnsyncedRecords(), "Группа ещё не набрана");
+
+            // Новых записей нет, но сброс всё равно наступает
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (manager.getUnsyncedRecords() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, manager.getUnsyncedRecords());
+        }
+    }
+}
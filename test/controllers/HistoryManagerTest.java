@@ -0,0 +1,121 @@
+package controllers;
+
+import enums.Status;
+import impl.HistoryManager;
+import impl.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import utils.Managers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryManagerTest {
+
+    @Test
+    void repeatedViewShouldMoveTaskToTail() {
+        HistoryManager history = Managers.getDefaultHistory();
+        Task first = new Task("First", "Desc", 1, Status.NEW);
+        Task second = new Task("Second", "Desc", 2, Status.NEW);
+
+        history.add(first);
+        history.add(second);
+        history.add(first);
+
+        assertEquals(List.of(second, first), history.getHistory(), "Повторный просмотр не должен дублировать задачу");
+    }
+
+    @Test
+    void removeIfShouldKeepOrderOfRemainingTasks() {
+        for (HistoryManager history : List.of(Managers.getDefaultHistory(),
+                Managers.getDefaultHistory(InMemoryHistoryManager.UNLIMITED))) {
+            for (int id = 1; id <= 6; id++) {
+                history.add(new Task("Task " + id, "Desc", id, Status.NEW));
+            }
+
+            history.removeIf(id -> id == 1 || id == 4 || id == 6);
+
+            assertEquals(List.of(2, 3, 5), history.getHistory().stream().map(Task::getId).toList());
+            assertEquals(3, history.size());
+        }
+    }
+
+    @Test
+    void defaultHistoryShouldEvictOldestTask() {
+        HistoryManager history = Managers.getDefaultHistory();
+        for (int id = 1; id <= InMemoryHistoryManager.DEFAULT_MAX_SIZE + 2; id++) {
+            history.add(new Task("Task", "Desc", id, Status.NEW));
+        }
+
+        List<Task> tasks = history.getHistory();
+        assertEquals(InMemoryHistoryManager.DEFAULT_MAX_SIZE, tasks.size());
+        assertEquals(3, tasks.get(0).getId(), "Вытесняться должны самые старые просмотры");
+    }
+
+    @Test
+    void unlimitedHistoryShouldKeepAllTasks() {
+        HistoryManager history = Managers.getDefaultHistory(InMemoryHistoryManager.UNLIMITED);
+        for (int id = 1; id <= 1000; id++) {
+            history.add(new Task("Task", "Desc", id, Status.NEW));
+        }
+
+        assertEquals(1000, history.getHistory().size());
+    }
+
+    @Test
+    void removeShouldUnlinkHeadMiddleAndTail() {
+        HistoryManager history = Managers.getDefaultHistory();
+        for (int id = 1; id <= 5; id++) {
+            history.add(new Task("Task", "Desc", id, Status.NEW));
+        }
+
+        history.remove(1);
+        history.remove(3);
+        history.remove(5);
+        history.remove(42);
+
+        List<Task> tasks = history.getHistory();
+        assertEquals(2, tasks.size());
+        assertEquals(2, tasks.get(0).getId());
+        assertEquals(4, tasks.get(1).getId());
+    }
+
+    @Test
+    void deletedTasksShouldDisappearFromHistory() {
+        TaskManager manager = Managers.getDefault();
+        Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId()));
+        manager.getTaskById(task.getId());
+        manager.getEpicById(epic.getId());
+        manager.getSubtaskById(subtask.getId());
+
+        manager.deleteTaskById(task.getId());
+        assertEquals(List.of(epic, subtask), manager.getHistory());
+
+        manager.deleteEpicById(epic.getId());
+        assertTrue(manager.getHistory().isEmpty(), "Удаление эпика должно убрать из истории и его подзадачи");
+    }
+
+    @Test
+    void deletingByIdOfAnotherTypeShouldKeepHistory() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            manager.getEpicById(epic.getId());
+            manager.getTaskById(task.getId());
+
+            manager.deleteTaskById(epic.getId());
+            manager.deleteSubtaskById(task.getId());
+            manager.deleteEpicById(task.getId());
+
+            assertEquals(List.of(epic.getId(), task.getId()),
+                    manager.getHistory().stream().map(Task::getId).toList(), manager.getClass().getSimpleName());
+            assertNotNull(manager.getTaskById(task.getId()));
+            assertNotNull(manager.getEpicById(epic.getId()));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package controllers;
+
+import enums.Status;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import utils.LatencyHistogram;
+import utils.Managers;
+import utils.OperationMetrics;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedTaskManagerTest {
+    @Test
+    void operationsAndGaugesShouldBeRecorded() {
+        InstrumentedTaskManager manager = Managers.getInstrumented();
+        Epic epic = manager.createEpic(new Epic("Эпик", ""));
+        Epic other = manager.createEpic(new Epic("Другой", ""));
+        manager.createSubtasks(List.of(new Subtask("1", "", Status.NEW, epic.getId()),
+                new Subtask("2", "", Status.NEW, epic.getId()), new Subtask("3", "", Status.NEW, other.getId())));
+        Task task = manager.createTask(new Task("Задача", "", Status.NEW));
+        manager.getTaskById(task.getId());
+        manager.getTaskById(task.getId());
+        manager.getHistory();
+
+        Map<String, LatencyHistogram.Snapshot> operations = manager.getMetrics().getOperations();
+        assertEquals(2, operations.get("createEpic").getCount());
+        assertEquals(2, operations.get("getTaskById").getCount());
+        assertEquals(2, operations.get("history.add").getCount());
+        assertEquals(1, operations.get("createSubtasks").getCount());
+        assertFalse(operations.containsKey("deleteAllTasks"), "Невызванные операции не показываются");
+
+        Map<String, Long> gauges = manager.getMetrics().getGauges();
+        assertEquals(1L, gauges.get("tasks"));
+        assertEquals(2L, gauges.get("epics"));
+        assertEquals(3L, gauges.get("subtasks"));
+        assertEquals(2L, gauges.get("largestEpicSubtasks"));
+        assertEquals(1L, gauges.get("history.size"));
+
+        String dump = manager.getMetrics().dump();
+        assertTrue(dump.contains("getTaskById"), dump);
+        assertTrue(dump.contains("largestEpicSubtasks"), dump);
+    }
+
+    @Test
+    void disabledMetricsShouldRecordNothing() {
+        InstrumentedTaskManager manager = Managers.getInstrumented(Managers.getDefault());
+        manager.getMetrics().setEnabled(false);
+        Task task = manager.createTask(new Task("Задача", "", Status.NEW));
+        assertEquals(task, manager.getTaskById(task.getId()));
+        assertTrue(manager.getMetrics().getOperations().isEmpty());
+
+        manager.getMetrics().setEnabled(true);
+        manager.getTaskById(task.getId());
+        assertEquals(1, manager.getMetrics().getOperations().get("getTaskById").getCount());
+        manager.getMetrics().reset();
+        assertTrue(manager.getMetrics().getOperations().isEmpty());
+    }
+
+    @Test
+    void metricsShouldBeReadableThroughJmx() throws Exception {
+        InstrumentedTaskManager manager = Managers.getInstrumented();
+        OperationMetrics metrics = manager.getMetrics();
+        ObjectName name = metrics.registerMBean("test-board");
+        try {
+            manager.createTask(new Task("Задача", "", Status.NEW));
+            var server = ManagementFactory.getPlatformMBeanServer();
+
+            TabularData operations = (TabularData) server.getAttribute(name, "Operations");
+            CompositeData createTask = (CompositeData) operations.get(new Object[]{"createTask"}).get("value");
+            assertEquals(1L, createTask.get("count"));
+            assertTrue((Long) createTask.get("p99") > 0);
+            assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+            assertTrue(((String) server.invoke(name, "dump", null, null)).contains("createTask"));
+        } finally {
+            metrics.unregisterMBean("test-board");
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
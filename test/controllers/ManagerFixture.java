@@ -0,0 +1,65 @@
+package controllers;
+
+import model.Epic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Общая оснастка тестов, которые прогоняют сценарий на нескольких менеджерах.
+// Менеджеры, созданные через неё, закрываются после каждого теста; у каждого FileBackedTaskManager
+// свой подкаталог, а сам directory остаётся тесту, который переоткрывает менеджер из файлов
+abstract class ManagerFixture {
+    @TempDir
+    Path directory;
+
+    private final List<AutoCloseable> opened = new ArrayList<>();
+    private int fileBackedCount;
+
+    @AfterEach
+    void closeManagers() throws Exception {
+        Exception failure = null;
+        for (AutoCloseable manager : opened) {
+            try {
+                manager.close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        opened.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Менеджер закроется после теста, если он Closeable
+    <T> T track(T manager) {
+        if (manager instanceof AutoCloseable) {
+            opened.add((AutoCloseable) manager);
+        }
+        return manager;
+    }
+
+    // Менеджер в памяти сверяет каждый пересчёт статуса эпика с полным перебором
+    InMemoryTaskManager verifiedInMemory() {
+        InMemoryTaskManager verified = new InMemoryTaskManager();
+        verified.setEpicStatusVerification(true);
+        return verified;
+    }
+
+    FileBackedTaskManager fileBacked() {
+        return track(new FileBackedTaskManager(directory.resolve("manager-" + ++fileBackedCount)));
+    }
+
+    static Epic nested(String name, int parentId) {
+        Epic epic = new Epic(name, "Desc");
+        epic.setParentId(parentId);
+        return epic;
+    }
+}
@@ -0,0 +1,513 @@
+package controllers;
+
+import enums.ChangeType;
+import enums.SearchOrder;
+import enums.Status;
+import enums.TaskType;
+import exceptions.ReplayUnavailableException;
+import impl.JournaledTaskManager;
+import impl.TaskManager;
+import model.ChangeEvent;
+import model.Epic;
+import model.EpicRollup;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import utils.ChangeLog;
+import utils.ChangeSubscription;
+import utils.Managers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationJournalTest extends ManagerFixture {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private List<JournaledTaskManager> managers() {
+        return List.of(verifiedInMemory(), fileBacked(), Managers.getInstrumented(), Managers.getConcurrent());
+    }
+
+    private static List<Integer> ids(List<? extends Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+
+    @Test
+    void undoAndRedoShouldRevertSingleChanges() {
+        for (JournaledTaskManager manager : managers()) {
+            assertFalse(manager.undo());
+            Task task = manager.createTask(new Task("Купить молоко", "Desc", Status.NEW));
+            Task changed = new Task("Купить хлеб", "Desc", task.getId(), Status.DONE);
+            manager.updateTask(changed);
+            manager.deleteTaskById(task.getId());
+            assertEquals(3, manager.getJournalSequence());
+
+            assertTrue(manager.undo());
+            assertEquals("Купить хлеб", manager.getTaskById(task.getId()).getName());
+            assertEquals(List.of(task.getId()), ids(manager.getTasksByStatus(Status.DONE)));
+            assertTrue(manager.undo());
+            assertEquals(Status.NEW, manager.getTaskById(task.getId()).getStatus());
+            assertEquals(List.of(task.getId()), ids(manager.search("молоко", SearchOrder.ID, 10)));
+            assertTrue(manager.undo());
+            assertNull(manager.getTaskById(task.getId()));
+            assertFalse(manager.undo());
+            assertEquals(0, manager.getJournalSequence());
+
+            assertTrue(manager.redo());
+            assertTrue(manager.redo());
+            assertEquals(List.of(task.getId()), ids(manager.search("хлеб", SearchOrder.ID, 10)));
+            assertTrue(manager.redo());
+            assertFalse(manager.redo());
+            assertTrue(manager.getAllTasks().isEmpty());
+        }
+    }
+
+    @Test
+    void undoOfSubtaskChangesShouldRecalculateEpic() {
+        for (JournaledTaskManager manager : managers()) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Subtask first = manager.createSubtask(new Subtask("A", "Desc", Status.DONE, epic.getId()));
+            manager.createSubtask(new Subtask("B", "Desc", Status.DONE, epic.getId()));
+            assertEquals(Status.DONE, manager.getEpicById(epic.getId()).getStatus());
+
+            manager.updateSubtask(new Subtask("A", "Desc", first.getId(), Status.NEW, epic.getId()));
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(epic.getId()).getStatus());
+            manager.undo();
+            assertEquals(Status.DONE, manager.getEpicById(epic.getId()).getStatus());
+
+            manager.deleteSubtaskById(first.getId());
+            manager.undo();
+            assertEquals(2, manager.getSubtasksByEpicId(epic.getId()).size());
+            assertEquals(epic.getId(), manager.getSubtaskById(first.getId()).getEpicId());
+        }
+    }
+
+    @Test
+    void undoOfClearsShouldRestoreStatusesIndexesAndSchedule() {
+        for (JournaledTaskManager manager : managers()) {
+            Epic open = manager.createEpic(new Epic("Open", "Desc"));
+            Epic done = manager.createEpic(new Epic("Done", "Desc"));
+            Epic empty = manager.createEpic(new Epic("Empty", "Desc"));
+            Subtask timed = manager.createSubtask(new Subtask("Релиз", "Desc", Status.IN_PROGRESS, open.getId(),
+                    START, Duration.ofMinutes(30)));
+            manager.createSubtask(new Subtask("Релиз 2", "Desc", Status.DONE, done.getId()));
+            Task task = manager.createTask(new Task("Task", "Desc", Status.NEW, START.plusHours(1),
+                    Duration.ofMinutes(10)));
+            List<Task> prioritized = manager.getPrioritizedTasks();
+            long sequence = manager.getJournalSequence();
+
+            manager.deleteAllSubtasks();
+            assertEquals(Status.NEW, manager.getEpicById(done.getId()).getStatus());
+            assertEquals(List.of(task.getId()), ids(manager.getPrioritizedTasks()));
+            // Интервал очищенной подзадачи свободен
+            manager.createTask(new Task("Overlap", "Desc", Status.NEW, START, Duration.ofMinutes(10)));
+            manager.undo();
+
+            assertTrue(manager.undo());
+            assertEquals(sequence, manager.getJournalSequence());
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(open.getId()).getStatus());
+            assertEquals(Status.DONE, manager.getEpicById(done.getId()).getStatus());
+            assertEquals(Status.NEW, manager.getEpicById(empty.getId()).getStatus());
+            assertEquals(ids(prioritized), ids(manager.getPrioritizedTasks()));
+            assertEquals(2, manager.search("релиз", SearchOrder.ID, 10).size());
+            assertEquals(List.of(timed.getId()), ids(manager.getSubtasksByEpicId(open.getId())));
+            assertEquals(1, manager.getEpicRollup(done.getId()).getCount(Status.DONE));
+
+            manager.deleteAllEpics();
+            manager.deleteAllTasks();
+            assertTrue(manager.getAllSubtasks().isEmpty());
+            assertTrue(manager.undo());
+            assertTrue(manager.undo());
+            assertEquals(3, manager.getAllEpics().size());
+            assertEquals(2, manager.getAllSubtasks().size());
+            assertEquals(ids(prioritized), ids(manager.getPrioritizedTasks()));
+            assertEquals(Status.DONE, manager.getEpicById(done.getId()).getStatus());
+
+            // Повтор очищает те же хранилища ещё раз
+            assertTrue(manager.redo());
+            assertTrue(manager.getAllEpics().isEmpty());
+            assertTrue(manager.search("релиз", SearchOrder.ID, 10).isEmpty());
+            assertEquals(List.of(task.getId()), ids(manager.getPrioritizedTasks()));
+            assertTrue(manager.undo());
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(open.getId()).getStatus());
+        }
+    }
+
+    @Test
+    void undoOfClearShouldPublishOneBulkEventAndKeepVersions() {
+        for (JournaledTaskManager manager : List.of(new InMemoryTaskManager(), Managers.getConcurrent())) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Subtask first = manager.createSubtask(new Subtask("A", "Desc", Status.DONE, epic.getId()));
+            manager.createSubtask(new Subtask("B", "Desc", Status.DONE, epic.getId()));
+            long version = manager.getVersion(first.getId());
+            manager.deleteAllSubtasks();
+            assertEquals(0, manager.getVersion(first.getId()));
+            ChangeSubscription subscription = manager.subscribe(ChangeLog.LATEST);
+
+            manager.undo();
+            List<ChangeEvent> events = subscription.poll(100);
+            assertEquals(List.of(ChangeType.RESTORED, ChangeType.EPIC_STATUS_CHANGED),
+                    events.stream().map(ChangeEvent::getType).toList());
+            assertEquals(TaskType.SUBTASK, events.get(0).getTaskType());
+            assertEquals(version, manager.getVersion(first.getId()), "Вернувшаяся задача сохраняет версию");
+
+            manager.redo();
+            assertEquals(List.of(ChangeType.CLEARED, ChangeType.EPIC_STATUS_CHANGED),
+                    subscription.poll(100).stream().map(ChangeEvent::getType).toList());
+            assertTrue(manager.getAllSubtasks().isEmpty());
+            manager.undo();
+            assertTrue(manager.updateSubtask(new Subtask("A2", "Desc", first.getId(), Status.NEW, epic.getId()),
+                    version));
+        }
+    }
+
+    @Test
+    void undoOfSubtreeDeleteShouldRestoreTreeAndOrder() {
+        for (JournaledTaskManager manager : managers()) {
+            Epic root = manager.createEpic(new Epic("Root", "Desc"));
+            Epic child = manager.createEpic(nested("Child", root.getId()));
+            Epic grandchild = manager.createEpic(nested("Grandchild", child.getId()));
+            List<Integer> subtaskIds = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                subtaskIds.add(manager.createSubtask(new Subtask("Sub " + i, "Desc",
+                        i % 2 == 0 ? Status.DONE : Status.NEW, grandchild.getId())).getId());
+            }
+            manager.createSubtask(new Subtask("Own", "Desc", Status.DONE, root.getId()));
+
+            manager.deleteEpicById(child.getId());
+            assertEquals(Status.DONE, manager.getEpicById(root.getId()).getStatus());
+            manager.undo();
+
+            assertEquals(root.getId(), manager.getEpicById(child.getId()).getParentId());
+            assertEquals(child.getId(), manager.getEpicById(grandchild.getId()).getParentId());
+            assertEquals(subtaskIds, ids(manager.getSubtasksByEpicId(grandchild.getId())));
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(root.getId()).getStatus());
+            assertEquals(4, manager.getEpicRollup(root.getId()).getCount(Status.DONE));
+
+            manager.redo();
+            assertNull(manager.getEpicById(grandchild.getId()));
+            assertEquals(1, manager.getAllSubtasks().size());
+        }
+    }
+
+    @Test
+    void moveAndTransitionShouldBeUndone() {
+        for (JournaledTaskManager manager : managers()) {
+            Epic first = manager.createEpic(new Epic("First", "Desc"));
+            Epic second = manager.createEpic(new Epic("Second", "Desc"));
+            Epic moved = manager.createEpic(nested("Moved", first.getId()));
+            manager.createSubtask(new Subtask("A", "Desc", Status.DONE, moved.getId()));
+            manager.createSubtask(new Subtask("B", "Desc", Status.NEW, second.getId()));
+
+            assertTrue(manager.moveEpic(moved.getId(), second.getId()));
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(second.getId()).getStatus());
+            manager.undo();
+            assertEquals(first.getId(), manager.getEpicById(moved.getId()).getParentId());
+            assertEquals(Status.DONE, manager.getEpicById(first.getId()).getStatus());
+            assertEquals(Status.NEW, manager.getEpicById(second.getId()).getStatus());
+
+            assertEquals(2, manager.transitionSubtasks(pool, (epic, subtask) -> true, Status.IN_PROGRESS));
+            manager.undo();
+            assertEquals(List.of("A"), manager.getSubtasksByStatus(Status.DONE).stream()
+                    .map(Task::getName).toList());
+            assertEquals(Status.DONE, manager.getEpicById(moved.getId()).getStatus());
+            manager.redo();
+            assertEquals(2, manager.getSubtasksByStatus(Status.IN_PROGRESS).size());
+        }
+    }
+
+    @Test
+    void restoreToShouldMoveToAnyKeptState() {
+        for (JournaledTaskManager manager : managers()) {
+            List<Integer> created = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                created.add(manager.createTask(new Task("Task " + i, "Desc", Status.NEW)).getId());
+            }
+            manager.restoreTo(2);
+            assertEquals(created.subList(0, 2), ids(manager.getAllTasks()));
+            manager.restoreTo(4);
+            assertEquals(created.subList(0, 4), ids(manager.getAllTasks()));
+            assertThrows(IllegalArgumentException.class, () -> manager.restoreTo(6));
+
+            // Новое изменение после отмены отбрасывает отменённые записи
+            manager.restoreTo(1);
+            manager.deleteAllTasks();
+            assertEquals(2, manager.getJournalSequence());
+            assertFalse(manager.redo());
+            manager.restoreTo(0);
+            assertTrue(manager.getAllTasks().isEmpty());
+        }
+    }
+
+    @Test
+    void journalShouldRespectLimits() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        manager.setJournalLimits(3, 100);
+        for (int i = 0; i < 5; i++) {
+            manager.createTask(new Task("Task " + i, "Desc", Status.NEW));
+        }
+        assertEquals(5, manager.getJournalSequence());
+        assertThrows(ReplayUnavailableException.class, () -> manager.restoreTo(1));
+        manager.restoreTo(2);
+        assertEquals(2, manager.getAllTasks().size());
+        assertFalse(manager.undo());
+
+        // Очистка тяжелее предела не сохраняется, и изменения до неё отменить нельзя
+        manager.restoreTo(5);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(new Task("Bulk " + i, "Desc", Status.NEW));
+        }
+        manager.createTasks(tasks);
+        assertEquals(6, manager.getJournalSequence());
+        assertFalse(manager.undo());
+        assertEquals(205, manager.getAllTasks().size());
+
+        manager.setJournalLimits(0, 0);
+        manager.deleteAllTasks();
+        assertFalse(manager.undo());
+        assertEquals(0, manager.getJournalSequence());
+        assertThrows(IllegalArgumentException.class, () -> manager.setJournalLimits(-1, 10));
+    }
+
+    @Test
+    void undoShouldBePersistedByFileBackedManager() {
+        int taskId;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            manager.createSubtask(new Subtask("Sub", "Desc", Status.DONE, epic.getId()));
+            taskId = manager.createTask(new Task("Task", "Desc", Status.NEW)).getId();
+            manager.deleteAllSubtasks();
+            manager.deleteTaskById(taskId);
+            manager.undo();
+            manager.undo();
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertNotNull(restored.getTaskById(taskId));
+            assertEquals(1, restored.getAllSubtasks().size());
+            assertEquals(Status.DONE, restored.getAllEpics().get(0).getStatus());
+            // Журнал после перезапуска пуст
+            assertEquals(0, restored.getJournalSequence());
+            assertFalse(restored.undo());
+        }
+    }
+
+    // Отмена и повтор дописываются в журнал файла без снимка, и после перезапуска доска та же, включая порядок
+    @Test
+    void undoShouldBeReplayedFromLogWithoutSnapshot() throws IOException {
+        Map<Integer, List<Integer>> order;
+        List<String> board;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            Epic root = manager.createEpic(new Epic("Root", "Desc"));
+            Epic first = manager.createEpic(nested("First", root.getId()));
+            Epic second = manager.createEpic(nested("Second", root.getId()));
+            List<Integer> subtaskIds = ids(manager.createSubtasks(List.of(
+                    new Subtask("A", "Desc", Status.NEW, first.getId(), START, Duration.ofMinutes(10)),
+                    new Subtask("B", "Desc", Status.DONE, first.getId()),
+                    new Subtask("C", "Desc", Status.IN_PROGRESS, first.getId()))));
+            manager.createTask(new Task("Task", "Desc", Status.NEW, START.plusHours(1), Duration.ofMinutes(10)));
+
+            manager.deleteSubtaskById(subtaskIds.get(1));
+            manager.undo();
+            manager.moveEpic(first.getId(), Epic.NO_PARENT);
+            manager.undo();
+            manager.deleteAllTasks();
+            manager.undo();
+            manager.deleteAllSubtasks();
+            manager.undo();
+            manager.redo();
+            manager.undo();
+            manager.transitionSubtasks(pool, (epic, subtask) -> true, Status.DONE);
+            manager.undo();
+            manager.updateSubtask(new Subtask("B2", "Desc", subtaskIds.get(1), Status.NEW, second.getId()));
+            long sequence = manager.getJournalSequence();
+            manager.deleteEpicById(first.getId());
+            manager.restoreTo(sequence - 1);
+
+            assertFalse(Files.exists(directory.resolve(FileBackedTaskManager.SNAPSHOT_FILE)));
+            assertEquals(subtaskIds, ids(manager.getSubtasksByEpicId(first.getId())));
+            order = orderOf(manager, List.of(root.getId(), first.getId(), second.getId()));
+            board = boardOf(manager);
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(order, orderOf(restored, ids(restored.getAllEpics())));
+            assertEquals(board, boardOf(restored));
+        }
+    }
+
+    // Очистку, записанную до снимка, журнал файла отменить не может, и её отмена сохраняется новым снимком
+    @Test
+    void undoOfClearBeforeSnapshotShouldWriteSnapshot() throws IOException {
+        Path log = directory.resolve(FileBackedTaskManager.LOG_FILE);
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            manager.createTask(new Task("Task", "Desc", Status.NEW));
+            manager.deleteAllTasks();
+            manager.snapshot();
+            manager.createTask(new Task("Other", "Desc", Status.NEW));
+            manager.undo();
+            assertEquals(List.of("PUT", "DEL"),
+                    Files.readAllLines(log).stream().map(line -> line.split(",")[2]).toList());
+            assertTrue(manager.undo());
+            assertEquals(0, Files.size(log));
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(List.of("Task"), restored.getAllTasks().stream().map(Task::getName).toList());
+        }
+    }
+
+    private static List<String> boardOf(TaskManager manager) {
+        List<String> board = new ArrayList<>();
+        for (List<? extends Task> tasks : List.of(manager.getAllTasks(), manager.getAllEpics(),
+                manager.getAllSubtasks(), manager.getPrioritizedTasks())) {
+            for (Task task : tasks) {
+                board.add(task + " " + task.getStartTime() + " " + task.getEndTime());
+            }
+        }
+        return board;
+    }
+
+    // После restoreTo подзадачи эпиков и вложенные эпики должны стоять в том же порядке, что и в запомненном состоянии
+    @Test
+    void restoreToShouldKeepSubtaskAndNestedEpicOrder() {
+        for (long seed : new long[] {1, 2, 3, 5, 6, 8, 13, 21}) {
+            for (JournaledTaskManager manager : managers()) {
+                Random random = new Random(seed);
+                List<Integer> epicIds = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    epicIds.add(manager.createEpic(new Epic("Root " + i, "Desc")).getId());
+                }
+                for (int i = 0; i < 3; i++) {
+                    epicIds.add(manager.createEpic(nested("Nested " + i, epicIds.get(i % 2))).getId());
+                }
+                Map<Long, Map<Integer, List<Integer>>> states = new HashMap<>();
+                states.put(manager.getJournalSequence(), orderOf(manager, epicIds));
+                for (int step = 0; step < 60; step++) {
+                    mutate(manager, random, epicIds);
+                    states.put(manager.getJournalSequence(), orderOf(manager, epicIds));
+                }
+
+                List<Long> sequences = new ArrayList<>(states.keySet());
+                for (int i = 0; i < 20; i++) {
+                    long sequence = sequences.get(random.nextInt(sequences.size()));
+                    manager.restoreTo(sequence);
+                    assertEquals(states.get(sequence), orderOf(manager, epicIds),
+                            "seed " + seed + ", состояние " + sequence);
+                }
+            }
+        }
+    }
+
+    private static void mutate(TaskManager manager, Random random, List<Integer> epicIds) {
+        int epicId = epicIds.get(random.nextInt(epicIds.size()));
+        List<Subtask> subtasks = manager.getAllSubtasks();
+        switch (subtasks.size() < 5 ? 0 : random.nextInt(6)) {
+            case 0 -> manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epicId));
+            case 1 -> manager.deleteSubtaskById(subtasks.get(random.nextInt(subtasks.size())).getId());
+            case 2 -> {
+                Subtask subtask = subtasks.get(random.nextInt(subtasks.size()));
+                manager.updateSubtask(new Subtask("Moved", "Desc", subtask.getId(), Status.DONE, epicId));
+            }
+            case 3 -> {
+                List<Integer> ids = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    ids.add(subtasks.get(random.nextInt(subtasks.size())).getId());
+                }
+                manager.deleteSubtasksByIds(ids);
+            }
+            case 4 -> manager.createSubtasks(List.of(new Subtask("A", "Desc", Status.NEW, epicId),
+                    new Subtask("B", "Desc", Status.IN_PROGRESS, epicId)));
+            default -> {
+                // Корневые эпики остаются корнями, вложенные переходят между ними
+                int nestedId = epicIds.get(3 + random.nextInt(3));
+                manager.moveEpic(nestedId, epicIds.get(random.nextInt(3)));
+            }
+        }
+    }
+
+    // Порядок подзадач каждого эпика (списком и постранично) и порядок эпиков в поддеревьях корней
+    private static Map<Integer, List<Integer>> orderOf(TaskManager manager, List<Integer> epicIds) {
+        Map<Integer, List<Integer>> order = new HashMap<>();
+        for (int epicId : epicIds) {
+            List<Integer> subtaskIds = ids(manager.getSubtasksByEpicId(epicId));
+            List<Integer> paged = new ArrayList<>();
+            for (Integer token = TaskPage.FIRST_PAGE; token != null; ) {
+                TaskPage<Subtask> page = manager.getSubtasksPageByEpicId(epicId, token, 2);
+                paged.addAll(ids(page.getItems()));
+                token = page.getNextToken();
+            }
+            assertEquals(subtaskIds, paged);
+            order.put(epicId, subtaskIds);
+            order.put(-epicId, manager.getEpicRollups(epicId).stream().map(EpicRollup::getEpicId).toList());
+        }
+        return order;
+    }
+
+    // Конкурентный менеджер отменяет очистки подменой хранилищ, а изменения до и после них - по задачам
+    @Test
+    void concurrentManagerShouldUndoClearsBetweenItemChanges() {
+        JournaledTaskManager manager = Managers.getConcurrent();
+        Task task = manager.createTask(new Task("Купить молоко", "Desc", Status.DONE, START, Duration.ofHours(1)));
+        Epic root = manager.createEpic(new Epic("Root", "Desc"));
+        Epic child = manager.createEpic(nested("Child", root.getId()));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.IN_PROGRESS, child.getId(),
+                START.plusHours(2), Duration.ofHours(1)));
+        assertEquals(4, manager.getJournalSequence());
+
+        manager.deleteAllSubtasks();
+        manager.deleteAllEpics();
+        manager.deleteAllTasks();
+        assertEquals(7, manager.getJournalSequence());
+        assertTrue(manager.undo());
+        assertTrue(manager.undo());
+        assertEquals(List.of(root.getId(), child.getId()),
+                manager.getEpicRollups(root.getId()).stream().map(EpicRollup::getEpicId).toList());
+        assertTrue(manager.undo());
+        assertEquals(4, manager.getJournalSequence());
+
+        assertEquals(List.of(subtask.getId()), ids(manager.getSubtasksByEpicId(child.getId())));
+        assertEquals(Status.IN_PROGRESS, manager.getEpicById(root.getId()).getStatus());
+        assertEquals(START.plusHours(3), manager.getEpicById(child.getId()).getEndTime());
+        assertEquals(List.of(task.getId(), subtask.getId()), ids(manager.getPrioritizedTasks()));
+        assertEquals(List.of(task.getId()), ids(manager.search("молоко", SearchOrder.ID, 10)));
+
+        // Изменение после очистки отменяется первым, затем отменяется и сама очистка
+        assertTrue(manager.redo());
+        Task added = manager.createTask(new Task("Новая", "Desc", Status.NEW));
+        assertEquals(6, manager.getJournalSequence());
+        assertFalse(manager.redo());
+        assertTrue(manager.undo());
+        assertNull(manager.getTaskById(added.getId()));
+        assertTrue(manager.undo());
+        assertEquals(List.of(subtask.getId()), ids(manager.getSubtasksByEpicId(child.getId())));
+        manager.restoreTo(0);
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertTrue(manager.getAllEpics().isEmpty());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+    }
+
+    @Test
+    void managersWithoutJournalShouldNotOfferUndo() {
+        for (TaskManager manager : List.of(Managers.getOffHeap(), Managers.getSharded(2))) {
+            assertFalse(manager instanceof JournaledTaskManager);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package controllers;
+
+import enums.SearchOrder;
+import enums.Status;
+import impl.TaskManager;
+import model.BoardSnapshot;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import utils.Managers;
+import utils.StringArena;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapTaskManagerTest {
+
+    @Test
+    void readsShouldReturnCopiesBuiltFromColumns() {
+        TaskManager manager = Managers.getOffHeap();
+        Task task = manager.createTask(new Task("Имя задачи", "Описание", Status.NEW,
+                LocalDateTime.of(2024, 1, 1, 10, 0), Duration.ofMinutes(30)));
+
+        Task read = manager.getTaskById(task.getId());
+        assertNotSame(task, read);
+        assertEquals("Имя задачи", read.getName());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 30), read.getEndTime());
+
+        read.setStatus(Status.DONE);
+        assertEquals(Status.NEW, manager.getTaskById(task.getId()).getStatus(),
+                "Изменение прочитанного объекта не должно попадать в менеджер без update");
+        manager.updateTask(read);
+        assertEquals(Status.DONE, manager.getTaskById(task.getId()).getStatus());
+    }
+
+    @Test
+    void subtasksShouldKeepOrderWhenMovedBetweenEpics() {
+        TaskManager manager = Managers.getOffHeap();
+        int first = manager.createEpic(new Epic("Первый", "")).getId();
+        int second = manager.createEpic(new Epic("Второй", "")).getId();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(manager.createSubtask(new Subtask("Подзадача " + i, "", Status.NEW, first)).getId());
+        }
+
+        Subtask moved = manager.getSubtaskById(ids.get(1));
+        moved.setEpicId(second);
+        moved.setStatus(Status.DONE);
+        manager.updateSubtask(moved);
+        manager.deleteSubtaskById(ids.get(3));
+
+        assertEquals(List.of(ids.get(0), ids.get(2)), manager.getEpicById(first).getSubtaskIds());
+        assertEquals(List.of(ids.get(1)), manager.getEpicById(second).getSubtaskIds());
+        assertEquals(Status.DONE, manager.getEpicById(second).getStatus());
+        assertEquals(ids.get(2), manager.getSubtasksPageByEpicId(first, ids.get(0), 10).getItems().get(0).getId());
+        assertTrue(manager.getSubtasksPageByEpicId(first, ids.get(1), 10).getItems().isEmpty(),
+                "Токен с перенесённой подзадачей не продолжает страницы эпика");
+    }
+
+    @Test
+    void shouldMatchInMemoryManagerOnRandomOperations() {
+        Random random = new Random(11);
+        // Третий менеджер ищет перебором без индекса
+        List<TaskManager> managers = List.of(Managers.getDefault(), Managers.getOffHeap(),
+                new OffHeapTaskManager(Managers.getDefaultHistory(), false));
+        List<Integer> epicIds = new ArrayList<>();
+        List<Integer> subtaskIds = new ArrayList<>();
+        List<Integer> taskIds = new ArrayList<>();
+        for (int step = 0; step < 5_000; step++) {
+            int operation = random.nextInt(10);
+            Status status = Status.values()[random.nextInt(Status.values().length)];
+            String name = "Задача " + random.nextInt(100);
+            if (operation == 0 || epicIds.isEmpty()) {
+                int parentId = epicIds.isEmpty() || random.nextBoolean() ? Epic.NO_PARENT
+                        : epicIds.get(random.nextInt(epicIds.size()));
+                int id = 0;
+                for (TaskManager manager : managers) {
+                    Epic epic = new Epic(name, "Эпик");
+                    epic.setParentId(parentId);
+                    id = manager.createEpic(epic).getId();
+                }
+                epicIds.add(id);
+            } else if (operation <= 3) {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                int id = 0;
+                for (TaskManager manager : managers) {
+                    id = manager.createSubtask(new Subtask(name, "Подзадача", status, epicId)).getId();
+                }
+                subtaskIds.add(id);
+            } else if (operation == 4) {
+                int id = 0;
+                for (TaskManager manager : managers) {
+                    id = manager.createTask(new Task(name, "Задача", status)).getId();
+                }
+                taskIds.add(id);
+            } else if (operation <= 6 && !subtaskIds.isEmpty()) {
+                int id = subtaskIds.get(random.nextInt(subtaskIds.size()));
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                for (TaskManager manager : managers) {
+                    manager.updateSubtask(new Subtask(name, "Обновлена", id, status, epicId));
+                }
+            } else if (operation == 7 && !subtaskIds.isEmpty()) {
+                int id = subtaskIds.remove(random.nextInt(subtaskIds.size()));
+                for (TaskManager manager : managers) {
+                    manager.deleteSubtaskById(id);
+                }
+            } else if (operation == 8 && !taskIds.isEmpty()) {
+                int id = taskIds.get(random.nextInt(taskIds.size()));
+                for (TaskManager manager : managers) {
+                    manager.getTaskById(id);
+                    manager.updateTask(new Task(name, "Обновлена", id, status));
+                }
+            } else if (operation == 9 && random.nextInt(20) == 0) {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                for (TaskManager manager : managers) {
+                    manager.deleteEpicById(epicId);
+                }
+                epicIds.removeIf(id -> managers.get(0).getEpicById(id) == null);
+                subtaskIds.removeIf(id -> managers.get(0).getSubtaskById(id) == null);
+            }
+        }
+
+        BoardSnapshot expected = managers.get(0).getSnapshot();
+        BoardSnapshot actual = managers.get(1).getSnapshot();
+        assertEquals(expected.getTasks(), actual.getTasks());
+        assertEquals(expected.getEpics(), actual.getEpics());
+        assertEquals(expected.getSubtasks(), actual.getSubtasks());
+        for (int epicId : epicIds) {
+            assertEquals(managers.get(0).getEpicRollups(epicId), managers.get(1).getEpicRollups(epicId));
+        }
+        assertEquals(managers.get(0).getHistory(), managers.get(1).getHistory());
+        for (String query : new String[]{"задача 7", "задача 1*", "обнов*", "подзадача"}) {
+            for (SearchOrder order : SearchOrder.values()) {
+                List<Task> found = managers.get(0).search(query, order, 20);
+                assertEquals(found, managers.get(1).search(query, order, 20), query);
+                assertEquals(found, managers.get(2).search(query, order, 20), query);
+            }
+        }
+    }
+
+    @Test
+    void updatesShouldNotGrowStringsWithoutBound() {
+        OffHeapTaskManager manager = new OffHeapTaskManager(Managers.getDefaultHistory(), false);
+        int id = manager.createTask(new Task("Начало", "", Status.NEW)).getId();
+        String description = "x".repeat(1000);
+        for (int i = 0; i < 20_000; i++) {
+            manager.updateTask(new Task("Имя " + i, description, id, Status.IN_PROGRESS));
+        }
+
+        assertEquals("Имя 19999", manager.getTaskById(id).getName());
+        assertEquals(description, manager.getTaskById(id).getDescription());
+        assertTrue(manager.getOffHeapBytes() < 4L * StringArena.PAGE_SIZE,
+                "Строки прежних версий должны вычищаться: " + manager.getOffHeapBytes());
+        assertEquals(List.of(manager.getTaskById(id)), manager.search("имя", SearchOrder.ID, 10));
+    }
+}
@@ -0,0 +1,146 @@
+package controllers;
+
+import enums.ChangeType;
+import enums.Status;
+import impl.ObservableTaskManager;
+import impl.ParallelTaskManager;
+import model.ChangeEvent;
+import model.Epic;
+import model.Subtask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import utils.ChangeLog;
+import utils.ChangeSubscription;
+import utils.Managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelBulkOperationsTest extends ManagerFixture {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private List<ParallelTaskManager> managers() {
+        return List.of(verifiedInMemory(), Managers.getConcurrent(), Managers.getOffHeap(),
+                fileBacked(), Managers.getSharded(3), Managers.getInstrumented());
+    }
+
+    // Дерево: root -> nested, и отдельный эпик other
+    @Test
+    void transitionShouldChangeMatchingSubtasksAndRecalculateEpicsOnce() {
+        for (ParallelTaskManager manager : managers()) {
+            Epic root = manager.createEpic(new Epic("Root", "Desc"));
+            Epic nested = manager.createEpic(nested("Nested", root.getId()));
+            Epic other = manager.createEpic(new Epic("Other", "Desc"));
+            Subtask rootNew = manager.createSubtask(new Subtask("Root new", "Desc", Status.NEW, root.getId()));
+            Subtask nestedFirst = manager.createSubtask(new Subtask("Nested 1", "Desc", Status.NEW, nested.getId()));
+            Subtask nestedSecond = manager.createSubtask(
+                    new Subtask("Nested 2", "Desc", Status.IN_PROGRESS, nested.getId()));
+            Subtask otherNew = manager.createSubtask(new Subtask("Other new", "Desc", Status.NEW, other.getId()));
+            // У шардов подписка оформляется на каждый шард
+            ChangeSubscription subscription = manager instanceof ObservableTaskManager observable
+                    ? observable.subscribe(ChangeLog.LATEST) : null;
+
+            int changed = manager.transitionSubtasks(pool,
+                    (epic, subtask) -> epic.getId() == nested.getId(), Status.DONE);
+
+            assertEquals(2, changed);
+            assertEquals(Status.DONE, manager.getSubtaskById(nestedFirst.getId()).getStatus());
+            assertEquals(Status.DONE, manager.getSubtaskById(nestedSecond.getId()).getStatus());
+            assertEquals(Status.NEW, manager.getSubtaskById(rootNew.getId()).getStatus());
+            assertEquals(Status.NEW, manager.getSubtaskById(otherNew.getId()).getStatus());
+            assertEquals(Status.DONE, manager.getEpicById(nested.getId()).getStatus());
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(root.getId()).getStatus());
+            assertEquals(Status.NEW, manager.getEpicById(other.getId()).getStatus());
+            assertEquals(2, manager.getSubtasksByStatus(Status.DONE).size());
+            assertEquals(2, manager.getEpicRollup(root.getId()).getCount(Status.DONE));
+
+            // Два обновления подзадач и одно изменение статуса nested; root остался IN_PROGRESS
+            if (subscription != null) {
+                List<ChangeEvent> events = subscription.poll(100);
+                assertEquals(3, events.size());
+                assertEquals(2, events.stream().filter(event -> event.getType() == ChangeType.UPDATED).count());
+            }
+
+            assertEquals(0, manager.transitionSubtasks(pool,
+                    (epic, subtask) -> epic.getId() == nested.getId(), Status.DONE));
+        }
+    }
+
+    @Test
+    void filterShouldSeeStatusesBeforeTransition() {
+        for (ParallelTaskManager manager : managers()) {
+            Epic done = manager.createEpic(new Epic("Done", "Desc"));
+            Epic open = manager.createEpic(new Epic("Open", "Desc"));
+            manager.createSubtask(new Subtask("A", "Desc", Status.DONE, done.getId()));
+            manager.createSubtask(new Subtask("B", "Desc", Status.DONE, done.getId()));
+            manager.createSubtask(new Subtask("C", "Desc", Status.DONE, open.getId()));
+            manager.createSubtask(new Subtask("D", "Desc", Status.IN_PROGRESS, open.getId()));
+
+            // Переоткрыть подзадачи закрытых эпиков: эпик Done станет NEW уже после отбора
+            int changed = manager.transitionSubtasks(pool,
+                    (epic, subtask) -> epic.getStatus() == Status.DONE, Status.NEW);
+
+            assertEquals(2, changed);
+            assertEquals(Status.NEW, manager.getEpicById(done.getId()).getStatus());
+            assertEquals(Status.IN_PROGRESS, manager.getEpicById(open.getId()).getStatus());
+        }
+    }
+
+    @Test
+    void collectShouldFoldEverySubtaskOfLargeBoard() {
+        for (ParallelTaskManager manager : managers()) {
+            Random random = new Random(7);
+            List<Integer> roots = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                int parentId = roots.isEmpty() || random.nextInt(3) > 0 ? Epic.NO_PARENT
+                        : roots.get(random.nextInt(roots.size()));
+                Epic epic = manager.createEpic(nested("Epic " + i, parentId));
+                roots.add(epic.getId());
+                List<Subtask> subtasks = new ArrayList<>();
+                for (int j = random.nextInt(20); j > 0; j--) {
+                    subtasks.add(new Subtask("Sub", "Desc", Status.values()[random.nextInt(3)], epic.getId()));
+                }
+                manager.createSubtasks(subtasks);
+            }
+            Map<Status, Long> expected = manager.getAllSubtasks().stream()
+                    .collect(Collectors.groupingBy(Subtask::getStatus, Collectors.counting()));
+
+            assertEquals(expected, manager.collectSubtasks(pool,
+                    Collectors.groupingBy(Subtask::getStatus, Collectors.counting())));
+            assertEquals(manager.getAllSubtasks().size(), manager.collectSubtasks(pool, Collectors.counting()));
+
+            int inProgress = expected.getOrDefault(Status.IN_PROGRESS, 0L).intValue();
+            assertEquals(inProgress, manager.transitionSubtasks(pool,
+                    (epic, subtask) -> subtask.getStatus() == Status.IN_PROGRESS, Status.DONE));
+            assertTrue(manager.getSubtasksByStatus(Status.IN_PROGRESS).isEmpty());
+            for (Epic epic : manager.getAllEpics()) {
+                assertNotEquals(Status.IN_PROGRESS, manager.getEpicRollup(epic.getId()).getCount(Status.NEW) == 0
+                        ? epic.getStatus() : Status.NEW, "Эпик " + epic.getId());
+            }
+        }
+    }
+
+    @Test
+    void transitionShouldBePersistedByFileBackedManager() {
+        int subtaskId;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            subtaskId = manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId())).getId();
+            assertEquals(1, manager.transitionSubtasks(pool, (e, subtask) -> true, Status.DONE));
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(Status.DONE, restored.getSubtaskById(subtaskId).getStatus());
+        }
+    }
+}
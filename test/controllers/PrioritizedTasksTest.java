@@ -0,0 +1,134 @@
+package controllers;
+
+import enums.Status;
+import exceptions.TaskOverlapException;
+import impl.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.Managers;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrioritizedTasksTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @TempDir
+    Path directory;
+
+    private static LocalDateTime at(int minutes) {
+        return START.plusMinutes(minutes);
+    }
+
+    private static Duration minutes(int minutes) {
+        return Duration.ofMinutes(minutes);
+    }
+
+    @Test
+    void prioritizedTasksShouldBeOrderedByStartTime() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Task late = manager.createTask(new Task("Late", "Desc", Status.NEW, at(120), minutes(30)));
+            Subtask early = manager.createSubtask(new Subtask("Early", "Desc", Status.NEW, epic.getId(),
+                    at(0), minutes(60)));
+            manager.createTask(new Task("No time", "Desc", Status.NEW));
+
+            assertEquals(List.of(early, late), manager.getPrioritizedTasks());
+
+            late.setStartTime(at(-60));
+            manager.updateTask(late);
+            assertEquals(List.of(late, early), manager.getPrioritizedTasks());
+
+            manager.deleteTaskById(late.getId());
+            manager.deleteEpicById(epic.getId());
+            assertTrue(manager.getPrioritizedTasks().isEmpty());
+        }
+    }
+
+    @Test
+    void overlappingTaskShouldBeRejectedWithoutChanges() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Task task = manager.createTask(new Task("Task", "Desc", Status.NEW, at(0), minutes(60)));
+
+            assertThrows(TaskOverlapException.class, () -> manager.createSubtask(
+                    new Subtask("Sub", "Desc", Status.NEW, epic.getId(), at(30), minutes(60))));
+            assertTrue(manager.getAllSubtasks().isEmpty());
+
+            Task other = manager.createTask(new Task("Other", "Desc", Status.NEW, at(60), minutes(60)));
+            Task moved = new Task("Other", "Desc", other.getId(), Status.DONE);
+            moved.setStartTime(at(59));
+            moved.setDuration(minutes(10));
+            assertThrows(TaskOverlapException.class, () -> manager.updateTask(moved));
+            assertEquals(Status.NEW, manager.getTaskById(other.getId()).getStatus());
+            assertEquals(List.of(task, other), manager.getPrioritizedTasks());
+
+            // Пакет с пересечением внутри себя не применяется целиком
+            Task first = new Task("A", "Desc", Status.NEW, at(300), minutes(10));
+            Task second = new Task("B", "Desc", Status.NEW, at(305), minutes(10));
+            assertThrows(TaskOverlapException.class, () -> manager.createTasks(List.of(first, second)));
+            assertEquals(2, manager.getAllTasks().size());
+            assertEquals(2, manager.getPrioritizedTasks().size());
+        }
+    }
+
+    @Test
+    void epicTimeShouldFollowSubtasks() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            assertNull(epic.getStartTime());
+
+            Subtask first = manager.createSubtask(new Subtask("First", "Desc", Status.NEW, epic.getId(),
+                    at(0), minutes(30)));
+            Subtask second = manager.createSubtask(new Subtask("Second", "Desc", Status.NEW, epic.getId(),
+                    at(120), minutes(60)));
+            Epic stored = manager.getEpicById(epic.getId());
+            assertEquals(at(0), stored.getStartTime());
+            assertEquals(at(180), stored.getEndTime());
+            assertEquals(minutes(90), stored.getDuration());
+
+            manager.deleteSubtaskById(second.getId());
+            assertEquals(at(30), manager.getEpicById(epic.getId()).getEndTime());
+            assertEquals(at(30), manager.getSnapshot().get(epic.getId()).getEndTime());
+
+            Subtask shifted = new Subtask("First", "Desc", first.getId(), Status.NEW, epic.getId());
+            shifted.setStartTime(at(60));
+            shifted.setDuration(minutes(15));
+            manager.updateSubtask(shifted);
+            assertEquals(at(60), manager.getEpicById(epic.getId()).getStartTime());
+            assertEquals(minutes(15), manager.getEpicById(epic.getId()).getDuration());
+
+            manager.deleteAllSubtasks();
+            assertNull(manager.getEpicById(epic.getId()).getStartTime());
+            assertNull(manager.getEpicById(epic.getId()).getDuration());
+            assertTrue(manager.getPrioritizedTasks().isEmpty());
+        }
+    }
+
+    @Test
+    void timeShouldSurviveRestart() {
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId(), at(0), minutes(45)));
+            manager.createTask(new Task("Task", "Desc", Status.NEW, at(60), minutes(15)));
+            manager.snapshot();
+            manager.createTask(new Task("Later", "Desc", Status.NEW, at(90), minutes(5)));
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            List<Task> prioritized = restored.getPrioritizedTasks();
+            assertEquals(List.of("Sub", "Task", "Later"), prioritized.stream().map(Task::getName).toList());
+            assertEquals(minutes(45), prioritized.get(0).getDuration());
+            assertEquals(at(0), restored.getAllEpics().get(0).getStartTime());
+            assertThrows(TaskOverlapException.class,
+                    () -> restored.createTask(new Task("Clash", "Desc", Status.NEW, at(92), minutes(1))));
+        }
+    }
+}
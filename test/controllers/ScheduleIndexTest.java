@@ -0,0 +1,121 @@
+package controllers;
+
+import exceptions.TaskOverlapException;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleIndexTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private static LocalDateTime at(int minutes) {
+        return START.plusMinutes(minutes);
+    }
+
+    private static List<Integer> order(ScheduleIndex index) {
+        List<Integer> ids = new ArrayList<>();
+        index.forEachScheduled(ids::add);
+        return ids;
+    }
+
+    @Test
+    void shouldRejectOverlapsAndAllowTouchingIntervals() {
+        ScheduleIndex index = new ScheduleIndex();
+        index.put(1, at(0), Duration.ofMinutes(60));
+        index.put(2, at(60), Duration.ofMinutes(30));
+        index.put(3, at(120), null);
+
+        TaskOverlapException e = assertThrows(TaskOverlapException.class,
+                () -> index.put(4, at(30), Duration.ofMinutes(10)));
+        assertEquals(1, e.getConflictingId());
+        assertThrows(TaskOverlapException.class, () -> index.put(4, at(89), Duration.ofMinutes(2)));
+        // Мгновенная задача внутри интервала пересекается с ним, на границе - нет
+        assertThrows(TaskOverlapException.class, () -> index.put(4, at(45), null));
+        index.put(4, at(90), null);
+        assertEquals(List.of(1, 2, 4, 3), order(index));
+    }
+
+    @Test
+    void movingTaskShouldIgnoreItsOwnIntervalAndKeepStateOnConflict() {
+        ScheduleIndex index = new ScheduleIndex();
+        index.put(1, at(0), Duration.ofMinutes(60));
+        index.put(2, at(100), Duration.ofMinutes(60));
+
+        index.put(1, at(30), Duration.ofMinutes(60));
+        assertThrows(TaskOverlapException.class, () -> index.put(1, at(90), Duration.ofMinutes(20)));
+        assertEquals(at(30), index.get(1).start);
+        assertEquals(List.of(1, 2), order(index));
+
+        index.put(1, null, Duration.ofMinutes(5));
+        assertEquals(List.of(2), order(index));
+        assertEquals(Duration.ofMinutes(5), index.get(1).duration);
+    }
+
+    @Test
+    void batchShouldBeRolledBackOnConflict() {
+        ScheduleIndex index = new ScheduleIndex();
+        index.put(1, at(0), Duration.ofMinutes(60));
+        Task moved = new Task("A", null, null, at(200), Duration.ofMinutes(10));
+        Task clash = new Task("B", null, null, at(205), Duration.ofMinutes(10));
+
+        assertThrows(TaskOverlapException.class, () -> index.putAll(new int[]{1, 2}, List.of(moved, clash)));
+        assertEquals(at(0), index.get(1).start);
+        assertNull(index.get(2));
+        assertEquals(List.of(1), order(index));
+    }
+
+    @Test
+    void detachedSlotsShouldBeAttachedBack() {
+        ScheduleIndex index = new ScheduleIndex();
+        index.put(1, at(0), Duration.ofMinutes(60));
+        index.put(2, at(60), Duration.ofMinutes(30));
+        index.put(3, at(120), null);
+        index.put(4, null, Duration.ofMinutes(5));
+
+        List<ScheduleIndex.Slot> detached = index.detachIf(id -> id % 2 == 0);
+        assertEquals(2, detached.size());
+        assertEquals(List.of(1, 3), order(index));
+        assertNull(index.get(4));
+        index.put(5, at(70), Duration.ofMinutes(10));
+
+        List<ScheduleIndex.Slot> single = index.detach(new int[]{5, 6});
+        assertEquals(1, single.size());
+        index.attach(detached);
+        assertEquals(List.of(1, 2, 3), order(index));
+        assertEquals(Duration.ofMinutes(5), index.get(4).duration);
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void shouldMatchLinearCheckOnRandomIntervals() {
+        ScheduleIndex index = new ScheduleIndex();
+        List<long[]> accepted = new ArrayList<>();
+        Random random = new Random(42);
+        for (int id = 1; id <= 2000; id++) {
+            long start = random.nextInt(20_000);
+            long length = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(30);
+            boolean expectedOverlap = false;
+            for (long[] interval : accepted) {
+                if (start < interval[1] && interval[0] < start + length) {
+                    expectedOverlap = true;
+                    break;
+                }
+            }
+            try {
+                index.put(id, at((int) start), length == 0 ? null : Duration.ofMinutes(length));
+                assertFalse(expectedOverlap, "Пересечение не обнаружено для задачи " + id);
+                accepted.add(new long[]{start, start + length});
+            } catch (TaskOverlapException e) {
+                assertTrue(expectedOverlap, "Ложное пересечение для задачи " + id);
+            }
+        }
+        assertEquals(accepted.size(), index.scheduledCount());
+    }
+}
@@ -0,0 +1,81 @@
+package controllers;
+
+import enums.SearchOrder;
+import enums.Status;
+import impl.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.Managers;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void searchShouldFollowCreateUpdateAndDelete() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            Task task = manager.createTask(new Task("Починить сервер", "Упал ночью", Status.NEW));
+            Epic epic = manager.createEpic(new Epic("Миграция сервера", "Переезд в облако"));
+            Subtask subtask = manager.createSubtask(new Subtask("Сервер БД", "Перенести базу", Status.NEW,
+                    epic.getId()));
+
+            assertEquals(List.of(task, subtask), manager.search("сервер", SearchOrder.ID, 10));
+            assertEquals(List.of(task, epic, subtask), manager.search("сервер*", SearchOrder.ID, 10));
+            assertEquals(List.of(epic), manager.search("серв* облако", SearchOrder.ID, 10));
+            assertTrue(manager.getHistory().isEmpty(), "Поиск не должен попадать в историю");
+
+            manager.updateTask(new Task("Починить принтер", "Упал ночью", task.getId(), Status.DONE));
+            manager.updateSubtasks(List.of(new Subtask("Сервер БД", "Перенести базу в облако", subtask.getId(),
+                    Status.DONE, epic.getId())));
+            assertEquals(List.of(subtask.getId()), ids(manager.search("сервер", SearchOrder.ID, 10)));
+            assertEquals(List.of(epic.getId(), subtask.getId()), ids(manager.search("облако", SearchOrder.ID, 10)));
+
+            manager.deleteEpicById(epic.getId());
+            assertTrue(manager.search("облако", SearchOrder.ID, 10).isEmpty());
+            manager.deleteTasksByIds(List.of(task.getId()));
+            assertTrue(manager.search("принтер", SearchOrder.ID, 10).isEmpty());
+        }
+    }
+
+    @Test
+    void relevanceShouldRankNameMatchesFirst() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            Task inDescription = manager.createTask(new Task("Созвон", "обсудить релиз", Status.NEW));
+            Task inName = manager.createTask(new Task("Релиз 2.0", "подготовить", Status.NEW));
+
+            assertEquals(List.of(inName, inDescription), manager.search("релиз", SearchOrder.RELEVANCE, 10));
+            assertEquals(List.of(inDescription), manager.search("релиз", SearchOrder.ID, 1));
+        }
+    }
+
+    @Test
+    void indexShouldBeRestoredFromFile() {
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            manager.createTask(new Task("Отчёт", "за квартал", Status.NEW));
+            manager.snapshot();
+            Epic epic = manager.createEpic(new Epic("Отчётность", "годовая"));
+            manager.createSubtask(new Subtask("Отчёт", "для налоговой", Status.NEW, epic.getId()));
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(List.of("Отчёт", "Отчёт"), names(restored.search("отчет", SearchOrder.ID, 10)));
+            assertEquals(List.of("Отчётность"), names(restored.search("отчётн*", SearchOrder.ID, 10)));
+        }
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+
+    private static List<String> names(List<Task> tasks) {
+        return tasks.stream().map(Task::getName).toList();
+    }
+}
@@ -0,0 +1,190 @@
+package controllers;
+
+import enums.SearchOrder;
+import enums.Status;
+import exceptions.TaskOverlapException;
+import impl.ObservableTaskManager;
+import impl.TaskManager;
+import model.BoardSnapshot;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import org.junit.jupiter.api.Test;
+import utils.Managers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedTaskManagerTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Test
+    void idRangesShouldNotOverlapAndShouldBeExhaustible() {
+        assertEquals(1, ShardedTaskManager.firstId(0, 3));
+        assertEquals(ShardedTaskManager.lastId(0, 3) + 1, ShardedTaskManager.firstId(1, 3));
+        assertTrue(ShardedTaskManager.lastId(2, 3) <= Integer.MAX_VALUE);
+
+        InMemoryTaskManager manager = new InMemoryTaskManager(Managers.getDefaultHistory(), 10, 11);
+        assertEquals(10, manager.createTask(new Task("1", "", Status.NEW)).getId());
+        assertThrows(IllegalStateException.class, () -> manager.createTasks(List.of(
+                new Task("2", "", Status.NEW), new Task("3", "", Status.NEW))));
+        assertEquals(11, manager.createEpic(new Epic("4", "")).getId());
+        assertThrows(IllegalStateException.class, () -> manager.createTask(new Task("5", "", Status.NEW)));
+        assertEquals(1, manager.getAllTasks().size());
+    }
+
+    @Test
+    void epicAndSubtasksShouldLiveInOneShard() {
+        ShardedTaskManager manager = Managers.getSharded(3);
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            epics.add(manager.createEpic(new Epic("Эпик " + i, "")));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, manager.shardIndexOf(epics.get(i).getId()), "Эпики раскладываются по очереди");
+        }
+
+        Epic epic = epics.get(1);
+        Subtask first = manager.createSubtask(new Subtask("A", "", Status.DONE, epic.getId()));
+        Subtask second = manager.createSubtask(new Subtask("B", "", Status.NEW, epic.getId()));
+        assertEquals(1, manager.shardIndexOf(first.getId()));
+        assertEquals(1, manager.shardIndexOf(second.getId()));
+        assertEquals(Status.IN_PROGRESS, manager.getEpicById(epic.getId()).getStatus());
+        assertEquals(List.of(first, second), manager.getSubtasksByEpicId(epic.getId()));
+
+        // Перенос в эпик другого шарда отклоняется, пакет с таким переносом не применяется целиком
+        Subtask moved = new Subtask("A", "", first.getId(), Status.DONE, epics.get(2).getId());
+        assertThrows(IllegalArgumentException.class, () -> manager.updateSubtask(moved));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.updateSubtask(moved, manager.getVersion(first.getId())));
+        assertThrows(IllegalArgumentException.class, () -> manager.updateSubtasks(
+                List.of(new Subtask("B", "Изменено", second.getId(), Status.NEW, epic.getId()), moved)));
+        assertEquals(epic.getId(), manager.getSubtaskById(first.getId()).getEpicId());
+        assertEquals("", manager.getSubtaskById(second.getId()).getDescription());
+        // Перенос в отсутствующий эпик пропускается, как без шардов
+        int missingEpicId = ShardedTaskManager.firstId(2, 3) + 1000;
+        manager.updateSubtask(new Subtask("A", "", first.getId(), Status.DONE, missingEpicId));
+        assertEquals(epic.getId(), manager.getSubtaskById(first.getId()).getEpicId());
+
+        manager.updateSubtask(new Subtask("B", "", second.getId(), Status.DONE, epic.getId()));
+        assertEquals(Status.DONE, manager.getEpicById(epic.getId()).getStatus());
+        assertNull(manager.createSubtask(new Subtask("C", "", Status.NEW, 999)));
+    }
+
+    @Test
+    void readsShouldMergeShardsInIdOrder() {
+        ShardedTaskManager manager = Managers.getSharded(4);
+        List<Task> created = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            created.add(manager.createTask(new Task("Задача " + i, "", i % 2 == 0 ? Status.NEW : Status.DONE)));
+        }
+        created.addAll(manager.createTasks(List.of(new Task("Пакет 1", "", Status.NEW),
+                new Task("Пакет 2", "", Status.NEW), new Task("Пакет 3", "", Status.NEW))));
+
+        List<Integer> ids = created.stream().map(Task::getId).sorted().collect(Collectors.toList());
+        assertEquals(ids, manager.getAllTasks().stream().map(Task::getId).collect(Collectors.toList()));
+        assertEquals(ids, manager.streamTasks().map(Task::getId).collect(Collectors.toList()));
+        assertEquals(5, manager.getTasksByStatus(Status.DONE).size());
+
+        List<Integer> paged = new ArrayList<>();
+        int token = TaskPage.FIRST_PAGE;
+        while (true) {
+            TaskPage<Task> page = manager.getTasksPage(token, 3);
+            page.getItems().forEach(task -> paged.add(task.getId()));
+            if (!page.hasNext()) {
+                break;
+            }
+            token = page.getNextToken();
+        }
+        assertEquals(ids, paged);
+
+        BoardSnapshot snapshot = manager.getSnapshot();
+        assertEquals(13, snapshot.getTasks().size());
+        assertEquals(manager.getLastChangeSequence(), snapshot.getVersion());
+    }
+
+    @Test
+    void overlapShouldBeCheckedAcrossShards() {
+        ShardedTaskManager manager = Managers.getSharded(2);
+        Task first = manager.createTask(new Task("1", "", Status.NEW, START, Duration.ofHours(1)));
+        Epic epic = manager.createEpic(new Epic("Эпик", ""));
+        assertNotEquals(manager.shardIndexOf(first.getId()), manager.shardIndexOf(epic.getId()));
+
+        TaskOverlapException error = assertThrows(TaskOverlapException.class, () -> manager.createSubtask(
+                new Subtask("2", "", Status.NEW, epic.getId(), START.plusMinutes(30), Duration.ofHours(1))));
+        assertEquals(first.getId(), error.getConflictingId());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+
+        Subtask subtask = manager.createSubtask(new Subtask("2", "", Status.NEW, epic.getId(),
+                START.plusHours(1), Duration.ofHours(1)));
+        assertEquals(List.of(first, subtask), manager.getPrioritizedTasks());
+
+        // Отклонённое шардом обновление не занимает время в общем расписании
+        manager.updateTask(new Task("1", "", subtask.getId(), Status.NEW));
+        Task moved = new Task("1", "", first.getId(), Status.NEW);
+        moved.setStartTime(START.plusHours(2));
+        moved.setDuration(Duration.ofHours(1));
+        assertFalse(manager.updateTask(moved, manager.getVersion(first.getId()) + 1));
+        assertThrows(TaskOverlapException.class, () -> manager.createTask(
+                new Task("3", "", Status.NEW, START, Duration.ofMinutes(10))));
+        manager.createTask(new Task("3", "", Status.NEW, START.plusHours(2), Duration.ofMinutes(10)));
+
+        manager.deleteTaskById(first.getId());
+        manager.createTask(new Task("4", "", Status.NEW, START, Duration.ofMinutes(10)));
+        assertEquals(3, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void batchesShouldBeSplitByShard() {
+        ShardedTaskManager manager = Managers.getSharded(2);
+        Epic left = manager.createEpic(new Epic("Левый", ""));
+        Epic right = manager.createEpic(new Epic("Правый", ""));
+
+        assertNull(manager.createSubtasks(List.of(new Subtask("1", "", Status.NEW, left.getId()),
+                new Subtask("2", "", Status.NEW, right.getId() + 1))));
+        assertTrue(manager.getAllSubtasks().isEmpty());
+
+        List<Subtask> subtasks = manager.createSubtasks(List.of(new Subtask("1", "", Status.NEW, left.getId()),
+                new Subtask("2", "", Status.NEW, right.getId()), new Subtask("3", "", Status.NEW, right.getId())));
+        assertEquals(3, subtasks.size());
+        assertEquals(List.of(subtasks.get(1), subtasks.get(2)), manager.getSubtasksByEpicId(right.getId()));
+
+        manager.updateSubtasks(List.of(new Subtask("1", "", subtasks.get(0).getId(), Status.DONE, left.getId()),
+                new Subtask("2", "", subtasks.get(1).getId(), Status.DONE, right.getId())));
+        assertEquals(Status.DONE, manager.getEpicById(left.getId()).getStatus());
+        assertEquals(Status.IN_PROGRESS, manager.getEpicById(right.getId()).getStatus());
+
+        manager.deleteSubtasksByIds(List.of(subtasks.get(0).getId(), subtasks.get(2).getId()));
+        assertEquals(List.of(subtasks.get(1)), manager.getAllSubtasks());
+        assertEquals(List.of(left, right), manager.getHistory());
+
+        manager.deleteEpicById(right.getId());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+        assertEquals(List.of(left), manager.getHistory());
+        manager.deleteAllEpics();
+        assertTrue(manager.getAllEpics().isEmpty());
+        assertTrue(manager.getHistory().isEmpty());
+    }
+
+    @Test
+    void searchShouldMergeShards() {
+        ShardedTaskManager manager = Managers.getSharded(3);
+        Task inDescription = manager.createTask(new Task("Созвон", "обсудить релиз", Status.NEW));
+        Task inName = manager.createTask(new Task("Релиз 2.0", "подготовить", Status.NEW));
+        Task other = manager.createTask(new Task("Релиз 1.0", "релиз выпущен", Status.DONE));
+
+        assertEquals(List.of(inDescription, inName, other), manager.search("релиз", SearchOrder.ID, 10));
+        assertEquals(List.of(inDescription, inName), manager.search("релиз", SearchOrder.ID, 2));
+        assertEquals(List.of(other, inName, inDescription), manager.search("релиз", SearchOrder.RELEVANCE, 10));
+        TaskManager router = manager;
+        assertFalse(router instanceof ObservableTaskManager, "Общей ленты событий у шардов нет");
+        ObservableTaskManager shard = (ObservableTaskManager) manager.getShard(0);
+        assertEquals(shard.getLastChangeSequence(), shard.subscribe(0).poll(100).size());
+    }
+}
@@ -0,0 +1,76 @@
+package controllers;
+
+import enums.Status;
+import impl.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.Managers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusIndexTest {
+    private TaskManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = Managers.getDefault();
+    }
+
+    @Test
+    void taskQueriesShouldFollowStatusUpdates() {
+        Task first = manager.createTask(new Task("First", "Desc", Status.NEW));
+        Task second = manager.createTask(new Task("Second", "Desc", Status.NEW));
+
+        manager.updateTask(new Task("Second", "Desc", second.getId(), Status.DONE));
+
+        assertEquals(List.of(first), manager.getTasksByStatus(Status.NEW));
+        assertEquals(1, manager.getTasksByStatus(Status.DONE).size());
+        assertTrue(manager.getTasksByStatus(Status.IN_PROGRESS).isEmpty());
+
+        manager.deleteTaskById(first.getId());
+        assertTrue(manager.getTasksByStatus(Status.NEW).isEmpty(), "Удалённая задача не должна находиться по статусу");
+    }
+
+    @Test
+    void epicQueriesShouldFollowDerivedStatus() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        assertEquals(List.of(epic), manager.getEpicsByStatus(Status.NEW));
+
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", Status.IN_PROGRESS, epic.getId()));
+        assertEquals(List.of(epic), manager.getEpicsByStatus(Status.IN_PROGRESS), "Пересчёт статуса эпика должен обновлять индекс");
+        assertEquals(List.of(subtask), manager.getSubtasksByStatus(Status.IN_PROGRESS));
+
+        manager.deleteAllSubtasks();
+        assertEquals(List.of(epic), manager.getEpicsByStatus(Status.NEW));
+        assertTrue(manager.getSubtasksByStatus(Status.IN_PROGRESS).isEmpty());
+
+        manager.deleteEpicById(epic.getId());
+        assertTrue(manager.getEpicsByStatus(Status.NEW).isEmpty());
+    }
+
+    @Test
+    void indexedQueriesShouldMatchFullScan() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Status[] statuses = Status.values();
+        for (int i = 0; i < 30; i++) {
+            manager.createSubtask(new Subtask("Sub " + i, "Desc", statuses[i % statuses.length], epic.getId()));
+        }
+        for (Subtask subtask : manager.getAllSubtasks()) {
+            if (subtask.getId() % 4 == 0) {
+                manager.updateSubtask(new Subtask("Sub", "Desc", subtask.getId(), Status.DONE, epic.getId()));
+            } else if (subtask.getId() % 5 == 0) {
+                manager.deleteSubtaskById(subtask.getId());
+            }
+        }
+
+        for (Status status : statuses) {
+            long expected = manager.getAllSubtasks().stream().filter(s -> s.getStatus() == status).count();
+            assertEquals(expected, manager.getSubtasksByStatus(status).size(), "Расхождение индекса для " + status);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package controllers;
+
+import enums.Status;
+import impl.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import org.junit.jupiter.api.Test;
+import utils.Managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskPageTest {
+
+    @Test
+    void pagesShouldCoverAllTasksInIdOrder() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            for (int i = 0; i < 25; i++) {
+                manager.createTask(new Task("Task " + i, "Desc", Status.NEW));
+            }
+
+            List<Task> collected = new ArrayList<>();
+            int token = TaskPage.FIRST_PAGE;
+            int pages = 0;
+            while (true) {
+                TaskPage<Task> page = manager.getTasksPage(token, 10);
+                collected.addAll(page.getItems());
+                pages++;
+                if (!page.hasNext()) {
+                    break;
+                }
+                token = page.getNextToken();
+            }
+
+            assertEquals(3, pages);
+            assertEquals(manager.getAllTasks(), collected, "Страницы должны покрывать все задачи по возрастанию id");
+        }
+    }
+
+    @Test
+    void tokenShouldSurviveDeletionOfLastReturnedTask() {
+        TaskManager manager = Managers.getDefault();
+        for (int i = 0; i < 6; i++) {
+            manager.createTask(new Task("Task " + i, "Desc", Status.NEW));
+        }
+
+        TaskPage<Task> first = manager.getTasksPage(TaskPage.FIRST_PAGE, 3);
+        manager.deleteTaskById(first.getNextToken());
+        TaskPage<Task> second = manager.getTasksPage(first.getNextToken(), 3);
+
+        assertEquals(List.of(4, 5, 6), second.getItems().stream().map(Task::getId).collect(Collectors.toList()));
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    void epicSubtaskPagesShouldFollowEpicOrder() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getOffHeap())) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Epic other = manager.createEpic(new Epic("Other", "Desc"));
+            for (int i = 0; i < 5; i++) {
+                manager.createSubtask(new Subtask("Sub " + i, "Desc", Status.NEW, epic.getId()));
+                manager.createSubtask(new Subtask("Other " + i, "Desc", Status.NEW, other.getId()));
+            }
+
+            TaskPage<Subtask> first = manager.getSubtasksPageByEpicId(epic.getId(), TaskPage.FIRST_PAGE, 3);
+            TaskPage<Subtask> second = manager.getSubtasksPageByEpicId(epic.getId(), first.getNextToken(), 3);
+
+            List<Subtask> collected = new ArrayList<>(first.getItems());
+            collected.addAll(second.getItems());
+            assertEquals(manager.getSubtasksByEpicId(epic.getId()), collected);
+            assertFalse(second.hasNext());
+        }
+    }
+
+    @Test
+    void historyPagesShouldFollowViewOrder() {
+        TaskManager manager = Managers.getDefault();
+        Task first = manager.createTask(new Task("First", "Desc", Status.NEW));
+        Task second = manager.createTask(new Task("Second", "Desc", Status.NEW));
+        Task third = manager.createTask(new Task("Third", "Desc", Status.NEW));
+        manager.getTaskById(second.getId());
+        manager.getTaskById(third.getId());
+        manager.getTaskById(first.getId());
+
+        TaskPage<Task> page = manager.getHistoryPage(TaskPage.FIRST_PAGE, 2);
+        assertEquals(List.of(second, third), page.getItems());
+        assertEquals(List.of(first), manager.getHistoryPage(page.getNextToken(), 2).getItems());
+        assertEquals(manager.getHistory(), manager.streamHistory().collect(Collectors.toList()));
+    }
+
+    @Test
+    void streamsShouldBeLazyViewsThatSplitForParallelUse() {
+        TaskManager manager = Managers.getDefault();
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        for (int i = 0; i < 10_000; i++) {
+            manager.createSubtask(new Subtask("Sub", "Desc", i % 2 == 0 ? Status.DONE : Status.NEW, epic.getId()));
+        }
+
+        assertEquals(5_000, manager.streamSubtasks().parallel().filter(s -> s.getStatus() == Status.DONE).count());
+        assertEquals(10_000, manager.streamSubtasksByEpicId(epic.getId()).count());
+        assertTrue(manager.getHistory().isEmpty(), "Обход потоком не должен попадать в историю");
+    }
+
+    @Test
+    void nonPositivePageSizeShouldBeRejected() {
+        TaskManager manager = Managers.getDefault();
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasksPage(TaskPage.FIRST_PAGE, 0));
+    }
+}
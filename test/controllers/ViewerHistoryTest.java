@@ -0,0 +1,237 @@
+package controllers;
+
+import model.ViewCount;
+import model.ViewEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewerHistoryTest {
+    private static final long MINUTE = 60_000;
+
+    @TempDir
+    Path dir;
+
+    private final TestClock clock = new TestClock();
+
+    private ViewerHistory history(Path file, int maxEntries, Duration retention) {
+        return new ViewerHistory(file, maxEntries, retention, 60, clock);
+    }
+
+    private static List<Integer> ids(List<ViewEntry> entries) {
+        return entries.stream().map(ViewEntry::getTaskId).toList();
+    }
+
+    @Test
+    void historyShouldBeKeptPerViewerWithRepeatsAndTimes() {
+        ViewerHistory history = history(null, 10, Duration.ofDays(1));
+        history.record("anna", 1);
+        clock.advance(1000);
+        history.record("anna", 2);
+        history.record("boris", 3);
+        history.record("anna", 1);
+
+        List<ViewEntry> anna = history.getHistory("anna");
+        assertEquals(List.of(1, 2, 1), ids(anna));
+        assertEquals(clock.start, anna.get(0).getViewedAtMillis());
+        assertEquals(Instant.ofEpochMilli(clock.start + 1000), anna.get(1).getViewedAt());
+        assertEquals(List.of(3), ids(history.getHistory("boris")));
+        assertTrue(history.getHistory("nobody").isEmpty());
+        assertEquals(2, history.getViewerCount());
+    }
+
+    @Test
+    void oldestViewsShouldBeEvictedByCountAndByAge() {
+        ViewerHistory history = history(null, 3, Duration.ofMinutes(10));
+        for (int id = 1; id <= 5; id++) {
+            history.record("anna", id);
+            clock.advance(MINUTE);
+        }
+        assertEquals(List.of(3, 4, 5), ids(history.getHistory("anna")));
+
+        // Просмотры 3, 4 и 5 были 3, 2 и 1 минуту назад; просмотр ровно retention назад ещё хранится
+        clock.advance(8 * MINUTE);
+        assertEquals(List.of(4, 5), ids(history.getHistory("anna")));
+        clock.advance(MINUTE);
+        assertEquals(List.of(5), ids(history.getHistory("anna")));
+        clock.advance(MINUTE + 1);
+        assertTrue(history.getHistory("anna").isEmpty());
+    }
+
+    @Test
+    void mostViewedShouldCountOnlyTheRequestedWindow() {
+        ViewerHistory history = history(null, 100, Duration.ofDays(1));
+        history.record("anna", 1);
+        history.record("boris", 1);
+        history.record("anna", 2);
+        clock.advance(30 * MINUTE);
+        history.record("anna", 3);
+        history.record("boris", 3);
+        history.record("clara", 3);
+        history.record("anna", 2);
+
+        assertEquals(List.of(new ViewCount(3, 3), new ViewCount(2, 1)), history.getMostViewed(5, 10));
+        assertEquals(List.of(new ViewCount(3, 3), new ViewCount(1, 2), new ViewCount(2, 2)),
+                history.getMostViewed(60, 10));
+        assertEquals(List.of(new ViewCount(3, 3)), history.getMostViewed(60, 1));
+
+        clock.advance(45 * MINUTE);
+        assertEquals(List.of(new ViewCount(3, 3), new ViewCount(2, 1)), history.getMostViewed(60, 10));
+        clock.advance(60 * MINUTE);
+        assertTrue(history.getMostViewed(60, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> history.getMostViewed(61, 10));
+        assertThrows(IllegalArgumentException.class, () -> history.getMostViewed(0, 10));
+    }
+
+    @Test
+    void removeIfShouldDropViewsOfDeletedTasks() {
+        ViewerHistory history = history(null, 10, Duration.ofDays(1));
+        history.record("anna", 1);
+        history.record("anna", 2);
+        history.record("boris", 2);
+
+        history.removeIf(id -> id == 2);
+
+        assertEquals(List.of(1), ids(history.getHistory("anna")));
+        assertTrue(history.getHistory("boris").isEmpty());
+        assertEquals(List.of(new ViewCount(1, 1)), history.getMostViewed(60, 10));
+    }
+
+    @Test
+    void removedViewsShouldStayRemovedAfterReopen() {
+        Path file = dir.resolve("views.bin");
+        try (ViewerHistory history = history(file, 10, Duration.ofDays(1))) {
+            history.record("anna", 1);
+            history.record("anna", 2);
+            history.record("boris", 2);
+            history.removeIf(id -> id == 2);
+            // Просмотр после удаления записан позже записи об удалении и сохраняется
+            history.record("anna", 2);
+        }
+
+        try (ViewerHistory reopened = history(file, 10, Duration.ofDays(1))) {
+            assertEquals(List.of(1, 2), ids(reopened.getHistory("anna")));
+            assertTrue(reopened.getHistory("boris").isEmpty());
+            assertEquals(List.of(new ViewCount(1, 1), new ViewCount(2, 1)), reopened.getMostViewed(60, 10));
+        }
+    }
+
+    @Test
+    void historyShouldSurviveReopenWithRetentionApplied() {
+        Path file = dir.resolve("views.bin");
+        try (ViewerHistory history = history(file, 3, Duration.ofHours(1))) {
+            history.record("anna", 1);
+            clock.advance(30 * MINUTE);
+            for (int id = 2; id <= 5; id++) {
+                history.record("anna", id);
+            }
+            history.record("Борис", 7);
+        }
+
+        try (ViewerHistory reopened = history(file, 3, Duration.ofHours(1))) {
+            assertEquals(List.of(3, 4, 5), ids(reopened.getHistory("anna")));
+            assertEquals(List.of(7), ids(reopened.getHistory("Борис")));
+            // Счётчики окна восстановлены по журналу, включая вытесненный из кольца просмотр 2
+            assertEquals(List.of(2, 3, 4, 5, 7),
+                    reopened.getMostViewed(1, 10).stream().map(ViewCount::getTaskId).toList());
+            reopened.record("anna", 6);
+        }
+
+        clock.advance(40 * MINUTE);
+        try (ViewerHistory reopened = history(file, 3, Duration.ofHours(1))) {
+            assertEquals(List.of(4, 5, 6), ids(reopened.getHistory("anna")));
+        }
+        clock.advance(31 * MINUTE);
+        try (ViewerHistory reopened = history(file, 3, Duration.ofHours(1))) {
+            assertTrue(reopened.getHistory("anna").isEmpty());
+            assertEquals(0, reopened.getViewerCount());
+        }
+    }
+
+    @Test
+    void truncatedTailShouldBeIgnoredOnReopen() throws IOException {
+        Path file = dir.resolve("views.bin");
+        try (ViewerHistory history = history(file, 10, Duration.ofDays(1))) {
+            history.record("anna", 1);
+            history.record("anna", 2);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (ViewerHistory reopened = history(file, 10, Duration.ofDays(1))) {
+            assertEquals(List.of(1), ids(reopened.getHistory("anna")));
+            reopened.record("anna", 3);
+        }
+        try (ViewerHistory reopened = history(file, 10, Duration.ofDays(1))) {
+            assertEquals(List.of(1, 3), ids(reopened.getHistory("anna")));
+        }
+    }
+
+    @Test
+    void journalShouldBeCompactedWhenMostRecordsAreEvicted() throws IOException {
+        Path file = dir.resolve("views.bin");
+        try (ViewerHistory history = history(file, 2, Duration.ofDays(1))) {
+            for (int i = 0; i < 10_000; i++) {
+                history.record("anna", i);
+            }
+            assertEquals(List.of(9998, 9999), ids(history.getHistory("anna")));
+        }
+        assertTrue(Files.size(file) < 2048 * 17, "размер журнала: " + Files.size(file));
+        try (ViewerHistory reopened = history(file, 2, Duration.ofDays(1))) {
+            assertEquals(List.of(9998, 9999), ids(reopened.getHistory("anna")));
+        }
+    }
+
+    @Test
+    void clockGoingBackShouldNotBreakOrder() {
+        ViewerHistory history = history(null, 10, Duration.ofMinutes(10));
+        history.record("anna", 1);
+        clock.advance(-5 * MINUTE);
+        history.record("anna", 2);
+
+        List<ViewEntry> entries = history.getHistory("anna");
+        assertEquals(List.of(1, 2), ids(entries));
+        assertEquals(entries.get(0).getViewedAtMillis(), entries.get(1).getViewedAtMillis());
+    }
+
+    private static final class TestClock extends Clock {
+        private final long start = Instant.parse("2024-03-01T10:00:00Z").toEpochMilli();
+        private long now = start;
+
+        void advance(long millis) {
+            now += millis;
+        }
+
+        @Override
+        public long millis() {
+            return now;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
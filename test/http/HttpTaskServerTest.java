@@ -0,0 +1,154 @@
+package http;
+
+import controllers.ViewerHistory;
+import enums.Status;
+import impl.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.JSONTaskFormat;
+import utils.Managers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpTaskServerTest {
+    private TaskManager manager;
+    private ViewerHistory views;
+    private HttpTaskServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        manager = Managers.getConcurrent();
+        views = new ViewerHistory();
+        server = new HttpTaskServer(manager, views, 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> get(String path, String viewer) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .header("X-Viewer", viewer).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+        request.method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void postShouldCreateTaskAndGetShouldReturnIt() throws Exception {
+        HttpResponse<String> created = send("POST", "/tasks", "{\"name\":\"Task\",\"description\":\"Desc\",\"status\":\"NEW\"}");
+
+        assertEquals(201, created.statusCode());
+        int id = manager.getAllTasks().get(0).getId();
+        HttpResponse<String> loaded = send("GET", "/tasks/" + id, null);
+        assertEquals(200, loaded.statusCode());
+        assertEquals("Task", JSONTaskFormat.fromJson(loaded.body(), enums.TaskType.TASK).getName());
+        assertEquals(404, send("GET", "/tasks/999", null).statusCode());
+        assertEquals(400, send("GET", "/tasks/abc", null).statusCode());
+    }
+
+    @Test
+    void listEndpointsShouldStreamAllItems() throws Exception {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        for (int i = 0; i < 1000; i++) {
+            manager.createSubtask(new Subtask("Sub " + i, "Desc", Status.NEW, epic.getId()));
+        }
+        manager.getEpicById(epic.getId());
+
+        HttpResponse<String> subtasks = send("GET", "/epics/" + epic.getId() + "/subtasks", null);
+        assertEquals(200, subtasks.statusCode());
+        assertEquals(1000, subtasks.body().split("\"epicId\"").length - 1);
+        assertEquals("[" + JSONTaskFormat.toJson(epic) + "]", send("GET", "/history", null).body());
+        assertEquals("[]", send("GET", "/tasks", null).body());
+    }
+
+    @Test
+    void overlappingTaskShouldBeNotAcceptable() throws Exception {
+        String body = "{\"name\":\"Task\",\"status\":\"NEW\",\"startTime\":\"2024-03-01T10:00\",\"duration\":60}";
+        assertEquals(201, send("POST", "/tasks", body).statusCode());
+        assertEquals(406, send("POST", "/tasks", body).statusCode());
+
+        HttpResponse<String> prioritized = send("GET", "/prioritized", null);
+        assertEquals(200, prioritized.statusCode());
+        assertTrue(prioritized.body().contains("\"endTime\":\"2024-03-01T11:00:00\""));
+        assertEquals(1, manager.getAllTasks().size());
+    }
+
+    @Test
+    void subtaskWithMissingEpicShouldBeNotFound() throws Exception {
+        HttpResponse<String> response = send("POST", "/subtasks",
+                "{\"name\":\"Sub\",\"description\":\"Desc\",\"status\":\"NEW\",\"epicId\":42}");
+
+        assertEquals(404, response.statusCode());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+    }
+
+    @Test
+    void staleIfMatchShouldFailUpdate() throws Exception {
+        Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+        String etag = send("GET", "/tasks/" + task.getId(), null).headers().firstValue("ETag").orElseThrow();
+        String update = "{\"id\":" + task.getId() + ",\"name\":\"Task\",\"description\":\"Desc\",\"status\":\"DONE\"}";
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/tasks"))
+                .header("If-Match", etag).POST(HttpRequest.BodyPublishers.ofString(update));
+        assertEquals(201, client.send(request.build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(412, client.send(request.build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(Status.DONE, manager.getTaskById(task.getId()).getStatus());
+    }
+
+    @Test
+    void deleteShouldRemoveEpicWithSubtasks() throws Exception {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        manager.createSubtask(new Subtask("Sub", "Desc", Status.NEW, epic.getId()));
+
+        assertEquals(200, send("DELETE", "/epics/" + epic.getId(), null).statusCode());
+        assertEquals(List.of(), manager.getAllSubtasks());
+        assertEquals(405, send("PUT", "/history", "").statusCode());
+    }
+
+    @Test
+    void viewsShouldBeRecordedPerViewerHeader() throws Exception {
+        Task task = manager.createTask(new Task("Task", "Desc", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Task deleted = manager.createTask(new Task("Deleted", "Desc", Status.NEW));
+
+        get("/tasks/" + task.getId(), "anna");
+        get("/epics/" + epic.getId(), "anna");
+        get("/tasks/" + deleted.getId(), "anna");
+        get("/tasks/" + task.getId(), "boris");
+        get("/tasks/999", "boris");
+        send("GET", "/epics/" + epic.getId(), null);
+        manager.deleteTaskById(deleted.getId());
+
+        HttpResponse<String> anna = get("/history", "anna");
+        assertEquals(200, anna.statusCode());
+        assertTrue(anna.body().matches("\\[\\{\"id\":" + task.getId() + ",\"viewedAt\":\"[^\"]+Z\"},"
+                + "\\{\"id\":" + epic.getId() + ",\"viewedAt\":\"[^\"]+Z\"}]"), anna.body());
+        assertEquals(2, views.getHistory("anna").size());
+        assertEquals("[{\"id\":" + task.getId() + ",\"views\":2},{\"id\":" + epic.getId() + ",\"views\":1}]",
+                send("GET", "/history/top/5", null).body());
+        assertEquals("[{\"id\":" + task.getId() + ",\"views\":2}]", send("GET", "/history/top/60/1", null).body());
+        assertEquals(400, send("GET", "/history/top/0", null).statusCode());
+        // Без заголовка - общая история менеджера, в которую попадают и просмотры с заголовком
+        assertTrue(send("GET", "/history", null).body().contains("\"name\":\"Epic\""));
+    }
+}
@@ -0,0 +1,100 @@
+package utils;
+
+import enums.Status;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryTaskFormatTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRoundTripAllTaskTypes() throws IOException {
+        Task task = new Task("Задача", null, 1, Status.IN_PROGRESS);
+        Epic epic = new Epic("Эпик", "Описание, с запятой", 2, Status.DONE);
+        epic.addSubtaskId(10);
+        epic.addSubtaskId(3);
+        epic.addSubtaskId(700_000);
+        Subtask subtask = new Subtask("Подзадача", "Описание", 3, null, 2);
+        Path file = directory.resolve("tasks.bin");
+
+        BinaryTaskFormat.write(file, 42, 7L, List.of(task), List.of(epic), List.of(subtask));
+        List<Task> loaded = new ArrayList<>();
+        BinaryTaskFormat.Header header = BinaryTaskFormat.read(file, loaded::add);
+
+        assertEquals(42, header.getNextId());
+        assertEquals(7L, header.getSequence());
+        assertEquals(3, header.getRecordCount());
+
+        assertEquals(Task.class, loaded.get(0).getClass());
+        assertEquals("Задача", loaded.get(0).getName());
+        assertNull(loaded.get(0).getDescription());
+        assertEquals(Status.IN_PROGRESS, loaded.get(0).getStatus());
+
+        Epic loadedEpic = (Epic) loaded.get(1);
+        assertEquals("Описание, с запятой", loadedEpic.getDescription());
+        assertEquals(Status.DONE, loadedEpic.getStatus());
+        assertEquals(List.of(10, 3, 700_000), loadedEpic.getSubtaskIds(), "Порядок подзадач эпика должен сохраняться");
+
+        Subtask loadedSubtask = (Subtask) loaded.get(2);
+        assertEquals(3, loadedSubtask.getId());
+        assertEquals(2, loadedSubtask.getEpicId());
+        assertNull(loadedSubtask.getStatus());
+    }
+
+    @Test
+    void nestedEpicShouldKeepParentAfterSubtaskIds() throws IOException {
+        Epic root = new Epic("Корень", null, 1, Status.NEW);
+        Epic nested = new Epic("Вложенный", null, 2, Status.NEW);
+        nested.setParentId(1);
+        nested.addSubtaskId(5);
+        Path file = directory.resolve("nested.bin");
+
+        BinaryTaskFormat.write(file, 6, 0L, List.of(root, nested));
+        List<Task> loaded = new ArrayList<>();
+        BinaryTaskFormat.read(file, loaded::add);
+
+        assertEquals(Epic.NO_PARENT, ((Epic) loaded.get(0)).getParentId());
+        assertEquals(1, ((Epic) loaded.get(1)).getParentId());
+        assertEquals(List.of(5), ((Epic) loaded.get(1)).getSubtaskIds());
+        assertNull(loaded.get(1).getStartTime(), "Бит родителя не должен читаться как время");
+    }
+
+    @Test
+    void repeatedStringsShouldBeStoredOnce() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            tasks.add(new Task("Одинаковое длинное название задачи", "Одинаковое описание задачи", i, Status.NEW));
+        }
+        Path file = directory.resolve("tasks.bin");
+
+        BinaryTaskFormat.write(file, 1001, 0L, tasks);
+
+        // 13 байт на запись плюс заголовок и две строки в таблице
+        assertTrue(Files.size(file) < 1000 * 13 + 200, "Строки должны храниться в таблице без повторов");
+        List<Task> loaded = new ArrayList<>();
+        BinaryTaskFormat.read(file, loaded::add);
+        assertEquals(tasks, loaded);
+        assertSame(loaded.get(0).getName(), loaded.get(999).getName(), "Одинаковые строки должны разделяться");
+    }
+
+    @Test
+    void shouldRejectUnknownFile() throws IOException {
+        Path file = directory.resolve("garbage.bin");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> BinaryTaskFormat.read(file, task -> {
+        }));
+    }
+}
@@ -0,0 +1,37 @@
+package utils;
+
+import enums.Status;
+import enums.TaskType;
+import exceptions.ReplayUnavailableException;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeLogTest {
+    @Test
+    void lateSubscriberShouldFailInsteadOfMissingEvents() {
+        ChangeLog log = new ChangeLog(4);
+        ChangeSubscription subscription = log.subscribe(ChangeLog.LATEST);
+        for (int i = 1; i <= 5; i++) {
+            log.created(new Task("Task", "Desc", i, Status.NEW));
+        }
+
+        assertThrows(ReplayUnavailableException.class, () -> subscription.poll(10));
+        assertThrows(ReplayUnavailableException.class, () -> log.subscribe(0));
+        assertEquals(4, log.subscribe(1).poll(10).size(), "Последние события должны оставаться доступными");
+    }
+
+    @Test
+    void pollShouldReturnEmptyBatchAfterTimeout() throws InterruptedException {
+        ChangeLog log = new ChangeLog();
+        ChangeSubscription subscription = log.subscribe(ChangeLog.LATEST);
+
+        assertTrue(subscription.poll(10, 10, TimeUnit.MILLISECONDS).isEmpty());
+        log.deleted(TaskType.TASK, 1);
+        assertEquals(1, subscription.poll(10, 10, TimeUnit.MILLISECONDS).size());
+        assertThrows(IllegalArgumentException.class, () -> log.subscribe(5));
+    }
+}
@@ -0,0 +1,122 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntHashMapTest {
+
+    @Test
+    void shouldMatchTreeMapOnRandomOperations() {
+        Random random = new Random(11);
+        IntHashMap<String> map = new IntHashMap<>();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = 0; key < 5_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        for (int afterKey : new int[]{-1, 0, 2_500, 4_999}) {
+            List<String> actual = new ArrayList<>();
+            map.valuesAfter(afterKey).forEachRemaining(actual::add);
+            assertEquals(new ArrayList<>(expected.tailMap(afterKey, false).values()), actual,
+                    "Продолжение после ключа " + afterKey + " должно идти по возрастанию ключей");
+        }
+    }
+
+    @Test
+    void removeIfShouldDropMatchingKeysAndReportValues() {
+        IntHashMap<String> map = new IntHashMap<>();
+        for (int key = 1; key <= 1_000; key++) {
+            map.put(key, "v" + key);
+        }
+        List<String> removed = new ArrayList<>();
+
+        assertEquals(500, map.removeIf(key -> key % 2 == 0, removed::add));
+        assertEquals(500, removed.size());
+        assertEquals("v2", removed.get(0));
+        assertEquals(500, map.size());
+        assertNull(map.get(2));
+        assertEquals("v999", map.get(999));
+        List<String> continuation = new ArrayList<>();
+        map.valuesAfter(996).forEachRemaining(continuation::add);
+        assertEquals(List.of("v997", "v999"), continuation);
+
+        assertEquals(0, map.removeIf(key -> key > 1_000));
+        assertEquals(500, map.removeIf(key -> true));
+        assertTrue(map.isEmpty());
+        map.put(7, "again");
+        assertEquals("again", map.get(7));
+    }
+
+    @Test
+    void valuesShouldFollowKeyOrderForAscendingInserts() {
+        IntHashMap<Integer> map = new IntHashMap<>();
+        for (int key = 1; key <= 1_000; key++) {
+            map.put(key, key);
+        }
+        for (int key = 2; key <= 1_000; key += 2) {
+            map.remove(key);
+        }
+
+        List<Integer> values = new ArrayList<>(map.values());
+        assertEquals(500, values.size());
+        assertEquals(1, values.get(0));
+        assertEquals(999, values.get(499));
+        assertEquals(500L * 500, map.values().parallelStream().mapToLong(Integer::longValue).sum());
+    }
+
+    @Test
+    void valuesAfterShouldNotReorderMapUntilSortByKey() {
+        IntHashMap<String> map = new IntHashMap<>();
+        for (int key : new int[]{5, 1, 9, 3}) {
+            map.put(key, "v" + key);
+        }
+        Iterator<String> open = map.values().iterator();
+        assertEquals("v5", open.next());
+
+        List<String> continuation = new ArrayList<>();
+        map.valuesAfter(1).forEachRemaining(continuation::add);
+        assertEquals(List.of("v3", "v5", "v9"), continuation);
+        assertFalse(map.isSortedByKey(), "Чтение не должно переставлять записи");
+        assertEquals("v1", open.next(), "Открытый итератор переживает valuesAfter");
+
+        map.sortByKey();
+        assertTrue(map.isSortedByKey());
+        assertEquals(List.of("v1", "v3", "v5", "v9"), new ArrayList<>(map.values()));
+        assertThrows(ConcurrentModificationException.class, open::next);
+    }
+
+    @Test
+    void iteratorShouldFailFastOnStructuralChange() {
+        IntHashMap<String> map = new IntHashMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+        Iterator<String> iterator = map.values().iterator();
+        iterator.next();
+        map.put(3, "c");
+
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+
+    @Test
+    void nullValuesShouldBeRejected() {
+        assertThrows(NullPointerException.class, () -> new IntHashMap<String>().put(1, null));
+    }
+}
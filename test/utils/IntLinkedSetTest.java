@@ -0,0 +1,91 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntLinkedSetTest {
+
+    @Test
+    void shouldKeepInsertionOrderAndIgnoreDuplicates() {
+        IntLinkedSet set = new IntLinkedSet();
+        assertTrue(set.add(5));
+        assertTrue(set.add(-1));
+        assertTrue(set.add(42));
+        assertFalse(set.add(5), "Повторное добавление не должно менять множество");
+
+        assertEquals(List.of(5, -1, 42), set.toList());
+        assertTrue(set.remove(-1));
+        assertFalse(set.remove(-1));
+        assertTrue(set.add(-1));
+        assertEquals(List.of(5, 42, -1), set.toList(), "Повторно добавленное значение уходит в конец");
+    }
+
+    @Test
+    void iteratorAfterShouldContinueFromValuePosition() {
+        IntLinkedSet set = new IntLinkedSet();
+        for (int value = 1; value <= 5; value++) {
+            set.add(value * 10);
+        }
+
+        PrimitiveIterator.OfInt iterator = set.view().iteratorAfter(30);
+        List<Integer> rest = new ArrayList<>();
+        iterator.forEachRemaining((int value) -> rest.add(value));
+
+        assertEquals(List.of(40, 50), rest);
+        assertNull(set.view().iteratorAfter(35), "Для отсутствующего значения продолжения нет");
+    }
+
+    @Test
+    void placeShouldPutValuesAtOrdinalsAndKeepOthersInOrder() {
+        IntLinkedSet set = new IntLinkedSet();
+        for (int value : new int[] {4, 1, 2, 3}) {
+            set.add(value);
+        }
+        set.remove(1);
+        set.add(1);
+        assertEquals(List.of(4, 2, 3, 1), set.toList());
+
+        // Значения уже в списке не на своих местах: 4 должна встать вторым, 1 - последним
+        set.place(new int[] {4, 1}, new int[] {1, 3}, 2);
+        assertEquals(List.of(2, 4, 3, 1), set.toList());
+        assertEquals(1, set.indexOf(4));
+        set.move(1, 0);
+        assertEquals(List.of(1, 2, 4, 3), set.toList());
+        set.move(1, 100);
+        assertEquals(List.of(2, 4, 3, 1), set.toList());
+        assertEquals(-1, set.indexOf(7));
+        assertTrue(set.contains(3) && set.remove(3));
+        assertEquals(List.of(2, 4, 1), set.toList());
+    }
+
+    @Test
+    void shouldMatchLinkedHashSetOnRandomOperations() {
+        Random random = new Random(7);
+        IntLinkedSet set = new IntLinkedSet();
+        Set<Integer> expected = new LinkedHashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        assertEquals(new ArrayList<>(expected), set.toList());
+        assertEquals(new ArrayList<>(expected), set.view().stream().boxed().collect(Collectors.toList()));
+        for (int value = -1_000; value < 1_000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
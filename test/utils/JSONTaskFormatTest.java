@@ -0,0 +1,66 @@
+package utils;
+
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.EpicRollup;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JSONTaskFormatTest {
+    @Test
+    void shouldRoundTripAllTypesWithEscapes() {
+        Task task = new Task("Имя \"в кавычках\"", "Строка 1\nСтрока 2\\", 1, Status.IN_PROGRESS);
+        Subtask subtask = new Subtask("Sub", null, 3, Status.DONE, 2);
+        Epic epic = new Epic("Epic", "Desc", 2, Status.DONE);
+        epic.setSubtaskIds(List.of(3, 4));
+
+        Task parsedTask = JSONTaskFormat.fromJson(JSONTaskFormat.toJson(task), TaskType.TASK);
+        assertEquals(task.getName(), parsedTask.getName());
+        assertEquals(task.getDescription(), parsedTask.getDescription());
+        assertEquals(Status.IN_PROGRESS, parsedTask.getStatus());
+
+        Subtask parsedSubtask = (Subtask) JSONTaskFormat.fromJson(JSONTaskFormat.toJson(subtask), TaskType.SUBTASK);
+        assertNull(parsedSubtask.getDescription());
+        assertEquals(2, parsedSubtask.getEpicId());
+
+        Epic parsedEpic = (Epic) JSONTaskFormat.fromJson(JSONTaskFormat.toJson(epic), TaskType.EPIC);
+        assertEquals(List.of(3, 4), parsedEpic.getSubtaskIds());
+    }
+
+    @Test
+    void shouldSkipUnknownFieldsAndRejectBrokenInput() {
+        Task task = JSONTaskFormat.fromJson(
+                " { \"extra\" : {\"a\":[1,\"x\"]}, \"name\":\"A\", \"id\": 7, \"flag\": true } ", TaskType.TASK);
+        assertEquals(7, task.getId());
+        assertEquals("A", task.getName());
+
+        assertThrows(IllegalArgumentException.class, () -> JSONTaskFormat.fromJson("{\"id\":", TaskType.TASK));
+        assertThrows(IllegalArgumentException.class, () -> JSONTaskFormat.fromJson("{\"name\":\"A}", TaskType.TASK));
+        assertThrows(IllegalArgumentException.class, () -> JSONTaskFormat.fromJson("{} x", TaskType.TASK));
+    }
+
+    @Test
+    void shouldWriteParentOnlyForNestedEpicsAndRollupsAsArray() {
+        Epic root = new Epic("Root", "Desc", 1, Status.NEW);
+        Epic nested = new Epic("Nested", "Desc", 2, Status.NEW);
+        nested.setParentId(1);
+
+        assertFalse(JSONTaskFormat.toJson(root).contains("parentId"));
+        Epic parsed = (Epic) JSONTaskFormat.fromJson(JSONTaskFormat.toJson(nested), TaskType.EPIC);
+        assertEquals(1, parsed.getParentId());
+        assertEquals(Epic.NO_PARENT, ((Epic) JSONTaskFormat.fromJson("{\"parentId\":null}", TaskType.EPIC))
+                .getParentId());
+
+        EpicRollup rollup = new EpicRollup(2, 1, 1, Status.IN_PROGRESS, new int[]{1, 0, 2}, 3, 1, 0);
+        assertEquals("[{\"epicId\":2,\"parentId\":1,\"depth\":1,\"status\":\"IN_PROGRESS\","
+                + "\"counts\":{\"NEW\":1,\"IN_PROGRESS\":0,\"DONE\":2},\"subtaskTotal\":3,\"subtaskCount\":1,"
+                + "\"childEpicCount\":0,\"progress\":66}]", JSONTaskFormat.toJson(List.of(rollup)));
+        assertEquals("[]", JSONTaskFormat.toJson(List.<EpicRollup>of()));
+    }
+}
@@ -0,0 +1,59 @@
+package utils;
+
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonTaskReaderTest {
+    private static JsonTaskReader reader(String json, int bufferSize) {
+        return new JsonTaskReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), bufferSize);
+    }
+
+    @Test
+    void shouldReadArrayAcrossBufferBoundaries() throws IOException {
+        String json = "[ {\"id\":2,\"name\":\"Первая \\u0041 \uD83D\uDE00\",\"status\":\"DONE\",\"epicId\":1},"
+                + "{\"epicId\":-5,\"unknown\":[1,{\"a\":null}],\"id\":3,\"status\":null} ]";
+        for (int bufferSize : new int[]{1, 3, 8192}) {
+            List<Task> tasks = new ArrayList<>();
+            JsonTaskReader reader = reader(json, bufferSize);
+            reader.readArray(TaskType.SUBTASK, tasks::add);
+            reader.expectEnd();
+
+            assertEquals(2, tasks.size());
+            Subtask first = (Subtask) tasks.get(0);
+            assertEquals("Первая A \uD83D\uDE00", first.getName());
+            assertEquals(Status.DONE, first.getStatus());
+            assertEquals(1, first.getEpicId());
+            Subtask second = (Subtask) tasks.get(1);
+            assertEquals(3, second.getId());
+            assertEquals(-5, second.getEpicId());
+            assertNull(second.getStatus());
+        }
+    }
+
+    @Test
+    void shouldReadEpicWithDefaultStatus() throws IOException {
+        Epic epic = (Epic) reader("{\"subtaskIds\":[4,5],\"status\":null}", 4).read(TaskType.EPIC);
+        assertEquals(List.of(4, 5), epic.getSubtaskIds());
+        assertEquals(Status.NEW, epic.getStatus());
+    }
+
+    @Test
+    void shouldRejectMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> reader("{\"status\":\"LATER\"}", 16).read(TaskType.TASK));
+        assertThrows(IllegalArgumentException.class, () -> reader("{\"id\":3000000000}", 16).read(TaskType.TASK));
+        assertThrows(IllegalArgumentException.class, () -> reader("{\"name\":\"\\x\"}", 16).read(TaskType.TASK));
+        assertThrows(IllegalArgumentException.class, () -> reader("[{}", 16).readArray(TaskType.TASK, task -> { }));
+    }
+}
@@ -0,0 +1,69 @@
+package utils;
+
+import enums.Status;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonTaskWriterTest {
+    @Test
+    void shouldWriteArrayOfAllTypes() throws IOException {
+        Epic epic = new Epic("Epic", null, 1, Status.NEW);
+        epic.setSubtaskIds(List.of(2, 3));
+        Subtask subtask = new Subtask("Sub", "D", 2, Status.DONE, 1);
+        Task task = new Task("T", "D", 4, null);
+        task.setStartTime(LocalDateTime.of(2024, 1, 31, 9, 5));
+        task.setDuration(Duration.ofMinutes(90));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonTaskWriter writer = new JsonTaskWriter(out)) {
+            writer.beginArray();
+            writer.write(epic);
+            writer.write(subtask);
+            writer.write(task);
+            writer.endArray();
+        }
+
+        assertEquals("[{\"id\":1,\"name\":\"Epic\",\"description\":null,\"status\":\"NEW\",\"subtaskIds\":[2,3],"
+                        + "\"startTime\":null,\"duration\":null,\"endTime\":null},"
+                        + "{\"id\":2,\"name\":\"Sub\",\"description\":\"D\",\"status\":\"DONE\",\"epicId\":1,"
+                        + "\"startTime\":null,\"duration\":null,\"endTime\":null},"
+                        + "{\"id\":4,\"name\":\"T\",\"description\":\"D\",\"status\":null,"
+                        + "\"startTime\":\"2024-01-31T09:05:00\",\"duration\":90,\"endTime\":\"2024-01-31T10:35:00\"}]",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldEncodeEscapesAndUnicodeWithSmallBuffer() throws IOException {
+        String name = "Кавычка \" слэш \\ перенос \n управляющий \u0001 эмодзи \uD83D\uDE00";
+        Task task = new Task(name, "", Integer.MIN_VALUE, Status.IN_PROGRESS);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonTaskWriter writer = new JsonTaskWriter(out, 26)) {
+            writer.write(task);
+        }
+
+        String json = out.toString(StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"id\":-2147483648"));
+        assertTrue(json.contains("Кавычка \\\" слэш \\\\ перенос \\n управляющий \\u0001 эмодзи \uD83D\uDE00"));
+        assertEquals(task.getName(), JSONTaskFormat.fromJson(json, enums.TaskType.TASK).getName());
+    }
+
+    @Test
+    void shouldRejectUnbalancedArrays() throws IOException {
+        JsonTaskWriter writer = new JsonTaskWriter(new ByteArrayOutputStream());
+        assertThrows(IllegalStateException.class, writer::endArray);
+        writer.beginArray();
+        assertThrows(IllegalStateException.class, writer::beginArray);
+    }
+}
@@ -0,0 +1,68 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    @Test
+    void bucketsShouldKeepValuesWithinThreePercent() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong(LatencyHistogram.MAX_VALUE);
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value));
+            assertTrue(highest >= value && highest - value <= value / 32, "Значение " + value);
+        }
+        for (long value = 0; value < 64; value++) {
+            assertEquals(value, LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value)));
+        }
+        assertTrue(LatencyHistogram.bucketOf(LatencyHistogram.MAX_VALUE)
+                > LatencyHistogram.bucketOf(LatencyHistogram.MAX_VALUE / 2));
+    }
+
+    @Test
+    void percentilesShouldFollowRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500_500, snapshot.getMean(), 0.001);
+        assertEquals(1_000_000, snapshot.getMax());
+        assertEquals(500_000, snapshot.getP50(), 500_000 / 32.0);
+        assertEquals(990_000, snapshot.getP99(), 990_000 / 32.0);
+        assertEquals(snapshot.getMax(), snapshot.getValueAtPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(101));
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getP99());
+    }
+
+    @Test
+    void concurrentRecordsShouldNotBeLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            long value = t + 1;
+            Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(value);
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+
+        assertEquals(80_000, histogram.snapshot().getCount());
+        assertEquals(8, histogram.snapshot().getMax());
+        histogram.recordSince(LatencyHistogram.NOT_STARTED);
+        assertEquals(80_000, histogram.snapshot().getCount());
+    }
+}
@@ -0,0 +1,39 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapColumnTest {
+
+    @Test
+    void unwrittenRowsShouldReadAsZeroWithoutAllocation() {
+        OffHeapColumn column = new OffHeapColumn(Long.BYTES);
+        assertEquals(0, column.getLong(5_000_000));
+        assertEquals(0, column.getAllocatedBytes());
+
+        column.putLong(5_000_000, Long.MIN_VALUE);
+        assertEquals(Long.MIN_VALUE, column.getLong(5_000_000));
+        assertEquals(0, column.getLong(5_000_001));
+        assertEquals((long) OffHeapColumn.ROWS_PER_PAGE * Long.BYTES, column.getAllocatedBytes(),
+                "Выделяется только страница записанной строки");
+    }
+
+    @Test
+    void shouldKeepValuesAcrossPageBoundaries() {
+        OffHeapColumn ints = new OffHeapColumn(Integer.BYTES);
+        OffHeapColumn bytes = new OffHeapColumn(Byte.BYTES);
+        for (int row = OffHeapColumn.ROWS_PER_PAGE - 3; row < OffHeapColumn.ROWS_PER_PAGE + 3; row++) {
+            ints.putInt(row, -row);
+            bytes.putByte(row, (byte) row);
+        }
+        for (int row = OffHeapColumn.ROWS_PER_PAGE - 3; row < OffHeapColumn.ROWS_PER_PAGE + 3; row++) {
+            assertEquals(-row, ints.getInt(row));
+            assertEquals((byte) row, bytes.getByte(row));
+        }
+
+        ints.clear();
+        assertEquals(0, ints.getInt(OffHeapColumn.ROWS_PER_PAGE));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapColumn(2));
+    }
+}
@@ -0,0 +1,38 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringArenaTest {
+
+    @Test
+    void shouldReturnStoredStringsAndNull() {
+        StringArena arena = new StringArena();
+        long empty = arena.put("");
+        long text = arena.put("Задача ё");
+        long big = arena.put("y".repeat(StringArena.PAGE_SIZE));
+
+        assertEquals(StringArena.NULL, arena.put(null));
+        assertNull(arena.get(StringArena.NULL));
+        assertEquals("", arena.get(empty));
+        assertEquals("Задача ё", arena.get(text));
+        assertEquals(StringArena.PAGE_SIZE, arena.get(big).length(), "Строка длиннее страницы получает свою страницу");
+    }
+
+    @Test
+    void releasedStringsShouldBeCountedAsGarbageUntilCopied() {
+        StringArena arena = new StringArena();
+        long kept = arena.put("живая");
+        long dropped = arena.put("мусор");
+        long live = arena.getLiveBytes();
+        arena.release(dropped);
+
+        assertEquals(live, arena.getLiveBytes() + arena.getGarbageBytes());
+        StringArena compacted = new StringArena();
+        long copied = arena.copyTo(kept, compacted);
+        assertEquals("живая", compacted.get(copied));
+        assertEquals(arena.getLiveBytes(), compacted.getLiveBytes());
+        assertEquals(0, compacted.getGarbageBytes());
+    }
+}
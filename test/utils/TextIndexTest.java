@@ -0,0 +1,268 @@
+package utils;
+
+import enums.SearchOrder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextIndexTest {
+    private static List<Integer> search(TextIndex index, String query, SearchOrder order, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id : index.search(query, order, limit)) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    @Test
+    void tokenizeShouldSplitOnNonLettersAndLowercase() {
+        assertEquals(List.of("купить", "молоко", "2", "литра", "e2e"),
+                TextIndex.tokenize("Купить МОЛОКО: 2 литра, e2e!"));
+        assertEquals(List.of("еж"), TextIndex.tokenize("Ёж"));
+        assertTrue(TextIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void shouldFindByTokenPrefixAndAllTerms() {
+        TextIndex index = new TextIndex();
+        index.put(1, "Купить молоко", "В магазине у дома");
+        index.put(2, "Купить хлеб", "Свежий");
+        index.put(3, "Починить кран", "Вызвать мастера домой");
+
+        assertEquals(List.of(1, 2), search(index, "купить", SearchOrder.ID, 10));
+        assertEquals(List.of(1), search(index, "КУПИТЬ молоко", SearchOrder.ID, 10));
+        assertEquals(List.of(1, 3), search(index, "дом*", SearchOrder.ID, 10));
+        assertEquals(List.of(3), search(index, "дом* мастер*", SearchOrder.ID, 10));
+        assertEquals(List.of(1), search(index, "купить", SearchOrder.ID, 1));
+        assertTrue(search(index, "купить кран", SearchOrder.ID, 10).isEmpty());
+        assertTrue(search(index, "   ", SearchOrder.ID, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> index.search("купить", SearchOrder.ID, 0));
+    }
+
+    @Test
+    void updateAndRemoveShouldBeVisibleImmediately() {
+        TextIndex index = new TextIndex();
+        index.put(1, "Отчёт", "квартальный");
+        index.put(2, "Отчёт", "годовой");
+
+        index.put(1, "Презентация", "квартальная");
+        assertEquals(List.of(2), search(index, "отчёт", SearchOrder.ID, 10));
+        assertEquals(List.of(1), search(index, "презентация", SearchOrder.ID, 10));
+
+        // Слово, вернувшееся в задачу, находится один раз
+        index.put(1, "Отчёт", "снова");
+        assertEquals(List.of(1, 2), search(index, "отчёт", SearchOrder.ID, 10));
+
+        index.remove(2);
+        assertEquals(List.of(1), search(index, "отчёт", SearchOrder.ID, 10));
+        assertTrue(search(index, "годовой", SearchOrder.ID, 10).isEmpty());
+        assertEquals(1, index.size());
+
+        index.clear();
+        assertTrue(search(index, "отчёт", SearchOrder.ID, 10).isEmpty());
+        assertEquals(0, index.getTermCount());
+    }
+
+    @Test
+    void relevanceShouldPreferNameAndRepeatedWords() {
+        TextIndex index = new TextIndex();
+        index.put(1, "Задача", "сервер");
+        index.put(2, "Сервер", "перезапустить");
+        index.put(3, "Сервер сервер", "сервер");
+        index.put(4, "Задача", "сервер");
+
+        assertEquals(List.of(3, 2, 1, 4), search(index, "сервер", SearchOrder.RELEVANCE, 10));
+        assertEquals(List.of(3, 2), search(index, "сервер", SearchOrder.RELEVANCE, 2));
+        assertEquals(List.of(2), search(index, "сервер пер*", SearchOrder.RELEVANCE, 10));
+
+        // Вес слова меняется, даже если само слово в задаче осталось
+        index.put(4, "Сервер сервер сервер", "");
+        assertEquals(List.of(4, 3, 2, 1), search(index, "сервер", SearchOrder.RELEVANCE, 10));
+    }
+
+    @Test
+    void deadPostingsShouldBeCompacted() {
+        TextIndex index = new TextIndex();
+        for (int id = 1; id <= 1000; id++) {
+            index.put(id, "Общее слово", "уникальное" + id);
+        }
+        long postings = index.getPostingCount();
+        for (int id = 1; id <= 1000; id++) {
+            index.put(id, "Общее", "уникальное" + id);
+        }
+
+        assertEquals(1000, index.size());
+        assertTrue(search(index, "слово", SearchOrder.ID, 10).isEmpty());
+        assertTrue(index.getPostingCount() < postings, "Мёртвые записи слова должны вычищаться");
+        assertEquals(1001, index.getTermCount());
+        assertTrue(index.estimateFootprint() > 0);
+    }
+
+    @Test
+    void removeIfShouldMatchRemovingEachDocument() {
+        TextIndex bulk = new TextIndex();
+        TextIndex single = new TextIndex();
+        for (int id = 1; id <= 1000; id++) {
+            String name = "Задача " + id + (id % 3 == 0 ? " релиз" : "");
+            bulk.put(id, name, "общее описание");
+            single.put(id, name, "общее описание");
+        }
+        // Мёртвые записи до удаления тоже должны учитываться верно
+        bulk.put(5, "Задача 5", "");
+        single.put(5, "Задача 5", "");
+
+        bulk.removeIf(id -> id > 100);
+        for (int id = 101; id <= 1000; id++) {
+            single.remove(id);
+        }
+
+        assertEquals(100, bulk.size());
+        assertEquals(single.getTermCount(), bulk.getTermCount());
+        for (String query : new String[]{"релиз", "общее", "задача", "50", "500", "опис*"}) {
+            assertEquals(search(single, query, SearchOrder.RELEVANCE, 200), search(bulk, query, SearchOrder.RELEVANCE, 200),
+                    "Запрос " + query);
+        }
+        assertEquals(List.of(5), search(bulk, "5", SearchOrder.ID, 10));
+    }
+
+    @Test
+    void detachedDocumentsShouldBeRestoredWithoutReindexing() {
+        TextIndex index = new TextIndex();
+        for (int id = 1; id <= 1000; id++) {
+            index.put(id, "Задача " + id + (id % 2 == 0 ? " релиз" : ""), "общее описание");
+        }
+        List<Integer> before = search(index, "релиз", SearchOrder.RELEVANCE, 1000);
+        long postings = index.getPostingCount();
+
+        TextIndex.Detached detached = index.detachIf(id -> id > 100);
+        assertEquals(900, detached.size());
+        assertEquals(100, index.size());
+        assertEquals(50, search(index, "релиз", SearchOrder.ID, 1000).size());
+        // Изменения оставшихся документов сжимают списки, но записи отсоединённых сохраняются
+        for (int id = 1; id <= 100; id++) {
+            index.put(id, "Задача " + id, "описание");
+        }
+        assertTrue(search(index, "релиз", SearchOrder.ID, 10).isEmpty());
+
+        index.attach(detached);
+        assertEquals(1000, index.size());
+        assertEquals(before.stream().filter(id -> id > 100).toList(),
+                search(index, "релиз", SearchOrder.RELEVANCE, 1000));
+        assertEquals(List.of(500), search(index, "500", SearchOrder.ID, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.attach(detached));
+
+        TextIndex.Detached again = index.detach(new int[]{500, 501, 5000});
+        assertEquals(2, again.size());
+        index.release(again);
+        assertTrue(search(index, "500", SearchOrder.ID, 10).isEmpty());
+        assertEquals(998, index.size());
+        assertTrue(index.getPostingCount() <= postings);
+        assertThrows(IllegalArgumentException.class, () -> index.release(again));
+
+        // Снимается меньшая часть: набор собирается отдельно, а при возврате вливается в индекс
+        TextIndex.Detached few = index.detachIf(id -> id % 100 == 0);
+        assertEquals(9, few.size());
+        assertTrue(search(index, "300", SearchOrder.ID, 10).isEmpty());
+        index.attach(few);
+        assertEquals(998, index.size());
+        assertEquals(List.of(300), search(index, "300", SearchOrder.ID, 10));
+    }
+
+    @Test
+    void randomizedQueriesShouldMatchLinearScan() {
+        Random random = new Random(17);
+        String[] vocabulary = {"alpha", "alpine", "beta", "bet", "gamma", "game", "delta", "del", "omega", "om"};
+        TextIndex index = new TextIndex();
+        Map<Integer, String> texts = new HashMap<>();
+        for (int step = 0; step < 5000; step++) {
+            int id = 1 + random.nextInt(300);
+            if (random.nextInt(5) == 0) {
+                index.remove(id);
+                texts.remove(id);
+                continue;
+            }
+            StringBuilder name = new StringBuilder();
+            for (int i = random.nextInt(4); i >= 0; i--) {
+                name.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+            }
+            String description = vocabulary[random.nextInt(vocabulary.length)];
+            index.put(id, name.toString(), description);
+            texts.put(id, name + "|" + description);
+
+            if (step % 50 == 0) {
+                String first = vocabulary[random.nextInt(vocabulary.length)];
+                String second = vocabulary[random.nextInt(vocabulary.length)].substring(0, 2);
+                String query = first + " " + second + "*";
+                List<Integer> expected = new ArrayList<>();
+                for (int candidate = 1; candidate <= 300; candidate++) {
+                    String text = texts.get(candidate);
+                    if (text != null && matches(text, first, second)) {
+                        expected.add(candidate);
+                    }
+                }
+                assertEquals(expected, search(index, query, SearchOrder.ID, Integer.MAX_VALUE), query);
+                List<Integer> ranked = new ArrayList<>(search(index, query, SearchOrder.RELEVANCE, 1000));
+                ranked.sort(null);
+                assertEquals(expected, ranked, query);
+
+                for (SearchOrder order : SearchOrder.values()) {
+                    assertEquals(search(index, query, order, 10), scan(texts, query, order, 10), query);
+                }
+
+                // Для одного слова релевантность - это вес слова в задаче
+                List<Integer> byWeight = new ArrayList<>();
+                for (int candidate = 1; candidate <= 300; candidate++) {
+                    if (texts.containsKey(candidate) && weight(texts.get(candidate), first) > 0) {
+                        byWeight.add(candidate);
+                    }
+                }
+                byWeight.sort((a, b) -> Integer.compare(weight(texts.get(b), first), weight(texts.get(a), first)));
+                assertEquals(byWeight.subList(0, Math.min(10, byWeight.size())),
+                        search(index, first, SearchOrder.RELEVANCE, 10), first);
+            }
+        }
+    }
+
+    private static List<Integer> scan(Map<Integer, String> texts, String query, SearchOrder order, int limit) {
+        TextIndex.Scan scan = new TextIndex.Scan(query, order, limit);
+        for (int id = 1; id <= 300; id++) {
+            String text = texts.get(id);
+            if (text != null && !scan.accept(id, text.substring(0, text.indexOf('|')),
+                    text.substring(text.indexOf('|') + 1))) {
+                break;
+            }
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (int id : scan.result()) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    // Вхождение в имя (до '|') весит 3, в описание - 1
+    private static int weight(String text, String word) {
+        int separator = text.indexOf('|');
+        return 3 * count(text.substring(0, separator), word) + count(text.substring(separator + 1), word);
+    }
+
+    private static int count(String text, String word) {
+        int count = 0;
+        for (String token : TextIndex.tokenize(text)) {
+            if (token.equals(word)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean matches(String text, String word, String prefix) {
+        List<String> tokens = TextIndex.tokenize(text);
+        return tokens.contains(word) && tokens.stream().anyMatch(token -> token.startsWith(prefix));
+    }
+}